@@ -1525,6 +1525,8 @@ void* TaskWorkerPool::_report_olap_table_worker_thread_callback(void* arg_this)
     request.__set_backend(worker_pool_this->_backend);
     request.__isset.tablets = true;
     AgentStatus status = PALO_SUCCESS;
+    // digests of last report accepted by master, empty if next report should be a full one
+    vector<int64_t> last_digests;
 
 #ifndef BE_TEST
     while (true) {
@@ -1533,6 +1535,9 @@ void* TaskWorkerPool::_report_olap_table_worker_thread_callback(void* arg_this)
                 worker_pool_this->_master_info,
                 &_master_service_client_cache);
         request.tablets.clear();
+        request.tablet_bucket_digests.clear();
+        request.__isset.tablet_bucket_digests = false;
+        request.__set_is_delta_tablet_report(false);
 
         request.__set_report_version(_s_report_version);
         OLAPStatus report_all_tablets_info_status =
@@ -1548,16 +1553,45 @@ void* TaskWorkerPool::_report_olap_table_worker_thread_callback(void* arg_this)
 #endif
         }
 
+        vector<int64_t> digests;
+        int32_t bucket_num = config::report_tablet_digest_bucket_num;
+        if (bucket_num > 0) {
+            _compute_tablet_digests(request.tablets, bucket_num, &digests);
+            request.__set_tablet_bucket_digests(digests);
+            if (last_digests.size() == digests.size()) {
+                // only report tablets of changed buckets
+                auto it = request.tablets.begin();
+                while (it != request.tablets.end()) {
+                    int32_t bucket = _get_tablet_bucket(it->first, bucket_num);
+                    if (digests[bucket] == last_digests[bucket]) {
+                        it = request.tablets.erase(it);
+                    } else {
+                        ++it;
+                    }
+                }
+                request.__set_is_delta_tablet_report(true);
+            }
+        }
+
         TMasterResult result;
         status = worker_pool_this->_master_client->report(request, &result);
 
         if (status == PALO_SUCCESS) {
-            OLAP_LOG_INFO("finish report olap table success. return code: %d",
-                          result.status.status_code);
+            OLAP_LOG_INFO("finish report olap table success. return code: %d, delta: %d, tablets: %d",
+                          result.status.status_code, request.is_delta_tablet_report,
+                          static_cast<int>(request.tablets.size()));
         } else {
             OLAP_LOG_WARNING("finish report olap table failed. status: %d", status);
         }
 
+        if (status == PALO_SUCCESS
+                && result.status.status_code == TStatusCode::OK
+                && !(result.__isset.need_full_tablet_report && result.need_full_tablet_report)) {
+            last_digests.swap(digests);
+        } else {
+            last_digests.clear();
+        }
+
 #ifndef BE_TEST
         sleep(config::report_olap_table_interval_seconds);
     }
@@ -1958,6 +1992,44 @@ void* TaskWorkerPool::_release_snapshot_thread_callback(void* arg_this) {
     return (void*)0;
 }
 
+int32_t TaskWorkerPool::_get_tablet_bucket(TTabletId tablet_id, int32_t bucket_num) {
+    return static_cast<int32_t>(((tablet_id % bucket_num) + bucket_num) % bucket_num);
+}
+
+uint64_t TaskWorkerPool::_get_tablet_info_hash(const TTabletInfo& tablet_info) {
+    const uint64_t prime = 0x9E3779B97F4A7C15ULL;
+    int64_t storage_medium = tablet_info.__isset.storage_medium ? tablet_info.storage_medium : -1;
+    uint64_t h = static_cast<uint64_t>(tablet_info.tablet_id);
+    h = h * prime + static_cast<uint64_t>(static_cast<int64_t>(tablet_info.schema_hash));
+    h = h * prime + static_cast<uint64_t>(tablet_info.version);
+    h = h * prime + static_cast<uint64_t>(tablet_info.version_hash);
+    h = h * prime + static_cast<uint64_t>(storage_medium);
+    // finalizer of murmur3
+    h ^= h >> 33;
+    h *= 0xff51afd7ed558ccdULL;
+    h ^= h >> 33;
+    h *= 0xc4ceb3f99c5f59b3ULL;
+    h ^= h >> 33;
+    return h;
+}
+
+void TaskWorkerPool::_compute_tablet_digests(
+        const map<TTabletId, TTablet>& tablets,
+        int32_t bucket_num,
+        vector<int64_t>* digests) {
+    vector<uint64_t> sums(bucket_num, 0);
+    for (auto& tablet : tablets) {
+        int32_t bucket = _get_tablet_bucket(tablet.first, bucket_num);
+        for (auto& tablet_info : tablet.second.tablet_infos) {
+            sums[bucket] += _get_tablet_info_hash(tablet_info);
+        }
+    }
+    digests->clear();
+    for (uint64_t sum : sums) {
+        digests->push_back(static_cast<int64_t>(sum));
+    }
+}
+
 AlterTableStatus TaskWorkerPool::_show_alter_table_status(
         TTabletId tablet_id,
         TSchemaHash schema_hash) {
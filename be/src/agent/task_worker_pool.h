@@ -134,6 +134,15 @@ private:
             int64_t signature,
             TTabletInfo* tablet_info);
 
+    // Digests of tablets are bucketed by tablet id, and must be computed
+    // in the same way as TabletReportDigest in frontend.
+    static int32_t _get_tablet_bucket(TTabletId tablet_id, int32_t bucket_num);
+    static uint64_t _get_tablet_info_hash(const TTabletInfo& tablet_info);
+    static void _compute_tablet_digests(
+            const std::map<TTabletId, TTablet>& tablets,
+            int32_t bucket_num,
+            std::vector<int64_t>* digests);
+
     const TMasterInfo& _master_info;
     TBackend _backend;
     AgentUtils* _agent_utils;
@@ -83,6 +83,9 @@ namespace config {
     CONF_Int32(report_disk_state_interval_seconds, "600");
     // the interval time(seconds) for agent report olap table to dm
     CONF_Int32(report_olap_table_interval_seconds, "600");
+    // the bucket num of tablet digests in olap table report. tablets of unchanged buckets
+    // are not reported to dm. 0 means always report all tablets
+    CONF_Int32(report_tablet_digest_bucket_num, "1024");
     // the timeout(seconds) for alter table
     CONF_Int32(alter_table_timeout_seconds, "86400");
     // the timeout(seconds) for make snapshot
@@ -147,6 +150,8 @@ namespace config {
     CONF_Bool(compress_rowbatches, "true");
     // serialize and deserialize each returned row batch
     CONF_Bool(serialize_batch, "false");
+    // max bytes of query results buffered in backend, waiting to be fetched by frontend
+    CONF_Int64(result_buffer_max_bytes, "67108864");
     // interval between profile reports; in seconds
     CONF_Int32(status_report_interval, "5");
     // Local directory to copy UDF libraries from HDFS into
@@ -251,6 +256,12 @@ namespace config {
     // Used for mini Load
     CONF_Int64(load_data_reserve_hours, "24");
     CONF_Int64(mini_load_max_mb, "2048");
+    // Max bytes of data received but not read by load plan of one stream load.
+    // Receiving is blocked when exceeded.
+    CONF_Int64(stream_load_pipe_buffer_mb, "64");
+    // Stream load fails if its data is not sent by client or not read by load plan in this time.
+    // It should be longer than the time that frontend schedules a load job.
+    CONF_Int32(stream_load_pipe_timeout_second, "300");
 
     // Fragment thread pool
     CONF_Int32(fragment_pool_thread_num, "64");
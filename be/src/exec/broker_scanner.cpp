@@ -24,7 +24,9 @@
 
 #include "runtime/descriptors.h"
 #include "runtime/mem_tracker.h"
+#include "runtime/exec_env.h"
 #include "runtime/raw_value.h"
+#include "runtime/stream_load_pipe.h"
 #include "runtime/tuple.h"
 #include "exprs/expr.h"
 #include "exec/text_converter.h"
@@ -255,6 +257,18 @@ Status BrokerScanner::open_file_reader() {
         _cur_file_reader = broker_reader;
         break;
     }
+    case TFileType::FILE_STREAM: {
+        // path is the id of stream load pipe, which is receiving data in this backend
+        std::shared_ptr<StreamLoadPipe> pipe = _state->exec_env()->stream_load_pipe_mgr()->get(range.path);
+        if (pipe == nullptr) {
+            std::stringstream ss;
+            ss << "Stream load pipe is not found, id=" << range.path;
+            return Status(ss.str());
+        }
+        RETURN_IF_ERROR(pipe->open_reader());
+        _cur_file_reader = new StreamLoadPipeReader(pipe);
+        break;
+    }
     default: {
         std::stringstream ss;
         ss << "Unknown file type, type=" << range.file_type;
@@ -24,10 +24,16 @@
 
 #include "codegen/llvm_codegen.h"
 #include "exec/hash_table.hpp"
+#include "exprs/binary_predicate.h"
 #include "exprs/expr.h"
 #include "exprs/in_predicate.h"
 #include "exprs/slot_ref.h"
+#include "runtime/datetime_value.h"
+#include "runtime/decimal_value.h"
+#include "runtime/large_int_value.h"
+#include "runtime/raw_value.h"
 #include "runtime/row_batch.h"
+#include "runtime/string_value.h"
 #include "runtime/runtime_state.h"
 #include "util/debug_util.h"
 #include "util/runtime_profile.h"
@@ -55,7 +61,14 @@ HashJoinNode::HashJoinNode(
     _match_one_build = (_join_op == TJoinOp::LEFT_SEMI_JOIN);
     _match_all_build =
         (_join_op == TJoinOp::RIGHT_OUTER_JOIN || _join_op == TJoinOp::FULL_OUTER_JOIN);
+    _build_has_rows = false;
+    _build_has_null_key = false;
     _is_push_down = tnode.hash_join_node.is_push_down;
+    if (tnode.hash_join_node.__isset.runtime_filters) {
+        _runtime_filter_descs = tnode.hash_join_node.runtime_filters;
+    }
+    _runtime_filter_max_in_num = tnode.hash_join_node.__isset.runtime_filter_max_in_num
+            ? tnode.hash_join_node.runtime_filter_max_in_num : 1024;
 }
 
 HashJoinNode::~HashJoinNode() {
@@ -80,6 +93,18 @@ Status HashJoinNode::init(const TPlanNode& tnode) {
         Expr::create_expr_trees(_pool, tnode.hash_join_node.other_join_conjuncts,
                               &_other_join_conjunct_ctxs));
 
+    if (_join_op == TJoinOp::NULL_AWARE_LEFT_ANTI_JOIN && _probe_expr_ctxs.size() > 1) {
+        // correlated subquery, build rows are looked up by the correlated eq join conjuncts
+        _null_aware_probe_expr_ctxs.push_back(_probe_expr_ctxs.back());
+        _probe_expr_ctxs.pop_back();
+        _null_aware_build_expr_ctxs.push_back(_build_expr_ctxs.back());
+        _build_expr_ctxs.pop_back();
+    } else if (_join_op == TJoinOp::NULL_AWARE_LEFT_ANTI_JOIN
+            && !_other_join_conjunct_ctxs.empty()) {
+        return Status("null aware left anti join with other join conjuncts needs "
+                      "an eq join conjunct besides the one of NOT IN.");
+    }
+
     return Status::OK;
 }
 
@@ -110,6 +135,10 @@ Status HashJoinNode::prepare(RuntimeState* state) {
             _build_expr_ctxs, state, child(1)->row_desc(), expr_mem_tracker()));
     RETURN_IF_ERROR(Expr::prepare(
             _probe_expr_ctxs, state, child(0)->row_desc(), expr_mem_tracker()));
+    RETURN_IF_ERROR(Expr::prepare(
+            _null_aware_build_expr_ctxs, state, child(1)->row_desc(), expr_mem_tracker()));
+    RETURN_IF_ERROR(Expr::prepare(
+            _null_aware_probe_expr_ctxs, state, child(0)->row_desc(), expr_mem_tracker()));
 
     // _other_join_conjuncts are evaluated in the context of the rows produced by this node
     RETURN_IF_ERROR(Expr::prepare(
@@ -141,7 +170,8 @@ Status HashJoinNode::prepare(RuntimeState* state) {
     _probe_batch.reset(new RowBatch(child(0)->row_desc(), state->batch_size(), mem_tracker()));
 
     if (state->codegen_level() > 0) {
-        if (_join_op == TJoinOp::LEFT_ANTI_JOIN) {
+        if (_join_op == TJoinOp::LEFT_ANTI_JOIN
+                || _join_op == TJoinOp::NULL_AWARE_LEFT_ANTI_JOIN) {
             return Status::OK;
         }
         LlvmCodeGen* codegen = NULL;
@@ -198,6 +228,8 @@ Status HashJoinNode::close(RuntimeState* state) {
 
     Expr::close(_build_expr_ctxs, state);
     Expr::close(_probe_expr_ctxs, state);
+    Expr::close(_null_aware_build_expr_ctxs, state);
+    Expr::close(_null_aware_probe_expr_ctxs, state);
     Expr::close(_other_join_conjunct_ctxs, state);
 #if 0
     for (auto iter : _push_down_expr_ctxs) {
@@ -208,6 +240,192 @@ Status HashJoinNode::close(RuntimeState* state) {
     return ExecNode::close(state);
 }
 
+Status HashJoinNode::push_down_runtime_filters(RuntimeState* state) {
+    std::list<ExprContext*> filter_ctxs;
+    {
+        SCOPED_TIMER(_push_compute_timer);
+        for (const TRuntimeFilterDesc& desc : _runtime_filter_descs) {
+            DCHECK_LT(desc.expr_order, _probe_expr_ctxs.size());
+            if (desc.type == TRuntimeFilterType::IN && _hash_tbl->size() <= _runtime_filter_max_in_num) {
+                ExprContext* ctx = NULL;
+                RETURN_IF_ERROR(create_in_filter(state, desc.expr_order, &ctx));
+                filter_ctxs.push_back(ctx);
+            } else {
+                RETURN_IF_ERROR(create_min_max_filter(state, desc.expr_order, &filter_ctxs));
+            }
+        }
+    }
+    VLOG(1) << "push down " << filter_ctxs.size() << " runtime filters of "
+            << _runtime_filter_descs.size() << " planned. build rows: " << _hash_tbl->size();
+
+    SCOPED_TIMER(_push_down_timer);
+    _push_down_expr_ctxs.insert(_push_down_expr_ctxs.end(), filter_ctxs.begin(), filter_ctxs.end());
+    push_down_predicate(state, &_push_down_expr_ctxs);
+    return Status::OK;
+}
+
+Status HashJoinNode::create_in_filter(RuntimeState* state, int expr_order, ExprContext** ctx) {
+    Expr* probe_expr = _probe_expr_ctxs[expr_order]->root();
+    TExprNode node;
+    node.__set_node_type(TExprNodeType::IN_PRED);
+    TScalarType tscalar_type;
+    tscalar_type.__set_type(TPrimitiveType::BOOLEAN);
+    TTypeNode ttype_node;
+    ttype_node.__set_type(TTypeNodeType::SCALAR);
+    ttype_node.__set_scalar_type(tscalar_type);
+    TTypeDesc t_type_desc;
+    t_type_desc.types.push_back(ttype_node);
+    node.__set_type(t_type_desc);
+    node.in_predicate.__set_is_not_in(false);
+    node.__set_opcode(TExprOpcode::FILTER_IN);
+    node.__isset.vector_opcode = true;
+    node.__set_vector_opcode(to_in_opcode(probe_expr->type().type));
+    InPredicate* in_pred = _pool->add(new InPredicate(node));
+    RETURN_IF_ERROR(in_pred->prepare(state, probe_expr->type()));
+    in_pred->add_child(Expr::copy(_pool, probe_expr));
+
+    HashTable::Iterator iter = _hash_tbl->begin();
+    while (iter.has_next()) {
+        in_pred->insert(_build_expr_ctxs[expr_order]->get_value(iter.get_row()));
+        iter.next<false>();
+    }
+    *ctx = _pool->add(new ExprContext(in_pred));
+    return Status::OK;
+}
+
+// Create literal expr of 'value', or set NULL if the type is not supported.
+static Status create_literal(ObjectPool* pool, const TypeDescriptor& type, void* value, Expr** expr) {
+    TExprNode node;
+    node.__set_type(type.to_thrift());
+    node.__set_num_children(0);
+    switch (type.type) {
+    case TYPE_TINYINT:
+    case TYPE_SMALLINT:
+    case TYPE_INT:
+    case TYPE_BIGINT: {
+        TIntLiteral int_literal;
+        if (type.type == TYPE_TINYINT) {
+            int_literal.__set_value(*reinterpret_cast<int8_t*>(value));
+        } else if (type.type == TYPE_SMALLINT) {
+            int_literal.__set_value(*reinterpret_cast<int16_t*>(value));
+        } else if (type.type == TYPE_INT) {
+            int_literal.__set_value(*reinterpret_cast<int32_t*>(value));
+        } else {
+            int_literal.__set_value(*reinterpret_cast<int64_t*>(value));
+        }
+        node.__set_node_type(TExprNodeType::INT_LITERAL);
+        node.__set_int_literal(int_literal);
+        break;
+    }
+    case TYPE_LARGEINT: {
+        char buf[48];
+        int len = 48;
+        char* start = LargeIntValue::to_string(*reinterpret_cast<__int128*>(value), buf, &len);
+        TLargeIntLiteral large_int_literal;
+        large_int_literal.__set_value(std::string(start, len));
+        node.__set_node_type(TExprNodeType::LARGE_INT_LITERAL);
+        node.__set_large_int_literal(large_int_literal);
+        break;
+    }
+    case TYPE_DATE:
+    case TYPE_DATETIME: {
+        char buf[64];
+        reinterpret_cast<DateTimeValue*>(value)->to_string(buf);
+        TDateLiteral date_literal;
+        date_literal.__set_value(std::string(buf));
+        node.__set_node_type(TExprNodeType::DATE_LITERAL);
+        node.__set_date_literal(date_literal);
+        break;
+    }
+    case TYPE_DECIMAL: {
+        TDecimalLiteral decimal_literal;
+        decimal_literal.__set_value(reinterpret_cast<DecimalValue*>(value)->to_string());
+        node.__set_node_type(TExprNodeType::DECIMAL_LITERAL);
+        node.__set_decimal_literal(decimal_literal);
+        break;
+    }
+    case TYPE_CHAR:
+    case TYPE_VARCHAR: {
+        StringValue* str_value = reinterpret_cast<StringValue*>(value);
+        TStringLiteral string_literal;
+        string_literal.__set_value(std::string(str_value->ptr, str_value->len));
+        node.__set_node_type(TExprNodeType::STRING_LITERAL);
+        node.__set_string_literal(string_literal);
+        break;
+    }
+    default:
+        *expr = NULL;
+        return Status::OK;
+    }
+
+    TExpr texpr;
+    texpr.nodes.push_back(node);
+    ExprContext* ctx = NULL;
+    RETURN_IF_ERROR(Expr::create_expr_tree(pool, texpr, &ctx));
+    *expr = ctx->root();
+    return Status::OK;
+}
+
+Status HashJoinNode::create_min_max_filter(
+        RuntimeState* state, int expr_order, std::list<ExprContext*>* ctxs) {
+    Expr* probe_expr = _probe_expr_ctxs[expr_order]->root();
+    const TypeDescriptor& type = probe_expr->type();
+    if (_build_expr_ctxs[expr_order]->root()->type() != type) {
+        return Status::OK;
+    }
+
+    // values are copied, because value of non slot ref expr is overwritten by the next row
+    int slot_size = type.get_slot_size();
+    void* min_value = NULL;
+    void* max_value = NULL;
+    HashTable::Iterator iter = _hash_tbl->begin();
+    while (iter.has_next()) {
+        void* value = _build_expr_ctxs[expr_order]->get_value(iter.get_row());
+        iter.next<false>();
+        if (value == NULL) {
+            continue;
+        }
+        if (min_value == NULL) {
+            min_value = _build_pool->allocate(slot_size);
+            max_value = _build_pool->allocate(slot_size);
+            RawValue::write(value, min_value, type, _build_pool.get());
+            RawValue::write(value, max_value, type, _build_pool.get());
+        } else if (RawValue::compare(value, min_value, type) < 0) {
+            RawValue::write(value, min_value, type, _build_pool.get());
+        } else if (RawValue::compare(value, max_value, type) > 0) {
+            RawValue::write(value, max_value, type, _build_pool.get());
+        }
+    }
+    if (min_value == NULL) {
+        return Status::OK;
+    }
+
+    TExprOpcode::type opcodes[2] = {TExprOpcode::GE, TExprOpcode::LE};
+    void* values[2] = {min_value, max_value};
+    for (int i = 0; i < 2; ++i) {
+        Expr* literal = NULL;
+        RETURN_IF_ERROR(create_literal(_pool, type, values[i], &literal));
+        if (literal == NULL) {
+            return Status::OK;
+        }
+        TExprNode node;
+        node.__set_node_type(TExprNodeType::BINARY_PRED);
+        node.__set_type(TypeDescriptor(TYPE_BOOLEAN).to_thrift());
+        node.__set_num_children(2);
+        node.__set_opcode(opcodes[i]);
+        node.__set_child_type(to_thrift(type.type));
+        Expr* pred = BinaryPredicate::from_thrift(node);
+        if (pred == NULL) {
+            return Status::OK;
+        }
+        _pool->add(pred);
+        pred->add_child(Expr::copy(_pool, probe_expr));
+        pred->add_child(literal);
+        ctxs->push_back(_pool->add(new ExprContext(pred)));
+    }
+    return Status::OK;
+}
+
 void HashJoinNode::build_side_thread(RuntimeState* state, boost::promise<Status>* status) {
     status->set_value(construct_hash_table(state));
     // Release the thread token as soon as possible (before the main thread joins
@@ -262,6 +480,8 @@ Status HashJoinNode::open(RuntimeState* state) {
     RETURN_IF_CANCELLED(state);
     RETURN_IF_ERROR(Expr::open(_build_expr_ctxs, state));
     RETURN_IF_ERROR(Expr::open(_probe_expr_ctxs, state));
+    RETURN_IF_ERROR(Expr::open(_null_aware_build_expr_ctxs, state));
+    RETURN_IF_ERROR(Expr::open(_null_aware_probe_expr_ctxs, state));
     RETURN_IF_ERROR(Expr::open(_other_join_conjunct_ctxs, state));
 
     _eos = false;
@@ -285,7 +505,7 @@ Status HashJoinNode::open(RuntimeState* state) {
         _is_push_down = false;
     }
 
-    if (_is_push_down) {
+    if (_is_push_down || !_runtime_filter_descs.empty()) {
         // Blocks until ConstructHashTable has returned, after which
         // the hash table is fully constructed and we can start the probe
         // phase.
@@ -305,8 +525,10 @@ Status HashJoinNode::open(RuntimeState* state) {
             _is_push_down = false;
         }
 
-        // TODO: this is used for Code Check, Remove this later
-        if (_is_push_down || 0 != child(1)->conjunct_ctxs().size()) {
+        if (!_runtime_filter_descs.empty()) {
+            RETURN_IF_ERROR(push_down_runtime_filters(state));
+        } else if (_is_push_down || 0 != child(1)->conjunct_ctxs().size()) {
+            // TODO: this is used for Code Check, Remove this later
             for (int i = 0; i < _probe_expr_ctxs.size(); ++i) {
                 TExprNode node;
                 node.__set_node_type(TExprNodeType::IN_PRED);
@@ -376,6 +598,13 @@ Status HashJoinNode::open(RuntimeState* state) {
         RETURN_IF_ERROR(open_status);
     }
 
+    if (_join_op == TJoinOp::NULL_AWARE_LEFT_ANTI_JOIN && _build_has_null_key) {
+        // 'x NOT IN (...)' is never true if the values contain null
+        _hash_tbl_iterator = _hash_tbl->begin();
+        _eos = true;
+        return Status::OK;
+    }
+
     // seed probe batch and _current_probe_row, etc.
     while (true) {
         RETURN_IF_ERROR(child(0)->get_next(state, _probe_batch.get(), &_probe_eos));
@@ -702,6 +931,34 @@ Status HashJoinNode::left_join_get_next(RuntimeState* state,
     return Status::OK;
 }
 
+bool HashJoinNode::is_anti_join_output(TupleRow* probe_row) {
+    if (_join_op == TJoinOp::LEFT_ANTI_JOIN) {
+        return true;
+    }
+    if (_join_op != TJoinOp::NULL_AWARE_LEFT_ANTI_JOIN) {
+        return false;
+    }
+    if (!_null_aware_probe_expr_ctxs.empty()) {
+        // every build row matching the probe row has been checked by null_aware_match()
+        return true;
+    }
+    // 'null NOT IN (...)' is null unless the values are empty
+    return !_build_has_rows || _probe_expr_ctxs[0]->get_value(probe_row) != NULL;
+}
+
+bool HashJoinNode::null_aware_match(TupleRow* probe_row, TupleRow* build_row) {
+    void* probe_value = _null_aware_probe_expr_ctxs[0]->get_value(probe_row);
+    if (probe_value == NULL) {
+        return true;
+    }
+    void* build_value = _null_aware_build_expr_ctxs[0]->get_value(build_row);
+    if (build_value == NULL) {
+        return true;
+    }
+    return RawValue::eq(probe_value, build_value,
+                        _null_aware_probe_expr_ctxs[0]->root()->type());
+}
+
 string HashJoinNode::get_probe_row_output_string(TupleRow* probe_row) {
     std::stringstream out;
     out << "[";
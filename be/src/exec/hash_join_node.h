@@ -83,15 +83,34 @@ private:
     std::vector<ExprContext*> _build_expr_ctxs;
     std::list<ExprContext*> _push_down_expr_ctxs;
 
+    // filters planned by frontend, which replace the IN predicates of all eq join
+    // conjuncts pushed down when _is_push_down is true.
+    std::vector<TRuntimeFilterDesc> _runtime_filter_descs;
+    int64_t _runtime_filter_max_in_num;
+
     // non-equi-join conjuncts from the JOIN clause
     std::vector<ExprContext*> _other_join_conjunct_ctxs;
 
+    // for null aware left anti join of a correlated subquery: the probe and build exprs
+    // of the NOT IN predicate, which is the last eq join conjunct from frontend.
+    // They are not keys of _hash_tbl, but are compared on the build rows which match
+    // the probe row by the other eq join conjuncts and _other_join_conjunct_ctxs.
+    // Empty for other joins.
+    std::vector<ExprContext*> _null_aware_probe_expr_ctxs;
+    std::vector<ExprContext*> _null_aware_build_expr_ctxs;
+
     // derived from _join_op
     bool _match_all_probe;  // output all rows coming from the probe input
     bool _match_one_build;  // match at most one build row to each probe row
     bool _match_all_build;  // output all rows coming from the build input
 
     bool _matched_probe;  // if true, we have matched the current probe row
+
+    // for null aware left anti join of an uncorrelated subquery, which evaluates
+    // 'probe NOT IN (build)': whether the build side has any row, and whether any build
+    // row's key is null. Build rows with null key are not inserted into _hash_tbl.
+    bool _build_has_rows;
+    bool _build_has_null_key;
     bool _eos;  // if true, nothing left to return in get_next()
     boost::scoped_ptr<MemPool> _build_pool;  // holds everything referenced in _hash_tbl
 
@@ -152,6 +171,17 @@ private:
     // same time.
     Status construct_hash_table(RuntimeState* state);
 
+    // Create filters in _runtime_filter_descs from the constructed hash table,
+    // and push them down to the probe side.
+    Status push_down_runtime_filters(RuntimeState* state);
+
+    // Create IN predicate of build values of eq join conjunct 'expr_order'.
+    Status create_in_filter(RuntimeState* state, int expr_order, ExprContext** ctx);
+
+    // Create 'probe_expr >= min' and 'probe_expr <= max' of build values of eq join
+    // conjunct 'expr_order'. Nothing is created if the type is not supported.
+    Status create_min_max_filter(RuntimeState* state, int expr_order, std::list<ExprContext*>* ctxs);
+
     // GetNext helper function for the common join cases: Inner join, left semi and left
     // outer
     Status left_join_get_next(RuntimeState* state, RowBatch* row_batch, bool* eos);
@@ -167,6 +197,16 @@ private:
     // Construct the build hash table, adding all the rows in 'build_batch'
     void process_build_batch(RowBatch* build_batch);
 
+    // For left anti joins, returns true if 'probe_row' without any matched build row
+    // should be returned. For null aware left anti join, a probe row with null key is
+    // not returned unless the build side is empty.
+    bool is_anti_join_output(TupleRow* probe_row);
+
+    // For null aware left anti join of a correlated subquery, returns true if the NOT IN
+    // predicate of 'probe_row' and 'build_row' is true or null, i.e. either value is null
+    // or they are equal, so 'build_row' excludes 'probe_row' from the result.
+    bool null_aware_match(TupleRow* probe_row, TupleRow* build_row);
+
     // Write combined row, consisting of probe_row and build_row, to out_row.
     // This is replaced by codegen.
     void create_output_row(TupleRow* out_row, TupleRow* probe_row, TupleRow* build_row);
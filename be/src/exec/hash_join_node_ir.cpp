@@ -71,10 +71,18 @@ int HashJoinNode::process_probe_batch(RowBatch* out_batch, RowBatch* probe_batch
                 continue;
             }
 
+            // the NOT IN predicate is checked after the other join conjuncts, only the
+            // build rows of the correlated subquery make the probe row's result null
+            if (!_null_aware_probe_expr_ctxs.empty()
+                    && !null_aware_match(_current_probe_row, matched_build_row)) {
+                continue;
+            }
+
             _matched_probe = true;
 
             // left_anti_join: equal match won't return
-            if (_join_op == TJoinOp::LEFT_ANTI_JOIN) {
+            if (_join_op == TJoinOp::LEFT_ANTI_JOIN
+                    || _join_op == TJoinOp::NULL_AWARE_LEFT_ANTI_JOIN) {
                 _hash_tbl_iterator= _hash_tbl->end();
                 break;
             }
@@ -101,7 +109,7 @@ int HashJoinNode::process_probe_batch(RowBatch* out_batch, RowBatch* probe_batch
         
         // Handle left outer-join and left semi-join
         if ((!_matched_probe && _match_all_probe) || 
-                ((!_matched_probe && _join_op == TJoinOp::LEFT_ANTI_JOIN))) {
+                ((!_matched_probe && is_anti_join_output(_current_probe_row)))) {
             create_output_row(out_row, _current_probe_row, NULL);
             _matched_probe = true;
 
@@ -141,6 +149,17 @@ end:
 }
 
 void HashJoinNode::process_build_batch(RowBatch* build_batch) {
+    if (_join_op == TJoinOp::NULL_AWARE_LEFT_ANTI_JOIN && _null_aware_build_expr_ctxs.empty()) {
+        for (int i = 0; i < build_batch->num_rows(); ++i) {
+            TupleRow* row = build_batch->get_row(i);
+            _build_has_rows = true;
+            if (_build_expr_ctxs[0]->get_value(row) == NULL) {
+                _build_has_null_key = true;
+            }
+            _hash_tbl->insert(row);
+        }
+        return;
+    }
     // insert build row into our hash table
     for (int i = 0; i < build_batch->num_rows(); ++i) {
         _hash_tbl->insert(build_batch->get_row(i));
@@ -33,6 +33,11 @@
 #include <sys/time.h>
 
 #include <functional>
+#include <memory>
+
+#include <boost/lexical_cast.hpp>
+#include <boost/uuid/random_generator.hpp>
+#include <boost/uuid/uuid_io.hpp>
 
 #include "agent/cgroups_mgr.h"
 #include "common/status.h"
@@ -48,6 +53,9 @@
 #include "runtime/exec_env.h"
 #include "runtime/fragment_mgr.h"
 #include "runtime/load_path_mgr.h"
+#include "runtime/stream_load_pipe.h"
+#include "util/palo_metrics.h"
+#include "util/stopwatch.hpp"
 #include "gen_cpp/MasterService_types.h"
 #include "gen_cpp/HeartbeatService_types.h"
 #include "gen_cpp/FrontendService.h"
@@ -61,9 +69,11 @@ const std::string LABEL_KEY = "label";
 const std::string SUB_LABEL_KEY = "sub_label";
 const std::string FILE_PATH_KEY = "file_path";
 const char* k_100_continue = "100-continue";
+// Same with BrokerFileGroup.STREAM_PATH_PREFIX in frontend
+const std::string STREAM_PATH_PREFIX = "stream://";
 
-MiniLoadAction::MiniLoadAction(ExecEnv* exec_env) :
-        _exec_env(exec_env) {
+MiniLoadAction::MiniLoadAction(ExecEnv* exec_env, bool is_stream_load) :
+        _exec_env(exec_env), _is_stream_load(is_stream_load) {
 }
 
 static bool is_name_valid(const std::string& name) {
@@ -89,6 +99,29 @@ static void send_response(const Status& status, HttpChannel *channel) {
     channel->send_response(response);
 }
 
+static void send_stream_load_response(const Status& status, int64_t bytes,
+                                      int64_t duration_ms, HttpChannel *channel) {
+    std::stringstream ss;
+    ss << "{\n";
+    if (status.ok()) {
+        ss << "\t\"status\": \"Success\",\n";
+        ss << "\t\"msg\": \"OK\",\n";
+    } else {
+        ss << "\t\"status\": \"Fail\",\n";
+        ss << "\t\"msg\": \"" << status.get_error_msg() << "\",\n";
+    }
+    ss << "\t\"bytes\": " << bytes << ",\n";
+    ss << "\t\"duration_ms\": " << duration_ms << ",\n";
+    // MB per second
+    ss << "\t\"throughput\": " << (duration_ms > 0 ? bytes / 1024.0 / 1024.0 * 1000 / duration_ms : 0) << "\n";
+    ss << "}\n";
+
+    std::string str = ss.str();
+    HttpResponse response(HttpStatus::OK, &str);
+
+    channel->send_response(response);
+}
+
 // send error
 static void send_100_continue(HttpChannel *channel) {
     static HttpResponse response(HttpStatus::CONTINUE);
@@ -113,11 +146,15 @@ static Status check_request(HttpRequest* req) {
     return Status::OK;
 }
 
+// Consume data received from client
+typedef std::function<Status(const uint8_t* data, int64_t size)> DataConsumer;
+
 // Receive 'Transfer-Encoding: chunked' data from client
 // Params:
-//  file_handler file descriptor and operation for output file
+//  consumer     consume the received data
+//  max_bytes    max bytes of data, -1 means no limit
 //  channel      used to receive client data
-static Status save_chunked_data(FileHandler* file_handler, HttpChannel *channel) {
+static Status save_chunked_data(const DataConsumer& consumer, int64_t max_bytes, HttpChannel *channel) {
     const int64_t BUF_SIZE = 4096;
     char *buf = new char[BUF_SIZE];
     DeferOp free_buf(std::bind<void>(std::default_delete<char[]>(), buf));
@@ -125,7 +162,6 @@ static Status save_chunked_data(FileHandler* file_handler, HttpChannel *channel)
     const uint8_t* pos = (const uint8_t*)buf;
     const uint8_t* end = pos;
     int64_t total_bytes = 0;
-    int64_t max_bytes = config::mini_load_max_mb * 1024 * 1024;
     // To get length of first read
     HttpParser::ParseState state = HttpParser::http_parse_chunked(&pos, end - pos, &ctx);
     while (state != HttpParser::PARSE_DONE && state != HttpParser::PARSE_ERROR) {
@@ -143,7 +179,7 @@ static Status save_chunked_data(FileHandler* file_handler, HttpChannel *channel)
             end = pos + read_len;
             total_bytes += read_len;
         }
-        if (total_bytes > max_bytes) {
+        if (max_bytes >= 0 && total_bytes > max_bytes) {
             return Status("File size exceed max size we can support.");
         }
         state = HttpParser::http_parse_chunked(&pos, end - pos, &ctx);
@@ -154,15 +190,7 @@ static Status save_chunked_data(FileHandler* file_handler, HttpChannel *channel)
         case HttpParser::PARSE_OK: {
             // data received
             int64_t size = std::min(ctx.size, end - pos);
-            OLAPStatus wr_status = file_handler->write(pos, size);
-            if (wr_status != OLAP_SUCCESS) {
-                char errmsg[64];
-                LOG(WARNING) << "Write to file("
-                        << FileUtils::path_of_fd(file_handler->fd()) << ") failed. "
-                        << "need=" << size
-                        << ",syserr=" << strerror_r(errno, errmsg, 64);
-                return Status("Failed when saving uploaded data");
-            }
+            RETURN_IF_ERROR(consumer(pos, size));
             ctx.size -= size;
             ctx.length -= size;
             pos += size;
@@ -182,15 +210,13 @@ static Status save_chunked_data(FileHandler* file_handler, HttpChannel *channel)
     }
 
     if (state == HttpParser::PARSE_DONE) {
-        LOG(INFO) << "Save file to path "
-            << FileUtils::path_of_fd(file_handler->fd()) << " success.";
         return Status::OK;
     } else {
         return Status("Error happend when palo parse your http packet.");
     }
 }
 
-static Status save_to_file(FileHandler* file_handler, int64_t len, HttpChannel* channel) {
+static Status save_data(const DataConsumer& consumer, int64_t len, HttpChannel* channel) {
     const int64_t BUF_SIZE = 4096;
     char *buf = new char[BUF_SIZE];
     DeferOp free_buf(std::bind<void>(std::default_delete<char[]>(), buf));
@@ -206,22 +232,40 @@ static Status save_to_file(FileHandler* file_handler, int64_t len, HttpChannel*
                 << ",syserr=" << strerror_r(errno, errmsg, 64);
             return Status("Failed when receiving http packet.");
         }
-        OLAPStatus wr_status = file_handler->write(buf, read_this_time);
-        if (wr_status != OLAP_SUCCESS) {
-            char errmsg[64];
-            LOG(WARNING) << "Write to file("
-                    << FileUtils::path_of_fd(file_handler->fd()) << ") failed. "
-                    << "need=" << read_this_time
-                    << ",syserr=" << strerror_r(errno, errmsg, 64);
-            return Status("Failed when saving uploaded data");
-        }
-        // write will write all buf into file, so that write_len == read_this_time
+        RETURN_IF_ERROR(consumer((const uint8_t*)buf, read_this_time));
         to_read -= read_this_time;
     }
-    LOG(INFO) << "Save file to path " << FileUtils::path_of_fd(file_handler->fd()) << " success.";
     return Status::OK;
 }
 
+// Receive http body, which is chunked or has content length
+// Params:
+//  max_bytes    max bytes of data, -1 means no limit
+static Status receive_body(HttpRequest* req, HttpChannel* channel,
+                           int64_t max_bytes, const DataConsumer& consumer) {
+    // Check if chunk first according rfc2616
+    if (!req->header(HttpHeaders::TRANSFER_ENCODING).empty()) {
+        if (req->header(HttpHeaders::TRANSFER_ENCODING) != "chunked") {
+            std::stringstream ss;
+            ss << "Unknown " << HttpHeaders::TRANSFER_ENCODING << ": "
+                << req->header(HttpHeaders::TRANSFER_ENCODING);
+            return Status(ss.str());
+        }
+        return save_chunked_data(consumer, max_bytes, channel);
+    } else if (!req->header(HttpHeaders::CONTENT_LENGTH).empty()) {
+        int64_t len = std::stol(req->header(HttpHeaders::CONTENT_LENGTH));
+        if (max_bytes >= 0 && len > max_bytes) {
+            return Status("File size exceed max size we can support.");
+        }
+        return save_data(consumer, len, channel);
+    } else {
+        std::stringstream ss;
+        ss << "There is no " << HttpHeaders::TRANSFER_ENCODING << " nor "
+            << HttpHeaders::CONTENT_LENGTH << " in request headers, you need pass me one";
+        return Status(ss.str());
+    }
+}
+
 Status MiniLoadAction::data_saved_dir(const LoadHandle& desc,
                                       const std::string& table,
                                       std::string* file_path) {
@@ -270,29 +314,77 @@ Status MiniLoadAction::receive_data(const LoadHandle& desc, HttpRequest* req,
         send_100_continue(channel);
     }
 
-    // Check if chunk first according rfc2616
-    if (!req->header(HttpHeaders::TRANSFER_ENCODING).empty()) {
-        if (req->header(HttpHeaders::TRANSFER_ENCODING) != "chunked") {
-            std::stringstream ss;
-            ss << "Unknown " << HttpHeaders::TRANSFER_ENCODING << ": "
-                << req->header(HttpHeaders::TRANSFER_ENCODING);
-            return Status(ss.str());
+    DataConsumer write_file = [&file_handler](const uint8_t* data, int64_t size) -> Status {
+        OLAPStatus wr_status = file_handler.write(data, size);
+        if (wr_status != OLAP_SUCCESS) {
+            char errmsg[64];
+            LOG(WARNING) << "Write to file("
+                    << FileUtils::path_of_fd(file_handler.fd()) << ") failed. "
+                    << "need=" << size
+                    << ",syserr=" << strerror_r(errno, errmsg, 64);
+            return Status("Failed when saving uploaded data");
         }
-        return save_chunked_data(&file_handler, channel);
-    } else if (!req->header(HttpHeaders::CONTENT_LENGTH).empty()) {
-        int64_t len = std::stol(req->header(HttpHeaders::CONTENT_LENGTH));
-        if (len > config::mini_load_max_mb * 1024 * 1024) {
-            return Status("File size exceed max size we can support.");
+        return Status::OK;
+    };
+    RETURN_IF_ERROR(receive_body(req, channel, config::mini_load_max_mb * 1024 * 1024, write_file));
+    LOG(INFO) << "Save file to path " << FileUtils::path_of_fd(file_handler.fd()) << " success.";
+    return Status::OK;
+}
+
+// Data of stream load is not saved to file. Instead, a load job is registered to frontend first,
+// whose plan reads data from a pipe in this backend. Received data is appended to the pipe,
+// and receiving is blocked if plan does not read fast enough.
+// Return after all data is read by plan, then the job commits the data as one version.
+Status MiniLoadAction::stream_load(HttpRequest* req, HttpChannel* channel,
+                                   StreamLoadPipe* pipe, const std::string& pipe_id) {
+    if (!req->param(SUB_LABEL_KEY).empty()) {
+        return Status("Stream load does not support sub label.");
+    }
+    // add tid to cgroup
+    CgroupsMgr::apply_system_cgroup();
+
+    std::stringstream ss;
+    ss << STREAM_PATH_PREFIX << *_exec_env->local_ip() << ":" << config::be_port << "/" << pipe_id;
+    RETURN_IF_ERROR(load(req, ss.str()));
+
+    if (strcasecmp(req->header(HttpHeaders::EXPECT).c_str(), k_100_continue) == 0) {
+        send_100_continue(channel);
+    }
+    DataConsumer append_pipe = [pipe](const uint8_t* data, int64_t size) -> Status {
+        return pipe->append((const char*)data, size);
+    };
+    RETURN_IF_ERROR(receive_body(req, channel, -1, append_pipe));
+    pipe->finish();
+    return pipe->wait_consumed();
+}
+
+void MiniLoadAction::handle_stream_load(HttpRequest* req, HttpChannel* channel) {
+    MonotonicStopWatch watch;
+    watch.start();
+
+    std::string pipe_id = boost::lexical_cast<std::string>(boost::uuids::random_generator()());
+    std::shared_ptr<StreamLoadPipe> pipe = std::make_shared<StreamLoadPipe>(
+            config::stream_load_pipe_buffer_mb * 1024 * 1024,
+            config::stream_load_pipe_timeout_second * 1000L);
+    StreamLoadPipeMgr* pipe_mgr = _exec_env->stream_load_pipe_mgr();
+    Status status = pipe_mgr->put(pipe_id, pipe);
+    if (status.ok()) {
+        status = stream_load(req, channel, pipe.get(), pipe_id);
+        if (!status.ok()) {
+            pipe->cancel(status.get_error_msg());
         }
-        return save_to_file(&file_handler, len, channel);
-    } else {
-        std::stringstream ss;
-        ss << "There is no " << HttpHeaders::TRANSFER_ENCODING << " nor "
-            << HttpHeaders::CONTENT_LENGTH << " in request headers, you need pass me one";
-        return Status(ss.str());
+        pipe_mgr->remove(pipe_id);
     }
 
-    return Status::OK;
+    int64_t duration_ms = watch.elapsed_time() / 1000000;
+    PaloMetrics::stream_load_requests_total()->increment(1);
+    PaloMetrics::stream_load_bytes_total()->increment(pipe->total_bytes());
+    PaloMetrics::stream_load_duration_ms_total()->increment(duration_ms);
+    LOG(INFO) << "stream load finished, label=" << req->param(LABEL_KEY)
+        << ", bytes=" << pipe->total_bytes() << ", duration_ms=" << duration_ms
+        << ", status=" << status.get_error_msg();
+
+    send_stream_load_response(status, pipe->total_bytes(), duration_ms, channel);
 }
 
 Status MiniLoadAction::load(
@@ -332,6 +424,11 @@ Status MiniLoadAction::load(
         }
         req.__set_properties(params);
         req.files.push_back(file_path);
+        // used by master to limit the size of coalesced mini loads
+        struct stat file_stat;
+        if (stat(file_path.c_str(), &file_stat) == 0) {
+            req.__set_file_size(file_stat.st_size);
+        }
         req.backend.__set_hostname(*_exec_env->local_ip());
         req.backend.__set_port(config::be_port);
 
@@ -514,6 +611,11 @@ void MiniLoadAction::handle(HttpRequest *req, HttpChannel *channel) {
         return;
     }
 
+    if (_is_stream_load) {
+        handle_stream_load(req, channel);
+        return;
+    }
+
     // Receive data first, keep things easy.
     std::string file_path;
     status = receive_data(desc, req, channel, &file_path);
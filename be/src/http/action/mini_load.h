@@ -44,12 +44,16 @@ struct LoadHandleCmp {
 
 class TMasterResult;
 class ExecEnv;
+class StreamLoadPipe;
 
 // This a handler for mini load
 // path is /api/{db}/{table}/_load
+// If 'is_stream_load' is true, this is a handler for stream load, whose data is
+// sent to load plan directly instead of being saved to file.
+// path is /api/{db}/{table}/_stream_load
 class MiniLoadAction : public HttpHandler {
 public:
-    MiniLoadAction(ExecEnv* exec_env);
+    MiniLoadAction(ExecEnv* exec_env, bool is_stream_load = false);
 
     virtual ~MiniLoadAction() {
     }
@@ -70,9 +74,15 @@ private:
 
     Status check_auth(HttpRequest* http_req);
 
+    void handle_stream_load(HttpRequest* req, HttpChannel* channel);
+
+    Status stream_load(HttpRequest* req, HttpChannel* channel,
+                       StreamLoadPipe* pipe, const std::string& pipe_id);
+
     void erase_handle(const LoadHandle& handle);
 
     ExecEnv* _exec_env;
+    bool _is_stream_load;
 
     std::mutex _lock;
     // Used to check if load is duplicated in this instance.
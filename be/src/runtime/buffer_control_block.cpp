@@ -20,16 +20,36 @@
 
 #include "runtime/buffer_control_block.h"
 #include "runtime/raw_value.h"
+#include "common/config.h"
 #include "gen_cpp/PaloInternalService_types.h"
 
 namespace palo {
 
+static int get_num_rows(const TFetchDataResult& result) {
+    if (result.result_batch.__isset.packed_rows) {
+        return result.result_batch.num_packed_rows;
+    }
+    return result.result_batch.rows.size();
+}
+
+static int64_t get_num_bytes(const TFetchDataResult& result) {
+    if (result.result_batch.__isset.packed_rows) {
+        return result.result_batch.packed_rows.size();
+    }
+    int64_t num_bytes = 0;
+    for (const std::string& row : result.result_batch.rows) {
+        num_bytes += row.size();
+    }
+    return num_bytes;
+}
+
 BufferControlBlock::BufferControlBlock(const TUniqueId& id, int buffer_size)
     : _fragment_id(id),
       _is_close(false),
       _is_cancelled(false),
       _buffer_rows(0),
       _buffer_limit(buffer_size),
+      _buffer_bytes(0),
       _packet_num(0) {
 }
 
@@ -53,9 +73,13 @@ Status BufferControlBlock::add_batch(TFetchDataResult* result) {
         return Status::CANCELLED;
     }
 
-    int num_rows = result->result_batch.rows.size();
+    int num_rows = get_num_rows(*result);
+    int64_t num_bytes = get_num_bytes(*result);
 
-    while ((!_batch_queue.empty() && (num_rows + _buffer_rows) > _buffer_limit)
+    // wait until frontend fetches enough data, but always accept one batch
+    while ((!_batch_queue.empty()
+                && ((num_rows + _buffer_rows) > _buffer_limit
+                    || (num_bytes + _buffer_bytes) > config::result_buffer_max_bytes))
             && !_is_cancelled) {
         _data_removal.wait(l);
     }
@@ -65,6 +89,7 @@ Status BufferControlBlock::add_batch(TFetchDataResult* result) {
     }
 
     _buffer_rows += num_rows;
+    _buffer_bytes += num_bytes;
     _batch_queue.push_back(result);
     _data_arriaval.notify_one();
     return Status::OK;
@@ -103,10 +128,12 @@ Status BufferControlBlock::get_batch(TFetchDataResult* result) {
         // get result
         item = _batch_queue.front();
         _batch_queue.pop_front();
-        _buffer_rows -= item->result_batch.rows.size();
+        _buffer_rows -= get_num_rows(*item);
+        _buffer_bytes -= get_num_bytes(*item);
         _data_removal.notify_one();
     }
-    *result = *item;
+    // swap to avoid copying rows
+    swap(*result, *item);
     result->__set_packet_num(_packet_num);
     _packet_num++;
     // destruct item new from Result writer
@@ -61,6 +61,7 @@ private:
     Status _status;
     int _buffer_rows;
     int _buffer_limit;
+    int64_t _buffer_bytes;
     int _packet_num;
 
     // blocking queue for batch
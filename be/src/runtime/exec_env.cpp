@@ -56,6 +56,7 @@
 #include "runtime/etl_job_mgr.h"
 #include "runtime/load_path_mgr.h"
 #include "runtime/pull_load_task_mgr.h"
+#include "runtime/stream_load_pipe.h"
 #include "gen_cpp/BackendService.h"
 #include "gen_cpp/FrontendService.h"
 #include "gen_cpp/TPaloBrokerService.h"
@@ -94,6 +95,7 @@ ExecEnv::ExecEnv() :
         _bfd_parser(BfdParser::create()),
         _pull_load_task_mgr(new PullLoadTaskMgr(config::pull_load_task_dir)),
         _broker_mgr(new BrokerMgr(this)),
+        _stream_load_pipe_mgr(new StreamLoadPipeMgr()),
         _enable_webserver(true),
         _tz_database(TimezoneDatabase()) {
     get_local_ip(_local_ip.get());
@@ -163,6 +165,9 @@ Status ExecEnv::start_services() {
         _webserver->register_handler(HttpMethod::PUT,
                                      "/api/{db}/{table}/_load",
                                      new MiniLoadAction(this));
+        _webserver->register_handler(HttpMethod::PUT,
+                                     "/api/{db}/{table}/_stream_load",
+                                     new MiniLoadAction(this, true));
         DownloadAction* download_action = new DownloadAction(this, "");
                 // = new DownloadAction(this, config::mini_load_download_path);
         _webserver->register_handler(HttpMethod::GET, "/api/_download_load", download_action);
@@ -56,6 +56,7 @@ class TmpFileMgr;
 class BfdParser;
 class PullLoadTaskMgr;
 class BrokerMgr;
+class StreamLoadPipeMgr;
 
 // Execution environment for queries/plan fragments.
 // Contains all required global structures, and handles to
@@ -151,6 +152,10 @@ public:
         return _broker_mgr.get();
     }
 
+    StreamLoadPipeMgr* stream_load_pipe_mgr() const {
+        return _stream_load_pipe_mgr.get();
+    }
+
     ConnectionManagerPtr get_conn_manager() {
         return _conn_mgr;
     }
@@ -192,6 +197,7 @@ private:
     std::unique_ptr<BfdParser> _bfd_parser;
     std::unique_ptr<PullLoadTaskMgr> _pull_load_task_mgr;
     std::unique_ptr<BrokerMgr> _broker_mgr;
+    std::unique_ptr<StreamLoadPipeMgr> _stream_load_pipe_mgr;
     bool _enable_webserver;
 
     /*
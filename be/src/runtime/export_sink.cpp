@@ -39,6 +39,8 @@ ExportSink::ExportSink(ObjectPool* pool,
         _pool(pool),
         _row_desc(row_desc),
         _t_output_expr(t_exprs),
+        _file_idx(0),
+        _file_bytes(0),
         _bytes_written_counter(nullptr),
         _rows_written_counter(nullptr),
         _write_timer(nullptr) {
@@ -89,24 +91,34 @@ Status ExportSink::open(RuntimeState* state) {
 }
 
 Status ExportSink::send(RuntimeState* state, RowBatch* batch) {
-    LOG(ERROR) << "debug: export_sink send batch: " << print_batch(batch);
     SCOPED_TIMER(_profile->total_time_counter());
     int num_rows = batch->num_rows();
+    if (num_rows == 0) {
+        return Status::OK;
+    }
+    // rows of a batch are written together, because each write of broker writer is a rpc
     std::stringstream ss;
     for (int i = 0; i < num_rows; ++i) {
-        ss.str("");
         RETURN_IF_ERROR(gen_row_buffer(batch->get_row(i), &ss));
-        LOG(ERROR) << "debug: export_sink send row: " << ss.str();
-        const std::string& buf = ss.str();
-        size_t written_len = 0;
+    }
+    const std::string& buf = ss.str();
+
+    // start a new file if the current one is large enough
+    if (_t_export_sink.__isset.max_file_size && _t_export_sink.max_file_size > 0
+            && _file_bytes >= _t_export_sink.max_file_size) {
+        close_file_writer();
+        RETURN_IF_ERROR(open_file_writer());
+    }
 
+    {
         SCOPED_TIMER(_write_timer);
-        // TODO(lingbin): for broker writer, we should not send rpc each row.
-        _file_writer->write(reinterpret_cast<const uint8_t*>(buf.c_str()),
-                             buf.size(),
-                             &written_len);
-        COUNTER_UPDATE(_bytes_written_counter, buf.size());
+        size_t written_len = 0;
+        RETURN_IF_ERROR(_file_writer->write(reinterpret_cast<const uint8_t*>(buf.c_str()),
+                                            buf.size(),
+                                            &written_len));
     }
+    _file_bytes += buf.size();
+    COUNTER_UPDATE(_bytes_written_counter, buf.size());
     COUNTER_UPDATE(_rows_written_counter, num_rows);
     return Status::OK;
 }
@@ -195,11 +207,17 @@ Status ExportSink::gen_row_buffer(TupleRow* row, std::stringstream* ss) {
 
 Status ExportSink::close(RuntimeState* state, Status exec_status) {
     Expr::close(_output_expr_ctxs, state);
+    close_file_writer();
+    return Status::OK;
+}
+
+void ExportSink::close_file_writer() {
     if (_file_writer != nullptr) {
         _file_writer->close();
         _file_writer = nullptr;
+        ++_file_idx;
+        _file_bytes = 0;
     }
-    return Status::OK;
 }
 
 Status ExportSink::open_file_writer() {
@@ -244,6 +262,9 @@ std::string ExportSink::gen_file_name() {
     const TUniqueId& id = _state->fragment_instance_id();
     std::stringstream file_name;
     file_name << "export_data_" << id.hi << "_" << id.lo;
+    if (_file_idx > 0) {
+        file_name << "_" << _file_idx;
+    }
     return file_name.str();
 }
 
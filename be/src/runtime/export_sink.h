@@ -64,6 +64,7 @@ public:
 
 private:
     Status open_file_writer();
+    void close_file_writer();
     Status gen_row_buffer(TupleRow* row, std::stringstream* ss);
     std::string gen_file_name();
 
@@ -78,6 +79,10 @@ private:
 
     TExportSink _t_export_sink;
     std::unique_ptr<FileWriter> _file_writer;
+    // index of the file being written, if output is split by max_file_size
+    int _file_idx;
+    // bytes written to the current file
+    int64_t _file_bytes;
 
     RuntimeProfile* _profile;
 
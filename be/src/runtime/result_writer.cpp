@@ -20,11 +20,14 @@
 
 #include "result_writer.h"
 
+#include <algorithm>
+
 #include "exprs/expr.h"
 #include "runtime/primitive_type.h"
 #include "runtime/row_batch.h"
 #include "runtime/tuple_row.h"
 #include "runtime/result_buffer_mgr.h"
+#include "runtime/runtime_state.h"
 #include "runtime/buffer_control_block.h"
 #include "util/mysql_row_buffer.h"
 
@@ -37,7 +40,8 @@ ResultWriter::ResultWriter(
         const std::vector<ExprContext*>& output_expr_ctxs) : 
             _sinker(sinker),
             _output_expr_ctxs(output_expr_ctxs),
-            _row_buffer(NULL) {
+            _row_buffer(NULL),
+            _return_packed_rows(false) {
 }
 
 ResultWriter::~ResultWriter() {
@@ -55,6 +59,7 @@ Status ResultWriter::init(RuntimeState* state) {
         return Status("no memory to alloc.");
     }
 
+    _return_packed_rows = state->query_options().return_packed_rows;
     return Status::OK;
 }
 
@@ -166,6 +171,29 @@ Status ResultWriter::add_one_row(TupleRow* row) {
     return Status::OK;
 }
 
+void ResultWriter::append_packets(std::string* packets) {
+    // payload longer than this is split to several packets
+    static const int MAX_PACKET_PAYLOAD_LEN = 0xffffff;
+    const char* data = _row_buffer->buf();
+    int remain = _row_buffer->length();
+    while (true) {
+        int len = std::min(remain, MAX_PACKET_PAYLOAD_LEN);
+        char header[4] = {
+            static_cast<char>(len & 0xff),
+            static_cast<char>((len >> 8) & 0xff),
+            static_cast<char>((len >> 16) & 0xff),
+            0 };
+        packets->append(header, 4);
+        packets->append(data, len);
+        data += len;
+        remain -= len;
+        // a packet of max length must be followed by another packet, which may be empty
+        if (len < MAX_PACKET_PAYLOAD_LEN) {
+            break;
+        }
+    }
+}
+
 Status ResultWriter::append_row_batch(RowBatch* batch) {
     if (NULL == batch || 0 == batch->num_rows()) {
         return Status::OK;
@@ -175,20 +203,36 @@ Status ResultWriter::append_row_batch(RowBatch* batch) {
     // convert one batch
     TFetchDataResult* result = new(std::nothrow) TFetchDataResult();
     int num_rows = batch->num_rows();
-    result->result_batch.rows.resize(num_rows);
+    std::string packets;
+    if (_return_packed_rows) {
+        // rows are usually small, reserve some bytes to avoid reallocation
+        packets.reserve(num_rows * 64);
+    } else {
+        result->result_batch.rows.resize(num_rows);
+    }
 
     for (int i = 0; status.ok() && i < num_rows; ++i) {
         TupleRow* row = batch->get_row(i);
         status = add_one_row(row);
 
         if (status.ok()) {
-            result->result_batch.rows[i].assign(_row_buffer->buf(), _row_buffer->length());
+            if (_return_packed_rows) {
+                append_packets(&packets);
+            } else {
+                result->result_batch.rows[i].assign(_row_buffer->buf(), _row_buffer->length());
+            }
         } else {
             LOG(WARNING) << "convert row to mysql result failed.";
             break;
         }
     }
 
+    if (status.ok() && _return_packed_rows) {
+        result->result_batch.packed_rows.swap(packets);
+        result->result_batch.__isset.packed_rows = true;
+        result->result_batch.__set_num_packed_rows(num_rows);
+    }
+
     if (status.ok()) {
         // push this batch to back
         status = _sinker->add_batch(result);
@@ -21,6 +21,7 @@
 #ifndef BDG_PALO_BE_RUNTIME_RESULT_WRITER_H
 #define  BDG_PALO_BE_RUNTIME_RESULT_WRITER_H
 
+#include <string>
 #include <vector>
 
 #include "common/status.h"
@@ -48,11 +49,16 @@ public:
 private:
     // convert one tuple row
     Status add_one_row(TupleRow* row);
+    // append the converted row to packets as one or more mysql packets,
+    // whose sequence ids are left to be filled by frontend
+    void append_packets(std::string* packets);
 
     // The expressions that are run to create tuples to be written to hbase.
     BufferControlBlock* _sinker;
     const std::vector<ExprContext*>& _output_expr_ctxs;
     MysqlRowBuffer* _row_buffer;
+    // if true, rows are sent as mysql packets in TResultBatch.packed_rows
+    bool _return_packed_rows;
 };
 
 }
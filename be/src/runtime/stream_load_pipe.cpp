@@ -0,0 +1,191 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+#include "runtime/stream_load_pipe.h"
+
+#include <string.h>
+
+#include <chrono>
+#include <sstream>
+
+#include "common/logging.h"
+
+namespace palo {
+
+StreamLoadPipe::StreamLoadPipe(size_t max_buffered_bytes, int64_t timeout_ms) :
+        _max_buffered_bytes(max_buffered_bytes),
+        _timeout_ms(timeout_ms),
+        _read_offset(0),
+        _buffered_bytes(0),
+        _total_bytes(0),
+        _reader_opened(false),
+        _finished(false),
+        _cancelled(false) {
+}
+
+StreamLoadPipe::~StreamLoadPipe() {
+}
+
+Status StreamLoadPipe::cancelled_status() const {
+    std::stringstream ss;
+    ss << "Stream load is cancelled: " << _cancel_reason;
+    return Status(ss.str());
+}
+
+Status StreamLoadPipe::append(const char* data, size_t size) {
+    if (size == 0) {
+        return Status::OK;
+    }
+    std::unique_lock<std::mutex> l(_lock);
+    while (!_cancelled && _buffered_bytes >= _max_buffered_bytes) {
+        if (_put_cond.wait_for(l, std::chrono::milliseconds(_timeout_ms)) == std::cv_status::timeout
+                && _buffered_bytes >= _max_buffered_bytes) {
+            return Status("Wait stream load plan to read data timeout.");
+        }
+    }
+    if (_cancelled) {
+        return cancelled_status();
+    }
+    _chunks.emplace_back(data, size);
+    _buffered_bytes += size;
+    _total_bytes += size;
+    _get_cond.notify_one();
+    return Status::OK;
+}
+
+void StreamLoadPipe::finish() {
+    std::lock_guard<std::mutex> l(_lock);
+    _finished = true;
+    _get_cond.notify_all();
+}
+
+void StreamLoadPipe::cancel(const std::string& reason) {
+    std::lock_guard<std::mutex> l(_lock);
+    if (_cancelled) {
+        return;
+    }
+    _cancelled = true;
+    _cancel_reason = reason;
+    _put_cond.notify_all();
+    _get_cond.notify_all();
+}
+
+Status StreamLoadPipe::open_reader() {
+    std::lock_guard<std::mutex> l(_lock);
+    if (_reader_opened) {
+        return Status("Data of stream load has already been read.");
+    }
+    _reader_opened = true;
+    return Status::OK;
+}
+
+Status StreamLoadPipe::read(uint8_t* buf, size_t* buf_len, bool* eof) {
+    std::unique_lock<std::mutex> l(_lock);
+    while (!_cancelled && !_finished && _chunks.empty()) {
+        if (_get_cond.wait_for(l, std::chrono::milliseconds(_timeout_ms)) == std::cv_status::timeout
+                && !_finished && _chunks.empty()) {
+            return Status("Wait data of stream load timeout.");
+        }
+    }
+    if (_cancelled) {
+        return cancelled_status();
+    }
+    if (_chunks.empty()) {
+        // finished
+        *buf_len = 0;
+        *eof = true;
+        // wake up writer waiting in wait_consumed()
+        _put_cond.notify_all();
+        return Status::OK;
+    }
+
+    size_t read_len = 0;
+    while (read_len < *buf_len && !_chunks.empty()) {
+        const std::string& chunk = _chunks.front();
+        size_t copy_len = std::min(*buf_len - read_len, chunk.size() - _read_offset);
+        memcpy(buf + read_len, chunk.data() + _read_offset, copy_len);
+        read_len += copy_len;
+        _read_offset += copy_len;
+        if (_read_offset == chunk.size()) {
+            _chunks.pop_front();
+            _read_offset = 0;
+        }
+    }
+    _buffered_bytes -= read_len;
+    *buf_len = read_len;
+    *eof = false;
+    _put_cond.notify_one();
+    return Status::OK;
+}
+
+Status StreamLoadPipe::wait_consumed() {
+    std::unique_lock<std::mutex> l(_lock);
+    while (!_cancelled && !_chunks.empty()) {
+        if (_put_cond.wait_for(l, std::chrono::milliseconds(_timeout_ms)) == std::cv_status::timeout
+                && !_chunks.empty()) {
+            return Status("Wait stream load plan to read data timeout.");
+        }
+    }
+    if (_cancelled) {
+        return cancelled_status();
+    }
+    return Status::OK;
+}
+
+Status StreamLoadPipeReader::read(uint8_t* buf, size_t* buf_len, bool* eof) {
+    Status status = _pipe->read(buf, buf_len, eof);
+    if (status.ok() && *eof) {
+        _eof = true;
+    }
+    return status;
+}
+
+void StreamLoadPipeReader::close() {
+    if (_pipe != nullptr && !_eof) {
+        _pipe->cancel("reader is closed before reading all data");
+    }
+    _pipe.reset();
+}
+
+Status StreamLoadPipeMgr::put(const std::string& id, const std::shared_ptr<StreamLoadPipe>& pipe) {
+    std::lock_guard<std::mutex> l(_lock);
+    if (_pipes.find(id) != _pipes.end()) {
+        std::stringstream ss;
+        ss << "Stream load pipe already exists, id=" << id;
+        return Status(ss.str());
+    }
+    _pipes.emplace(id, pipe);
+    return Status::OK;
+}
+
+std::shared_ptr<StreamLoadPipe> StreamLoadPipeMgr::get(const std::string& id) {
+    std::lock_guard<std::mutex> l(_lock);
+    auto it = _pipes.find(id);
+    if (it == _pipes.end()) {
+        return nullptr;
+    }
+    return it->second;
+}
+
+void StreamLoadPipeMgr::remove(const std::string& id) {
+    std::lock_guard<std::mutex> l(_lock);
+    _pipes.erase(id);
+}
+
+}
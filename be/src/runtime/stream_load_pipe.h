@@ -0,0 +1,126 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+#pragma once
+
+#include <condition_variable>
+#include <deque>
+#include <memory>
+#include <mutex>
+#include <string>
+#include <unordered_map>
+
+#include "common/status.h"
+#include "exec/file_reader.h"
+
+namespace palo {
+
+// A pipe between the http handler receiving data of a stream load and the
+// scanner of its load plan. Writer blocks when buffered data exceeds the
+// limit, so memory is bounded and the client is slowed down by the scanner.
+// Data can be read only by one reader, and only once.
+// Waiting of reader or writer fails if there is no progress in 'timeout_ms'.
+class StreamLoadPipe {
+public:
+    StreamLoadPipe(size_t max_buffered_bytes, int64_t timeout_ms);
+    ~StreamLoadPipe();
+
+    // Append data to this pipe, wait if there is too much data not read yet.
+    Status append(const char* data, size_t size);
+
+    // No more data will be appended.
+    void finish();
+
+    // Cancel this pipe, both reader and writer will get error.
+    void cancel(const std::string& reason);
+
+    // Claim this pipe for reading, return error if already claimed.
+    Status open_reader();
+
+    // Same with FileReader::read
+    Status read(uint8_t* buf, size_t* buf_len, bool* eof);
+
+    // Wait until reader has read all data after finish() is called.
+    Status wait_consumed();
+
+    int64_t total_bytes() const {
+        return _total_bytes;
+    }
+
+private:
+    // Must be called with lock held
+    Status cancelled_status() const;
+
+    const size_t _max_buffered_bytes;
+    const int64_t _timeout_ms;
+
+    std::mutex _lock;
+    std::condition_variable _put_cond;
+    std::condition_variable _get_cond;
+    std::deque<std::string> _chunks;
+    // offset of the first chunk which has been read
+    size_t _read_offset;
+    size_t _buffered_bytes;
+    int64_t _total_bytes;
+    bool _reader_opened;
+    bool _finished;
+    bool _cancelled;
+    std::string _cancel_reason;
+};
+
+// FileReader used by broker scanner to read a stream load pipe.
+// Pipe is cancelled when reader is closed before reaching the end,
+// so that the writer would not wait for it.
+class StreamLoadPipeReader : public FileReader {
+public:
+    StreamLoadPipeReader(const std::shared_ptr<StreamLoadPipe>& pipe) : _pipe(pipe), _eof(false) {
+    }
+
+    virtual ~StreamLoadPipeReader() {
+        close();
+    }
+
+    virtual Status read(uint8_t* buf, size_t* buf_len, bool* eof) override;
+
+    virtual void close() override;
+
+private:
+    std::shared_ptr<StreamLoadPipe> _pipe;
+    bool _eof;
+};
+
+// Pipes of the stream loads which are receiving data in this backend
+class StreamLoadPipeMgr {
+public:
+    StreamLoadPipeMgr() { }
+    ~StreamLoadPipeMgr() { }
+
+    Status put(const std::string& id, const std::shared_ptr<StreamLoadPipe>& pipe);
+
+    // Return nullptr if not found
+    std::shared_ptr<StreamLoadPipe> get(const std::string& id);
+
+    void remove(const std::string& id);
+
+private:
+    std::mutex _lock;
+    std::unordered_map<std::string, std::shared_ptr<StreamLoadPipe>> _pipes;
+};
+
+}
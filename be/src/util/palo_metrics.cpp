@@ -43,6 +43,9 @@ const char* BE_MERGE_DELTA_NUM = "palo_be.olap.be_merge.delta_num";
 const char* BE_MERGE_SIZE = "palo_be.olap.be_merge_size";
 const char* CE_MERGE_DELTA_NUM = "palo_be.olap.ce_merge.delta_num";
 const char* CE_MERGE_SIZE = "palo_be.olap.ce_merge_size";
+const char* STREAM_LOAD_REQUESTS_TOTAL = "palo_be.stream_load.requests_total";
+const char* STREAM_LOAD_BYTES_TOTAL = "palo_be.stream_load.bytes_total";
+const char* STREAM_LOAD_DURATION_MS_TOTAL = "palo_be.stream_load.duration_ms_total";
 
 const char* IO_MGR_NUM_BUFFERS = "palo_be.io_mgr.num_buffers";
 const char* IO_MGR_NUM_OPEN_FILES = "palo_be.io_mgr.num_open_files";
@@ -80,6 +83,9 @@ IntCounter* PaloMetrics::_s_be_merge_delta_num = NULL;
 IntCounter* PaloMetrics::_s_be_merge_size = NULL;
 IntCounter* PaloMetrics::_s_ce_merge_delta_num = NULL;
 IntCounter* PaloMetrics::_s_ce_merge_size = NULL;
+IntCounter* PaloMetrics::_s_stream_load_requests_total = NULL;
+IntCounter* PaloMetrics::_s_stream_load_bytes_total = NULL;
+IntCounter* PaloMetrics::_s_stream_load_duration_ms_total = NULL;
 
 IntGauge* PaloMetrics::_s_io_mgr_num_buffers = NULL;
 IntGauge* PaloMetrics::_s_io_mgr_num_open_files = NULL;
@@ -130,6 +136,11 @@ void PaloMetrics::create_metrics(MetricGroup* m) {
     _s_ce_merge_delta_num = m->AddCounter(CE_MERGE_DELTA_NUM, 0L);
     _s_ce_merge_size = m->AddCounter(CE_MERGE_SIZE, 0L);
 
+    // Initialize stream load metrics
+    _s_stream_load_requests_total = m->AddCounter(STREAM_LOAD_REQUESTS_TOTAL, 0L);
+    _s_stream_load_bytes_total = m->AddCounter(STREAM_LOAD_BYTES_TOTAL, 0L);
+    _s_stream_load_duration_ms_total = m->AddCounter(STREAM_LOAD_DURATION_MS_TOTAL, 0L);
+
     // Initialize metrics relate to spilling to disk
     // _s_io_mgr_bytes_read
     //         = m->AddGauge(IO_MGR_BYTES_READ, 0L);
@@ -85,6 +85,15 @@ public:
     static IntCounter* ce_merge_size() {
         return _s_ce_merge_size;
     }
+    static IntCounter* stream_load_requests_total() {
+        return _s_stream_load_requests_total;
+    }
+    static IntCounter* stream_load_bytes_total() {
+        return _s_stream_load_bytes_total;
+    }
+    static IntCounter* stream_load_duration_ms_total() {
+        return _s_stream_load_duration_ms_total;
+    }
 
     // static IntGauge* io_mgr_bytes_read() {
     //     return _s_io_mgr_bytes_read;
@@ -140,6 +149,9 @@ private:
     static IntCounter* _s_be_merge_size;
     static IntCounter* _s_ce_merge_delta_num;
     static IntCounter* _s_ce_merge_size;
+    static IntCounter* _s_stream_load_requests_total;
+    static IntCounter* _s_stream_load_bytes_total;
+    static IntCounter* _s_stream_load_duration_ms_total;
 
     // static IntGauge* _s_io_mgr_bytes_read;
     // static IntGauge* _s_io_mgr_local_bytes_read;
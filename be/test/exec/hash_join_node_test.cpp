@@ -0,0 +1,343 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+#include "exec/hash_join_node.h"
+
+#include <limits>
+#include <utility>
+#include <vector>
+
+#include <boost/scoped_ptr.hpp>
+#include <gtest/gtest.h>
+
+#include "common/object_pool.h"
+#include "gen_cpp/Descriptors_types.h"
+#include "gen_cpp/PlanNodes_types.h"
+#include "runtime/descriptors.h"
+#include "runtime/primitive_type.h"
+#include "runtime/row_batch.h"
+#include "runtime/runtime_state.h"
+#include "runtime/test_env.h"
+#include "runtime/tuple.h"
+#include "runtime/tuple_row.h"
+#include "util/cpu_info.h"
+#include "util/disk_info.h"
+#include "util/logging.h"
+
+namespace palo {
+
+static const int32_t NULL_VALUE = std::numeric_limits<int32_t>::min();
+
+// values of k1 and k2 of a row
+typedef std::pair<int32_t, int32_t> IntRow;
+
+// Child node which returns rows of two nullable int slots, NULL_VALUE is returned as null.
+class IntValuesNode : public ExecNode {
+public:
+    IntValuesNode(ObjectPool* pool, const TPlanNode& tnode, const DescriptorTbl& descs,
+                  const std::vector<IntRow>& rows) :
+            ExecNode(pool, tnode, descs), _rows(rows), _next(0) {
+    }
+
+    virtual Status get_next(RuntimeState* state, RowBatch* row_batch, bool* eos) {
+        const TupleDescriptor* tuple_desc = row_desc().tuple_descriptors()[0];
+        for (; _next < _rows.size() && !row_batch->is_full(); ++_next) {
+            Tuple* tuple = Tuple::create(tuple_desc->byte_size(), row_batch->tuple_data_pool());
+            set_value(tuple, tuple_desc->slots()[0], _rows[_next].first);
+            set_value(tuple, tuple_desc->slots()[1], _rows[_next].second);
+            int row_idx = row_batch->add_row();
+            row_batch->get_row(row_idx)->set_tuple(0, tuple);
+            row_batch->commit_last_row();
+        }
+        *eos = _next == _rows.size();
+        return Status::OK;
+    }
+
+private:
+    static void set_value(Tuple* tuple, const SlotDescriptor* slot_desc, int32_t value) {
+        if (value == NULL_VALUE) {
+            tuple->set_null(slot_desc->null_indicator_offset());
+        } else {
+            tuple->set_not_null(slot_desc->null_indicator_offset());
+            *reinterpret_cast<int32_t*>(tuple->get_slot(slot_desc->tuple_offset())) = value;
+        }
+    }
+
+    std::vector<IntRow> _rows;
+    size_t _next;
+};
+
+class TestHashJoinNode : public HashJoinNode {
+public:
+    TestHashJoinNode(ObjectPool* pool, const TPlanNode& tnode, const DescriptorTbl& descs) :
+            HashJoinNode(pool, tnode, descs) {
+    }
+
+    void add_child(ExecNode* child) {
+        _children.push_back(child);
+    }
+};
+
+class HashJoinNodeTest : public testing::Test {
+public:
+    HashJoinNodeTest() {}
+    ~HashJoinNodeTest() {}
+
+protected:
+    virtual void SetUp() {
+        _test_env.reset(new TestEnv());
+        init_desc_tbl();
+        _state = _obj_pool.add(
+                new RuntimeState(TUniqueId(), TQueryOptions(), "", _test_env->exec_env()));
+        _state->init_mem_trackers(TUniqueId());
+        _state->set_desc_tbl(_desc_tbl);
+    }
+
+    virtual void TearDown() {
+        _obj_pool.clear();
+        _test_env.reset();
+    }
+
+    void init_desc_tbl();
+
+    TPlanNode create_tnode(int node_id, TPlanNodeType::type node_type,
+                           const std::vector<TTupleId>& tuple_ids);
+
+    // Return values of probe rows returned by 'probe NOT IN (build)'
+    std::vector<int32_t> null_aware_anti_join(const std::vector<int32_t>& probe_values,
+                                              const std::vector<int32_t>& build_values);
+
+    // Return k1 of probe rows returned by
+    // 'probe.k1 NOT IN (select build.k1 from build where build.k2 = probe.k2)'
+    std::vector<int32_t> correlated_null_aware_anti_join(const std::vector<IntRow>& probe_rows,
+                                                         const std::vector<IntRow>& build_rows);
+
+    std::vector<int32_t> run_null_aware_anti_join(const std::vector<IntRow>& probe_rows,
+                                                  const std::vector<IntRow>& build_rows,
+                                                  bool correlated);
+
+    ObjectPool _obj_pool;
+    boost::scoped_ptr<TestEnv> _test_env;
+    DescriptorTbl* _desc_tbl;
+    RuntimeState* _state;
+};
+
+// tuple 0 of the probe side and tuple 1 of the build side, both of two nullable int slots
+// k1 and k2. The slot ids of tuple i are 2 * i and 2 * i + 1.
+void HashJoinNodeTest::init_desc_tbl() {
+    TDescriptorTable t_desc_table;
+    for (int i = 0; i < 2; ++i) {
+        for (int j = 0; j < 2; ++j) {
+            TSlotDescriptor t_slot_desc;
+            t_slot_desc.__set_id(2 * i + j);
+            t_slot_desc.__set_parent(i);
+            t_slot_desc.__set_slotType(gen_type_desc(TPrimitiveType::INT));
+            t_slot_desc.__set_columnPos(j);
+            t_slot_desc.__set_byteOffset(4 + 4 * j);
+            t_slot_desc.__set_nullIndicatorByte(0);
+            t_slot_desc.__set_nullIndicatorBit(j);
+            t_slot_desc.__set_colName(j == 0 ? "k1" : "k2");
+            t_slot_desc.__set_slotIdx(j);
+            t_slot_desc.__set_isMaterialized(true);
+            t_desc_table.slotDescriptors.push_back(t_slot_desc);
+        }
+
+        TTupleDescriptor t_tuple_desc;
+        t_tuple_desc.id = i;
+        t_tuple_desc.byteSize = 12;
+        t_tuple_desc.numNullBytes = 1;
+        t_desc_table.tupleDescriptors.push_back(t_tuple_desc);
+    }
+    t_desc_table.__isset.slotDescriptors = true;
+
+    DescriptorTbl::create(&_obj_pool, t_desc_table, &_desc_tbl);
+}
+
+TPlanNode HashJoinNodeTest::create_tnode(int node_id, TPlanNodeType::type node_type,
+                                         const std::vector<TTupleId>& tuple_ids) {
+    TPlanNode tnode;
+    tnode.node_id = node_id;
+    tnode.node_type = node_type;
+    tnode.num_children = 0;
+    tnode.limit = -1;
+    tnode.compact_data = false;
+    for (TTupleId tuple_id : tuple_ids) {
+        tnode.row_tuples.push_back(tuple_id);
+        tnode.nullable_tuples.push_back(false);
+    }
+    return tnode;
+}
+
+static TExpr create_slot_ref(int slot_id, int tuple_id) {
+    TExprNode node;
+    node.node_type = TExprNodeType::SLOT_REF;
+    node.type = gen_type_desc(TPrimitiveType::INT);
+    node.num_children = 0;
+    node.output_scale = -1;
+    node.__isset.slot_ref = true;
+    node.slot_ref.slot_id = slot_id;
+    node.slot_ref.tuple_id = tuple_id;
+
+    TExpr expr;
+    expr.nodes.push_back(node);
+    return expr;
+}
+
+std::vector<int32_t> HashJoinNodeTest::null_aware_anti_join(
+        const std::vector<int32_t>& probe_values,
+        const std::vector<int32_t>& build_values) {
+    std::vector<IntRow> probe_rows;
+    for (int32_t value : probe_values) {
+        probe_rows.push_back(IntRow(value, NULL_VALUE));
+    }
+    std::vector<IntRow> build_rows;
+    for (int32_t value : build_values) {
+        build_rows.push_back(IntRow(value, NULL_VALUE));
+    }
+    return run_null_aware_anti_join(probe_rows, build_rows, false);
+}
+
+std::vector<int32_t> HashJoinNodeTest::correlated_null_aware_anti_join(
+        const std::vector<IntRow>& probe_rows,
+        const std::vector<IntRow>& build_rows) {
+    return run_null_aware_anti_join(probe_rows, build_rows, true);
+}
+
+std::vector<int32_t> HashJoinNodeTest::run_null_aware_anti_join(
+        const std::vector<IntRow>& probe_rows,
+        const std::vector<IntRow>& build_rows,
+        bool correlated) {
+    TPlanNode probe_tnode = create_tnode(1, TPlanNodeType::EMPTY_SET_NODE, {0});
+    ExecNode* probe = _obj_pool.add(
+            new IntValuesNode(&_obj_pool, probe_tnode, *_desc_tbl, probe_rows));
+    TPlanNode build_tnode = create_tnode(2, TPlanNodeType::EMPTY_SET_NODE, {1});
+    ExecNode* build = _obj_pool.add(
+            new IntValuesNode(&_obj_pool, build_tnode, *_desc_tbl, build_rows));
+
+    TPlanNode tnode = create_tnode(0, TPlanNodeType::HASH_JOIN_NODE, {0, 1});
+    tnode.nullable_tuples[1] = true;
+    tnode.num_children = 2;
+    tnode.__isset.hash_join_node = true;
+    tnode.hash_join_node.join_op = TJoinOp::NULL_AWARE_LEFT_ANTI_JOIN;
+    if (correlated) {
+        // 'probe.k2 = build.k2' of the correlated predicate
+        TEqJoinCondition eq_join_conjunct;
+        eq_join_conjunct.left = create_slot_ref(1, 0);
+        eq_join_conjunct.right = create_slot_ref(3, 1);
+        tnode.hash_join_node.eq_join_conjuncts.push_back(eq_join_conjunct);
+    }
+    // 'probe.k1 = build.k1' of NOT IN, which is the last one
+    TEqJoinCondition eq_join_conjunct;
+    eq_join_conjunct.left = create_slot_ref(0, 0);
+    eq_join_conjunct.right = create_slot_ref(2, 1);
+    tnode.hash_join_node.eq_join_conjuncts.push_back(eq_join_conjunct);
+
+    TestHashJoinNode join_node(&_obj_pool, tnode, *_desc_tbl);
+    join_node.add_child(probe);
+    join_node.add_child(build);
+    std::vector<int32_t> result;
+    EXPECT_TRUE(join_node.init(tnode).ok());
+    EXPECT_TRUE(join_node.prepare(_state).ok());
+    EXPECT_TRUE(join_node.open(_state).ok());
+
+    const SlotDescriptor* slot_desc = _desc_tbl->get_slot_descriptor(0);
+    bool eos = false;
+    while (!eos) {
+        RowBatch batch(join_node.row_desc(), _state->batch_size(), _state->instance_mem_tracker());
+        EXPECT_TRUE(join_node.get_next(_state, &batch, &eos).ok());
+        for (int i = 0; i < batch.num_rows(); ++i) {
+            Tuple* tuple = batch.get_row(i)->get_tuple(0);
+            if (tuple->is_null(slot_desc->null_indicator_offset())) {
+                result.push_back(NULL_VALUE);
+            } else {
+                result.push_back(*reinterpret_cast<int32_t*>(
+                        tuple->get_slot(slot_desc->tuple_offset())));
+            }
+        }
+    }
+    join_node.close(_state);
+    return result;
+}
+
+TEST_F(HashJoinNodeTest, null_aware_anti_join_normal) {
+    std::vector<int32_t> result = null_aware_anti_join({1, 2, 3, 4}, {2, 4, 6});
+    ASSERT_EQ(2, result.size());
+    ASSERT_EQ(1, result[0]);
+    ASSERT_EQ(3, result[1]);
+}
+
+TEST_F(HashJoinNodeTest, null_aware_anti_join_empty_build) {
+    // 'x NOT IN (empty)' is true even if x is null
+    std::vector<int32_t> result = null_aware_anti_join({1, NULL_VALUE, 3}, {});
+    ASSERT_EQ(3, result.size());
+    ASSERT_EQ(1, result[0]);
+    ASSERT_EQ(NULL_VALUE, result[1]);
+    ASSERT_EQ(3, result[2]);
+}
+
+TEST_F(HashJoinNodeTest, null_aware_anti_join_null_build_key) {
+    // 'x NOT IN (..., null)' is never true
+    std::vector<int32_t> result = null_aware_anti_join({1, 2, 3}, {2, NULL_VALUE});
+    ASSERT_EQ(0, result.size());
+}
+
+TEST_F(HashJoinNodeTest, null_aware_anti_join_null_probe_key) {
+    // 'null NOT IN (...)' is null if the values are not empty
+    std::vector<int32_t> result = null_aware_anti_join({NULL_VALUE, 1, 2}, {2, 3});
+    ASSERT_EQ(1, result.size());
+    ASSERT_EQ(1, result[0]);
+}
+
+TEST_F(HashJoinNodeTest, correlated_null_aware_anti_join_normal) {
+    // (k1, k2): 1 is in the values of k2 = 10, but not of k2 = 20
+    std::vector<int32_t> result = correlated_null_aware_anti_join(
+            {IntRow(1, 10), IntRow(1, 20), IntRow(3, 20)},
+            {IntRow(1, 10), IntRow(2, 20), IntRow(3, 20)});
+    ASSERT_EQ(1, result.size());
+    ASSERT_EQ(1, result[0]);
+}
+
+TEST_F(HashJoinNodeTest, correlated_null_aware_anti_join_null_build_key) {
+    // a null value only excludes the probe rows of the same correlated key
+    std::vector<int32_t> result = correlated_null_aware_anti_join(
+            {IntRow(1, 10), IntRow(2, 20)},
+            {IntRow(NULL_VALUE, 10), IntRow(3, 20)});
+    ASSERT_EQ(1, result.size());
+    ASSERT_EQ(2, result[0]);
+}
+
+TEST_F(HashJoinNodeTest, correlated_null_aware_anti_join_null_probe_key) {
+    // 'null NOT IN (...)' is only true if no build row has the same correlated key
+    std::vector<int32_t> result = correlated_null_aware_anti_join(
+            {IntRow(NULL_VALUE, 10), IntRow(NULL_VALUE, 30), IntRow(NULL_VALUE, NULL_VALUE)},
+            {IntRow(1, 10), IntRow(2, 20)});
+    ASSERT_EQ(2, result.size());
+    ASSERT_EQ(NULL_VALUE, result[0]);
+    ASSERT_EQ(NULL_VALUE, result[1]);
+}
+
+}
+
+int main(int argc, char** argv) {
+    palo::init_glog("be-test");
+    ::testing::InitGoogleTest(&argc, argv);
+    palo::CpuInfo::init();
+    palo::DiskInfo::init();
+    return RUN_ALL_TESTS();
+}
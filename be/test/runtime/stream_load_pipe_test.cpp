@@ -0,0 +1,112 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+#include "runtime/stream_load_pipe.h"
+
+#include <thread>
+
+#include <gtest/gtest.h>
+
+#include "common/status.h"
+
+namespace palo {
+
+class StreamLoadPipeTest : public testing::Test {
+public:
+    StreamLoadPipeTest() {
+    }
+
+protected:
+    virtual void SetUp() {
+    }
+    virtual void TearDown() {
+    }
+};
+
+TEST_F(StreamLoadPipeTest, Normal) {
+    std::shared_ptr<StreamLoadPipe> pipe(new StreamLoadPipe(8, 10000));
+    ASSERT_TRUE(pipe->open_reader().ok());
+    // only one reader
+    ASSERT_FALSE(pipe->open_reader().ok());
+
+    std::thread writer([pipe] () {
+        for (int i = 0; i < 10; ++i) {
+            pipe->append("0123", 4);
+        }
+        pipe->finish();
+    });
+
+    std::string result;
+    bool eof = false;
+    while (!eof) {
+        uint8_t buf[3];
+        size_t buf_len = sizeof(buf);
+        ASSERT_TRUE(pipe->read(buf, &buf_len, &eof).ok());
+        result.append((char*)buf, buf_len);
+    }
+    writer.join();
+
+    ASSERT_EQ(40U, result.size());
+    ASSERT_EQ(40, pipe->total_bytes());
+    ASSERT_EQ("01230123", result.substr(0, 8));
+    ASSERT_TRUE(pipe->wait_consumed().ok());
+}
+
+TEST_F(StreamLoadPipeTest, CancelByReader) {
+    std::shared_ptr<StreamLoadPipe> pipe(new StreamLoadPipe(4, 10000));
+    ASSERT_TRUE(pipe->open_reader().ok());
+    ASSERT_TRUE(pipe->append("0123", 4).ok());
+    {
+        StreamLoadPipeReader reader(pipe);
+        uint8_t buf[2];
+        size_t buf_len = sizeof(buf);
+        bool eof = false;
+        ASSERT_TRUE(reader.read(buf, &buf_len, &eof).ok());
+        // closed before reaching the end
+    }
+    ASSERT_FALSE(pipe->append("0123", 4).ok());
+    ASSERT_FALSE(pipe->wait_consumed().ok());
+}
+
+TEST_F(StreamLoadPipeTest, Timeout) {
+    std::shared_ptr<StreamLoadPipe> pipe(new StreamLoadPipe(4, 10));
+    ASSERT_TRUE(pipe->open_reader().ok());
+    uint8_t buf[4];
+    size_t buf_len = sizeof(buf);
+    bool eof = false;
+    // no data is appended
+    ASSERT_FALSE(pipe->read(buf, &buf_len, &eof).ok());
+}
+
+TEST_F(StreamLoadPipeTest, Mgr) {
+    StreamLoadPipeMgr mgr;
+    std::shared_ptr<StreamLoadPipe> pipe(new StreamLoadPipe(4, 10));
+    ASSERT_TRUE(mgr.put("id", pipe).ok());
+    ASSERT_FALSE(mgr.put("id", pipe).ok());
+    ASSERT_EQ(pipe, mgr.get("id"));
+    mgr.remove("id");
+    ASSERT_EQ(nullptr, mgr.get("id"));
+}
+
+}
+
+int main(int argc, char** argv) {
+    ::testing::InitGoogleTest(&argc, argv);
+    return RUN_ALL_TESTS();
+}
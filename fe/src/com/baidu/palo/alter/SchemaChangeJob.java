@@ -39,6 +39,7 @@ import com.baidu.palo.common.MetaNotFoundException;
 import com.baidu.palo.common.io.Text;
 import com.baidu.palo.load.Load;
 import com.baidu.palo.persist.ReplicaPersistInfo;
+import com.baidu.palo.qe.QueryCache;
 import com.baidu.palo.task.AgentTask;
 import com.baidu.palo.task.AgentTaskQueue;
 import com.baidu.palo.task.SchemaChangeTask;
@@ -676,6 +677,7 @@ public class SchemaChangeJob extends AlterJob {
                         materializedIndex.setState(IndexState.NORMAL);
                     } // end for indices
                     partition.setState(PartitionState.NORMAL);
+                    QueryCache.getInstance().invalidatePartition(partitionId);
                 } // end for partitions
                 olapTable.setState(OlapTableState.NORMAL);
 
@@ -781,6 +783,7 @@ public class SchemaChangeJob extends AlterJob {
                 Catalog.getCurrentInvertedIndex().deleteNewSchemaHash(partitionId, index.getId());
             }
             partition.setState(PartitionState.NORMAL);
+            QueryCache.getInstance().invalidatePartition(partitionId);
 
             // update replica info
             Collection<ReplicaPersistInfo> replicaInfo = replicaInfos.get(partition.getId());
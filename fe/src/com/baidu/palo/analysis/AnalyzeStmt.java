@@ -0,0 +1,125 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.analysis;
+
+import com.baidu.palo.catalog.AccessPrivilege;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Table;
+import com.baidu.palo.catalog.Table.TableType;
+import com.baidu.palo.cluster.ClusterNamespace;
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.ErrorCode;
+import com.baidu.palo.common.ErrorReport;
+import com.baidu.palo.common.InternalException;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+// ANALYZE TABLE tbl
+// Collect row count of table and ndv, null count, min and max value of its columns.
+public class AnalyzeStmt extends DdlStmt {
+    private final TableName tableName;
+
+    // columns to collect statistics, hll columns are skipped
+    private List<String> columnNames = Lists.newArrayList();
+    private OlapTable olapTable;
+    private Database db;
+
+    public AnalyzeStmt(TableName tableName) {
+        this.tableName = tableName;
+    }
+
+    public Database getDb() {
+        return db;
+    }
+
+    public OlapTable getOlapTable() {
+        return olapTable;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public void analyze(Analyzer analyzer) throws AnalysisException, InternalException {
+        tableName.analyze(analyzer);
+        // statistics collected by analyze are persisted into the table, and used by all queries
+        if (!analyzer.getCatalog().getUserMgr()
+                .checkAccess(analyzer.getUser(), tableName.getDb(), AccessPrivilege.READ_WRITE)) {
+            ErrorReport.reportAnalysisException(ErrorCode.ERR_DB_ACCESS_DENIED,
+                    analyzer.getUser(), tableName.getDb());
+        }
+
+        db = analyzer.getCatalog().getDb(tableName.getDb());
+        if (db == null) {
+            ErrorReport.reportAnalysisException(ErrorCode.ERR_BAD_DB_ERROR, tableName.getDb());
+        }
+        db.readLock();
+        try {
+            Table table = db.getTable(tableName.getTbl());
+            if (table == null) {
+                ErrorReport.reportAnalysisException(ErrorCode.ERR_BAD_TABLE_ERROR, tableName.getTbl());
+            }
+            if (table.getType() != TableType.OLAP) {
+                ErrorReport.reportAnalysisException(ErrorCode.ERR_NOT_OLAP_TABLE, tableName.getTbl());
+            }
+            olapTable = (OlapTable) table;
+            columnNames.clear();
+            for (Column column : olapTable.getBaseSchema()) {
+                if (column.getType().isHllType()) {
+                    continue;
+                }
+                columnNames.add(column.getName());
+            }
+        } finally {
+            db.readUnlock();
+        }
+    }
+
+    // Query to collect statistics. The first column is the row count,
+    // followed by null count, ndv, min and max value of each column.
+    public String getStatsQuery() {
+        StringBuilder sb = new StringBuilder("SELECT count(*)");
+        for (String name : columnNames) {
+            String col = "`" + name + "`";
+            sb.append(", count(*) - count(").append(col).append(")");
+            sb.append(", ndv(").append(col).append(")");
+            sb.append(", min(").append(col).append(")");
+            sb.append(", max(").append(col).append(")");
+        }
+        sb.append(" FROM `").append(ClusterNamespace.getDbNameFromFullName(tableName.getDb()));
+        sb.append("`.`").append(tableName.getTbl()).append("`");
+        return sb.toString();
+    }
+
+    @Override
+    public String toSql() {
+        return "ANALYZE TABLE " + tableName.toSql();
+    }
+
+    @Override
+    public String toString() {
+        return toSql();
+    }
+}
@@ -39,7 +39,10 @@ import com.baidu.palo.qe.ConnectContext;
 import com.baidu.palo.rewrite.BetweenToCompoundRule;
 import com.baidu.palo.rewrite.ExprRewriteRule;
 import com.baidu.palo.rewrite.ExprRewriter;
+import com.baidu.palo.rewrite.FoldConstantsRule;
 import com.baidu.palo.rewrite.NormalizeBinaryPredicatesRule;
+import com.baidu.palo.rewrite.OrToInPredicateRule;
+import com.baidu.palo.rewrite.SimplifyCompoundPredicatesRule;
 import com.baidu.palo.thrift.TQueryGlobals;
 
 import com.google.common.base.Joiner;
@@ -223,6 +226,12 @@ public class Analyzer {
         // Expr rewriter for normalizing and rewriting expressions.
         private final ExprRewriter exprRewriter_;
 
+        // values of parameter markers, set if analyzing a prepared statement
+        private PreparedParams preparedParams = null;
+
+        // tables resolved by table refs, and their databases
+        private final Map<Table, Database> referencedTables = Maps.newHashMap();
+
         public GlobalState(Catalog catalog, ConnectContext context) {
             this.catalog = catalog;
             this.context = context;
@@ -234,6 +243,13 @@ public class Analyzer {
             // Binary predicates must be rewritten to a canonical form for both Kudu predicate
             // pushdown and Parquet row group pruning based on min/max statistics.
             rules.add(NormalizeBinaryPredicatesRule.INSTANCE);
+            // Constant exprs are folded before partition column filters are built by planner,
+            // so that predicates like 'dt >= date_sub('2018-01-10', 7)' can prune partitions.
+            if (context == null || context.getSessionVariable().isEnableExprRewrite()) {
+                rules.add(FoldConstantsRule.INSTANCE);
+                rules.add(SimplifyCompoundPredicatesRule.INSTANCE);
+                rules.add(OrToInPredicateRule.INSTANCE);
+            }
             exprRewriter_ = new ExprRewriter(rules);
         }
     };
@@ -467,6 +483,7 @@ public class Analyzer {
             ErrorReport.reportAnalysisException(ErrorCode.ERR_BAD_TABLE_ERROR, tableName.getTbl());
         }
 
+        globalState.referencedTables.put(table, database);
         TableName tblName = new TableName(database.getName(), table.getName());
         if (table instanceof View) {
             return new InlineViewRef((View) table, tableRef);
@@ -1316,6 +1333,18 @@ public class Analyzer {
         return globalState.context.getDatabase();
     }
 
+    public PreparedParams getPreparedParams() {
+        return globalState.preparedParams;
+    }
+
+    public void setPreparedParams(PreparedParams preparedParams) {
+        globalState.preparedParams = preparedParams;
+    }
+
+    public Map<Table, Database> getReferencedTables() {
+        return globalState.referencedTables;
+    }
+
     public String getClusterName() {
         return globalState.context.getClusterName();
     }
@@ -20,6 +20,7 @@
 
 package com.baidu.palo.analysis;
 
+import com.baidu.palo.catalog.ColumnStats;
 import com.baidu.palo.catalog.Function;
 import com.baidu.palo.catalog.FunctionSet;
 import com.baidu.palo.catalog.PrimitiveType;
@@ -52,6 +53,9 @@ public class BinaryPredicate extends Predicate implements Writable {
 
     // true if this BinaryPredicate is inferred from slot equivalences, false otherwise.
     private boolean isInferred_ = false;
+    // true if this is the EQ of a NOT IN subquery, which the null aware anti join
+    // evaluates as null-matching EQ.
+    private boolean isNullAware_ = false;
 
     public enum Operator {
         EQ("=", "eq", TExprOpcode.EQ),
@@ -153,10 +157,13 @@ public class BinaryPredicate extends Predicate implements Writable {
         op = other.op;
         slotIsleft= other.slotIsleft;
         isInferred_ = other.isInferred_;
+        isNullAware_ = other.isNullAware_;
     }
 
     public boolean isInferred() { return isInferred_; }
     public void setIsInferred() { isInferred_ = true; }
+    public boolean isNullAware() { return isNullAware_; }
+    public void setIsNullAware() { isNullAware_ = true; }
 
     public static void initBuiltins(FunctionSet functionSet) {
         for (Type t: Type.getSupportedTypes()) {
@@ -325,11 +332,19 @@ public class BinaryPredicate extends Predicate implements Writable {
 
         // determine selectivity
         Reference<SlotRef> slotRefRef = new Reference<SlotRef>();
+        Reference<Integer> idxRef = new Reference<Integer>();
         if (op == Operator.EQ && isSingleColumnPredicate(slotRefRef,
           null) && slotRefRef.getRef().getNumDistinctValues() > 0) {
             Preconditions.checkState(slotRefRef.getRef() != null);
             selectivity = 1.0 / slotRefRef.getRef().getNumDistinctValues();
             selectivity = Math.max(0, Math.min(1, selectivity));
+        } else if ((op == Operator.LT || op == Operator.LE || op == Operator.GT || op == Operator.GE)
+                && isSingleColumnPredicate(slotRefRef, idxRef)
+                && getChild(1 - idxRef.getRef()) instanceof LiteralExpr) {
+            // "<slotref> <op> <literal>", or "<literal> <op> <slotref>" which equals to the converse one
+            Operator slotOp = idxRef.getRef() == 0 ? op : op.converse();
+            selectivity = computeRangeSelectivity(slotRefRef.getRef(),
+                    (LiteralExpr) getChild(1 - idxRef.getRef()), slotOp);
         } else {
             // TODO: improve using histograms, once they show up
             selectivity = Expr.DEFAULT_SELECTIVITY;
@@ -338,6 +353,46 @@ public class BinaryPredicate extends Predicate implements Writable {
         // vectorizedAnalyze(analyzer);
     }
 
+    // Assume values are uniformly distributed between min and max value of column,
+    // which are collected by ANALYZE TABLE.
+    private double computeRangeSelectivity(SlotRef slotRef, LiteralExpr literal, Operator slotOp) {
+        if (slotRef.getDesc() == null) {
+            return Expr.DEFAULT_SELECTIVITY;
+        }
+        ColumnStats stats = slotRef.getDesc().getStats();
+        Type type = slotRef.getType();
+        if (!stats.hasMinMaxValue() || !isRangeComparable(type) || !isRangeComparable(literal.getType())) {
+            return Expr.DEFAULT_SELECTIVITY;
+        }
+
+        double min;
+        double max;
+        try {
+            min = LiteralExpr.create(stats.getMinValue(), type).getDoubleValue();
+            max = LiteralExpr.create(stats.getMaxValue(), type).getDoubleValue();
+        } catch (AnalysisException e) {
+            LOG.debug("invalid min max value of column {}: {}", slotRef.toSql(), e.getMessage());
+            return Expr.DEFAULT_SELECTIVITY;
+        }
+        if (max <= min) {
+            return Expr.DEFAULT_SELECTIVITY;
+        }
+
+        double value = literal.getDoubleValue();
+        double fraction;
+        if (slotOp == Operator.LT || slotOp == Operator.LE) {
+            fraction = (value - min) / (max - min);
+        } else {
+            fraction = (max - value) / (max - min);
+        }
+        return Math.max(0, Math.min(1, fraction));
+    }
+
+    // decimal is not supported, because DecimalLiteral can not be converted to double
+    private static boolean isRangeComparable(Type type) {
+        return type.isFixedPointType() || type.isFloatingPointType() || type.isDateType();
+    }
+
     /**
      * If predicate is of the form "<slotref> <op> <expr>", returns expr,
      * otherwise returns null. Slotref may be wrapped in a CastExpr.
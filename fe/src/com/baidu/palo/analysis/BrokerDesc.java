@@ -32,6 +32,9 @@ import java.util.Map;
 
 // Broker descriptor
 public class BrokerDesc implements Writable {
+    // Broker desc of stream load, whose data is sent to backend by client, not read through broker
+    public static final String STREAM_LOAD_NAME = "__stream_load";
+
     private String name;
     private Map<String, String> properties;
 
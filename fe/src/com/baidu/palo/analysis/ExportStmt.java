@@ -57,6 +57,8 @@ public class ExportStmt extends StatementBase {
 
     private static final String DEFAULT_COLUMN_SEPARATOR = "\t";
     private static final String DEFAULT_LINE_DELIMITER = "\n";
+    // bytes of each exported file, after which the rest data is written to a new file
+    public static final String PROP_MAX_FILE_SIZE = "max_file_size";
 
     private TableName tblName;
     private List<String> partitions;
@@ -65,6 +67,8 @@ public class ExportStmt extends StatementBase {
     private final Map<String, String> properties;
     private String columnSeparator;
     private String lineDelimiter;
+    // 0 means each exec instance writes one file
+    private long maxFileSize;
 
     private TableRef tableRef;
 
@@ -118,6 +122,10 @@ public class ExportStmt extends StatementBase {
         return this.lineDelimiter;
     }
 
+    public long getMaxFileSize() {
+        return this.maxFileSize;
+    }
+
     @Override
     public void analyze(Analyzer analyzer) throws AnalysisException, InternalException {
         super.analyze(analyzer);
@@ -219,6 +227,16 @@ public class ExportStmt extends StatementBase {
         this.columnSeparator = PropertyAnalyzer.analyzeColumnSeparator(
                 properties, ExportStmt.DEFAULT_COLUMN_SEPARATOR);
         this.lineDelimiter = PropertyAnalyzer.analyzeLineDelimiter(properties, ExportStmt.DEFAULT_LINE_DELIMITER);
+        if (properties != null && properties.containsKey(PROP_MAX_FILE_SIZE)) {
+            try {
+                this.maxFileSize = Long.parseLong(properties.get(PROP_MAX_FILE_SIZE));
+            } catch (NumberFormatException e) {
+                throw new AnalysisException("Invalid max_file_size: " + properties.get(PROP_MAX_FILE_SIZE));
+            }
+            if (this.maxFileSize <= 0) {
+                throw new AnalysisException("max_file_size should be larger than 0");
+            }
+        }
     }
 
     @Override
@@ -360,7 +360,7 @@ public class InsertStmt extends DdlStmt {
                     table.getWritablePath(),
                     table.getColumnSeparator(),
                     table.getLineDelimiter(),
-                    brokerDesc);
+                    0, brokerDesc);
             dataPartition = dataSink.getOutputPartition();
         } else {
             dataSink = DataSink.createDataSink(targetTable);
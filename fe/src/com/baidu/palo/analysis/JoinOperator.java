@@ -62,7 +62,8 @@ public enum JoinOperator {
     }
 
     public boolean isSemiAntiJoin() {
-        return this == LEFT_SEMI_JOIN || this == RIGHT_SEMI_JOIN || this == LEFT_ANTI_JOIN || this == RIGHT_ANTI_JOIN;
+        return this == LEFT_SEMI_JOIN || this == RIGHT_SEMI_JOIN || this == LEFT_ANTI_JOIN || this == RIGHT_ANTI_JOIN
+                || this == NULL_AWARE_LEFT_ANTI_JOIN;
     }
 
     public boolean isSemiJoin() {
@@ -0,0 +1,118 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.analysis;
+
+import com.baidu.palo.catalog.Type;
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.thrift.TExpr;
+import com.baidu.palo.thrift.TExprNode;
+
+import com.google.common.base.Preconditions;
+
+/*
+ * Parameter marker('?') of a prepared statement.
+ * Its value is bound by the analyzer from PreparedParams, and it is sent to backends as the
+ * literal of the value. It is analyzed as a literal of the same type as the value, but it is
+ * not a LiteralExpr, so that the analyzed statement does not depend on the value, and can be
+ * executed again after new values are bound.
+ */
+public class PlaceHolderExpr extends Expr {
+    // position of this marker in the statement, starting from 0
+    private final int index;
+    // set when analyzed
+    private PreparedParams params;
+
+    public PlaceHolderExpr(int index) {
+        this.index = index;
+    }
+
+    protected PlaceHolderExpr(PlaceHolderExpr other) {
+        super(other);
+        index = other.index;
+        params = other.params;
+    }
+
+    @Override
+    public Expr clone() {
+        return new PlaceHolderExpr(this);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    protected void analyzeImpl(Analyzer analyzer) throws AnalysisException {
+        params = analyzer.getPreparedParams();
+        if (params == null || index >= params.size()) {
+            throw new AnalysisException("Parameter marker '?' is only allowed in prepared statements");
+        }
+        // type is kept if this is a cast of another marker
+        if (!type.isValid()) {
+            type = params.getValue(index).getType();
+        }
+    }
+
+    // Cast lazily like a literal, instead of adding a CastExpr.
+    @Override
+    protected Expr uncheckedCastTo(Type targetType) throws AnalysisException {
+        Preconditions.checkState(isAnalyzed());
+        params.registerCast(index, targetType);
+        PlaceHolderExpr castExpr = new PlaceHolderExpr(this);
+        castExpr.type = targetType;
+        return castExpr;
+    }
+
+    // Return the bound value of this marker, which is a LiteralExpr, or null if the value can
+    // only be cast to the type of this marker by backends.
+    public LiteralExpr getLiteral() {
+        Expr value = getValue();
+        return value instanceof LiteralExpr ? (LiteralExpr) value : null;
+    }
+
+    private Expr getValue() {
+        Preconditions.checkState(isAnalyzed());
+        return params.getValue(index, type);
+    }
+
+    @Override
+    protected void treeToThriftHelper(TExpr container) {
+        getValue().treeToThriftHelper(container);
+    }
+
+    @Override
+    protected void toThrift(TExprNode msg) {
+        // replaced by the value in treeToThriftHelper()
+        Preconditions.checkState(false);
+    }
+
+    @Override
+    public String toSql() {
+        return isAnalyzed() ? getValue().toSql() : "?";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!super.equals(obj)) {
+            return false;
+        }
+        return index == ((PlaceHolderExpr) obj).index;
+    }
+}
@@ -0,0 +1,112 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.analysis;
+
+import com.baidu.palo.catalog.Type;
+import com.baidu.palo.common.AnalysisException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/*
+ * Values of the parameters of a prepared statement, shared by all PlaceHolderExprs analyzed with
+ * the same analyzer, including the copies of them made during analysis and planning.
+ * So the analyzed statement and its plan can be executed again with other values by rebinding
+ * the values here, as long as the types of the values are not changed.
+ *
+ * A PlaceHolderExpr which is cast to another type registers the type here, the value is cast when
+ * it is bound, just like a literal is cast during analysis.
+ */
+public class PreparedParams {
+    private final List<LiteralExpr> values;
+    // for every parameter, the types it is cast to and the cast values
+    private final List<List<Type>> castTypes;
+    private final List<List<Expr>> castValues;
+
+    public PreparedParams(List<LiteralExpr> values) {
+        this.values = Lists.newArrayList(values);
+        this.castTypes = Lists.newArrayList();
+        this.castValues = Lists.newArrayList();
+        for (int i = 0; i < values.size(); ++i) {
+            castTypes.add(Lists.<Type>newArrayList());
+            castValues.add(Lists.<Expr>newArrayList());
+        }
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public LiteralExpr getValue(int index) {
+        return values.get(index);
+    }
+
+    // Replace the values, whose types must be the same as the old ones, and cast them again.
+    public void bind(List<LiteralExpr> newValues) throws AnalysisException {
+        Preconditions.checkArgument(newValues.size() == values.size());
+        for (int i = 0; i < newValues.size(); ++i) {
+            Preconditions.checkArgument(newValues.get(i).getType().equals(values.get(i).getType()));
+            values.set(i, newValues.get(i));
+            castValues.get(i).clear();
+            for (Type type : castTypes.get(i)) {
+                castValues.get(i).add(castValue(values.get(i), type));
+            }
+        }
+    }
+
+    // Register that parameter 'index' is cast to 'type', and check that the value can be cast.
+    public void registerCast(int index, Type type) throws AnalysisException {
+        if (findCast(index, type) >= 0) {
+            return;
+        }
+        Expr castValue = castValue(values.get(index), type);
+        castTypes.get(index).add(type);
+        castValues.get(index).add(castValue);
+    }
+
+    // Return the value of parameter 'index' cast to 'type', which is a literal, or a CastExpr
+    // of the literal if it can only be cast by backends.
+    public Expr getValue(int index, Type type) {
+        LiteralExpr value = values.get(index);
+        if (type.equals(value.getType())) {
+            return value;
+        }
+        int pos = findCast(index, type);
+        Preconditions.checkState(pos >= 0, "parameter %s is not cast to %s", index, type);
+        return castValues.get(index).get(pos);
+    }
+
+    private int findCast(int index, Type type) {
+        List<Type> types = castTypes.get(index);
+        for (int i = 0; i < types.size(); ++i) {
+            if (types.get(i).equals(type)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Expr castValue(LiteralExpr value, Type type) throws AnalysisException {
+        // IntLiteral changes its own type when cast, so cast a copy
+        return value.clone().castTo(type);
+    }
+}
@@ -380,6 +380,9 @@ public class StmtRewriter {
 
         stmt.fromClause_.add(inlineView);
         JoinOperator joinOp = JoinOperator.LEFT_SEMI_JOIN;
+        // the correlated predicates extracted from the subquery are the ON clause of the join,
+        // the inline view itself is only correlated if it has relative table refs
+        boolean isCorrelated = !onClauseConjuncts.isEmpty() || inlineView.isCorrelated();
 
          // Create a join conjunct from the expr that contains a subquery.
         Expr joinConjunct = createJoinConjunct(expr, inlineView, analyzer,
@@ -448,7 +451,7 @@ public class StmtRewriter {
         }
 
         // Check if we have a valid ON clause for an equi-join.
-        boolean hasEqJoinPred = false;
+        int numEqJoinPreds = 0;
         for (Expr conjunct : onClausePredicate.getConjuncts()) {
             if (!(conjunct instanceof BinaryPredicate)) continue;
             BinaryPredicate.Operator operator = ((BinaryPredicate) conjunct).getOp();
@@ -470,11 +473,10 @@ public class StmtRewriter {
                     && rhsTupleIds.size() > 1)) {
                 continue;
             }
-            hasEqJoinPred = true;
-            break;
+            ++numEqJoinPreds;
         }
 
-        if (!hasEqJoinPred && !inlineView.isCorrelated()) {
+        if (numEqJoinPreds == 0 && !inlineView.isCorrelated()) {
             // TODO: Remove this when independent subquery evaluation is implemented.
             // TODO: Requires support for non-equi joins.
             boolean hasGroupBy = ((SelectStmt) inlineView.getViewStmt()).hasGroupByClause();
@@ -510,8 +512,17 @@ public class StmtRewriter {
             // For the case of a NOT IN with an eq join conjunct, replace the join
             // conjunct with a conjunct that uses the null-matching eq operator.
             if (expr instanceof InPredicate) {
-                // joinOp = JoinOperator.NULL_AWARE_LEFT_ANTI_JOIN;
-                joinOp = JoinOperator.LEFT_ANTI_JOIN;
+                // A plain anti join returns the lhs rows whose value is null, and ignores
+                // the null values returned by the subquery. The null aware anti join of a
+                // correlated subquery looks up the rows of the subquery by the other eq join
+                // conjuncts, so it needs at least one of them besides the NOT IN conjunct.
+                // TODO: correlated NOT IN with only non-equi correlated predicates still uses
+                // a plain anti join.
+                if (!isCorrelated || numEqJoinPreds > 1) {
+                    joinOp = JoinOperator.NULL_AWARE_LEFT_ANTI_JOIN;
+                } else {
+                    joinOp = JoinOperator.LEFT_ANTI_JOIN;
+                }
                 List<TupleId> tIds = Lists.newArrayList();
                 joinConjunct.getIds(tIds, null);
                 if (tIds.size() <= 1 || !tIds.contains(inlineView.getDesc().getId())) {
@@ -526,6 +537,8 @@ public class StmtRewriter {
                         Preconditions.checkState(((BinaryPredicate) conjunct).getOp()
                                 == BinaryPredicate.Operator.EQ);
                         // ((BinaryPredicate)conjunct).setOp(BinaryPredicate.Operator.NULL_MATCHING_EQ);
+                        // The null aware anti join evaluates the marked conjunct as null-matching EQ.
+                        ((BinaryPredicate) conjunct).setIsNullAware();
                         break;
                     }
                 }
@@ -559,7 +572,8 @@ public class StmtRewriter {
             for (int j = 0; j < tableIdx; ++j) {
                 TableRef tableRef = stmt.fromClause_.get(j);
                 if (tableRef.getJoinOp() == JoinOperator.LEFT_SEMI_JOIN ||
-                        tableRef.getJoinOp() == JoinOperator.LEFT_ANTI_JOIN) {
+                        tableRef.getJoinOp() == JoinOperator.LEFT_ANTI_JOIN ||
+                        tableRef.getJoinOp() == JoinOperator.NULL_AWARE_LEFT_ANTI_JOIN) {
                     continue;
                 }
                 newItems.add(SelectListItem.createStarItem(tableRef.getAliasAsName()));
@@ -198,6 +198,10 @@ public class TimestampArithmeticExpr extends Expr {
         return op;
     }
 
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+
     private TExprOpcode getOpCode() throws AnalysisException {
         // Select appropriate opcode based on op and timeUnit.
         switch (timeUnit) {
@@ -92,9 +92,11 @@ import com.baidu.palo.common.FeMetaVersion;
 import com.baidu.palo.common.InternalException;
 import com.baidu.palo.common.MarkedCountDownLatch;
 import com.baidu.palo.common.Pair;
+import com.baidu.palo.common.io.DataOutputBuffer;
 import com.baidu.palo.common.io.Text;
 import com.baidu.palo.common.util.Daemon;
 import com.baidu.palo.common.util.KuduUtil;
+import com.baidu.palo.common.util.Metrics;
 import com.baidu.palo.common.util.PrintableMap;
 import com.baidu.palo.common.util.PropertyAnalyzer;
 import com.baidu.palo.common.util.Util;
@@ -127,9 +129,12 @@ import com.baidu.palo.persist.ModifyPartitionInfo;
 import com.baidu.palo.persist.PartitionPersistInfo;
 import com.baidu.palo.persist.RecoverInfo;
 import com.baidu.palo.persist.ReplicaPersistInfo;
+import com.baidu.palo.persist.SectionedImageReader;
+import com.baidu.palo.persist.SectionedImageWriter;
 import com.baidu.palo.persist.Storage;
 import com.baidu.palo.persist.StorageInfo;
 import com.baidu.palo.persist.TableInfo;
+import com.baidu.palo.persist.TableStatsInfo;
 import com.baidu.palo.qe.ConnectContext;
 import com.baidu.palo.qe.JournalObservable;
 import com.baidu.palo.qe.SessionVariable;
@@ -159,6 +164,7 @@ import com.google.common.collect.Sets;
 import com.sleepycat.je.rep.InsufficientLogException;
 import com.sleepycat.je.rep.NetworkRestore;
 import com.sleepycat.je.rep.NetworkRestoreConfig;
+import io.dropwizard.metrics.Gauge;
 import org.apache.kudu.ColumnSchema;
 import org.apache.kudu.Schema;
 import org.apache.kudu.client.CreateTableOptions;
@@ -189,6 +195,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -200,9 +211,27 @@ public class Catalog {
     private static final int HTTP_TIMEOUT_SECOND = 5;
     private static final int STATE_CHANGE_CHECK_INTERVAL_MS = 100;
     private static final int REPLAY_INTERVAL_MS = 1;
+    private static final String REPLAY_LAG_GAUGE_NAME = "journal.replay_lag";
     public static final String BDB_DIR = Config.meta_dir + "/bdb";
     public static final String IMAGE_DIR = Config.meta_dir + "/image";
 
+    // Section names of sectioned image
+    private static final String IMAGE_SECTION_HEADER = "header";
+    private static final String IMAGE_SECTION_MASTER_INFO = "master_info";
+    private static final String IMAGE_SECTION_FRONTENDS = "frontends";
+    private static final String IMAGE_SECTION_BACKENDS = "backends";
+    // followed by db id
+    private static final String IMAGE_SECTION_DB_PREFIX = "db.";
+    private static final String IMAGE_SECTION_LOAD_JOB = "load_job";
+    private static final String IMAGE_SECTION_ALTER_JOB = "alter_job";
+    private static final String IMAGE_SECTION_BACKUP_RESTORE_JOB = "backup_restore_job";
+    private static final String IMAGE_SECTION_ACCESS_SERVICE = "access_service";
+    private static final String IMAGE_SECTION_RECYCLE_BIN = "recycle_bin";
+    private static final String IMAGE_SECTION_GLOBAL_VARIABLE = "global_variable";
+    private static final String IMAGE_SECTION_CLUSTER = "cluster";
+    private static final String IMAGE_SECTION_BROKERS = "brokers";
+    private static final String IMAGE_SECTION_EXPORT_JOB = "export_job";
+
     // Image file meta data version. Use this version to load image file
     private int imageVersion = 0;
     // Current journal meta data version. Use this version to load journals
@@ -253,11 +282,13 @@ public class Catalog {
     private String metaDir;
     private EditLog editLog;
     private int clusterId;
-    private long replayedJournalId; // For checkpoint and observer memory
+    private volatile long replayedJournalId; // For checkpoint and observer memory
                                     // replayed marker
 
     private static Catalog CHECKPOINT = null;
     private static long checkpointThreadId = -1;
+    // true in threads which load image for checkpoint thread, see loadDbSections()
+    private static ThreadLocal<Boolean> isCheckpointWorker = new ThreadLocal<Boolean>();
     private Checkpoint checkpointer;
     private Pair<String, Integer> helperNode = null;
     private Pair<String, Integer> selfNode = null;
@@ -415,7 +446,7 @@ public class Catalog {
     }
 
     public static final boolean isCheckpointThread() {
-        return Thread.currentThread().getId() == checkpointThreadId;
+        return Thread.currentThread().getId() == checkpointThreadId || isCheckpointWorker.get() != null;
     }
 
     public void readLock() {
@@ -470,6 +501,7 @@ public class Catalog {
         loadImage(IMAGE_DIR); // load image file
         editLog.open(); // open bdb env or local output stream
         this.userPropertyMgr.setEditLog(editLog);
+        registerReplayLagGauge();
         // 5. start load label cleaner thread
         createCleaner();
         cleaner.setName("labelCleaner");
@@ -881,6 +913,11 @@ public class Catalog {
         replayedJournalId = storage.getImageSeq();
         LOG.info("start load image from {}. is ckpt: {}", curFile.getAbsolutePath(), Catalog.isCheckpointThread());
         long loadImageStartTime = System.currentTimeMillis();
+        if (SectionedImageReader.isSectionedImage(curFile)) {
+            loadSectionedImage(curFile);
+            LOG.info("finished load sectioned image in {} ms", System.currentTimeMillis() - loadImageStartTime);
+            return;
+        }
         DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(curFile)));
 
         long checksum = 0;
@@ -915,6 +952,78 @@ public class Catalog {
         LOG.info("finished load image in " + (loadImageEndTime - loadImageStartTime) + " ms");
     }
 
+    /*
+     * Load image in sectioned format, see saveSectionedImage().
+     * Sections are loaded in the same order as the old format, except that databases are
+     * deserialized in parallel.
+     */
+    private void loadSectionedImage(File curFile) throws IOException, DdlException {
+        SectionedImageReader reader = new SectionedImageReader(curFile);
+        try {
+            loadHeader(reader.readSection(IMAGE_SECTION_HEADER), 0);
+            loadMasterInfo(reader.readSection(IMAGE_SECTION_MASTER_INFO), 0);
+            loadFrontends(reader.readSection(IMAGE_SECTION_FRONTENDS), 0);
+            Catalog.getCurrentSystemInfo().loadBackends(reader.readSection(IMAGE_SECTION_BACKENDS), 0);
+            loadDbSections(reader);
+            // ATTN: this should be done after load Db, and before loadAlterJob
+            recreateTabletInvertIndex();
+
+            loadLoadJob(reader.readSection(IMAGE_SECTION_LOAD_JOB), 0);
+            loadAlterJob(reader.readSection(IMAGE_SECTION_ALTER_JOB), 0);
+            loadBackupAndRestoreJob(reader.readSection(IMAGE_SECTION_BACKUP_RESTORE_JOB), 0);
+            loadAccessService(reader.readSection(IMAGE_SECTION_ACCESS_SERVICE), 0);
+            loadRecycleBin(reader.readSection(IMAGE_SECTION_RECYCLE_BIN), 0);
+            loadGlobalVariable(reader.readSection(IMAGE_SECTION_GLOBAL_VARIABLE), 0);
+            loadCluster(reader.readSection(IMAGE_SECTION_CLUSTER), 0);
+            loadBrokers(reader.readSection(IMAGE_SECTION_BROKERS), 0);
+            loadExportJob(reader.readSection(IMAGE_SECTION_EXPORT_JOB), 0);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void loadDbSections(final SectionedImageReader reader) throws IOException {
+        List<String> sectionNames = reader.getSectionNames(IMAGE_SECTION_DB_PREFIX);
+        final boolean inCheckpoint = isCheckpointThread();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Config.meta_image_threads_num));
+        try {
+            List<Future<Database>> futures = Lists.newArrayListWithCapacity(sectionNames.size());
+            for (final String sectionName : sectionNames) {
+                futures.add(executor.submit(new Callable<Database>() {
+                    @Override
+                    public Database call() throws Exception {
+                        if (inCheckpoint) {
+                            isCheckpointWorker.set(true);
+                        }
+                        try {
+                            Database db = new Database();
+                            db.readFields(reader.readSection(sectionName));
+                            return db;
+                        } finally {
+                            isCheckpointWorker.remove();
+                        }
+                    }
+                }));
+            }
+
+            for (Future<Database> future : futures) {
+                Database db = future.get();
+                idToDb.put(db.getId(), db);
+                nameToDb.put(db.getName(), db);
+                if (db.getDbState() == DbState.LINK) {
+                    nameToDb.put(db.getAttachDb(), db);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("interrupted when loading databases from image", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to load databases from image", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        LOG.info("finished load {} databases from image", sectionNames.size());
+    }
+
     private void recreateTabletInvertIndex() {
         if (isCheckpointThread()) {
             return;
@@ -1265,6 +1374,17 @@ public class Catalog {
         }
 
         LOG.info("start save image to {}. is ckpt: {}", curFile.getAbsolutePath(), Catalog.isCheckpointThread());
+        if (Config.meta_image_sectioned) {
+            long saveImageStartTime = System.currentTimeMillis();
+            readLock();
+            try {
+                saveSectionedImage(curFile, replayedJournalId);
+            } finally {
+                readUnlock();
+            }
+            LOG.info("finished save sectioned image in {} ms", System.currentTimeMillis() - saveImageStartTime);
+            return;
+        }
 
         long checksum = 0;
         long saveImageStartTime = System.currentTimeMillis();
@@ -1298,6 +1418,99 @@ public class Catalog {
         LOG.info("finished save image in {} ms. checksum is {}", (saveImageEndTime - saveImageStartTime), checksum);
     }
 
+    /*
+     * Save image in sectioned format. Every part of the image is saved in its own section,
+     * and every database is saved in its own section named by IMAGE_SECTION_DB_PREFIX.
+     * Sections are checksummed by crc32 instead of the running checksum of the old format.
+     */
+    private void saveSectionedImage(File curFile, long replayedJournalId) throws IOException {
+        SectionedImageWriter writer = new SectionedImageWriter(curFile);
+        try {
+            DataOutputBuffer buffer = new DataOutputBuffer();
+            saveHeader(buffer, replayedJournalId, 0);
+            writer.writeSection(IMAGE_SECTION_HEADER, buffer);
+            saveMasterInfo(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_MASTER_INFO, buffer);
+            saveFrontends(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_FRONTENDS, buffer);
+            Catalog.getCurrentSystemInfo().saveBackends(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_BACKENDS, buffer);
+
+            saveDbSections(writer);
+
+            saveLoadJob(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_LOAD_JOB, buffer);
+            saveAlterJob(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_ALTER_JOB, buffer);
+            saveBackupAndRestoreJob(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_BACKUP_RESTORE_JOB, buffer);
+            saveAccessService(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_ACCESS_SERVICE, buffer);
+            saveRecycleBin(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_RECYCLE_BIN, buffer);
+            saveGlobalVariable(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_GLOBAL_VARIABLE, buffer);
+            saveCluster(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_CLUSTER, buffer);
+            saveBrokers(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_BROKERS, buffer);
+            saveExportJob(buffer.reset(), 0);
+            writer.writeSection(IMAGE_SECTION_EXPORT_JOB, buffer);
+
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+    }
+
+    // Serialize databases in parallel, and write them in order.
+    // At most 2 * threads num databases are kept in memory.
+    private void saveDbSections(SectionedImageWriter writer) throws IOException {
+        int threadNum = Math.max(1, Config.meta_image_threads_num);
+        ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+        try {
+            List<Long> dbIds = Lists.newArrayList();
+            for (long dbId : idToDb.keySet()) {
+                // same as saveDb(), skip databases of information schema
+                if (dbId >= NEXT_ID_INIT_VALUE) {
+                    dbIds.add(dbId);
+                }
+            }
+
+            List<Future<DataOutputBuffer>> pending = Lists.newLinkedList();
+            List<Long> pendingIds = Lists.newLinkedList();
+            for (long dbId : dbIds) {
+                final Database db = idToDb.get(dbId);
+                pending.add(executor.submit(new Callable<DataOutputBuffer>() {
+                    @Override
+                    public DataOutputBuffer call() throws Exception {
+                        DataOutputBuffer dbBuffer = new DataOutputBuffer();
+                        db.readLock();
+                        try {
+                            db.write(dbBuffer);
+                        } finally {
+                            db.readUnlock();
+                        }
+                        return dbBuffer;
+                    }
+                }));
+                pendingIds.add(dbId);
+                if (pending.size() >= 2 * threadNum) {
+                    writer.writeSection(IMAGE_SECTION_DB_PREFIX + pendingIds.remove(0), pending.remove(0).get());
+                }
+            }
+            while (!pending.isEmpty()) {
+                writer.writeSection(IMAGE_SECTION_DB_PREFIX + pendingIds.remove(0), pending.remove(0).get());
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("interrupted when saving databases to image", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to save databases to image", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     public long saveHeader(DataOutputStream dos, long replayedJournalId, long checksum) throws IOException {
         // Write meta version
         checksum ^= FeConstants.meta_version;
@@ -1744,6 +1957,19 @@ public class Catalog {
         };
     }
 
+    // number of journals which are written by master but not replayed by this frontend yet
+    private void registerReplayLagGauge() {
+        Metrics.registerGauge(REPLAY_LAG_GAUGE_NAME, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                if (isMaster) {
+                    return 0L;
+                }
+                return Math.max(0L, getMaxJournalId() - replayedJournalId);
+            }
+        });
+    }
+
     public synchronized boolean replayJournal(long toJournalId) {
         if (toJournalId == -1) {
             toJournalId = getMaxJournalId();
@@ -2363,6 +2589,12 @@ public class Catalog {
                 distributionInfo = defaultDistributionInfo;
             }
 
+            if (olapTable.getColocateGroup() != null
+                    && distributionInfo.getBucketNum() != defaultDistributionInfo.getBucketNum()) {
+                throw new DdlException("Cannot assign different bucket num to colocate table. default is: "
+                        + defaultDistributionInfo.getBucketNum());
+            }
+
             indexIdToShortKeyColumnCount = olapTable.getCopiedIndexIdToShortKeyColumnCount();
             indexIdToSchemaHash = olapTable.getCopiedIndexIdToSchemaHash();
             indexIdToStorageType = olapTable.getCopiedIndexIdToStorageType();
@@ -2388,6 +2620,15 @@ public class Catalog {
 
         Set<Long> tabletIdSet = new HashSet<Long>();
         try {
+            List<List<Long>> colocateBackends = null;
+            if (olapTable.getColocateGroup() != null) {
+                colocateBackends = getColocateBackends(db, olapTable.getColocateGroup(), distributionInfo);
+                if (colocateBackends == null) {
+                    colocateBackends = chooseColocateBackends(db.getClusterName(), distributionInfo.getBucketNum(),
+                                                              singlePartitionDesc.getReplicationNum());
+                }
+            }
+
             long partitionId = getNextId();
             Partition partition = createPartitionWithIndices(db.getClusterName(), db.getId(),
                                                              olapTable.getId(),
@@ -2401,7 +2642,7 @@ public class Catalog {
                                                              dataProperty.getStorageMedium(),
                                                              singlePartitionDesc.getReplicationNum(),
                                                              versionInfo, bfColumns, olapTable.getBfFpp(),
-                                                             tabletIdSet, isRestore);
+                                                             tabletIdSet, colocateBackends, isRestore);
 
             // check again
             db.writeLock();
@@ -2678,6 +2919,49 @@ public class Catalog {
         }
     }
 
+    // save statistics collected by ANALYZE TABLE
+    public void setTableStats(Database db, OlapTable olapTable, long rowCount,
+                              Map<String, ColumnStats> columnStats) throws DdlException {
+        db.writeLock();
+        try {
+            if (db.getTable(olapTable.getId()) != olapTable) {
+                throw new DdlException("Table[" + olapTable.getName() + "] has been dropped during analyze");
+            }
+            unprotectSetTableStats(olapTable, rowCount, columnStats);
+
+            TableStatsInfo info = new TableStatsInfo(db.getId(), olapTable.getId(), rowCount, columnStats);
+            editLog.logSetTableStats(info);
+        } finally {
+            db.writeUnlock();
+        }
+        LOG.info("set stats of table[{}-{}], row count: {}", db.getId(), olapTable.getId(), rowCount);
+    }
+
+    public void replaySetTableStats(TableStatsInfo info) {
+        Database db = this.getDb(info.getDbId());
+        db.writeLock();
+        try {
+            OlapTable olapTable = (OlapTable) db.getTable(info.getTableId());
+            if (olapTable == null) {
+                return;
+            }
+            unprotectSetTableStats(olapTable, info.getRowCount(), info.getColumnStats());
+        } finally {
+            db.writeUnlock();
+        }
+    }
+
+    private void unprotectSetTableStats(OlapTable olapTable, long rowCount, Map<String, ColumnStats> columnStats) {
+        olapTable.setAnalyzedRowCount(rowCount);
+        for (Map.Entry<String, ColumnStats> entry : columnStats.entrySet()) {
+            // columns may be dropped by schema change during analyze
+            Column column = olapTable.getColumn(entry.getKey());
+            if (column != null) {
+                column.setStats(new ColumnStats(entry.getValue()));
+            }
+        }
+    }
+
     private Partition createPartitionWithIndices(String clusterName, long dbId, long tableId,
                                                  long partitionId, String partitionName,
                                                  Map<Long, Short> indexIdToShortKeyColumnCount,
@@ -2692,6 +2976,7 @@ public class Catalog {
                                                  Set<String> bfColumns,
                                                  double bfFpp,
                                                  Set<Long> tabletIdSet,
+                                                 List<List<Long>> colocateBackends,
                                                  boolean isRestore) throws DdlException {
         // create base index first. use table id as base index id
         long baseIndexId = tableId;
@@ -2730,7 +3015,7 @@ public class Catalog {
             int schemaHash = indexIdToSchemaHash.get(indexId);
             TabletMeta tabletMeta = new TabletMeta(dbId, tableId, partitionId, indexId, schemaHash);
             createTablets(clusterName, index, ReplicaState.NORMAL, distributionInfo, version, versionHash,
-                    replicationNum, tabletMeta, tabletIdSet);
+                    replicationNum, tabletMeta, tabletIdSet, colocateBackends);
 
             boolean ok = false;
             String errMsg = null;
@@ -2859,6 +3144,19 @@ public class Catalog {
             throw new DdlException(e.getMessage());
         }
 
+        // analyze colocate group
+        String colocateGroup = null;
+        try {
+            colocateGroup = PropertyAnalyzer.analyzeColocate(properties);
+        } catch (AnalysisException e) {
+            throw new DdlException(e.getMessage());
+        }
+        List<List<Long>> colocateBackends = null;
+        if (colocateGroup != null) {
+            colocateBackends = getColocateBackends(db, colocateGroup, distributionInfo);
+            olapTable.setColocateGroup(colocateGroup);
+        }
+
         // check storage type if has null column
         boolean hasNullColumn = false;
         for (Column column : baseSchema) {
@@ -2952,6 +3250,11 @@ public class Catalog {
                 }
                 partitionInfo.setReplicationNum(partitionId, replicationNum);
 
+                if (colocateGroup != null && colocateBackends == null) {
+                    colocateBackends = chooseColocateBackends(db.getClusterName(),
+                                                              distributionInfo.getBucketNum(), replicationNum);
+                }
+
                 // create partition
                 Partition partition = createPartitionWithIndices(db.getClusterName(), db.getId(),
                                                                  olapTable.getId(),
@@ -2965,7 +3268,7 @@ public class Catalog {
                                                                  dataProperty.getStorageMedium(),
                                                                  replicationNum,
                                                                  versionInfo, bfColumns, bfFpp,
-                                                                 tabletIdSet, isRestore);
+                                                                 tabletIdSet, colocateBackends, isRestore);
                 olapTable.addPartition(partition);
             } else if (partitionInfo.getType() == PartitionType.RANGE) {
                 try {
@@ -2986,6 +3289,10 @@ public class Catalog {
                 RangePartitionInfo rangePartitionInfo = (RangePartitionInfo) partitionInfo;
                 for (Map.Entry<String, Long> entry : partitionNameToId.entrySet()) {
                     DataProperty dataProperty = rangePartitionInfo.getDataProperty(entry.getValue());
+                    if (colocateGroup != null && colocateBackends == null) {
+                        colocateBackends = chooseColocateBackends(db.getClusterName(),
+                                distributionInfo.getBucketNum(), partitionInfo.getReplicationNum(entry.getValue()));
+                    }
                     Partition partition = createPartitionWithIndices(db.getClusterName(), db.getId(), olapTable.getId(),
                                                                      entry.getValue(), entry.getKey(),
                                                                      olapTable.getIndexIdToShortKeyColumnCount(),
@@ -2996,7 +3303,7 @@ public class Catalog {
                                                                      dataProperty.getStorageMedium(),
                                                                      partitionInfo.getReplicationNum(entry.getValue()),
                                                                      versionInfo, bfColumns, bfFpp,
-                                                                     tabletIdSet, isRestore);
+                                                                     tabletIdSet, colocateBackends, isRestore);
                     olapTable.addPartition(partition);
                 }
             } else {
@@ -3399,8 +3706,16 @@ public class Catalog {
 
     private void createTablets(String clusterName, MaterializedIndex index, ReplicaState replicaState,
             DistributionInfo distributionInfo, long version, long versionHash, short replicationNum,
-            TabletMeta tabletMeta, Set<Long> tabletIdSet) throws DdlException {
+            TabletMeta tabletMeta, Set<Long> tabletIdSet, List<List<Long>> colocateBackends) throws DdlException {
         Preconditions.checkArgument(replicationNum > 0);
+        if (colocateBackends != null) {
+            if (colocateBackends.size() != distributionInfo.getBucketNum()) {
+                throw new DdlException("Bucket num of colocate table should be " + colocateBackends.size());
+            }
+            if (colocateBackends.get(0).size() != replicationNum) {
+                throw new DdlException("Replication num of colocate table should be " + colocateBackends.get(0).size());
+            }
+        }
 
         DistributionInfoType distributionInfoType = distributionInfo.getType();
         if (distributionInfoType == DistributionInfoType.RANDOM || distributionInfoType == DistributionInfoType.HASH) {
@@ -3412,9 +3727,15 @@ public class Catalog {
                 index.addTablet(tablet, tabletMeta);
                 tabletIdSet.add(tablet.getId());
 
-                // create replicas for tablet with random chosen backends
-                List<Long> chosenBackendIds = Catalog.getCurrentSystemInfo().seqChooseBackendIds(replicationNum, true,
-                        true, clusterName);
+                // create replicas for tablet with random chosen backends,
+                // or the backends of the same bucket of the colocate group
+                List<Long> chosenBackendIds = null;
+                if (colocateBackends != null) {
+                    chosenBackendIds = colocateBackends.get(i);
+                } else {
+                    chosenBackendIds = Catalog.getCurrentSystemInfo().seqChooseBackendIds(replicationNum, true,
+                            true, clusterName);
+                }
                 if (chosenBackendIds == null) {
                     throw new DdlException("Failed to find enough alive backends. need: " + replicationNum);
                 }
@@ -3430,6 +3751,76 @@ public class Catalog {
         }
     }
 
+    // Return backends of every bucket of colocate group, which are the backends of base index tablets of
+    // a partition in the group. Return null if no table in the group has partitions yet.
+    // Throw DdlException if the distribution is different from tables in the group.
+    private List<List<Long>> getColocateBackends(Database db, String colocateGroup,
+                                                 DistributionInfo distributionInfo) throws DdlException {
+        if (distributionInfo.getType() != DistributionInfoType.HASH) {
+            throw new DdlException("Colocate table should be hash distributed");
+        }
+        HashDistributionInfo hashInfo = (HashDistributionInfo) distributionInfo;
+
+        db.readLock();
+        try {
+            for (Table table : db.getTables()) {
+                if (table.getType() != TableType.OLAP
+                        || !colocateGroup.equals(((OlapTable) table).getColocateGroup())) {
+                    continue;
+                }
+                OlapTable groupTable = (OlapTable) table;
+                HashDistributionInfo groupInfo = (HashDistributionInfo) groupTable.getDefaultDistributionInfo();
+                if (groupInfo.getBucketNum() != hashInfo.getBucketNum()) {
+                    throw new DdlException("Bucket num should be " + groupInfo.getBucketNum()
+                            + " as table " + groupTable.getName() + " in colocate group " + colocateGroup);
+                }
+                List<Column> groupColumns = groupInfo.getDistributionColumns();
+                List<Column> columns = hashInfo.getDistributionColumns();
+                boolean sameColumnTypes = groupColumns.size() == columns.size();
+                for (int i = 0; sameColumnTypes && i < columns.size(); i++) {
+                    sameColumnTypes = groupColumns.get(i).getDataType() == columns.get(i).getDataType();
+                }
+                if (!sameColumnTypes) {
+                    throw new DdlException("Distribution column types should be same as table "
+                            + groupTable.getName() + " in colocate group " + colocateGroup);
+                }
+
+                for (Partition partition : groupTable.getPartitions()) {
+                    MaterializedIndex baseIndex = partition.getBaseIndex();
+                    List<List<Long>> colocateBackends = Lists.newArrayList();
+                    for (Long tabletId : baseIndex.getTabletIdsInOrder()) {
+                        List<Long> backendIds = Lists.newArrayList();
+                        for (Replica replica : baseIndex.getTablet(tabletId).getReplicas()) {
+                            if (replica.getState() != ReplicaState.CLONE) {
+                                backendIds.add(replica.getBackendId());
+                            }
+                        }
+                        colocateBackends.add(backendIds);
+                    }
+                    return colocateBackends;
+                }
+            }
+        } finally {
+            db.readUnlock();
+        }
+        return null;
+    }
+
+    // choose backends of every bucket for the first partition of colocate group
+    private List<List<Long>> chooseColocateBackends(String clusterName, int bucketNum, short replicationNum)
+            throws DdlException {
+        List<List<Long>> colocateBackends = Lists.newArrayList();
+        for (int i = 0; i < bucketNum; i++) {
+            List<Long> chosenBackendIds = Catalog.getCurrentSystemInfo().seqChooseBackendIds(replicationNum, true,
+                    true, clusterName);
+            if (chosenBackendIds == null) {
+                throw new DdlException("Failed to find enough alive backends. need: " + replicationNum);
+            }
+            colocateBackends.add(chosenBackendIds);
+        }
+        return colocateBackends;
+    }
+
     // Drop table
     public void dropTable(DropTableStmt stmt) throws DdlException {
         String dbName = stmt.getDbName();
@@ -22,6 +22,8 @@ package com.baidu.palo.catalog;
 
 import com.baidu.palo.analysis.Expr;
 import com.baidu.palo.analysis.SlotRef;
+import com.baidu.palo.common.FeMetaVersion;
+import com.baidu.palo.common.io.Text;
 import com.baidu.palo.common.io.Writable;
 import com.baidu.palo.catalog.PrimitiveType;
 
@@ -45,6 +47,9 @@ public class ColumnStats implements Writable {
     private long  maxSize;  // in bytes
     private long  numDistinctValues;
     private long  numNulls;
+    // min and max value in string format, null if unknown
+    private String minValue;
+    private String maxValue;
 
     /**
      * For fixed-length type (those which don't need additional storage besides
@@ -62,6 +67,8 @@ public class ColumnStats implements Writable {
         maxSize = other.maxSize;
         numDistinctValues = other.numDistinctValues;
         numNulls = other.numNulls;
+        minValue = other.minValue;
+        maxValue = other.maxValue;
     }
 
     public long getNumDistinctValues() {
@@ -100,6 +107,23 @@ public class ColumnStats implements Writable {
         this.numNulls = numNulls;
     }
 
+    public String getMinValue() {
+        return minValue;
+    }
+
+    public String getMaxValue() {
+        return maxValue;
+    }
+
+    public void setMinMaxValue(String minValue, String maxValue) {
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+    }
+
+    public boolean hasMinMaxValue() {
+        return minValue != null && maxValue != null;
+    }
+
     public boolean hasAvgSerializedSize() {
         return avgSerializedSize >= 0;
     }
@@ -116,7 +140,7 @@ public class ColumnStats implements Writable {
     public String toString() {
         return Objects.toStringHelper(this.getClass()).add("avgSerializedSize",
           avgSerializedSize).add("maxSize", maxSize).add("numDistinct", numDistinctValues).add(
-          "numNulls", numNulls).toString();
+          "numNulls", numNulls).add("min", minValue).add("max", maxValue).toString();
     }
 
     public void write(DataOutput out) throws IOException {
@@ -124,6 +148,13 @@ public class ColumnStats implements Writable {
         out.writeFloat(avgSerializedSize);
         out.writeLong(maxSize);
         out.writeLong(numNulls);
+        if (hasMinMaxValue()) {
+            out.writeBoolean(true);
+            Text.writeString(out, minValue);
+            Text.writeString(out, maxValue);
+        } else {
+            out.writeBoolean(false);
+        }
     }
 
     public void readFields(DataInput in) throws IOException {
@@ -131,6 +162,12 @@ public class ColumnStats implements Writable {
         avgSerializedSize = in.readFloat();
         maxSize = in.readLong();
         numNulls = in.readLong();
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_33) {
+            if (in.readBoolean()) {
+                minValue = Text.readString(in);
+                maxValue = Text.readString(in);
+            }
+        }
     }
 
     public static ColumnStats read(DataInput in) throws IOException {
@@ -151,7 +188,9 @@ public class ColumnStats implements Writable {
         return (numDistinctValues == stats.numDistinctValues) 
                 && (avgSerializedSize == stats.avgSerializedSize)
                 && (maxSize == stats.maxSize) 
-                && (numNulls == stats.numNulls);
+                && (numNulls == stats.numNulls)
+                && Objects.equal(minValue, stats.minValue)
+                && Objects.equal(maxValue, stats.maxValue);
     }
     /**
      * For fixed-length type (those which don't need additional storage besides
@@ -28,6 +28,7 @@ import com.baidu.palo.analysis.IsNullPredicate;
 import com.baidu.palo.analysis.LikePredicate;
 import com.baidu.palo.builtins.ScalarBuiltins;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -35,6 +36,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +47,16 @@ import java.util.Map;
 public class FunctionSet {
     private static final Logger LOG = LogManager.getLogger(FunctionSet.class);
 
+    // Search descs of at most this number of args are resolved in advance, see FunctionIndex.
+    private static final int MAX_RESOLVED_NUM_ARGS = 2;
+
+    // Arg types of search descs resolved in advance. These types have no length, precision or
+    // scale, so the resolved function only depends on their primitive types.
+    private static final ImmutableList<PrimitiveType> RESOLVED_ARG_TYPES = ImmutableList.of(
+            PrimitiveType.NULL_TYPE, PrimitiveType.BOOLEAN, PrimitiveType.TINYINT, PrimitiveType.SMALLINT,
+            PrimitiveType.INT, PrimitiveType.BIGINT, PrimitiveType.LARGEINT, PrimitiveType.FLOAT,
+            PrimitiveType.DOUBLE, PrimitiveType.DATE, PrimitiveType.DATETIME);
+
     // All of the registered user functions. The key is the user facing name (e.g. "myUdf"),
     // and the values are all the overloaded variants (e.g. myUdf(double), myUdf(string))
     // This includes both UDFs and UDAs. Updates are made thread safe by synchronizing
@@ -52,8 +64,17 @@ public class FunctionSet {
     // FunctionResolutionOrder.
     private final HashMap<String, List<Function>> functions;
 
+    // Registered functions keyed by their signature string, e.g. "add(INT, INT)".
+    private final HashMap<String, Function> signatureToFunction;
+
+    // Immutable index of the registered functions used to resolve functions when analyzing
+    // queries, so lookups take no lock. Built at the end of init() and built again if a function
+    // is added after that. Null before init(), when the functions are resolved from 'functions'.
+    private volatile FunctionIndex functionIndex;
+
     public FunctionSet() {
         functions = Maps.newHashMap();
+        signatureToFunction = Maps.newHashMap();
     }
 
     public void init() {
@@ -67,6 +88,8 @@ public class FunctionSet {
         ScalarBuiltins.initBuiltins(this);
         LikePredicate.initBuiltins(this);
         InPredicate.initBuiltins(this);
+
+        functionIndex = new FunctionIndex(functions, signatureToFunction);
     }
 
     private static final Map<Type, String> MIN_UPDATE_SYMBOL =
@@ -382,44 +405,31 @@ public class FunctionSet {
                 .build();
 
     public Function getFunction(Function desc, Function.CompareMode mode) {
-        List<Function> fns = functions.get(desc.functionName());
-        if (fns == null) {
-            return null;
-        }
-
-        // First check for identical
-        for (Function f : fns) {
-            if (f.compare(desc, Function.CompareMode.IS_IDENTICAL)) {
-                return f;
-            }
-        }
-        if (mode == Function.CompareMode.IS_IDENTICAL) {
-            return null;
+        FunctionIndex index = functionIndex;
+        if (index == null) {
+            return resolveFunction(functions.get(desc.functionName()), desc, mode);
         }
+        return index.getFunction(desc, mode);
+    }
 
-        // Next check for indistinguishable
-        for (Function f : fns) {
-            if (f.compare(desc, Function.CompareMode.IS_INDISTINGUISHABLE)) {
-                return f;
-            }
-        }
-        if (mode == Function.CompareMode.IS_INDISTINGUISHABLE) {
+    // Return the first function of 'fns' which matches 'desc' in the strictest mode,
+    // trying the modes from IS_IDENTICAL up to 'mode'.
+    private static Function resolveFunction(List<Function> fns, Function desc, Function.CompareMode mode) {
+        if (fns == null) {
             return null;
         }
-
-        // Next check for strict supertypes
-        for (Function f : fns) {
-            if (f.compare(desc, Function.CompareMode.IS_SUPERTYPE_OF)) {
-                return f;
+        for (Function.CompareMode compareMode : Function.CompareMode.values()) {
+            Function fn = findFunction(fns, desc, compareMode);
+            if (fn != null || compareMode == mode) {
+                return fn;
             }
         }
-        if (mode == Function.CompareMode.IS_SUPERTYPE_OF) {
-            return null;
-        }
+        return null;
+    }
 
-        // Finally check for non-strict supertypes
+    private static Function findFunction(List<Function> fns, Function desc, Function.CompareMode mode) {
         for (Function f : fns) {
-            if (f.compare(desc, Function.CompareMode.IS_NONSTRICT_SUPERTYPE_OF)) {
+            if (f.compare(desc, mode)) {
                 return f;
             }
         }
@@ -427,14 +437,11 @@ public class FunctionSet {
     }
 
     public Function getFunction(String signatureString) {
-        for (List<Function> fns : functions.values()) {
-            for (Function f : fns) {
-                if (f.signatureString().equals(signatureString)) {
-                    return f;
-                }
-            }
+        FunctionIndex index = functionIndex;
+        if (index == null) {
+            return signatureToFunction.get(signatureString);
         }
-        return null;
+        return index.signatureToFunction.get(signatureString);
     }
 
     // Only used
@@ -448,10 +455,18 @@ public class FunctionSet {
             fns = Lists.newArrayList();
             functions.put(fn.functionName(), fns);
         }
-        if (fns.add(fn)) {
-            return true;
+        if (!fns.add(fn)) {
+            return false;
         }
-        return false;
+        String signature = fn.signatureString();
+        if (!signatureToFunction.containsKey(signature)) {
+            signatureToFunction.put(signature, fn);
+        }
+        // the new function may be a better match of the resolved descs
+        if (functionIndex != null) {
+            functionIndex = new FunctionIndex(functions, signatureToFunction);
+        }
+        return true;
     }
 
     /**
@@ -831,4 +846,115 @@ public class FunctionSet {
         }
 
     }
+
+    /**
+     * Immutable snapshot of the registered functions. Search descs of at most
+     * MAX_RESOLVED_NUM_ARGS args of RESOLVED_ARG_TYPES, which are the args of most operators
+     * and casts, are resolved in advance for every compare mode, so they are looked up by the
+     * name and the arg types without walking the overloads of the name. Other descs are
+     * resolved from the overloads of the name.
+     */
+    private static class FunctionIndex {
+        // ordinal of primitive type -> position in RESOLVED_ARG_TYPES, or -1
+        private static final int[] RESOLVED_ARG_TYPE_POS = new int[PrimitiveType.values().length];
+        // number of different keys of arg types, see getArgTypesKey()
+        private static final int NUM_ARG_TYPES_KEYS;
+
+        static {
+            Arrays.fill(RESOLVED_ARG_TYPE_POS, -1);
+            for (int i = 0; i < RESOLVED_ARG_TYPES.size(); i++) {
+                RESOLVED_ARG_TYPE_POS[RESOLVED_ARG_TYPES.get(i).ordinal()] = i;
+            }
+            int numKeys = 1;
+            for (int i = 0; i < MAX_RESOLVED_NUM_ARGS; i++) {
+                numKeys *= RESOLVED_ARG_TYPES.size() + 1;
+            }
+            NUM_ARG_TYPES_KEYS = numKeys;
+        }
+
+        private final ImmutableMap<String, ImmutableList<Function>> functions;
+        private final ImmutableMap<String, Function> signatureToFunction;
+        // function name -> key of arg types -> resolved functions indexed by compare mode,
+        // null if no function matches the arg types
+        private final ImmutableMap<String, Function[][]> resolvedFunctions;
+
+        FunctionIndex(Map<String, List<Function>> functions, Map<String, Function> signatureToFunction) {
+            ImmutableMap.Builder<String, ImmutableList<Function>> functionsBuilder = ImmutableMap.builder();
+            ImmutableMap.Builder<String, Function[][]> resolvedBuilder = ImmutableMap.builder();
+            for (Map.Entry<String, List<Function>> entry : functions.entrySet()) {
+                ImmutableList<Function> fns = ImmutableList.copyOf(entry.getValue());
+                functionsBuilder.put(entry.getKey(), fns);
+                Function[][] resolved = new Function[NUM_ARG_TYPES_KEYS][];
+                resolveArgTypes(entry.getKey(), fns, Lists.<Type>newArrayList(), resolved);
+                resolvedBuilder.put(entry.getKey(), resolved);
+            }
+            this.functions = functionsBuilder.build();
+            this.signatureToFunction = ImmutableMap.copyOf(signatureToFunction);
+            this.resolvedFunctions = resolvedBuilder.build();
+        }
+
+        // Resolve the search descs of 'name' whose args are 'argTypes' followed by
+        // at most MAX_RESOLVED_NUM_ARGS - argTypes.size() args of RESOLVED_ARG_TYPES.
+        private static void resolveArgTypes(String name, List<Function> fns, List<Type> argTypes,
+                                            Function[][] resolved) {
+            Function desc = ScalarFunction.createBuiltinSearchDesc(
+                    name, argTypes.toArray(new Type[argTypes.size()]), false);
+            Function[] modeToFunction = new Function[Function.CompareMode.values().length];
+            Function fn = null;
+            for (Function.CompareMode mode : Function.CompareMode.values()) {
+                // a function matched in a stricter mode is also the result of this mode
+                if (fn == null) {
+                    fn = findFunction(fns, desc, mode);
+                }
+                modeToFunction[mode.ordinal()] = fn;
+            }
+            if (fn != null) {
+                resolved[getArgTypesKey(desc)] = modeToFunction;
+            }
+
+            if (argTypes.size() == MAX_RESOLVED_NUM_ARGS) {
+                return;
+            }
+            for (PrimitiveType type : RESOLVED_ARG_TYPES) {
+                argTypes.add(Type.fromPrimitiveType(type));
+                resolveArgTypes(name, fns, argTypes, resolved);
+                argTypes.remove(argTypes.size() - 1);
+            }
+        }
+
+        // Return the key of the arg types of 'desc', or -1 if the desc is not resolved in advance.
+        private static int getArgTypesKey(Function desc) {
+            Type[] argTypes = desc.getArgs();
+            // a function name with db doesn't identically match the builtins
+            if (desc.hasVarArgs() || argTypes.length > MAX_RESOLVED_NUM_ARGS
+                    || desc.getFunctionName().getDb() != null) {
+                return -1;
+            }
+            int key = 0;
+            for (Type type : argTypes) {
+                if (!type.isScalarType()) {
+                    return -1;
+                }
+                int pos = RESOLVED_ARG_TYPE_POS[type.getPrimitiveType().ordinal()];
+                if (pos < 0) {
+                    return -1;
+                }
+                // 0 means no arg, so arg types of different lengths have different keys
+                key = key * (RESOLVED_ARG_TYPES.size() + 1) + pos + 1;
+            }
+            return key;
+        }
+
+        Function getFunction(Function desc, Function.CompareMode mode) {
+            int key = getArgTypesKey(desc);
+            if (key < 0) {
+                return resolveFunction(functions.get(desc.functionName()), desc, mode);
+            }
+            Function[][] resolved = resolvedFunctions.get(desc.functionName());
+            if (resolved == null || resolved[key] == null) {
+                return null;
+            }
+            return resolved[key][mode.ordinal()];
+        }
+    }
 }
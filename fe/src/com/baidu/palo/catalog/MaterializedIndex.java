@@ -52,6 +52,8 @@ public class MaterializedIndex extends MetaObject implements Writable {
     private Map<Long, Tablet> idToTablets;
     // this is for keeping tablet order
     private List<Tablet> tablets;
+    // tablet id to its position in tablets, which is the bucket seq of a hash distributed index
+    private Map<Long, Integer> tabletIdToBucketSeq;
 
     // for push after rollup index finished
     private long rollupIndexId;
@@ -61,6 +63,7 @@ public class MaterializedIndex extends MetaObject implements Writable {
         this.state = IndexState.NORMAL;
         this.idToTablets = new HashMap<Long, Tablet>();
         this.tablets = new ArrayList<Tablet>();
+        this.tabletIdToBucketSeq = new HashMap<Long, Integer>();
     }
 
     public MaterializedIndex(long id, IndexState state) {
@@ -73,6 +76,7 @@ public class MaterializedIndex extends MetaObject implements Writable {
 
         this.idToTablets = new HashMap<Long, Tablet>();
         this.tablets = new ArrayList<Tablet>();
+        this.tabletIdToBucketSeq = new HashMap<Long, Integer>();
 
         this.rowCount = 0;
 
@@ -96,8 +100,15 @@ public class MaterializedIndex extends MetaObject implements Writable {
         return idToTablets.get(tabletId);
     }
 
+    // return -1 if the tablet does not belong to this index
+    public int getTabletBucketSeq(long tabletId) {
+        Integer bucketSeq = tabletIdToBucketSeq.get(tabletId);
+        return bucketSeq == null ? -1 : bucketSeq;
+    }
+
     public void addTablet(Tablet tablet, TabletMeta tabletMeta) {
         idToTablets.put(tablet.getId(), tablet);
+        tabletIdToBucketSeq.put(tablet.getId(), tablets.size());
         tablets.add(tablet);
 
         Catalog.getCurrentInvertedIndex().addTablet(tablet.getId(), tabletMeta);
@@ -123,6 +134,15 @@ public class MaterializedIndex extends MetaObject implements Writable {
         this.rowCount = rowCount;
     }
 
+    // data size of one replica of all tablets
+    public long getDataSize() {
+        long dataSize = 0L;
+        for (Tablet tablet : tablets) {
+            dataSize += tablet.getDataSize();
+        }
+        return dataSize;
+    }
+
     public void setRollupIndexInfo(long rollupIndexId, long rollupFinishedVersion) {
         this.rollupIndexId = rollupIndexId;
         this.rollupFinishedVersion = rollupFinishedVersion;
@@ -170,6 +190,7 @@ public class MaterializedIndex extends MetaObject implements Writable {
         int tabletCount = in.readInt();
         for (int i = 0; i < tabletCount; ++i) {
             Tablet tablet = Tablet.read(in);
+            tabletIdToBucketSeq.put(tablet.getId(), tablets.size());
             tablets.add(tablet);
             idToTablets.put(tablet.getId(), tablet);
         }
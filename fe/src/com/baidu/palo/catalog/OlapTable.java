@@ -101,6 +101,13 @@ public class OlapTable extends Table {
     private Set<String> bfColumns;
     private double bfFpp;
 
+    // row count collected by ANALYZE TABLE, -1 if table is not analyzed
+    private long analyzedRowCount = -1;
+
+    // tables of the same colocate group in one database have the same bucket num and
+    // distribution column types, and bucket N of them is on the same backends. null if not colocated.
+    private String colocateGroup;
+
     public OlapTable() {
         // for persist
         super(TableType.OLAP);
@@ -423,6 +430,32 @@ public class OlapTable extends Table {
         return rowCount;
     }
 
+    public long getAnalyzedRowCount() {
+        return analyzedRowCount;
+    }
+
+    // Row count reported by backends, or collected by ANALYZE TABLE if nothing is reported yet.
+    // Return -1 if unknown.
+    public long getEstimatedRowCount() {
+        long rowCount = getRowCount();
+        if (rowCount > 0) {
+            return rowCount;
+        }
+        return analyzedRowCount;
+    }
+
+    public void setAnalyzedRowCount(long analyzedRowCount) {
+        this.analyzedRowCount = analyzedRowCount;
+    }
+
+    public String getColocateGroup() {
+        return colocateGroup;
+    }
+
+    public void setColocateGroup(String colocateGroup) {
+        this.colocateGroup = colocateGroup;
+    }
+
     public AlterTableStmt toAddRollupStmt(String dbName, Collection<Long> indexIds) {
         List<AlterClause> alterClauses = Lists.newArrayList();
         for (Map.Entry<String, Long> entry : indexNameToId.entrySet()) {
@@ -524,6 +557,9 @@ public class OlapTable extends Table {
             properties.put(PropertyAnalyzer.PROPERTIES_BF_FPP, String.valueOf(bfFpp));
         }
         properties.put(PropertyAnalyzer.PROPERTIES_SCHEMA_VERSION, indexIdToSchemaVersion.get(id).toString());
+        if (colocateGroup != null) {
+            properties.put(PropertyAnalyzer.PROPERTIES_COLOCATE_WITH, colocateGroup);
+        }
 
         CreateTableStmt stmt = new CreateTableStmt(false, false, new TableName(dbName, name), baseSchema,
                                                    type.name(), keysDesc, partitionDesc, distributionDesc,
@@ -647,6 +683,15 @@ public class OlapTable extends Table {
             }
             out.writeDouble(bfFpp);
         }
+
+        out.writeLong(analyzedRowCount);
+
+        if (colocateGroup == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            Text.writeString(out, colocateGroup);
+        }
     }
 
     @Override
@@ -728,6 +773,16 @@ public class OlapTable extends Table {
                 bfFpp = in.readDouble();
             }
         }
+
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_33) {
+            analyzedRowCount = in.readLong();
+        }
+
+        if (Catalog.getCurrentCatalogJournalVersion() >= FeMetaVersion.VERSION_34) {
+            if (in.readBoolean()) {
+                colocateGroup = Text.readString(in);
+            }
+        }
     }
 
     public boolean equals(Table table) {
@@ -28,8 +28,11 @@ import com.baidu.palo.common.util.PropertyAnalyzer;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.BoundType;
+import com.google.common.collect.ImmutableRangeMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.collect.TreeRangeMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -51,6 +54,9 @@ public class RangePartitionInfo extends PartitionInfo {
     private List<Column> partitionColumns;
     // partition id -> partition range
     private Map<Long, Range<PartitionKey>> idToRange;
+    // partition range -> partition id, sorted by range. It is used by partition pruning of every query,
+    // so it is not modified but replaced by a new one when partition ranges change.
+    private volatile ImmutableRangeMap<PartitionKey, Long> rangeIndex = ImmutableRangeMap.of();
 
     private static final Comparator<Map.Entry<Long, Range<PartitionKey>>> RANGE_MAP_ENTRY_COMPARATOR;
 
@@ -83,6 +89,7 @@ public class RangePartitionInfo extends PartitionInfo {
 
     public void dropPartition(long partitionId) {
         idToRange.remove(partitionId);
+        rebuildRangeIndex();
         idToDataProperty.remove(partitionId);
         idToReplicationNum.remove(partitionId);
     }
@@ -172,6 +179,7 @@ public class RangePartitionInfo extends PartitionInfo {
         try {
             Range<PartitionKey> range = checkAndCreateRange(desc);
             idToRange.put(partitionId, range);
+            rebuildRangeIndex();
         } catch (IllegalArgumentException e) {
             // Range.closedOpen may throw this if (lower > upper)
             throw new DdlException("Invalid key range", e);
@@ -185,16 +193,33 @@ public class RangePartitionInfo extends PartitionInfo {
                                                       DataProperty dataProperty, short replicationNum)
             throws DdlException {
         idToRange.put(partitionId, range);
+        rebuildRangeIndex();
         idToDataProperty.put(partitionId, dataProperty);
         idToReplicationNum.put(partitionId, replicationNum);
     }
 
     public void setRange(long partitionId, Range<PartitionKey> range) {
         idToRange.put(partitionId, range);
+        rebuildRangeIndex();
     }
 
+    // modify ranges by the methods above, so that range index is kept consistent.
     public Map<Long, Range<PartitionKey>> getIdToRange() {
-        return idToRange;
+        return Collections.unmodifiableMap(idToRange);
+    }
+
+    public RangeMap<PartitionKey, Long> getRangeIndex() {
+        return rangeIndex;
+    }
+
+    private void rebuildRangeIndex() {
+        RangeMap<PartitionKey, Long> rangeMap = TreeRangeMap.create();
+        for (Map.Entry<Long, Range<PartitionKey>> entry : idToRange.entrySet()) {
+            if (entry.getValue() != null) {
+                rangeMap.put(entry.getValue(), entry.getKey());
+            }
+        }
+        rangeIndex = ImmutableRangeMap.copyOf(rangeMap);
     }
 
     public Range<PartitionKey> getRange(long partitionId) {
@@ -354,6 +379,7 @@ public class RangePartitionInfo extends PartitionInfo {
             Range<PartitionKey> range = RangePartitionInfo.readRange(in);
             idToRange.put(partitionId, range);
         }
+        rebuildRangeIndex();
     }
 
     @Override
@@ -126,6 +126,15 @@ public class Tablet extends MetaObject implements Writable {
         return this.replicas;
     }
     
+    // max data size of all replicas, replicas which are not updated by reports have a size of 0
+    public long getDataSize() {
+        long dataSize = 0L;
+        for (Replica replica : replicas) {
+            dataSize = Math.max(dataSize, replica.getDataSize());
+        }
+        return dataSize;
+    }
+
     public Set<Long> getBackendIds() {
         Set<Long> beIds = Sets.newHashSet();
         for (Replica replica : replicas) {
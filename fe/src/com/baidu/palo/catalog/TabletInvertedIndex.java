@@ -20,6 +20,9 @@
 
 package com.baidu.palo.catalog;
 
+import com.baidu.palo.common.util.LongHashSet;
+import com.baidu.palo.common.util.LongObjectHashMap;
+import com.baidu.palo.master.TabletReportDigest;
 import com.baidu.palo.thrift.TStorageMedium;
 import com.baidu.palo.thrift.TTablet;
 import com.baidu.palo.thrift.TTabletInfo;
@@ -28,7 +31,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Table;
 
 import org.apache.logging.log4j.LogManager;
@@ -43,17 +45,21 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 /*
  * this class stores a inverted index
  * key is tablet id. value is the related ids of this tablet
+ *
+ * Tablets are partitioned into shards by tablet id, and each shard has its own lock,
+ * so lookups, tablet reports and replica changes of different shards do not block each other.
+ * Inside a shard, all maps are keyed by primitive long to avoid boxing millions of ids.
  */
 public class TabletInvertedIndex {
     private static final Logger LOG = LogManager.getLogger(TabletInvertedIndex.class);
 
     public static final int NOT_EXIST_VALUE = -1;
 
-    private ReentrantReadWriteLock lock;
+    // must be power of 2
+    private static final int SHARD_NUM = 64;
+
+    private final Shard[] shards;
 
-    // tablet id -> tablet meta
-    private Map<Long, TabletMeta> tabletMetaMap;
-    
     /*
      *  we use this to save memory.
      *  we do not need create TabletMeta intance for each tablet,
@@ -62,37 +68,125 @@ public class TabletInvertedIndex {
      *  we use 'tabletMetaTable' to do the update things
      *      (eg. update schema hash in TabletMeta)
      *  partitionid -> (index id -> tablet meta)
+     *  Guarded by itself. When both are needed, lock of shard should be acquired first.
      */
-    private Table<Long, Long, TabletMeta> tabletMetaTable;
-    
-    // tablet id -> (backend id -> replica)
-    private Table<Long, Long, Replica> replicaMetaTable;
+    private final Table<Long, Long, TabletMeta> tabletMetaTable;
+
+    private static class Shard {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // tablet id -> tablet meta
+        private final LongObjectHashMap<TabletMeta> tabletMetaMap = new LongObjectHashMap<TabletMeta>();
+        // tablet id -> replicas, at most one replica on each backend
+        private final LongObjectHashMap<Replica[]> replicaMap = new LongObjectHashMap<Replica[]>();
+        // backend id -> ids of tablets which have replica on the backend
+        private final LongObjectHashMap<LongHashSet> backendToTablets = new LongObjectHashMap<LongHashSet>();
+
+        private Replica getReplica(long tabletId, long backendId) {
+            Replica[] replicas = replicaMap.get(tabletId);
+            if (replicas == null) {
+                return null;
+            }
+            for (Replica replica : replicas) {
+                if (replica.getBackendId() == backendId) {
+                    return replica;
+                }
+            }
+            return null;
+        }
 
-    public TabletInvertedIndex() {
-        lock = new ReentrantReadWriteLock();
+        private void addReplica(long tabletId, Replica replica) {
+            long backendId = replica.getBackendId();
+            Replica[] replicas = replicaMap.get(tabletId);
+            if (replicas == null) {
+                replicaMap.put(tabletId, new Replica[] { replica });
+            } else {
+                int i = 0;
+                for (; i < replicas.length; i++) {
+                    if (replicas[i].getBackendId() == backendId) {
+                        break;
+                    }
+                }
+                if (i < replicas.length) {
+                    replicas[i] = replica;
+                } else {
+                    Replica[] newReplicas = new Replica[replicas.length + 1];
+                    System.arraycopy(replicas, 0, newReplicas, 0, replicas.length);
+                    newReplicas[replicas.length] = replica;
+                    replicaMap.put(tabletId, newReplicas);
+                }
+            }
 
-        tabletMetaMap = Maps.newHashMap();
-        tabletMetaTable = HashBasedTable.create();
-        replicaMetaTable = HashBasedTable.create();
-    }
+            LongHashSet tabletIds = backendToTablets.get(backendId);
+            if (tabletIds == null) {
+                tabletIds = new LongHashSet();
+                backendToTablets.put(backendId, tabletIds);
+            }
+            tabletIds.add(tabletId);
+        }
 
-    private final void readLock() {
-        this.lock.readLock().lock();
-    }
+        private void deleteReplica(long tabletId, long backendId) {
+            Replica[] replicas = replicaMap.get(tabletId);
+            if (replicas == null) {
+                return;
+            }
+            int i = 0;
+            for (; i < replicas.length; i++) {
+                if (replicas[i].getBackendId() == backendId) {
+                    break;
+                }
+            }
+            if (i == replicas.length) {
+                return;
+            }
+            if (replicas.length == 1) {
+                replicaMap.remove(tabletId);
+            } else {
+                Replica[] newReplicas = new Replica[replicas.length - 1];
+                System.arraycopy(replicas, 0, newReplicas, 0, i);
+                System.arraycopy(replicas, i + 1, newReplicas, i, replicas.length - i - 1);
+                replicaMap.put(tabletId, newReplicas);
+            }
+            removeFromBackend(tabletId, backendId);
+        }
 
-    private final void readUnlock() {
-        this.lock.readLock().unlock();
+        private void deleteTablet(long tabletId) {
+            Replica[] replicas = replicaMap.remove(tabletId);
+            if (replicas != null) {
+                for (Replica replica : replicas) {
+                    removeFromBackend(tabletId, replica.getBackendId());
+                }
+            }
+            tabletMetaMap.remove(tabletId);
+        }
+
+        private void removeFromBackend(long tabletId, long backendId) {
+            LongHashSet tabletIds = backendToTablets.get(backendId);
+            if (tabletIds != null) {
+                tabletIds.remove(tabletId);
+                if (tabletIds.isEmpty()) {
+                    backendToTablets.remove(backendId);
+                }
+            }
+        }
     }
 
-    private final void writeLock() {
-        this.lock.writeLock().lock();
+    public TabletInvertedIndex() {
+        shards = new Shard[SHARD_NUM];
+        for (int i = 0; i < SHARD_NUM; i++) {
+            shards[i] = new Shard();
+        }
+        tabletMetaTable = HashBasedTable.create();
     }
 
-    private final void writeUnlock() {
-        this.lock.writeLock().unlock();
+    private Shard getShard(long tabletId) {
+        return shards[(int) (tabletId & (SHARD_NUM - 1))];
     }
 
-    public void tabletReport(long backendId, Map<Long, TTablet> backendTablets,
+    /*
+     * If checkBuckets is not null, only tablets in buckets marked true will be checked.
+     * See TabletReportDigest for how tablets are bucketed.
+     */
+    public void tabletReport(long backendId, Map<Long, TTablet> backendTablets, boolean[] checkBuckets,
                              final HashMap<Long, TStorageMedium> storageMediumMap,
                              ListMultimap<Long, Long> tabletSyncMap,
                              ListMultimap<Long, Long> tabletDeleteFromMeta,
@@ -100,22 +194,29 @@ public class TabletInvertedIndex {
                              Map<Long, TTabletInfo> foundTabletsWithInvalidSchema,
                              ListMultimap<TStorageMedium, Long> tabletMigrationMap) {
 
-        long start = 0L;
-        readLock();
-        try {
-            LOG.info("begin to do tablet diff with backend[{}]. num: {}", backendId, backendTablets.size());
-            start = System.currentTimeMillis();
-            Map<Long, Replica> replicaMetaWithBackend = replicaMetaTable.column(backendId);
-            if (replicaMetaWithBackend != null) {
+        LOG.info("begin to do tablet diff with backend[{}]. num: {}", backendId, backendTablets.size());
+        long start = System.currentTimeMillis();
+        // only hold lock of one shard at a time
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                LongHashSet tabletIds = shard.backendToTablets.get(backendId);
+                if (tabletIds == null) {
+                    continue;
+                }
                 // traverse replicas in meta with this backend
-                for (Map.Entry<Long, Replica> entry : replicaMetaWithBackend.entrySet()) {
-                    long tabletId = entry.getKey();
-                    Preconditions.checkState(tabletMetaMap.containsKey(tabletId));
-                    TabletMeta tabletMeta = tabletMetaMap.get(tabletId);
-
-                    if (backendTablets.containsKey(tabletId)) {
-                        TTablet backendTablet = backendTablets.get(tabletId);
-                        Replica replica = entry.getValue();
+                for (int i = tabletIds.nextIndex(-1); i >= 0; i = tabletIds.nextIndex(i)) {
+                    long tabletId = tabletIds.valueAt(i);
+                    if (checkBuckets != null
+                            && !checkBuckets[TabletReportDigest.getBucket(tabletId, checkBuckets.length)]) {
+                        continue;
+                    }
+                    TabletMeta tabletMeta = shard.tabletMetaMap.get(tabletId);
+                    Preconditions.checkState(tabletMeta != null);
+
+                    TTablet backendTablet = backendTablets.get(tabletId);
+                    if (backendTablet != null) {
+                        Replica replica = shard.getReplica(tabletId, backendId);
                         for (TTabletInfo backendTabletInfo : backendTablet.getTablet_infos()) {
                             if (tabletMeta.containsSchemaHash(backendTabletInfo.getSchema_hash())) {
                                 foundTabletsWithValidSchema.add(tabletId);
@@ -145,11 +246,11 @@ public class TabletInvertedIndex {
                         LOG.debug("backend[{}] does not report tablet[{}-{}]", backendId, tabletId, tabletMeta);
                         tabletDeleteFromMeta.put(tabletMeta.getDbId(), tabletId);
                     }
-                } // end for replicaMetaWithBackend
+                } // end for tablets of backend
+            } finally {
+                shard.lock.readLock().unlock();
             }
-        } finally {
-            readUnlock();
-        }
+        } // end for shards
 
         long end = System.currentTimeMillis();
         LOG.info("finished to do tablet diff with backend[{}]. sync: {}. metaDel: {}. foundValid: {}. foundInvalid: {}."
@@ -159,72 +260,38 @@ public class TabletInvertedIndex {
     }
 
     public long getDbId(long tabletId) {
-        readLock();
-        try {
-            if (tabletMetaMap.containsKey(tabletId)) {
-                return tabletMetaMap.get(tabletId).getDbId();
-            }
-            return NOT_EXIST_VALUE;
-        } finally {
-            readUnlock();
-        }
+        TabletMeta tabletMeta = getTabletMeta(tabletId);
+        return tabletMeta == null ? NOT_EXIST_VALUE : tabletMeta.getDbId();
     }
 
     public long getTableId(long tabletId) {
-        readLock();
-        try {
-            if (tabletMetaMap.containsKey(tabletId)) {
-                return tabletMetaMap.get(tabletId).getTableId();
-            }
-            return NOT_EXIST_VALUE;
-        } finally {
-            readUnlock();
-        }
+        TabletMeta tabletMeta = getTabletMeta(tabletId);
+        return tabletMeta == null ? NOT_EXIST_VALUE : tabletMeta.getTableId();
     }
 
     public long getPartitionId(long tabletId) {
-        readLock();
-        try {
-            if (tabletMetaMap.containsKey(tabletId)) {
-                return tabletMetaMap.get(tabletId).getPartitionId();
-            }
-            return NOT_EXIST_VALUE;
-        } finally {
-            readUnlock();
-        }
+        TabletMeta tabletMeta = getTabletMeta(tabletId);
+        return tabletMeta == null ? NOT_EXIST_VALUE : tabletMeta.getPartitionId();
     }
 
     public long getIndexId(long tabletId) {
-        readLock();
-        try {
-            if (tabletMetaMap.containsKey(tabletId)) {
-                return tabletMetaMap.get(tabletId).getIndexId();
-            }
-            return NOT_EXIST_VALUE;
-        } finally {
-            readUnlock();
-        }
+        TabletMeta tabletMeta = getTabletMeta(tabletId);
+        return tabletMeta == null ? NOT_EXIST_VALUE : tabletMeta.getIndexId();
     }
 
     public int getEffectiveSchemaHash(long tabletId) {
         // always get old schema hash(as effective one)
-        readLock();
-        try {
-            if (tabletMetaMap.containsKey(tabletId)) {
-                return tabletMetaMap.get(tabletId).getOldSchemaHash();
-            }
-            return NOT_EXIST_VALUE;
-        } finally {
-            readUnlock();
-        }
+        TabletMeta tabletMeta = getTabletMeta(tabletId);
+        return tabletMeta == null ? NOT_EXIST_VALUE : tabletMeta.getOldSchemaHash();
     }
 
     public TabletMeta getTabletMeta(long tabletId) {
-        readLock();
+        Shard shard = getShard(tabletId);
+        shard.lock.readLock().lock();
         try {
-            return tabletMetaMap.get(tabletId);
+            return shard.tabletMetaMap.get(tabletId);
         } finally {
-            readUnlock();
+            shard.lock.readLock().unlock();
         }
     }
 
@@ -242,17 +309,20 @@ public class TabletInvertedIndex {
         if (Catalog.isCheckpointThread()) {
             return;
         }
-        writeLock();
+        Shard shard = getShard(tabletId);
+        shard.lock.writeLock().lock();
         try {
-            if (tabletMetaMap.containsKey(tabletId)) {
+            if (shard.tabletMetaMap.containsKey(tabletId)) {
                 return;
             }
-            tabletMetaMap.put(tabletId, tabletMeta);
-            if (!tabletMetaTable.contains(tabletMeta.getPartitionId(), tabletMeta.getIndexId())) {
-                tabletMetaTable.put(tabletMeta.getPartitionId(), tabletMeta.getIndexId(), tabletMeta);
+            shard.tabletMetaMap.put(tabletId, tabletMeta);
+            synchronized (tabletMetaTable) {
+                if (!tabletMetaTable.contains(tabletMeta.getPartitionId(), tabletMeta.getIndexId())) {
+                    tabletMetaTable.put(tabletMeta.getPartitionId(), tabletMeta.getIndexId(), tabletMeta);
+                }
             }
         } finally {
-            writeUnlock();
+            shard.lock.writeLock().unlock();
         }
     }
 
@@ -260,15 +330,18 @@ public class TabletInvertedIndex {
         if (Catalog.isCheckpointThread()) {
             return;
         }
-        writeLock();
+        Shard shard = getShard(tabletId);
+        shard.lock.writeLock().lock();
         try {
-            replicaMetaTable.rowMap().remove(tabletId);
-            TabletMeta tabletMeta = tabletMetaMap.remove(tabletId);
+            TabletMeta tabletMeta = shard.tabletMetaMap.get(tabletId);
+            shard.deleteTablet(tabletId);
             if (tabletMeta != null) {
-                tabletMetaTable.remove(tabletMeta.getPartitionId(), tabletMeta.getIndexId());
+                synchronized (tabletMetaTable) {
+                    tabletMetaTable.remove(tabletMeta.getPartitionId(), tabletMeta.getIndexId());
+                }
             }
         } finally {
-            writeUnlock();
+            shard.lock.writeLock().unlock();
         }
     }
 
@@ -276,12 +349,13 @@ public class TabletInvertedIndex {
         if (Catalog.isCheckpointThread()) {
             return;
         }
-        writeLock();
+        Shard shard = getShard(tabletId);
+        shard.lock.writeLock().lock();
         try {
-            Preconditions.checkState(tabletMetaMap.containsKey(tabletId));
-            replicaMetaTable.put(tabletId, replica.getBackendId(), replica);
+            Preconditions.checkState(shard.tabletMetaMap.containsKey(tabletId));
+            shard.addReplica(tabletId, replica);
         } finally {
-            writeUnlock();
+            shard.lock.writeLock().unlock();
         }
     }
 
@@ -289,12 +363,12 @@ public class TabletInvertedIndex {
         if (Catalog.isCheckpointThread()) {
             return;
         }
-        writeLock();
+        Shard shard = getShard(tabletId);
+        shard.lock.writeLock().lock();
         try {
-            Preconditions.checkState(tabletMetaMap.containsKey(tabletId));
-            // Preconditions.checkState(replicaMetaTable.containsRow(tabletId));
-            if (replicaMetaTable.containsRow(tabletId)) {
-                replicaMetaTable.remove(tabletId, backendId);
+            Preconditions.checkState(shard.tabletMetaMap.containsKey(tabletId));
+            if (shard.replicaMap.containsKey(tabletId)) {
+                shard.deleteReplica(tabletId, backendId);
                 LOG.debug("delete tablet[{}] in backend[{}]", tabletId, backendId);
             } else {
                 // this may happend when fe restart after tablet is empty(bug cause)
@@ -302,7 +376,7 @@ public class TabletInvertedIndex {
                 LOG.error("tablet[{}] contains no replica in inverted index", tabletId);
             }
         } finally {
-            writeUnlock();
+            shard.lock.writeLock().unlock();
         }
     }
 
@@ -310,26 +384,19 @@ public class TabletInvertedIndex {
         if (Catalog.isCheckpointThread()) {
             return;
         }
-        writeLock();
-        try {
+        synchronized (tabletMetaTable) {
             Preconditions.checkState(tabletMetaTable.contains(partitionId, indexId));
             tabletMetaTable.get(partitionId, indexId).setNewSchemaHash(newSchemaHash);
-        } finally {
-            writeUnlock();
         }
-
     }
 
     public void updateToNewSchemaHash(long partitionId, long indexId) {
         if (Catalog.isCheckpointThread()) {
             return;
         }
-        writeLock();
-        try {
+        synchronized (tabletMetaTable) {
             Preconditions.checkState(tabletMetaTable.contains(partitionId, indexId));
             tabletMetaTable.get(partitionId, indexId).updateToNewSchemaHash();
-        } finally {
-            writeUnlock();
         }
     }
 
@@ -337,53 +404,63 @@ public class TabletInvertedIndex {
         if (Catalog.isCheckpointThread()) {
             return;
         }
-        writeLock();
-        try {
+        synchronized (tabletMetaTable) {
             TabletMeta tabletMeta = tabletMetaTable.get(partitionId, indexId);
             if (tabletMeta != null) {
                 tabletMeta.deleteNewSchemaHash();
             }
-        } finally {
-            writeUnlock();
         }
     }
 
     public List<Long> getTabletIdsByBackendId(long backendId) {
         List<Long> tabletIds = Lists.newArrayList();
-        readLock();
-        try {
-            Map<Long, Replica> replicaMetaWithBackend = replicaMetaTable.column(backendId);
-            if (replicaMetaWithBackend != null) {
-                tabletIds.addAll(replicaMetaWithBackend.keySet());
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                LongHashSet ids = shard.backendToTablets.get(backendId);
+                if (ids == null) {
+                    continue;
+                }
+                for (int i = ids.nextIndex(-1); i >= 0; i = ids.nextIndex(i)) {
+                    tabletIds.add(ids.valueAt(i));
+                }
+            } finally {
+                shard.lock.readLock().unlock();
             }
-        } finally {
-            readUnlock();
         }
         return tabletIds;
     }
 
     public int getTabletNumByBackendId(long backendId) {
-        readLock();
-        try {
-            Map<Long, Replica> replicaMetaWithBackend = replicaMetaTable.column(backendId);
-            if (replicaMetaWithBackend != null) {
-                return replicaMetaWithBackend.size();
+        int num = 0;
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                LongHashSet ids = shard.backendToTablets.get(backendId);
+                if (ids != null) {
+                    num += ids.size();
+                }
+            } finally {
+                shard.lock.readLock().unlock();
             }
-        } finally {
-            readUnlock();
         }
-        return 0;
+        return num;
     }
 
     // just for test
     public void clear() {
-        writeLock();
-        try {
-            tabletMetaMap.clear();
+        for (Shard shard : shards) {
+            shard.lock.writeLock().lock();
+            try {
+                shard.tabletMetaMap.clear();
+                shard.replicaMap.clear();
+                shard.backendToTablets.clear();
+            } finally {
+                shard.lock.writeLock().unlock();
+            }
+        }
+        synchronized (tabletMetaTable) {
             tabletMetaTable.clear();
-            replicaMetaTable.clear();
-        } finally {
-            writeUnlock();
         }
     }
 }
@@ -149,6 +149,7 @@ public class CloneChecker extends Daemon {
                 return false;
             }
 
+            boolean isColocate = olapTable.getColocateGroup() != null;
             boolean foundTablet = false;
             for (Tablet tablet : index.getTablets()) {
                 List<Replica> replicas = tablet.getReplicas();
@@ -183,6 +184,9 @@ public class CloneChecker extends Daemon {
                     foundTablet = true;
                     tabletInfo = new TabletInfo(dbId, tableId, partitionId, indexId, tabletId, replicationNum,
                             onlineReplicaNum, tabletSizeB, backendIds);
+                    if (isColocate) {
+                        tabletInfo.setBucketSeq(index.getTabletBucketSeq(tabletId));
+                    }
                 }
             }
             if (!foundTablet) {
@@ -273,6 +277,7 @@ public class CloneChecker extends Daemon {
             for (String tableName : tableNames) {
                 // get all olap tables
                 long tableId = -1L;
+                boolean isColocate = false;
                 Multimap<Long, MaterializedIndex> partitionIdToIndices = LinkedHashMultimap.create();
                 Map<Long, Short> partitionIdToReplicationNumMap = new HashMap<Long, Short>();
                 db.readLock();
@@ -284,6 +289,7 @@ public class CloneChecker extends Daemon {
 
                     OlapTable olapTable = (OlapTable) table;
                     tableId = table.getId();
+                    isColocate = olapTable.getColocateGroup() != null;
                     for (Partition partition : olapTable.getPartitions()) {
                         long partitionId = partition.getId();
                         for (MaterializedIndex materializedIndex : partition.getMaterializedIndices()) {
@@ -350,6 +356,9 @@ public class CloneChecker extends Daemon {
                             TabletInfo tabletInfo = new TabletInfo(dbId, tableId, partitionId, indexId, tabletId,
                                     replicationNum, onlineReplicaNum, tabletSizeB, backendIds);
                             tabletInfo.setDbState(db.getDbState());
+                            if (isColocate) {
+                                tabletInfo.setBucketSeq(index.getTabletBucketSeq(tabletId));
+                            }
 
                             
                             for (long backendId : backendIds) {
@@ -400,9 +409,12 @@ public class CloneChecker extends Daemon {
                         // supplement
                         checkSupplement(cloneTabletMap, clusterDistributionLevelToBackendIds,
                                 cluserCapacityLevelToBackendIds, clusterBackendInfos);
-                        // migration
-                        checkMigration(backendToTablets, clusterDistributionLevelToBackendIds,
-                                cluserCapacityLevelToBackendIds, clusterBackendInfos);
+                        // migration. tablets of colocate table are not migrated for balance,
+                        // otherwise buckets of tables in the same colocate group will be scattered.
+                        if (!isColocate) {
+                            checkMigration(backendToTablets, clusterDistributionLevelToBackendIds,
+                                    cluserCapacityLevelToBackendIds, clusterBackendInfos);
+                        }
                     } else {
                         LOG.warn("init backend distribution infos error");
                     }
@@ -579,7 +591,20 @@ public class CloneChecker extends Daemon {
         // candidate backend from which step for debug
         String step = "-1";
 
-        if (priority == JobPriority.HIGH || priority == JobPriority.NORMAL) {
+        if (tabletInfo.getBucketSeq() >= 0) {
+            // 0. colocate table. select backend by bucket seq, so that the same bucket of
+            // tables in one colocate group is cloned to the same backend.
+            List<Long> allBackendIds = Lists.newArrayList();
+            for (Set<Long> backendIds : distributionLevelToBackendIds.values()) {
+                allBackendIds.addAll(backendIds);
+            }
+            allBackendIds.removeAll(existBackendIds);
+            if (!allBackendIds.isEmpty()) {
+                Collections.sort(allBackendIds);
+                candidateBackendId = allBackendIds.get(tabletInfo.getBucketSeq() % allBackendIds.size());
+            }
+            step = "colocate";
+        } else if (priority == JobPriority.HIGH || priority == JobPriority.NORMAL) {
             // 1. HIGH priority
             List<Long> allBackendIds = Lists.newArrayList();
             for (Set<Long> backendIds : distributionLevelToBackendIds.values()) {
@@ -1114,6 +1139,8 @@ public class CloneChecker extends Daemon {
         private long tabletSizeB;
         private Set<Long> backendIds;
         private DbState dbState;
+        // index of tablet in its materialized index if table is colocate, otherwise -1
+        private int bucketSeq;
 
         public TabletInfo(long dbId, long tableId, long partitionId, long indexId, long tabletId, short replicationNum,
                 short onlineReplicaNum, long tabletSizeB, Set<Long> backendIds) {
@@ -1127,6 +1154,7 @@ public class CloneChecker extends Daemon {
             this.tabletSizeB = tabletSizeB;
             this.backendIds = backendIds;
             this.dbState = DbState.NORMAL;
+            this.bucketSeq = -1;
         }
 
         public long getDbId() {
@@ -1179,6 +1207,14 @@ public class CloneChecker extends Daemon {
         public void setDbState(DbState dbState) {
             this.dbState = dbState;
         }
+
+        public int getBucketSeq() {
+            return bucketSeq;
+        }
+
+        public void setBucketSeq(int bucketSeq) {
+            this.bucketSeq = bucketSeq;
+        }
     }
 
     private class BackendInfo {
@@ -43,6 +43,14 @@ public class Config extends ConfigBase {
     @ConfField public static String edit_log_type = "BDB";    // BDB, LOCAL
     @ConfField public static int edit_log_port = 9010;        // Only used when edit_log_type = "BDB
     @ConfField public static int edit_log_roll_num = 100000;
+    // If true, concurrent journal writes are committed in batches by one writer thread,
+    // and each batch is committed in one bdb transaction. Only used when edit_log_type = "BDB"
+    @ConfField public static boolean edit_log_group_commit = false;
+    @ConfField public static int edit_log_group_commit_max_batch = 1024;
+    // If true, image is saved in sectioned format, whose databases are saved and loaded in parallel.
+    // Image in both formats can be loaded, but FE of old version can not load sectioned image.
+    @ConfField public static boolean meta_image_sectioned = false;
+    @ConfField public static int meta_image_threads_num = 8;
     @ConfField public static int meta_delay_toleration_second = 300;    // 5 min
     @ConfField public static String master_sync_policy = "WRITE_NO_SYNC"; // SYNC, NO_SYNC, WRITE_NO_SYNC
     @ConfField public static String replica_sync_policy = "WRITE_NO_SYNC"; // SYNC, NO_SYNC, WRITE_NO_SYNC
@@ -86,6 +94,14 @@ public class Config extends ConfigBase {
     @ConfField public static int load_etl_thread_num_normal_priority = 10;
     @ConfField public static int load_input_size_limit_gb = 0; // GB, 0 is no limit
     @ConfField public static int load_running_job_num_limit = 0; // 0 is no limit
+    // Mini loads of same table from same backend with same properties arriving within this window
+    // are coalesced into one load job, which loads them as one version. 0 disables coalescing.
+    // Requests wait for the window before returning, so it should be much less than the rpc timeout
+    // of mini load in backend, which is 500ms.
+    @ConfField public static int mini_load_coalesce_window_ms = 0;
+    // A batch of coalesced mini loads is loaded without waiting the window if it exceeds these limits
+    @ConfField public static int mini_load_coalesce_max_num = 1000;
+    @ConfField public static long mini_load_coalesce_max_bytes = 1073741824L; // 1GB
     @ConfField public static int tablet_delete_timeout_second = 2;
     @ConfField public static int clone_checker_interval_second = 300;
     @ConfField public static int clone_job_timeout_second = 7200; // 2h
@@ -98,6 +114,9 @@ public class Config extends ConfigBase {
     @ConfField public static int alter_table_timeout_second = 86400; // 1day
     @ConfField public static int alter_delete_base_delay_second = 600; // 10min
     @ConfField public static int max_backend_down_time_second = 3600; // 1h
+    // Backend may only report tablets of changed buckets. After this number of delta reports,
+    // master asks the backend for a full tablet report, to fix anything missed by delta reports.
+    @ConfField public static int max_delta_tablet_report_num = 6;
     @ConfField public static long storage_cooldown_second = 30 * 24 * 3600L; // 30 days
     @ConfField public static long catalog_trash_expire_second = 86400L; // 1day
     @ConfField public static int pull_load_task_default_timeout_second = 3600; // 1hour
@@ -109,6 +128,9 @@ public class Config extends ConfigBase {
     @ConfField public static int export_running_job_num_limit = 0; // 0 is no limit
     @ConfField public static int export_task_default_timeout_second = 24 * 3600;
     @ConfField public static int export_parallel_tablet_num = 5;
+    // Max number of exec fragments of one export job running at the same time.
+    // Each fragment exports export_parallel_tablet_num tablets to its own files.
+    @ConfField public static int export_running_coord_num_per_job = 4;
     @ConfField public static int export_keep_max_second = 7 * 24 * 3600; // 7 days
 
     // Configurations for consistency check
@@ -121,11 +143,51 @@ public class Config extends ConfigBase {
     @ConfField public static int max_conn_per_user = 100;
     @ConfField public static int qe_query_timeout_second = 300;
     @ConfField public static long qe_slow_log_ms = 5000;
+    // Cache results of queries on olap tables in frontend.
+    // Cached results are never returned after the partitions read by the query are updated.
+    @ConfField public static boolean query_cache_enabled = false;
+    @ConfField public static int query_cache_size_mb = 256;
+    // results larger than this are not cached
+    @ConfField public static int query_cache_max_result_kb = 1024;
+    // Max number of prepared statements of one session.
+    @ConfField public static int max_prepared_stmt_num_per_session = 1024;
+    // Number of parsed prepared statements cached in frontend, which are shared by all sessions.
+    @ConfField public static int prepared_stmt_cache_num = 4096;
+    // Number of (partition, index) whose tablet scan range locations are cached and shared by queries.
+    // 0 disables the cache.
+    @ConfField public static int scan_range_cache_size = 4096;
+    // A scan fragment has more than one instance on a backend only if every instance scans
+    // at least this many bytes. See session variable parallel_fragment_exec_instance_num.
+    @ConfField public static long min_bytes_per_fragment_instance = 268435456L; // 256MB
+    // Max number of scan fragment instances of one query on a backend, shared by all scan fragments
+    // of the query on the backend. Keep it well below the scanner threads of a backend
+    // (palo_scanner_thread_pool_thread_num in be.conf), which are shared by concurrent queries.
+    @ConfField public static int max_scan_instance_num_per_backend = 8;
+    // Max number of running exec fragment rpcs sent to one backend by one query.
+    // Other fragment instances on this backend wait for running rpcs to finish.
+    @ConfField public static int max_running_exec_rpc_num_per_backend = 16;
+    // If true, backends send query results already encoded as mysql packets,
+    // which are sent to client without decoding and copying each row.
+    @ConfField public static boolean return_packed_query_result = true;
+    // If true, non-master frontend does not wait for the journal of a forwarded statement to be replayed
+    // before replying to client. Instead, the next statement of the same session waits for it
+    // before being analyzed, so that sessions still read their own writes.
+    @ConfField public static boolean follower_read_your_writes = false;
     @ConfField public static int blacklist_backends_max_times = 6;
     @ConfField public static int meta_resource_publish_interval_ms = 60000; // 1m
     @ConfField public static int meta_publish_timeout_ms = 1000;
     @ConfField public static boolean proxy_auth_enable = false;
     @ConfField public static String proxy_auth_magic_prefix = "x@8";
+    // If true, mysql connections are multiplexed by a few IO threads using non-block IO,
+    // and only the commands which have been received completely are processed by task threads.
+    // Otherwise, every connection holds one thread.
+    @ConfField public static boolean mysql_service_nio_enabled = false;
+    // In non-block mode, connections which do not finish the handshake within this time are closed
+    @ConfField public static int mysql_handshake_timeout_second = 10;
+    @ConfField public static int mysql_service_io_threads_num = 4;
+    // max number of threads processing commands in non-block mode
+    @ConfField public static int max_mysql_service_task_threads_num =
+            4 * Runtime.getRuntime().availableProcessors();
     // Limits on the number of expr children and the depth of an expr tree.
     // exceed this limit may cause long analysis time while holding db read lock.
     @ConfField public static int expr_children_limit = 10000;
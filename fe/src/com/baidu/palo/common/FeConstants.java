@@ -39,5 +39,5 @@ public class FeConstants {
     // general model
     // Current meta data version. Use this version to write journals and image
     // See http://jira.bce-sandbox.baidu.com:8080/browse/PALO-1622
-    public static int meta_version = FeMetaVersion.VERSION_32;
+    public static int meta_version = FeMetaVersion.VERSION_35;
 }
@@ -62,4 +62,13 @@ public final class FeMetaVersion {
 
     // Palo3.2
     public static final int VERSION_32 = 32;
+
+    // table and column statistics collected by ANALYZE TABLE
+    public static final int VERSION_33 = 33;
+
+    // colocate group of olap table
+    public static final int VERSION_34 = 34;
+
+    // labels of mini loads coalesced into one load job
+    public static final int VERSION_35 = 35;
 }
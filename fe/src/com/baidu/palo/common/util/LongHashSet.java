@@ -0,0 +1,202 @@
+// Modifications copyright (C) 2017, Baidu.com, Inc.
+// Copyright 2017 The Apache Software Foundation
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+package com.baidu.palo.common.util;
+
+/*
+ * Hash set of primitive long, using open addressing with linear probing.
+ * Compared with HashSet<Long>, it does not create Long and Entry objects for each element.
+ * Not thread safe.
+ *
+ * Iterate without creating iterator:
+ *   for (int i = set.nextIndex(-1); i >= 0; i = set.nextIndex(i)) {
+ *       long value = set.valueAt(i);
+ *   }
+ * The set must not be modified while iterating.
+ */
+public class LongHashSet {
+    private static final int MIN_CAPACITY = 4;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // 0 means empty slot. Element 0 is stored at the extra slot values[capacity].
+    private long[] values;
+    private boolean hasZero;
+    private int size;
+    private int mask;
+    private int bits;
+    private int threshold;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize, LOAD_FACTOR, MIN_CAPACITY));
+    }
+
+    // power of 2 capacity which can hold expectedSize elements
+    static int tableSizeFor(int expectedSize, float loadFactor, int minCapacity) {
+        long capacity = minCapacity;
+        while (capacity * loadFactor < expectedSize) {
+            capacity <<= 1;
+        }
+        if (capacity > (1 << 30)) {
+            throw new IllegalArgumentException("too large size: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+
+    // Fibonacci hashing, use the high bits so that keys sharing low bits are spread too.
+    static int hash(long key, int bits) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+
+    private void allocate(int capacity) {
+        values = new long[capacity + 1];
+        mask = capacity - 1;
+        bits = Integer.numberOfTrailingZeros(capacity);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return hasZero;
+        }
+        for (int i = hash(value, bits); values[i] != 0; i = (i + 1) & mask) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // return true if the set did not contain the value
+    public boolean add(long value) {
+        if (value == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = hash(value, bits);
+        for (; values[i] != 0; i = (i + 1) & mask) {
+            if (values[i] == value) {
+                return false;
+            }
+        }
+        values[i] = value;
+        if (++size > threshold) {
+            rehash((mask + 1) << 1);
+        }
+        return true;
+    }
+
+    // return true if the set contained the value
+    public boolean remove(long value) {
+        if (value == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+        for (int i = hash(value, bits); values[i] != 0; i = (i + 1) & mask) {
+            if (values[i] == value) {
+                shiftKeys(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // backward shift deletion, see LongObjectHashMap
+    private void shiftKeys(int pos) {
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long value;
+            while (true) {
+                value = values[pos];
+                if (value == 0) {
+                    values[last] = 0;
+                    return;
+                }
+                int expected = hash(value, bits);
+                if (last <= pos ? (last >= expected || expected > pos) : (last >= expected && expected > pos)) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            values[last] = value;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldValues = values;
+        int oldCapacity = mask + 1;
+        allocate(newCapacity);
+        for (int i = 0; i < oldCapacity; i++) {
+            long value = oldValues[i];
+            if (value != 0) {
+                int pos = hash(value, bits);
+                while (values[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                values[pos] = value;
+            }
+        }
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        hasZero = false;
+        size = 0;
+    }
+
+    // return the index of next element after index, or -1 if there is no more element.
+    // pass -1 to get the first element.
+    public int nextIndex(int index) {
+        int capacity = mask + 1;
+        for (int i = index + 1; i < capacity; i++) {
+            if (values[i] != 0) {
+                return i;
+            }
+        }
+        if (index < capacity && hasZero) {
+            return capacity;
+        }
+        return -1;
+    }
+
+    public long valueAt(int index) {
+        return index == mask + 1 ? 0 : values[index];
+    }
+}
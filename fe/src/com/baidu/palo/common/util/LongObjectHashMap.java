@@ -0,0 +1,226 @@
+// Modifications copyright (C) 2017, Baidu.com, Inc.
+// Copyright 2017 The Apache Software Foundation
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+package com.baidu.palo.common.util;
+
+/*
+ * Hash map from primitive long to object, using open addressing with linear probing.
+ * Compared with HashMap<Long, V>, it does not create Long and Entry objects for each key,
+ * which saves lots of memory when there are millions of keys.
+ * Not thread safe.
+ *
+ * Iterate without creating iterator:
+ *   for (int i = map.nextIndex(-1); i >= 0; i = map.nextIndex(i)) {
+ *       long key = map.keyAt(i);
+ *       V value = map.valueAt(i);
+ *   }
+ * The map must not be modified while iterating.
+ */
+public class LongObjectHashMap<V> {
+    private static final int MIN_CAPACITY = 4;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // 0 means empty slot. Key 0 is stored at the extra slot keys[capacity].
+    private long[] keys;
+    private Object[] values;
+    private boolean hasZeroKey;
+    private int size;
+    private int mask;
+    private int bits;
+    private int threshold;
+
+    public LongObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(LongHashSet.tableSizeFor(expectedSize, LOAD_FACTOR, MIN_CAPACITY));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity + 1];
+        values = new Object[capacity + 1];
+        mask = capacity - 1;
+        bits = Integer.numberOfTrailingZeros(capacity);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(long key) {
+        return LongHashSet.hash(key, bits);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return hasZeroKey ? (V) values[mask + 1] : null;
+        }
+        for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // return the previous value of key, or null if there was no mapping for key
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) {
+            V old = (V) values[mask + 1];
+            values[mask + 1] = value;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            return old;
+        }
+        int i = slot(key);
+        for (; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            rehash((mask + 1) << 1);
+        }
+        return null;
+    }
+
+    // return the removed value, or null if there was no mapping for key
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return null;
+            }
+            V old = (V) values[mask + 1];
+            values[mask + 1] = null;
+            hasZeroKey = false;
+            size--;
+            return old;
+        }
+        for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                shiftKeys(i);
+                size--;
+                return old;
+            }
+        }
+        return null;
+    }
+
+    // backward shift deletion, so that no tombstone is needed
+    private void shiftKeys(int pos) {
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long key;
+            while (true) {
+                key = keys[pos];
+                if (key == 0) {
+                    keys[last] = 0;
+                    values[last] = null;
+                    return;
+                }
+                int expected = slot(key);
+                // move the key back if its expected slot is not in (last, pos]
+                if (last <= pos ? (last >= expected || expected > pos) : (last >= expected && expected > pos)) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = key;
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldCapacity = mask + 1;
+        allocate(newCapacity);
+        for (int i = 0; i < oldCapacity; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int pos = slot(key);
+                while (keys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+                values[pos] = oldValues[i];
+            }
+        }
+        values[mask + 1] = oldValues[oldCapacity];
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    // return the index of next entry after index, or -1 if there is no more entry.
+    // pass -1 to get the first entry.
+    public int nextIndex(int index) {
+        int capacity = mask + 1;
+        for (int i = index + 1; i < capacity; i++) {
+            if (keys[i] != 0) {
+                return i;
+            }
+        }
+        if (index < capacity && hasZeroKey) {
+            return capacity;
+        }
+        return -1;
+    }
+
+    public long keyAt(int index) {
+        return keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int index) {
+        return (V) values[index];
+    }
+}
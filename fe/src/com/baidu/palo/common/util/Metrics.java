@@ -20,6 +20,7 @@
 
 package com.baidu.palo.common.util;
 
+import io.dropwizard.metrics.Gauge;
 import io.dropwizard.metrics.Metric;
 import io.dropwizard.metrics.MetricName;
 import io.dropwizard.metrics.MetricRegistry;
@@ -57,6 +58,14 @@ public class Metrics {
         }
     }
     
+    // Gauge is registered only once. Registering a gauge with an existing name is ignored.
+    public static synchronized void registerGauge(String name, Gauge<?> gauge) {
+        if (METRICS.getMetrics().containsKey(MetricName.build(name))) {
+            return;
+        }
+        METRICS.register(name, gauge);
+    }
+
     public static MetricName name(Class<?> klass, String... names) {
         return MetricRegistry.name(klass, names);
     }
@@ -63,6 +63,9 @@ public class PropertyAnalyzer {
     public static final String PROPERTIES_BF_FPP = "bloom_filter_fpp";
     private static final double MAX_FPP = 0.05;
     private static final double MIN_FPP = 0.0001;
+
+    // tables with the same colocate group are bucketed in the same way, and joined without data exchange
+    public static final String PROPERTIES_COLOCATE_WITH = "colocate_with";
     
     public static final String PROPERTIES_KUDU_MASTER_ADDRS = "kudu_master_addrs";
 
@@ -231,6 +234,21 @@ public class PropertyAnalyzer {
         return versionInfo;
     }
 
+    // return colocate group name, or null if table is not colocated
+    public static String analyzeColocate(Map<String, String> properties) throws AnalysisException {
+        String colocateGroup = null;
+        if (properties != null && properties.containsKey(PROPERTIES_COLOCATE_WITH)) {
+            colocateGroup = properties.get(PROPERTIES_COLOCATE_WITH).trim();
+            if (colocateGroup.isEmpty()) {
+                throw new AnalysisException("Colocate group name is empty");
+            }
+
+            properties.remove(PROPERTIES_COLOCATE_WITH);
+        }
+
+        return colocateGroup;
+    }
+
     public static int analyzeSchemaVersion(Map<String, String> properties) throws AnalysisException {
         int schemaVersion = 0;
         if (properties != null && properties.containsKey(PROPERTIES_SCHEMA_VERSION)) {
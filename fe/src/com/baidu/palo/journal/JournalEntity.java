@@ -52,6 +52,7 @@ import com.baidu.palo.persist.PartitionPersistInfo;
 import com.baidu.palo.persist.RecoverInfo;
 import com.baidu.palo.persist.ReplicaPersistInfo;
 import com.baidu.palo.persist.TableInfo;
+import com.baidu.palo.persist.TableStatsInfo;
 import com.baidu.palo.qe.SessionVariable;
 import com.baidu.palo.system.Backend;
 import com.baidu.palo.system.Frontend;
@@ -139,6 +140,10 @@ public class JournalEntity implements Writable {
                 data = new ModifyPartitionInfo();
                 break;
             }
+            case OperationType.OP_SET_TABLE_STATS: {
+                data = new TableStatsInfo();
+                break;
+            }
             case OperationType.OP_ERASE_DB:
             case OperationType.OP_ERASE_TABLE:
             case OperationType.OP_ERASE_PARTITION: {
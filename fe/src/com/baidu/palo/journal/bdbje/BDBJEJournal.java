@@ -20,6 +20,7 @@
 package com.baidu.palo.journal.bdbje;
 
 import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.Pair;
 import com.baidu.palo.common.io.DataOutputBuffer;
 import com.baidu.palo.common.io.Writable;
@@ -27,12 +28,14 @@ import com.baidu.palo.journal.Journal;
 import com.baidu.palo.journal.JournalCursor;
 import com.baidu.palo.journal.JournalEntity;
 import com.baidu.palo.persist.OperationType;
+import com.google.common.collect.Lists;
 import com.sleepycat.bind.tuple.TupleBinding;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.LockMode;
 import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
 import com.sleepycat.je.rep.InsufficientLogException;
 import com.sleepycat.je.rep.NetworkRestore;
 import com.sleepycat.je.rep.NetworkRestoreConfig;
@@ -48,6 +51,8 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
 /* 
@@ -69,6 +74,12 @@ public class BDBJEJournal implements Journal {
     private BDBEnvironment bdbEnvironment = null;
     private Database currentJournalDB;
     private AtomicLong journalId = new AtomicLong(1);
+
+    // Used when edit_log_group_commit is true.
+    // Journals are put into writeQueue and committed by groupWriter in batches. Journal id is
+    // assigned when committing, so ids are still contiguous and in the order of the queue.
+    private LinkedBlockingQueue<WriteRequest> writeQueue = new LinkedBlockingQueue<WriteRequest>();
+    private volatile Thread groupWriter = null;
     
     public BDBJEJournal() {
         initBDBEnv();
@@ -122,24 +133,35 @@ public class BDBJEJournal implements Journal {
     }
 
     @Override
-    public synchronized void write(short op, Writable writable) {
+    public void write(short op, Writable writable) {
         if (!Catalog.getInstance().canWrite() && op != OperationType.OP_META_VERSION
                 && op != OperationType.OP_ADD_FIRST_FRONTEND) {
             LOG.error("the canWrite flag has not set to true yet. can not write journal. will exit. op: {}", op);
             System.exit(-1);
         }
-        
+
+        DatabaseEntry theData = serialize(op, writable);
+        if (groupWriter == null) {
+            writeOne(op, theData);
+            return;
+        }
+
+        // wait until the journal is committed by group writer
+        WriteRequest request = new WriteRequest(op, theData);
+        writeQueue.add(request);
+        try {
+            request.latch.await();
+        } catch (InterruptedException e) {
+            LOG.error("interrupted when waiting journal committed. will exit. op: {}", op, e);
+            System.exit(-1);
+        }
+    }
+
+    private DatabaseEntry serialize(short op, Writable writable) {
         JournalEntity entity = new JournalEntity();
         entity.setOpCode(op);
         entity.setData(writable);
-        
-        // id is the key
-        long id = journalId.getAndIncrement();
-        Long idLong = new Long(id);
-        DatabaseEntry theKey = new DatabaseEntry();
-        TupleBinding<Long> idBinding = TupleBinding.getPrimitiveBinding(Long.class);
-        idBinding.objectToEntry(idLong, theKey);
-        
+
         // entity is the value
         DataOutputBuffer buffer = new DataOutputBuffer(OUTPUT_BUFFER_INIT_SIZE);
         try {
@@ -148,7 +170,23 @@ public class BDBJEJournal implements Journal {
             e.printStackTrace();
         }
         DatabaseEntry theData = new DatabaseEntry(buffer.getData());
-        LOG.debug("opCode = {}, journal size = {}", op, theData.getSize()); 
+        LOG.debug("opCode = {}, journal size = {}", op, theData.getSize());
+        return theData;
+    }
+
+    private DatabaseEntry idToKey(long id) {
+        Long idLong = new Long(id);
+        DatabaseEntry theKey = new DatabaseEntry();
+        TupleBinding<Long> idBinding = TupleBinding.getPrimitiveBinding(Long.class);
+        idBinding.objectToEntry(idLong, theKey);
+        return theKey;
+    }
+
+    private synchronized void writeOne(short op, DatabaseEntry theData) {
+        // id is the key
+        long id = journalId.getAndIncrement();
+        DatabaseEntry theKey = idToKey(id);
+
         // Write the key value pair to bdb.
         boolean writeSuccessed = false;
         for (int i = 0; i < RETRY_TIME; i++) {
@@ -188,6 +226,109 @@ public class BDBJEJournal implements Journal {
         }
     }
 
+    /*
+     * Commit a batch of journals in one transaction.
+     * Synchronized with writeOne() and rollJournal(), so journalId is the next id to be committed here.
+     */
+    private synchronized void writeBatch(List<WriteRequest> batch) {
+        long firstId = journalId.get();
+        boolean writeSuccessed = false;
+        for (int i = 0; i < RETRY_TIME; i++) {
+            Transaction txn = null;
+            try {
+                txn = bdbEnvironment.getReplicatedEnvironment().beginTransaction(null, null);
+                long id = firstId;
+                boolean putSuccessed = true;
+                for (WriteRequest request : batch) {
+                    if (currentJournalDB.put(txn, idToKey(id), request.data) != OperationStatus.SUCCESS) {
+                        putSuccessed = false;
+                        break;
+                    }
+                    id++;
+                }
+                if (!putSuccessed) {
+                    txn.abort();
+                    continue;
+                }
+                txn.commit();
+                journalId.set(id);
+                writeSuccessed = true;
+                LOG.debug("master write journal {} to {} finished. db name {}, current time {}",
+                        firstId, id - 1, currentJournalDB.getDatabaseName(), System.currentTimeMillis());
+                break;
+            } catch (DatabaseException e) {
+                LOG.error("catch an exception when writing to database. sleep and retry. journal id {} to {}",
+                        firstId, firstId + batch.size() - 1, e);
+                if (txn != null) {
+                    try {
+                        txn.abort();
+                    } catch (DatabaseException e1) {
+                        LOG.warn("abort transaction failed.", e1);
+                    }
+                }
+                try {
+                    Thread.sleep(5 * 1000);
+                } catch (InterruptedException e1) {
+                    e1.printStackTrace();
+                }
+                continue;
+            }
+        }
+
+        if (!writeSuccessed) {
+            boolean allTimestamp = true;
+            for (WriteRequest request : batch) {
+                if (request.op != OperationType.OP_TIMESTAMP) {
+                    allTimestamp = false;
+                    break;
+                }
+            }
+            if (allTimestamp) {
+                // Same as writeOne(), do not exit if only OP_TIMESTAMP failed.
+                // Ids are not consumed, because they are assigned when committing.
+                LOG.warn("master can not achieve quorum. write timestamp fail. but will not exit.");
+                return;
+            }
+            LOG.error("write bdb failed. will exit. journalId:{}, bdb database Name:{}",
+                    firstId, currentJournalDB.getDatabaseName());
+            System.exit(-1);
+        }
+    }
+
+    private static class WriteRequest {
+        final short op;
+        final DatabaseEntry data;
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        WriteRequest(short op, DatabaseEntry data) {
+            this.op = op;
+            this.data = data;
+        }
+    }
+
+    private class GroupWriter implements Runnable {
+        @Override
+        public void run() {
+            int maxBatch = Math.max(1, Config.edit_log_group_commit_max_batch);
+            List<WriteRequest> batch = Lists.newArrayList();
+            while (true) {
+                batch.clear();
+                try {
+                    batch.add(writeQueue.take());
+                } catch (InterruptedException e) {
+                    LOG.warn("group writer is interrupted.", e);
+                    continue;
+                }
+                // collect journals arrived during last commit
+                writeQueue.drainTo(batch, maxBatch - 1);
+                writeBatch(batch);
+                for (WriteRequest request : batch) {
+                    request.latch.countDown();
+                }
+            }
+        }
+    }
+
     @Override
     public JournalEntity read(long journalId) {
         List<Long> dbNames = bdbEnvironment.getDatabaseNames();
@@ -340,7 +481,12 @@ public class BDBJEJournal implements Journal {
                 }
                 
                 journalId.set(getMaxJournalId() + 1);
-                
+
+                if (Config.edit_log_group_commit && groupWriter == null) {
+                    groupWriter = new Thread(new GroupWriter(), "bdbje-group-writer");
+                    groupWriter.setDaemon(true);
+                    groupWriter.start();
+                }
                 break;
             } catch (InsufficientLogException insufficientLogEx) {
                 // Copy the missing log files from a member of the replication group who owns the files
@@ -52,6 +52,10 @@ import java.util.Map;
 public class BrokerFileGroup implements Writable {
     private static final Logger LOG = LogManager.getLogger(BrokerFileGroup.class);
 
+    // Path of stream load data is stream://be_host:be_port/pipe_id,
+    // data is read from the pipe in that backend which is receiving data from client.
+    public static final String STREAM_PATH_PREFIX = "stream://";
+
     // input
     private DataDescription dataDescription;
 
@@ -173,6 +177,19 @@ public class BrokerFileGroup implements Writable {
         return exprColumnMap;
     }
 
+    public static boolean isStreamPath(String path) {
+        return path.startsWith(STREAM_PATH_PREFIX);
+    }
+
+    public boolean isStream() {
+        for (String path : filePathes) {
+            if (isStreamPath(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
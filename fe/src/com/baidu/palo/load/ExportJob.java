@@ -98,6 +98,8 @@ public class ExportJob implements Writable {
     private String exportPath;
     private String columnSeparator;
     private String lineDelimiter;
+    // not persisted, since replayed jobs are not executed
+    private long maxFileSize;
     private List<String> partitions;
 
     private TableName tableName;
@@ -176,6 +178,7 @@ public class ExportJob implements Writable {
 
         this.columnSeparator = stmt.getColumnSeparator();
         this.lineDelimiter = stmt.getLineDelimiter();
+        this.maxFileSize = stmt.getMaxFileSize();
 
         String path = stmt.getPath();
         Preconditions.checkArgument(!Strings.isNullOrEmpty(path));
@@ -197,7 +200,7 @@ public class ExportJob implements Writable {
             registerToDesc();
             exportSink = new ExportSink(
                     getExportPath() + "/tmp/", getColumnSeparator(),
-                    getLineDelimiter(), brokerDesc);
+                    getLineDelimiter(), maxFileSize, brokerDesc);
             plan();
         } finally {
             db.readUnlock();
@@ -311,11 +314,16 @@ public class ExportJob implements Writable {
             scanNodes.add(scanNode);
             fragments.add(fragment);
         } else {
+            // locations may be shared with other queries, so modify copies of them
+            List<TScanRangeLocations> copiedLocations = Lists.newArrayList();
             for (TScanRangeLocations tablet : tabletLocations) {
-                List<TScanRangeLocation> locations = tablet.getLocations();
+                TScanRangeLocations copiedTablet = tablet.deepCopy();
+                List<TScanRangeLocation> locations = copiedTablet.getLocations();
                 Collections.shuffle(locations);
-                tablet.setLocations(locations.subList(0, 1));
+                copiedTablet.setLocations(locations.subList(0, 1));
+                copiedLocations.add(copiedTablet);
             }
+            tabletLocations = copiedLocations;
 
             int size = tabletLocations.size();
             int tabletNum = Config.export_parallel_tablet_num;
@@ -419,6 +427,10 @@ public class ExportJob implements Writable {
         return this.lineDelimiter;
     }
 
+    public long getMaxFileSize() {
+        return this.maxFileSize;
+    }
+
     public List<String> getPartitions() {
         return partitions;
     }
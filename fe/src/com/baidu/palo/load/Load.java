@@ -20,6 +20,7 @@
 package com.baidu.palo.load;
 
 import com.baidu.palo.analysis.BinaryPredicate;
+import com.baidu.palo.analysis.BrokerDesc;
 import com.baidu.palo.analysis.CancelLoadStmt;
 import com.baidu.palo.analysis.ColumnSeparator;
 import com.baidu.palo.analysis.DataDescription;
@@ -66,6 +67,7 @@ import com.baidu.palo.load.LoadJob.EtlJobType;
 import com.baidu.palo.load.LoadJob.JobState;
 import com.baidu.palo.persist.ReplicaPersistInfo;
 import com.baidu.palo.qe.ConnectContext;
+import com.baidu.palo.qe.QueryCache;
 import com.baidu.palo.system.Backend;
 import com.baidu.palo.task.AgentBatchTask;
 import com.baidu.palo.task.AgentClient;
@@ -218,14 +220,60 @@ public class Load {
     }
 
     public boolean addLoadJob(TMiniLoadRequest request) throws DdlException {
+        String dbName = request.getDb();
+        String label = request.getLabel();
+        long timestamp = getMiniLoadTimestamp(request);
+        LoadStmt stmt = createMiniLoadStmt(request);
+
+        // try to register mini label
+        if (!registerMiniLabel(dbName, label, timestamp)) {
+            return false;
+        }
+
+        try {
+            addLoadJob(stmt, stmt.getBrokerDesc() != null ? EtlJobType.BROKER : EtlJobType.MINI, timestamp);
+        } finally {
+            deregisterMiniLabel(dbName, label);
+        }
+
+        return true;
+    }
+
+    // Add one mini load job for the requests coalesced by MiniLoadCoalescer.
+    // All requests load same table with same properties from same backend, and their labels have been
+    // registered. Job takes label of the first request, and other labels are coalesced labels of the job.
+    public void addCoalescedLoadJob(List<TMiniLoadRequest> requests) throws DdlException {
+        TMiniLoadRequest firstRequest = requests.get(0);
+        List<String> filePaths = Lists.newArrayList();
+        Map<String, Long> coalescedLabels = Maps.newHashMap();
+        for (TMiniLoadRequest request : requests) {
+            filePaths.add(request.getFiles().get(0));
+            if (request != firstRequest) {
+                coalescedLabels.put(request.getLabel(), getMiniLoadTimestamp(request));
+            }
+        }
+        TMiniLoadRequest mergedRequest = firstRequest.deepCopy();
+        mergedRequest.setFiles(Lists.newArrayList(Joiner.on(",").join(filePaths)));
+        LoadStmt stmt = createMiniLoadStmt(mergedRequest);
+
+        Database db = Catalog.getInstance().getDb(firstRequest.getDb());
+        if (db == null) {
+            throw new DdlException("Database[" + firstRequest.getDb() + "] does not exist");
+        }
+        LoadJob job = createLoadJob(stmt, EtlJobType.MINI, db, getMiniLoadTimestamp(firstRequest));
+        job.setCoalescedLabels(coalescedLabels);
+        addLoadJob(job, db);
+    }
+
+    private static long getMiniLoadTimestamp(TMiniLoadRequest request) {
+        return request.isSetTimestamp() ? request.getTimestamp() : 0;
+    }
+
+    private LoadStmt createMiniLoadStmt(TMiniLoadRequest request) throws DdlException {
         // get params
         String dbName = request.getDb();
         String tableName = request.getTbl();
         String label = request.getLabel();
-        long timestamp = 0;
-        if (request.isSetTimestamp()) {
-            timestamp = request.getTimestamp();
-        }
         TNetworkAddress beAddr = request.getBackend();
         String filePathsValue = request.getFiles().get(0);
         Map<String, String> params = request.getProperties();
@@ -240,6 +288,8 @@ public class Load {
             throw new DdlException("File paths are not specified");
         }
         List<String> filePaths = Arrays.asList(filePathsValue.split(","));
+        // data of stream load is read by a pull load plan from the backend receiving it
+        boolean isStreamLoad = filePaths.size() == 1 && BrokerFileGroup.isStreamPath(filePaths.get(0));
 
      // partitions | column names | separator | line delimiter
         List<String> partitionNames = null;
@@ -273,12 +323,16 @@ public class Load {
             }
             lineDelimiter = params.get(LoadStmt.KEY_IN_PARAM_LINE_DELIMITER);
         }
+        if (isStreamLoad && hllColumnPairList != null) {
+            throw new DdlException("Stream load does not support hll param");
+        }
 
         
         DataDescription dataDescription = new DataDescription(tableName, partitionNames, filePaths, columnNames,
                 columnSeparator, false, null);
         dataDescription.setLineDelimiter(lineDelimiter);
         dataDescription.setBeAddr(beAddr);
+        dataDescription.setIsPullLoad(isStreamLoad);
         // parse hll param pair
         if (hllColumnPairList != null) {
             for (int i = 0; i < hllColumnPairList.size(); i++) {
@@ -311,20 +365,11 @@ public class Load {
                 properties.put(LoadStmt.TIMEOUT_PROPERTY, timeout);
             }
         }
-        LoadStmt stmt = new LoadStmt(labelName, dataDescriptions, null, null, properties);
-
-        // try to register mini label
-        if (!registerMiniLabel(dbName, label, timestamp)) {
-            return false;
+        BrokerDesc brokerDesc = null;
+        if (isStreamLoad) {
+            brokerDesc = new BrokerDesc(BrokerDesc.STREAM_LOAD_NAME, null);
         }
-
-        try {
-            addLoadJob(stmt, EtlJobType.MINI, timestamp);
-        } finally {
-            deregisterMiniLabel(dbName, label);
-        }
-
-        return true;
+        return new LoadStmt(labelName, dataDescriptions, brokerDesc, null, properties);
     }
 
     public void addLoadJob(LoadStmt stmt, EtlJobType etlJobType, long timestamp) throws DdlException {
@@ -763,8 +808,8 @@ public class Load {
     public void unprotectAddLoadJob(LoadJob job) throws DdlException {
         long jobId = job.getId();
         long dbId = job.getDbId();
-        String label = job.getLabel();
-        long timestamp = job.getTimestamp();
+        // coalesced mini loads are indexed by their own labels too
+        List<String> labels = job.getAllLabels();
         
         // check label exist
         boolean checkMini = true;
@@ -772,7 +817,9 @@ public class Load {
             // already registered, do not need check
             checkMini = false;
         }
-        checkLabelUsed(dbId, label, timestamp, checkMini);
+        for (String label : labels) {
+            checkLabelUsed(dbId, label, job.getTimestamp(label), checkMini);
+        }
 
         // add job
         Map<String, List<LoadJob>> labelToLoadJobs = null;
@@ -782,12 +829,15 @@ public class Load {
             labelToLoadJobs = Maps.newHashMap();
             dbLabelToLoadJobs.put(dbId, labelToLoadJobs);
         }
-        List<LoadJob> labelLoadJobs = null;
-        if (labelToLoadJobs.containsKey(label)) {
-            labelLoadJobs = labelToLoadJobs.get(label);
-        } else {
-            labelLoadJobs = Lists.newArrayList();
-            labelToLoadJobs.put(label, labelLoadJobs);
+        for (String label : labels) {
+            List<LoadJob> labelLoadJobs = null;
+            if (labelToLoadJobs.containsKey(label)) {
+                labelLoadJobs = labelToLoadJobs.get(label);
+            } else {
+                labelLoadJobs = Lists.newArrayList();
+                labelToLoadJobs.put(label, labelLoadJobs);
+            }
+            labelLoadJobs.add(job);
         }
         
         List<LoadJob> dbLoadJobs = null;
@@ -799,7 +849,6 @@ public class Load {
         }
         idToLoadJob.put(jobId, job);
         dbLoadJobs.add(job);
-        labelLoadJobs.add(job);
         
         switch (job.getState()) {
             case PENDING:
@@ -952,7 +1001,7 @@ public class Load {
                 for (LoadJob oldJob : labelLoadJobs) {
                     JobState oldJobState = oldJob.getState();
                     if (oldJobState != JobState.CANCELLED) {
-                        if (timestamp == oldJob.getTimestamp()) {
+                        if (timestamp == oldJob.getTimestamp(label)) {
                             return false;
                         } else {
                             throw new DdlException(labelUsedMsg);
@@ -1235,16 +1284,8 @@ public class Load {
                 String label = loadJob.getLabel();
                 JobState state = loadJob.getState();
                 
-                if (labelValue != null) {
-                    if (accurateMatch) {
-                        if (!label.equals(labelValue)) {
-                            continue;
-                        }
-                    } else {
-                        if (!label.contains(labelValue)) {
-                            continue;
-                        }
-                    }
+                if (labelValue != null && !matchLabel(loadJob, labelValue, accurateMatch)) {
+                    continue;
                 }
                 
                 if (states != null) {
@@ -1354,6 +1395,16 @@ public class Load {
         return loadJobInfos;
     }
 
+    // match label of job and labels coalesced into it
+    private static boolean matchLabel(LoadJob job, String labelValue, boolean accurateMatch) {
+        for (String label : job.getAllLabels()) {
+            if (accurateMatch ? label.equals(labelValue) : label.contains(labelValue)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public long getLatestJobIdByLabel(long dbId, String labelValue) {
         long jobId = 0;
         try {
@@ -1364,12 +1415,8 @@ public class Load {
             }
 
             for (LoadJob loadJob : loadJobs) {
-                String label = loadJob.getLabel();
-
-                if (labelValue != null) {
-                    if (!label.equals(labelValue)) {
-                        continue;
-                    }
+                if (labelValue != null && !matchLabel(loadJob, labelValue, true)) {
+                    continue;
                 }
 
                 long currJobId = loadJob.getId();
@@ -1742,24 +1789,26 @@ public class Load {
             LOG.warn("Does not find db in dbLabelToLoadJobs. DbId : {}", job.getDbId());
             return;
         }
-        jobs = dbLabelToLoadJobs.get(job.getDbId()).get(job.getLabel());
-        if (jobs == null) {
-            LOG.warn("Does not find label for db. label : {}, DbId : {}", job.getLabel(), job.getDbId());
-            return;
-        }
-        pos = 0;
-        for (LoadJob oneJob : jobs) {
-            if (oneJob.getId() == jobId) {
-                break;
+        for (String label : job.getAllLabels()) {
+            jobs = dbLabelToLoadJobs.get(job.getDbId()).get(label);
+            if (jobs == null) {
+                LOG.warn("Does not find label for db. label : {}, DbId : {}", label, job.getDbId());
+                continue;
             }
-            pos++;
-        }
-        if (pos == jobs.size()) {
-            LOG.warn("Does not find load job for label. label : {}, DbId : {}", job.getLabel(), job.getDbId());
-            return;
+            pos = 0;
+            for (LoadJob oneJob : jobs) {
+                if (oneJob.getId() == jobId) {
+                    break;
+                }
+                pos++;
+            }
+            if (pos == jobs.size()) {
+                LOG.warn("Does not find load job for label. label : {}, DbId : {}", label, job.getDbId());
+                continue;
+            }
+            jobs.remove(pos);
+            jobs.add(pos, job);
         }
-        jobs.remove(pos);
-        jobs.add(pos, job);
     }
  
     // remove all db jobs from dbToLoadJobs and dbLabelToLoadJobs
@@ -1800,7 +1849,6 @@ public class Load {
                 if ((currentTimeMs - job.getCreateTimeMs()) / 1000 > Config.label_keep_max_second
                         && (job.getState() == JobState.FINISHED || job.getState() == JobState.CANCELLED)) {
                     long dbId = job.getDbId();
-                    String label = job.getLabel();
                     
                     // Remove job from idToLoadJob
                     iter.remove();
@@ -1817,16 +1865,18 @@ public class Load {
                     // Remove job from dbLabelToLoadJobs
                     Map<String, List<LoadJob>> mapLabelToJobs = dbLabelToLoadJobs.get(dbId);
                     if (mapLabelToJobs != null) {
-                        loadJobs = mapLabelToJobs.get(label);
-                        if (loadJobs != null) {
-                            loadJobs.remove(job);
-                            if (loadJobs.size() == 0) {
-                                mapLabelToJobs.remove(label);
-                                if (mapLabelToJobs.size() == 0) {
-                                    dbLabelToLoadJobs.remove(dbId);
+                        for (String label : job.getAllLabels()) {
+                            loadJobs = mapLabelToJobs.get(label);
+                            if (loadJobs != null) {
+                                loadJobs.remove(job);
+                                if (loadJobs.size() == 0) {
+                                    mapLabelToJobs.remove(label);
                                 }
                             }
                         }
+                        if (mapLabelToJobs.size() == 0) {
+                            dbLabelToLoadJobs.remove(dbId);
+                        }
                     }
                 }
             }
@@ -2077,6 +2127,7 @@ public class Load {
         long partitionId = partition.getId();
         partition.setCommittedVersion(version);
         partition.setCommittedVersionHash(versionHash);
+        QueryCache.getInstance().invalidatePartition(partitionId);
         LOG.info("update partition version success. version: {}, version hash: {}, job id: {}, partition id: {}",
                  version, versionHash, jobId, partitionId);
     }
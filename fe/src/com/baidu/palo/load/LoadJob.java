@@ -30,6 +30,7 @@ import com.baidu.palo.task.PushTask;
 import com.baidu.palo.thrift.TPriority;
 import com.baidu.palo.thrift.TResourceInfo;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import org.apache.logging.log4j.LogManager;
@@ -40,6 +41,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -71,6 +73,8 @@ public class LoadJob implements Writable {
     private long dbId;
     private String label;
     long timestamp;
+    // label to timestamp of the mini loads coalesced into this job, except the label of this job
+    private Map<String, Long> coalescedLabels;
     private int timeoutSecond;
     private double maxFilterRatio;
     private boolean deleteFlag;
@@ -120,6 +124,7 @@ public class LoadJob implements Writable {
         this.dbId = -1;
         this.label = label;
         this.timestamp = -1;
+        this.coalescedLabels = Maps.newHashMap();
         this.timeoutSecond = timeoutSecond;
         this.maxFilterRatio = maxFilterRatio;
         this.deleteFlag = false;
@@ -170,6 +175,29 @@ public class LoadJob implements Writable {
     public long getTimestamp() {
         return timestamp;
     }
+
+    public void setCoalescedLabels(Map<String, Long> coalescedLabels) {
+        this.coalescedLabels = coalescedLabels;
+    }
+
+    public Map<String, Long> getCoalescedLabels() {
+        return coalescedLabels;
+    }
+
+    // label of this job and labels coalesced into it
+    public List<String> getAllLabels() {
+        List<String> labels = Lists.newArrayList(label);
+        labels.addAll(coalescedLabels.keySet());
+        return labels;
+    }
+
+    public long getTimestamp(String label) {
+        Long coalescedTimestamp = coalescedLabels.get(label);
+        if (coalescedTimestamp != null) {
+            return coalescedTimestamp;
+        }
+        return timestamp;
+    }
     
     public void setTimeoutSecond(int timeoutSecond) {
         this.timeoutSecond = timeoutSecond;
@@ -609,6 +637,12 @@ public class LoadJob implements Writable {
             out.writeBoolean(true);
             pullLoadSourceInfo.write(out);
         }
+
+        out.writeInt(coalescedLabels.size());
+        for (Map.Entry<String, Long> entry : coalescedLabels.entrySet()) {
+            Text.writeString(out, entry.getKey());
+            out.writeLong(entry.getValue());
+        }
     }
 
     public void readFields(DataInput in) throws IOException {
@@ -717,6 +751,14 @@ public class LoadJob implements Writable {
                 this.pullLoadSourceInfo = PullLoadSourceInfo.read(in);
             }
         }
+
+        if (version >= FeMetaVersion.VERSION_35) {
+            int coalescedNum = in.readInt();
+            for (int i = 0; i < coalescedNum; ++i) {
+                String coalescedLabel = Text.readString(in);
+                coalescedLabels.put(coalescedLabel, in.readLong());
+            }
+        }
     }
     
     @Override
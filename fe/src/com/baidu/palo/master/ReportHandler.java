@@ -69,6 +69,8 @@ import java.util.Set;
 public class ReportHandler {
     private static final Logger LOG = LogManager.getLogger(ReportHandler.class);
 
+    private static final TabletReportDigest reportDigest = new TabletReportDigest();
+
     public static TMasterResult handleReport(TReportRequest request) throws TException {
         TMasterResult result = new TMasterResult();
         TStatus tStatus = new TStatus(TStatusCode.OK);
@@ -102,7 +104,24 @@ public class ReportHandler {
             if (request.getReport_version() >= backendReportVersion) {
                 LOG.debug("REPORTING[TABLET] begin. backend[{}-{}-{}]", backendId, host, bePort);
                 long start = System.currentTimeMillis();
-                ReportHandler.tabletReport(backendId, request.getTablets(), request.getReport_version());
+                if (request.isSetIs_delta_tablet_report() && request.isIs_delta_tablet_report()) {
+                    boolean[] changedBuckets = reportDigest.getChangedBuckets(backendId,
+                                                                              request.getTablet_bucket_digests(),
+                                                                              request.getTablets());
+                    if (changedBuckets == null) {
+                        result.setNeed_full_tablet_report(true);
+                    } else {
+                        ReportHandler.tabletReport(backendId, request.getTablets(), changedBuckets,
+                                                   request.getReport_version());
+                        if (reportDigest.updateByDeltaReport(backendId, request.getTablet_bucket_digests())) {
+                            result.setNeed_full_tablet_report(true);
+                        }
+                    }
+                } else {
+                    ReportHandler.tabletReport(backendId, request.getTablets(), null, request.getReport_version());
+                    reportDigest.updateByFullReport(backendId, request.getTablet_bucket_digests(),
+                                                    request.getTablets());
+                }
                 long end = System.currentTimeMillis();
                 LOG.debug("REPORTING[TABLET] end. backend[{}-{}-{}]. cost: {}", backendId, host, bePort, (end - start));
             } else {
@@ -121,10 +140,15 @@ public class ReportHandler {
         return result;
     }
 
-    private static void tabletReport(long backendId, Map<Long, TTablet> backendTablets, long backendReportVersion) {
+    /*
+     * changedBuckets is null for a full report.
+     * Otherwise only tablets in changed buckets are reported, and only them will be checked.
+     */
+    private static void tabletReport(long backendId, Map<Long, TTablet> backendTablets, boolean[] changedBuckets,
+                                     long backendReportVersion) {
         long start = System.currentTimeMillis();
-        LOG.info("backend[{}] reports {} tablet(s). report version: {}",
-                 backendId, backendTablets.size(), backendReportVersion);
+        LOG.info("backend[{}] reports {} tablet(s). delta: {}. report version: {}",
+                 backendId, backendTablets.size(), changedBuckets != null, backendReportVersion);
 
         // storage medium map
         HashMap<Long, TStorageMedium> storageMediumMap = Catalog.getInstance().getPartitionIdToStorageMediumMap();
@@ -141,7 +165,7 @@ public class ReportHandler {
         ListMultimap<TStorageMedium, Long> tabletMigrationMap = LinkedListMultimap.create();
 
         // 1. do the diff. find out (intersection) / (be - meta) / (meta - be)
-        Catalog.getCurrentInvertedIndex().tabletReport(backendId, backendTablets, storageMediumMap,
+        Catalog.getCurrentInvertedIndex().tabletReport(backendId, backendTablets, changedBuckets, storageMediumMap,
                                                        tabletSyncMap,
                                                        tabletDeleteFromMeta,
                                                        foundTabletsWithValidSchema,
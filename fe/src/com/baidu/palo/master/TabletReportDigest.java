@@ -0,0 +1,179 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.master;
+
+import com.baidu.palo.common.Config;
+import com.baidu.palo.thrift.TTablet;
+import com.baidu.palo.thrift.TTabletInfo;
+
+import com.google.common.collect.Maps;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Digests of tablets reported by backends, used to apply delta tablet reports.
+ *
+ * Backend divides its tablets into buckets by (tablet id % bucket num), and reports
+ * the digest of each bucket. A bucket digest is the sum of hashes of all tablet infos in it,
+ * so it does not depend on the order of tablets. The hash must be same as the one in backend.
+ *
+ * In a delta report, backend only sends tablets of buckets whose digest changed since last report,
+ * and all tablets of these buckets are sent. Master saves the digests of the last applied report.
+ * For each bucket:
+ *  1. reported digest equals to the saved one: nothing changed, skip it.
+ *  2. reported digest equals to the digest of tablets sent: bucket changed, do the diff of it.
+ *  3. otherwise: master and backend are out of sync, ask backend for a full report.
+ */
+public class TabletReportDigest {
+    private static final Logger LOG = LogManager.getLogger(TabletReportDigest.class);
+
+    private static final long HASH_PRIME = 0x9E3779B97F4A7C15L;
+
+    private static class BackendDigest {
+        private long[] digests;
+        private int deltaReportNum;
+
+        public BackendDigest(long[] digests) {
+            this.digests = digests;
+            this.deltaReportNum = 0;
+        }
+    }
+
+    // backend id -> digest of last applied tablet report
+    private Map<Long, BackendDigest> backendDigests;
+
+    public TabletReportDigest() {
+        backendDigests = Maps.newConcurrentMap();
+    }
+
+    public static int getBucket(long tabletId, int bucketNum) {
+        return (int) (((tabletId % bucketNum) + bucketNum) % bucketNum);
+    }
+
+    public static long hash(TTabletInfo tabletInfo) {
+        long h = tabletInfo.getTablet_id();
+        h = h * HASH_PRIME + tabletInfo.getSchema_hash();
+        h = h * HASH_PRIME + tabletInfo.getVersion();
+        h = h * HASH_PRIME + tabletInfo.getVersion_hash();
+        h = h * HASH_PRIME + (tabletInfo.isSetStorage_medium() ? tabletInfo.getStorage_medium().getValue() : -1);
+        // finalizer of murmur3
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb3f99c5f59b3L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public static long[] computeDigests(Map<Long, TTablet> tablets, int bucketNum) {
+        long[] digests = new long[bucketNum];
+        for (Map.Entry<Long, TTablet> entry : tablets.entrySet()) {
+            int bucket = getBucket(entry.getKey(), bucketNum);
+            for (TTabletInfo tabletInfo : entry.getValue().getTablet_infos()) {
+                digests[bucket] += hash(tabletInfo);
+            }
+        }
+        return digests;
+    }
+
+    private static long[] toArray(List<Long> digestList) {
+        long[] digests = new long[digestList.size()];
+        for (int i = 0; i < digests.length; i++) {
+            digests[i] = digestList.get(i);
+        }
+        return digests;
+    }
+
+    /*
+     * Check a delta report.
+     * Return the buckets need to do diff, or null if a full report is needed.
+     */
+    public boolean[] getChangedBuckets(long backendId, List<Long> reportedDigests, Map<Long, TTablet> tablets) {
+        BackendDigest backendDigest = backendDigests.get(backendId);
+        if (backendDigest == null) {
+            LOG.info("no tablet report digest of backend[{}]. need full report", backendId);
+            return null;
+        }
+        int bucketNum = reportedDigests.size();
+        if (bucketNum == 0 || bucketNum != backendDigest.digests.length) {
+            LOG.info("tablet report bucket num of backend[{}] changed from {} to {}. need full report",
+                     backendId, backendDigest.digests.length, bucketNum);
+            return null;
+        }
+
+        long[] sentDigests = computeDigests(tablets, bucketNum);
+        boolean[] changedBuckets = new boolean[bucketNum];
+        for (int i = 0; i < bucketNum; i++) {
+            long reportedDigest = reportedDigests.get(i);
+            if (reportedDigest == backendDigest.digests[i]) {
+                continue;
+            }
+            if (reportedDigest != sentDigests[i]) {
+                LOG.info("tablet report digest of bucket {} of backend[{}] mismatch. need full report",
+                         i, backendId);
+                return null;
+            }
+            changedBuckets[i] = true;
+        }
+        return changedBuckets;
+    }
+
+    /*
+     * Save digests after a delta report is applied.
+     * Return true if the backend should send a full report next time.
+     */
+    public boolean updateByDeltaReport(long backendId, List<Long> reportedDigests) {
+        BackendDigest backendDigest = backendDigests.get(backendId);
+        if (backendDigest == null) {
+            return true;
+        }
+        backendDigest.digests = toArray(reportedDigests);
+        backendDigest.deltaReportNum++;
+        return backendDigest.deltaReportNum >= Config.max_delta_tablet_report_num;
+    }
+
+    /*
+     * Save digests after a full report is applied.
+     */
+    public void updateByFullReport(long backendId, List<Long> reportedDigests, Map<Long, TTablet> tablets) {
+        if (reportedDigests == null || reportedDigests.isEmpty()) {
+            // backend does not support delta report
+            backendDigests.remove(backendId);
+            return;
+        }
+
+        long[] digests = toArray(reportedDigests);
+        long[] sentDigests = computeDigests(tablets, digests.length);
+        for (int i = 0; i < digests.length; i++) {
+            if (digests[i] != sentDigests[i]) {
+                // next delta report will be rejected
+                LOG.warn("tablet report digest of bucket {} of backend[{}] mismatch in full report",
+                         i, backendId);
+                backendDigests.remove(backendId);
+                return;
+            }
+        }
+        backendDigests.put(backendId, new BackendDigest(digests));
+    }
+}
@@ -0,0 +1,386 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.mysql;
+
+import com.baidu.palo.analysis.DecimalLiteral;
+import com.baidu.palo.analysis.FloatLiteral;
+import com.baidu.palo.analysis.IntLiteral;
+import com.baidu.palo.analysis.LargeIntLiteral;
+import com.baidu.palo.analysis.LiteralExpr;
+import com.baidu.palo.analysis.NullLiteral;
+import com.baidu.palo.analysis.StringLiteral;
+import com.baidu.palo.catalog.Type;
+import com.baidu.palo.common.AnalysisException;
+
+import com.google.common.base.Preconditions;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Helper of MySQL binary protocol, which is used by prepared statements.
+// See http://dev.mysql.com/doc/internals/en/binary-protocol-value.html
+public class MysqlBinaryProtocol {
+    // set in the high byte of parameter type if the parameter is unsigned
+    private static final int UNSIGNED_FLAG = 0x8000;
+    // first byte of a NULL value in text resultset row
+    public static final int TEXT_NULL_VALUE = 0xfb;
+    // first byte of every binary resultset row
+    private static final int BINARY_ROW_HEADER = 0x00;
+    // the null bitmap of binary resultset row starts from the third bit
+    private static final int ROW_NULL_BITMAP_OFFSET = 2;
+
+    // Read one parameter value of type 'paramType' from COM_STMT_EXECUTE packet,
+    // and return it as a SQL literal.
+    public static String readParamLiteral(ByteBuffer buffer, int paramType) throws AnalysisException {
+        return toSqlLiteral(readParam(buffer, paramType));
+    }
+
+    // Read one parameter value of type 'paramType' from COM_STMT_EXECUTE packet.
+    // Integers are of the smallest type holding them, like integer literals in SQL,
+    // and dates and times are strings, like quoted literals in SQL.
+    public static LiteralExpr readParam(ByteBuffer buffer, int paramType) throws AnalysisException {
+        boolean isUnsigned = (paramType & UNSIGNED_FLAG) != 0;
+        MysqlColType type = MysqlColType.fromCode(paramType & 0xff);
+        if (type == null) {
+            throw new AnalysisException("Unknown parameter type(" + (paramType & 0xff) + ")");
+        }
+        switch (type) {
+            case MYSQL_TYPE_NULL:
+                return new NullLiteral();
+            case MYSQL_TYPE_TINY: {
+                byte value = MysqlProto.readByte(buffer);
+                return new IntLiteral(isUnsigned ? value & 0xff : value);
+            }
+            case MYSQL_TYPE_SHORT:
+            case MYSQL_TYPE_YEAR: {
+                int value = MysqlProto.readInt2(buffer);
+                return new IntLiteral(isUnsigned ? value : (short) value);
+            }
+            case MYSQL_TYPE_LONG:
+            case MYSQL_TYPE_INT24: {
+                int value = MysqlProto.readInt4(buffer);
+                return new IntLiteral(isUnsigned ? value & 0xffffffffL : value);
+            }
+            case MYSQL_TYPE_LONGLONG: {
+                long value = MysqlProto.readInt8(buffer);
+                if (isUnsigned && value < 0) {
+                    return new LargeIntLiteral(Long.toUnsignedString(value));
+                }
+                return new IntLiteral(value);
+            }
+            case MYSQL_TYPE_FLOAT:
+                return toFloatLiteral(Float.intBitsToFloat(MysqlProto.readInt4(buffer)));
+            case MYSQL_TYPE_DOUBLE:
+                return toFloatLiteral(Double.longBitsToDouble(MysqlProto.readInt8(buffer)));
+            case MYSQL_TYPE_DATE:
+            case MYSQL_TYPE_DATETIME:
+            case MYSQL_TYPE_TIMESTAMP:
+                return new StringLiteral(readDateTime(buffer, type == MysqlColType.MYSQL_TYPE_DATE));
+            case MYSQL_TYPE_TIME:
+                return new StringLiteral(readTime(buffer));
+            case MYSQL_TYPE_DECIMAL:
+            case MYSQL_TYPE_NEWDECIMAL: {
+                String value = toString(MysqlProto.readLenEncodedString(buffer));
+                try {
+                    return new DecimalLiteral(new BigDecimal(value));
+                } catch (NumberFormatException e) {
+                    throw new AnalysisException("Invalid decimal parameter(" + value + ")");
+                }
+            }
+            default:
+                // all other types are sent as length encoded string
+                return new StringLiteral(toString(MysqlProto.readLenEncodedString(buffer)));
+        }
+    }
+
+    // Return the value of parameter sent by COM_STMT_SEND_LONG_DATA, which is always a string.
+    public static LiteralExpr toLongDataParam(byte[] value) {
+        return new StringLiteral(toString(value));
+    }
+
+    // Return the SQL literal of parameter value returned by readParam().
+    public static String toSqlLiteral(LiteralExpr value) {
+        if (value instanceof StringLiteral) {
+            return quote(value.getStringValue());
+        } else if (value instanceof DecimalLiteral) {
+            return ((DecimalLiteral) value).getValue().toPlainString();
+        }
+        return value.toSql();
+    }
+
+    private static FloatLiteral toFloatLiteral(double value) throws AnalysisException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new AnalysisException("Invalid floating point parameter(" + value + ")");
+        }
+        // type is not decided by the value, so the plan of prepared statement can be reused
+        return new FloatLiteral(value, Type.DOUBLE);
+    }
+
+    private static String readDateTime(ByteBuffer buffer, boolean isDate) {
+        int length = MysqlProto.readInt1(buffer);
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int microSecond = 0;
+        if (length >= 4) {
+            year = MysqlProto.readInt2(buffer);
+            month = MysqlProto.readInt1(buffer);
+            day = MysqlProto.readInt1(buffer);
+        }
+        if (length >= 7) {
+            hour = MysqlProto.readInt1(buffer);
+            minute = MysqlProto.readInt1(buffer);
+            second = MysqlProto.readInt1(buffer);
+        }
+        if (length >= 11) {
+            microSecond = MysqlProto.readInt4(buffer);
+        }
+        if (isDate) {
+            return String.format("%04d-%02d-%02d", year, month, day);
+        }
+        if (microSecond != 0) {
+            return String.format("%04d-%02d-%02d %02d:%02d:%02d.%06d",
+                    year, month, day, hour, minute, second, microSecond);
+        }
+        return String.format("%04d-%02d-%02d %02d:%02d:%02d", year, month, day, hour, minute, second);
+    }
+
+    private static String readTime(ByteBuffer buffer) {
+        int length = MysqlProto.readInt1(buffer);
+        boolean isNegative = false;
+        long days = 0;
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int microSecond = 0;
+        if (length >= 8) {
+            isNegative = MysqlProto.readInt1(buffer) == 1;
+            days = MysqlProto.readInt4(buffer) & 0xffffffffL;
+            hour = MysqlProto.readInt1(buffer);
+            minute = MysqlProto.readInt1(buffer);
+            second = MysqlProto.readInt1(buffer);
+        }
+        if (length >= 12) {
+            microSecond = MysqlProto.readInt4(buffer);
+        }
+        String sign = isNegative ? "-" : "";
+        if (microSecond != 0) {
+            return String.format("%s%02d:%02d:%02d.%06d", sign, days * 24 + hour, minute, second, microSecond);
+        }
+        return String.format("%s%02d:%02d:%02d", sign, days * 24 + hour, minute, second);
+    }
+
+    // Quote and escape a string value to SQL string literal.
+    public static String toStringLiteral(byte[] value) {
+        return quote(toString(value));
+    }
+
+    private static String quote(String str) {
+        StringBuilder sb = new StringBuilder(str.length() + 2);
+        sb.append('\'');
+        for (int i = 0; i < str.length(); ++i) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '\0':
+                    sb.append("\\0");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\'':
+                    sb.append("\\'");
+                    break;
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                default:
+                    sb.append(c);
+                    break;
+            }
+        }
+        sb.append('\'');
+        return sb.toString();
+    }
+
+    private static String toString(byte[] value) {
+        try {
+            return new String(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // impossible
+            return new String(value);
+        }
+    }
+
+    // Convert one row of text resultset sent by backends to row of binary resultset.
+    // 'types' are the mysql types of columns, which are the same as sent in column definitions.
+    public static ByteBuffer textRowToBinary(ByteBuffer textRow, List<MysqlColType> types)
+            throws AnalysisException {
+        ByteBuffer row = textRow.duplicate();
+        int numColumns = types.size();
+        byte[] nullBitmap = new byte[(numColumns + ROW_NULL_BITMAP_OFFSET + 7) / 8];
+        MysqlSerializer values = MysqlSerializer.newInstance();
+        for (int i = 0; i < numColumns; ++i) {
+            if (!row.hasRemaining()) {
+                throw new AnalysisException("Row has less than " + numColumns + " columns");
+            }
+            if ((row.get(row.position()) & 0xff) == TEXT_NULL_VALUE) {
+                row.get();
+                int bit = i + ROW_NULL_BITMAP_OFFSET;
+                nullBitmap[bit / 8] |= (1 << (bit % 8));
+                continue;
+            }
+            byte[] value = MysqlProto.readLenEncodedString(row);
+            writeBinaryValue(values, types.get(i), value);
+        }
+
+        MysqlSerializer serializer = MysqlSerializer.newInstance();
+        serializer.writeInt1(BINARY_ROW_HEADER);
+        serializer.writeBytes(nullBitmap);
+        serializer.writeBytes(values.toArray());
+        return serializer.toByteBuffer();
+    }
+
+    private static void writeBinaryValue(MysqlSerializer serializer, MysqlColType type, byte[] value)
+            throws AnalysisException {
+        String str = toString(value);
+        try {
+            switch (type) {
+                case MYSQL_TYPE_TINY:
+                    serializer.writeInt1((int) parseInteger(str));
+                    break;
+                case MYSQL_TYPE_SHORT:
+                    serializer.writeInt2((int) parseInteger(str));
+                    break;
+                case MYSQL_TYPE_LONG:
+                    serializer.writeInt4((int) parseInteger(str));
+                    break;
+                case MYSQL_TYPE_LONGLONG:
+                    serializer.writeInt8(parseInteger(str));
+                    break;
+                case MYSQL_TYPE_FLOAT:
+                    serializer.writeInt4(Float.floatToIntBits(Float.parseFloat(str)));
+                    break;
+                case MYSQL_TYPE_DOUBLE:
+                    serializer.writeInt8(Double.doubleToLongBits(Double.parseDouble(str)));
+                    break;
+                case MYSQL_TYPE_DATE:
+                case MYSQL_TYPE_DATETIME:
+                    writeBinaryDateTime(serializer, str);
+                    break;
+                case MYSQL_TYPE_TIME:
+                    writeBinaryTime(serializer, str);
+                    break;
+                default:
+                    serializer.writeVInt(value.length);
+                    serializer.writeBytes(value);
+                    break;
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new AnalysisException("Invalid value(" + str + ") of type " + type);
+        }
+    }
+
+    private static long parseInteger(String str) {
+        // boolean may be sent as 'true' or 'false'
+        if (str.equalsIgnoreCase("true")) {
+            return 1;
+        } else if (str.equalsIgnoreCase("false")) {
+            return 0;
+        }
+        return Long.parseLong(str);
+    }
+
+    // Text format: 'yyyy-MM-dd' or 'yyyy-MM-dd HH:mm:ss[.ffffff]'
+    private static void writeBinaryDateTime(MysqlSerializer serializer, String str) {
+        int year = Integer.parseInt(str.substring(0, 4));
+        int month = Integer.parseInt(str.substring(5, 7));
+        int day = Integer.parseInt(str.substring(8, 10));
+        if (str.length() < 19) {
+            serializer.writeInt1(4);
+            serializer.writeInt2(year);
+            serializer.writeInt1(month);
+            serializer.writeInt1(day);
+            return;
+        }
+        int hour = Integer.parseInt(str.substring(11, 13));
+        int minute = Integer.parseInt(str.substring(14, 16));
+        int second = Integer.parseInt(str.substring(17, 19));
+        int microSecond = parseMicroSecond(str, 19);
+        serializer.writeInt1(microSecond == 0 ? 7 : 11);
+        serializer.writeInt2(year);
+        serializer.writeInt1(month);
+        serializer.writeInt1(day);
+        serializer.writeInt1(hour);
+        serializer.writeInt1(minute);
+        serializer.writeInt1(second);
+        if (microSecond != 0) {
+            serializer.writeInt4(microSecond);
+        }
+    }
+
+    // Text format: '[-]HH:mm:ss[.ffffff]', and hours may be larger than 24
+    private static void writeBinaryTime(MysqlSerializer serializer, String str) {
+        boolean isNegative = str.startsWith("-");
+        int start = isNegative ? 1 : 0;
+        int firstColon = str.indexOf(':', start);
+        int secondColon = str.indexOf(':', firstColon + 1);
+        Preconditions.checkArgument(firstColon > 0 && secondColon > 0);
+        long hours = Long.parseLong(str.substring(start, firstColon));
+        int minute = Integer.parseInt(str.substring(firstColon + 1, secondColon));
+        int second = Integer.parseInt(str.substring(secondColon + 1, secondColon + 3));
+        int microSecond = parseMicroSecond(str, secondColon + 3);
+        serializer.writeInt1(microSecond == 0 ? 8 : 12);
+        serializer.writeInt1(isNegative ? 1 : 0);
+        serializer.writeInt4((int) (hours / 24));
+        serializer.writeInt1((int) (hours % 24));
+        serializer.writeInt1(minute);
+        serializer.writeInt1(second);
+        if (microSecond != 0) {
+            serializer.writeInt4(microSecond);
+        }
+    }
+
+    // Parse '.ffffff' starting from 'pos', return 0 if there is no fraction part.
+    private static int parseMicroSecond(String str, int pos) {
+        if (str.length() <= pos + 1 || str.charAt(pos) != '.') {
+            return 0;
+        }
+        String fraction = str.substring(pos + 1);
+        if (fraction.length() > 6) {
+            fraction = fraction.substring(0, 6);
+        }
+        int microSecond = Integer.parseInt(fraction);
+        for (int i = fraction.length(); i < 6; ++i) {
+            microSecond *= 10;
+        }
+        return microSecond;
+    }
+}
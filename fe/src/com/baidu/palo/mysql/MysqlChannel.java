@@ -25,6 +25,9 @@ import org.apache.logging.log4j.LogManager;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 
 /**
@@ -38,6 +41,12 @@ public class MysqlChannel {
     private static final int MAX_PHYSICAL_PACKET_LENGTH = 0xffffff - 1;
     // MySQL packet header length
     private static final int PACKET_HEADER_LEN = 4;
+    // default size of send buffer in block mode
+    private static final int DEFAULT_SEND_BUFFER_LEN = 2 * 1024 * 1024;
+    // size of send buffer in non-block mode, released after each command to keep idle connection small
+    private static final int NON_BLOCKING_SEND_BUFFER_LEN = 64 * 1024;
+    // max time to wait for the client to be writable in non-block mode
+    private static final long WRITE_TIMEOUT_MS = 30 * 1000L;
     // logger for this class
     private static final Logger LOG = LogManager.getLogger(MysqlChannel.class);
     // next sequence id to receive or send
@@ -48,16 +57,28 @@ public class MysqlChannel {
     private ByteBuffer headerByteBuffer = ByteBuffer.allocate(PACKET_HEADER_LEN);
     // default packet byte buffer for most packet
     private ByteBuffer defaultBuffer = ByteBuffer.allocate(16 * 1024);
+    // allocated when first used
     private ByteBuffer sendBuffer;
+    private int sendBufferLen;
     private String remote;
     private String remoteIp;
     private boolean isSend;
 
+    // Following members are only used in non-block mode, see fetchOnePacketNonBlocking().
+    private boolean isNonBlocking = false;
+    // header of the physical packet being received
+    private ByteBuffer partialHeader;
+    // logical packet being received, null if not start
+    private ByteBuffer partialPacket;
+    // bytes left of the physical packet being received, -1 means receiving header
+    private int partialRemain = -1;
+    private boolean isLastPhysicalPacket;
+
     public MysqlChannel(SocketChannel channel) {
         if (null != channel) {
             this.sequenceId = 0;
             this.channel = channel;
-            this.sendBuffer = ByteBuffer.allocate(2 * 1024 * 1024);
+            this.sendBufferLen = DEFAULT_SEND_BUFFER_LEN;
             this.isSend = false;
 
             // get remote description
@@ -86,6 +107,34 @@ public class MysqlChannel {
         return remoteIp;
     }
 
+    // Switch this channel to non-block mode, so that it can be multiplexed by one selector.
+    // Only called after negotiation, because negotiation is processed in block mode.
+    public void startNonBlocking() throws IOException {
+        channel.configureBlocking(false);
+        isNonBlocking = true;
+        partialHeader = ByteBuffer.allocate(PACKET_HEADER_LEN);
+        sendBufferLen = NON_BLOCKING_SEND_BUFFER_LEN;
+        // buffers used in block mode are useless now.
+        defaultBuffer = null;
+        sendBuffer = null;
+    }
+
+    public SelectionKey register(Selector selector, int ops, Object attachment) throws ClosedChannelException {
+        return channel.register(selector, ops, attachment);
+    }
+
+    public boolean isOpen() {
+        return channel != null && channel.isOpen();
+    }
+
+    // Release send buffer if there is nothing to send. Called when one non-block connection
+    // becomes idle, so that idle connections only hold a few bytes.
+    public void releaseSendBuffer() {
+        if (sendBuffer != null && sendBuffer.position() == 0) {
+            sendBuffer = null;
+        }
+    }
+
     private int packetId() {
         byte[] header = headerByteBuffer.array();
         return header[3] & 0xFF;
@@ -130,6 +179,9 @@ public class MysqlChannel {
     // NOTE: all of the following code is assumed that the channel is in block mode.
     public ByteBuffer fetchOnePacket() throws IOException {
         int readLen;
+        if (defaultBuffer == null) {
+            defaultBuffer = ByteBuffer.allocate(16 * 1024);
+        }
         ByteBuffer result = defaultBuffer;
         result.clear();
 
@@ -178,7 +230,104 @@ public class MysqlChannel {
         return result;
     }
 
+    // Read one logical mysql protocol packet in non-block mode.
+    // Read as much as available data of the packet, and return null if the packet is not complete yet.
+    // Data has been read is kept, and the next call continues from it.
+    // Unlike fetchOnePacket(), the returned buffer is owned by the caller.
+    // Throw IOException if remote has closed the channel.
+    public ByteBuffer fetchOnePacketNonBlocking() throws IOException {
+        while (true) {
+            if (partialRemain < 0) {
+                // receive header
+                if (channel.read(partialHeader) < 0) {
+                    throw new IOException("Remote has closed the channel.");
+                }
+                if (partialHeader.hasRemaining()) {
+                    return null;
+                }
+                byte[] header = partialHeader.array();
+                int id = header[3] & 0xFF;
+                if (id != sequenceId) {
+                    LOG.warn("receive packet sequence id[" + id + "] want to get[" + sequenceId + "]");
+                    throw new IOException("Bad packet sequence.");
+                }
+                int packetLen = (header[0] & 0xFF) | ((header[1] & 0XFF) << 8) | ((header[2] & 0XFF) << 16);
+                partialHeader.clear();
+                if (partialPacket == null) {
+                    partialPacket = ByteBuffer.allocate(packetLen);
+                } else if (partialPacket.capacity() - partialPacket.position() < packetLen) {
+                    ByteBuffer tmp = ByteBuffer.allocate(partialPacket.position() + packetLen);
+                    tmp.put(partialPacket.array(), 0, partialPacket.position());
+                    partialPacket = tmp;
+                }
+                partialPacket.limit(partialPacket.position() + packetLen);
+                partialRemain = packetLen;
+                isLastPhysicalPacket = packetLen != MAX_PHYSICAL_PACKET_LENGTH;
+            }
+
+            if (partialRemain > 0) {
+                int readLen = channel.read(partialPacket);
+                if (readLen < 0) {
+                    throw new IOException("Remote has closed the channel.");
+                }
+                partialRemain -= readLen;
+                if (partialRemain > 0) {
+                    return null;
+                }
+            }
+
+            // one physical packet is complete
+            partialRemain = -1;
+            accSequenceId();
+            if (isLastPhysicalPacket) {
+                ByteBuffer result = partialPacket;
+                partialPacket = null;
+                result.flip();
+                return result;
+            }
+        }
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Write all data of buffers in non-block mode, wait if the client can not receive more data.
+    private void writeAllNonBlocking(ByteBuffer... buffers) throws IOException {
+        Selector writeSelector = null;
+        try {
+            while (hasRemaining(buffers)) {
+                if (channel.write(buffers, 0, buffers.length) > 0) {
+                    continue;
+                }
+                // socket buffer is full, wait the client to receive data.
+                if (writeSelector == null) {
+                    writeSelector = Selector.open();
+                    channel.register(writeSelector, SelectionKey.OP_WRITE);
+                }
+                if (writeSelector.select(WRITE_TIMEOUT_MS) == 0) {
+                    throw new IOException("Write mysql packet timeout.");
+                }
+                writeSelector.selectedKeys().clear();
+            }
+        } finally {
+            if (writeSelector != null) {
+                writeSelector.close();
+            }
+        }
+    }
+
     private void realNetSend(ByteBuffer buffer) throws IOException {
+        if (isNonBlocking) {
+            writeAllNonBlocking(buffer);
+            isSend = true;
+            return;
+        }
         long bufLen = buffer.remaining();
         long writeLen = channel.write(buffer);
         if (bufLen != writeLen) {
@@ -189,6 +338,21 @@ public class MysqlChannel {
         isSend = true;
     }
 
+    // Send all buffers by gathering write.
+    private void realNetSend(ByteBuffer[] buffers) throws IOException {
+        if (isNonBlocking) {
+            writeAllNonBlocking(buffers);
+            isSend = true;
+            return;
+        }
+        while (hasRemaining(buffers)) {
+            if (channel.write(buffers, 0, buffers.length) <= 0) {
+                throw new IOException("Write mysql packets failed.");
+            }
+        }
+        isSend = true;
+    }
+
     public void flush() throws IOException {
         if (null == sendBuffer || sendBuffer.position() == 0) {
             // Nothing to send
@@ -200,8 +364,18 @@ public class MysqlChannel {
         isSend = true;
     }
 
-    private void writeHeader(int length) throws IOException {
+    private boolean prepareSendBuffer() {
+        if (null == channel) {
+            return false;
+        }
         if (null == sendBuffer) {
+            sendBuffer = ByteBuffer.allocate(sendBufferLen);
+        }
+        return true;
+    }
+
+    private void writeHeader(int length) throws IOException {
+        if (!prepareSendBuffer()) {
             return;
         }
         long leftLength = sendBuffer.capacity() - sendBuffer.position();
@@ -216,7 +390,7 @@ public class MysqlChannel {
     }
 
     private void writeBuffer(ByteBuffer buffer) throws IOException {
-        if (null == sendBuffer) {
+        if (!prepareSendBuffer()) {
             return;
         }
         long leftLength = sendBuffer.capacity() - sendBuffer.position();
@@ -250,6 +424,38 @@ public class MysqlChannel {
         accSequenceId();
     }
 
+    // Send packets which are already encoded with headers, only sequence ids in headers are filled here.
+    // Small packets are copied to send buffer. Otherwise, they are sent without copy, together with
+    // the data in send buffer by one gathering write.
+    public void sendPackets(ByteBuffer packets) throws IOException {
+        int pos = packets.position();
+        int limit = packets.limit();
+        while (pos < limit) {
+            if (limit - pos < PACKET_HEADER_LEN) {
+                throw new IOException("Malformed mysql packets.[length=" + (limit - packets.position()) + "]");
+            }
+            int length = (packets.get(pos) & 0xFF) | ((packets.get(pos + 1) & 0xFF) << 8)
+                    | ((packets.get(pos + 2) & 0xFF) << 16);
+            packets.put(pos + 3, (byte) sequenceId);
+            accSequenceId();
+            pos += PACKET_HEADER_LEN + length;
+        }
+        if (pos != limit) {
+            throw new IOException("Malformed mysql packets.[length=" + (limit - packets.position()) + "]");
+        }
+
+        if (!prepareSendBuffer()) {
+            return;
+        }
+        if (sendBuffer.remaining() >= packets.remaining()) {
+            sendBuffer.put(packets);
+            return;
+        }
+        sendBuffer.flip();
+        realNetSend(new ByteBuffer[] {sendBuffer, packets});
+        sendBuffer.clear();
+    }
+
     public void sendAndFlush(ByteBuffer packet) throws IOException {
         sendOnePacket(packet);
         flush();
@@ -19,6 +19,11 @@
 
 package com.baidu.palo.mysql;
 
+import com.google.common.collect.Maps;
+
+import java.util.EnumSet;
+import java.util.Map;
+
 // MySQL column type
 // TYPE codes are defined in the file 'mysql/include/mysql_com.h' enum enum_field_types
 // which is also demostrated in 
@@ -55,6 +60,14 @@ public enum MysqlColType {
     MYSQL_TYPE_STRING(254, "STRING"),
     MYSQL_TYPE_GEOMETRY(255, "GEOMETRY");
 
+    private static Map<Integer, MysqlColType> codeMap = Maps.newHashMap();
+    static {
+        EnumSet<MysqlColType> enumSet = EnumSet.allOf(MysqlColType.class);
+        for (MysqlColType type : enumSet) {
+            codeMap.put(type.code, type);
+        }
+    }
+
     private MysqlColType(int code, String desc) {
         this.code = code;
         this.desc = desc;
@@ -68,6 +81,10 @@ public enum MysqlColType {
         return code;
     }
 
+    public static MysqlColType fromCode(int code) {
+        return codeMap.get(code);
+    }
+
     @Override
     public String toString() {
         return desc;
@@ -202,6 +202,13 @@ public class EditLog {
                     catalog.replayModifyPartition(info);
                     break;
                 }
+                case OperationType.OP_SET_TABLE_STATS: {
+                    TableStatsInfo info = (TableStatsInfo) journal.getData();
+                    LOG.info("Begin to unprotect set table stats. db = " + info.getDbId()
+                            + " table = " + info.getTableId());
+                    catalog.replaySetTableStats(info);
+                    break;
+                }
                 case OperationType.OP_ERASE_TABLE: {
                     Text tableId = (Text) journal.getData();
                     catalog.replayEraseTable(Long.parseLong(tableId.toString()));
@@ -556,8 +563,10 @@ public class EditLog {
 
     /**
      * Write an operation to the edit log. Do not sync to persistent store yet.
+     * Not synchronized on journal write, so that concurrent writes can be committed
+     * together if the journal supports group commit.
      */
-    private synchronized void logEdit(short op, Writable writable) {
+    private void logEdit(short op, Writable writable) {
         if (this.getNumEditStreams() == 0) {
             LOG.error("Fatal Error : no editLog stream");
             throw new Error("Fatal Error : no editLog stream");
@@ -572,23 +581,25 @@ public class EditLog {
             Runtime.getRuntime().exit(-1);
         }
 
-        // get a new transactionId
-        txId++;
-
-        // update statistics
         long end = System.currentTimeMillis();
-        numTransactions++;
-        totalTimeTransactions += (end - start);
+        synchronized (this) {
+            // get a new transactionId
+            txId++;
 
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("nextId = {}, numTransactions = {}, totalTimeTransactions = {}, op = {}",
-                      txId, numTransactions, totalTimeTransactions, op);
-        }
+            // update statistics
+            numTransactions++;
+            totalTimeTransactions += (end - start);
 
-        if (txId == Config.edit_log_roll_num) {
-            LOG.info("txId is equal to edit_log_roll_num {}, will roll edit.", txId);
-            rollEditLog();
-            txId = 0;
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("nextId = {}, numTransactions = {}, totalTimeTransactions = {}, op = {}",
+                          txId, numTransactions, totalTimeTransactions, op);
+            }
+
+            if (txId == Config.edit_log_roll_num) {
+                LOG.info("txId is equal to edit_log_roll_num {}, will roll edit.", txId);
+                rollEditLog();
+                txId = 0;
+            }
         }
     }
 
@@ -651,6 +662,10 @@ public class EditLog {
         logEdit(OperationType.OP_MODIFY_PARTITION, info);
     }
 
+    public void logSetTableStats(TableStatsInfo info) {
+        logEdit(OperationType.OP_SET_TABLE_STATS, info);
+    }
+
     public void logDropTable(DropInfo info) {
         logEdit(OperationType.OP_DROP_TABLE, info);
     }
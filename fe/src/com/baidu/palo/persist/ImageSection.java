@@ -0,0 +1,90 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+package com.baidu.palo.persist;
+
+import com.baidu.palo.common.io.Text;
+import com.baidu.palo.common.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+ * One entry of the index of sectioned image.
+ * Describes where a section locates in the image file and the crc32 of its content.
+ */
+public class ImageSection implements Writable {
+    private String name;
+    private long offset;
+    private int length;
+    private long checksum;
+
+    public ImageSection() {
+    }
+
+    public ImageSection(String name, long offset, int length, long checksum) {
+        this.name = name;
+        this.offset = offset;
+        this.length = length;
+        this.checksum = checksum;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        Text.writeString(out, name);
+        out.writeLong(offset);
+        out.writeInt(length);
+        out.writeLong(checksum);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        name = Text.readString(in);
+        offset = in.readLong();
+        length = in.readInt();
+        checksum = in.readLong();
+    }
+
+    public static ImageSection read(DataInput in) throws IOException {
+        ImageSection section = new ImageSection();
+        section.readFields(in);
+        return section;
+    }
+
+    @Override
+    public String toString() {
+        return "section " + name + "[offset=" + offset + ", length=" + length + "]";
+    }
+}
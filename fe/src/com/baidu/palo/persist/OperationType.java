@@ -47,6 +47,7 @@ public class OperationType {
     public static final short OP_BACKUP_FINISH = 113;
     public static final short OP_RESTORE_START = 114;
     public static final short OP_RESTORE_FINISH = 115;
+    public static final short OP_SET_TABLE_STATS = 116;
 
     // 20~29 120~129 220~229 ...
     public static final short OP_START_ROLLUP = 20;
@@ -0,0 +1,156 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+package com.baidu.palo.persist;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/*
+ * Reader of sectioned image, see SectionedImageWriter for the layout.
+ * readSection() is thread safe, so sections can be loaded in parallel.
+ */
+public class SectionedImageReader {
+    // size of index offset and magic at the end of file
+    private static final int FOOTER_LEN = 12;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    // keep the order of sections in file
+    private final List<ImageSection> sections = Lists.newArrayList();
+    private final Map<String, ImageSection> nameToSection = Maps.newHashMap();
+
+    public SectionedImageReader(File imageFile) throws IOException {
+        file = new RandomAccessFile(imageFile, "r");
+        channel = file.getChannel();
+        try {
+            readIndex();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // Check whether the image file is in sectioned format by its magic.
+    // Image in old format starts with meta version, which never equals to the magic.
+    public static boolean isSectionedImage(File imageFile) throws IOException {
+        if (imageFile.length() < SectionedImageWriter.HEADER_LEN + FOOTER_LEN) {
+            return false;
+        }
+        RandomAccessFile raf = new RandomAccessFile(imageFile, "r");
+        try {
+            return raf.readInt() == SectionedImageWriter.MAGIC;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void readIndex() throws IOException {
+        long fileLen = channel.size();
+        if (fileLen < SectionedImageWriter.HEADER_LEN + FOOTER_LEN) {
+            throw new IOException("image file is too short: " + fileLen);
+        }
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(read(0, SectionedImageWriter.HEADER_LEN)));
+        if (header.readInt() != SectionedImageWriter.MAGIC) {
+            throw new IOException("bad magic of sectioned image");
+        }
+        int version = header.readInt();
+        if (version != SectionedImageWriter.FORMAT_VERSION) {
+            throw new IOException("unknown sectioned image format version: " + version);
+        }
+
+        DataInputStream footer = new DataInputStream(new ByteArrayInputStream(read(fileLen - FOOTER_LEN,
+                                                                                    FOOTER_LEN)));
+        long indexOffset = footer.readLong();
+        if (footer.readInt() != SectionedImageWriter.MAGIC) {
+            throw new IOException("bad footer of sectioned image, the image may be incomplete");
+        }
+        long indexLength = fileLen - FOOTER_LEN - indexOffset;
+        if (indexOffset < SectionedImageWriter.HEADER_LEN || indexLength < 4 || indexLength > Integer.MAX_VALUE) {
+            throw new IOException("bad index offset of sectioned image: " + indexOffset);
+        }
+        DataInputStream index = new DataInputStream(new ByteArrayInputStream(read(indexOffset,
+                                                                                   (int) indexLength)));
+        int count = index.readInt();
+        for (int i = 0; i < count; i++) {
+            ImageSection section = ImageSection.read(index);
+            if (section.getOffset() < SectionedImageWriter.HEADER_LEN || section.getLength() < 0
+                    || section.getOffset() + section.getLength() > indexOffset) {
+                throw new IOException("bad " + section);
+            }
+            sections.add(section);
+            nameToSection.put(section.getName(), section);
+        }
+    }
+
+    private byte[] read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int readLen = channel.read(buffer, position + buffer.position());
+            if (readLen < 0) {
+                throw new IOException("unexpected end of image file");
+            }
+        }
+        return buffer.array();
+    }
+
+    public boolean hasSection(String name) {
+        return nameToSection.containsKey(name);
+    }
+
+    // return names of sections starting with prefix, in the order of file
+    public List<String> getSectionNames(String prefix) {
+        List<String> names = Lists.newArrayList();
+        for (ImageSection section : sections) {
+            if (section.getName().startsWith(prefix)) {
+                names.add(section.getName());
+            }
+        }
+        return names;
+    }
+
+    // Read the whole section and verify its checksum.
+    public DataInputStream readSection(String name) throws IOException {
+        ImageSection section = nameToSection.get(name);
+        if (section == null) {
+            throw new IOException("section " + name + " does not exist in image");
+        }
+        byte[] data = read(section.getOffset(), section.getLength());
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if (crc.getValue() != section.getChecksum()) {
+            throw new IOException("checksum mismatch of " + section);
+        }
+        return new DataInputStream(new ByteArrayInputStream(data));
+    }
+
+    public void close() throws IOException {
+        file.close();
+    }
+}
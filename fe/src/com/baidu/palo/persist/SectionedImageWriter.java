@@ -0,0 +1,87 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+package com.baidu.palo.persist;
+
+import com.baidu.palo.common.io.DataOutputBuffer;
+
+import com.google.common.collect.Lists;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+ * Writer of sectioned image.
+ * Image file layout:
+ *   magic(int) | format version(int) | section 1 | ... | section n | index | index offset(long) | magic(int)
+ * Index is the number of sections followed by an ImageSection of each section.
+ * Every section is checksummed independently, so sections can be read and verified in parallel.
+ */
+public class SectionedImageWriter {
+    public static final int MAGIC = 0x50414c4f;
+    public static final int FORMAT_VERSION = 1;
+    // length of magic and format version at the beginning of file
+    public static final int HEADER_LEN = 8;
+
+    private final FileOutputStream fileOut;
+    private final DataOutputStream out;
+    private final List<ImageSection> sections = Lists.newArrayList();
+    private long offset = 0;
+
+    public SectionedImageWriter(File file) throws IOException {
+        fileOut = new FileOutputStream(file);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        offset = HEADER_LEN;
+    }
+
+    public void writeSection(String name, DataOutputBuffer buffer) throws IOException {
+        writeSection(name, buffer.getData(), buffer.getLength());
+    }
+
+    public void writeSection(String name, byte[] data, int length) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        out.write(data, 0, length);
+        sections.add(new ImageSection(name, offset, length, crc.getValue()));
+        offset += length;
+    }
+
+    // write index and footer, then sync to disk
+    public void finish() throws IOException {
+        long indexOffset = offset;
+        out.writeInt(sections.size());
+        for (ImageSection section : sections) {
+            section.write(out);
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(MAGIC);
+        out.flush();
+        fileOut.getFD().sync();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -547,6 +547,11 @@ public class BrokerScanNode extends ScanNode {
         for (BrokerFileGroup fileGroup : fileGroups) {
             ArrayList<TBrokerFileStatus> fileStatuses = Lists.newArrayList();
             for (String path : fileGroup.getFilePathes()) {
+                if (BrokerFileGroup.isStreamPath(path)) {
+                    // data of stream is being received by backend, its size is unknown
+                    fileStatuses.add(new TBrokerFileStatus(path, false, 0, false));
+                    continue;
+                }
                 parseBrokerFile(path, fileStatuses);
             }
             fileStatusesList.add(fileStatuses);
@@ -604,6 +609,53 @@ public class BrokerScanNode extends ScanNode {
         }
     }
 
+    private void processStreamFiles(
+            TBrokerScanRangeParams params,
+            List<TBrokerFileStatus> fileStatuses)
+            throws InternalException {
+        for (TBrokerFileStatus fileStatus : fileStatuses) {
+            String address = fileStatus.path.substring(BrokerFileGroup.STREAM_PATH_PREFIX.length());
+            int slashIdx = address.indexOf('/');
+            int colonIdx = address.lastIndexOf(':', slashIdx);
+            if (slashIdx <= 0 || colonIdx <= 0) {
+                throw new InternalException("Invalid stream path: " + fileStatus.path);
+            }
+            Backend backend = null;
+            try {
+                backend = Catalog.getCurrentSystemInfo().getBackendWithBePort(
+                        address.substring(0, colonIdx), Integer.parseInt(address.substring(colonIdx + 1, slashIdx)));
+            } catch (NumberFormatException e) {
+                throw new InternalException("Invalid stream path: " + fileStatus.path);
+            }
+            if (backend == null || !backend.isAlive()) {
+                throw new InternalException("Backend receiving stream is not alive: " + fileStatus.path);
+            }
+
+            TBrokerRangeDesc rangeDesc = new TBrokerRangeDesc();
+            rangeDesc.setFile_type(TFileType.FILE_STREAM);
+            rangeDesc.setFormat_type(TFileFormatType.FORMAT_CSV_PLAIN);
+            rangeDesc.setPath(address.substring(slashIdx + 1));
+            rangeDesc.setSplittable(false);
+            rangeDesc.setStart_offset(0);
+            rangeDesc.setSize(-1);
+
+            TBrokerScanRange brokerScanRange = new TBrokerScanRange();
+            brokerScanRange.setParams(params);
+            brokerScanRange.setBroker_addresses(new ArrayList<TNetworkAddress>());
+            brokerScanRange.addToRanges(rangeDesc);
+            TScanRange scanRange = new TScanRange();
+            scanRange.setBroker_scan_range(brokerScanRange);
+
+            TScanRangeLocations locations = new TScanRangeLocations();
+            locations.setScan_range(scanRange);
+            TScanRangeLocation location = new TScanRangeLocation();
+            location.setBackend_id(backend.getId());
+            location.setServer(new TNetworkAddress(backend.getHost(), backend.getBePort()));
+            locations.addToLocations(location);
+            locationsList.add(locations);
+        }
+    }
+
     private void processFileGroup(
             TBrokerScanRangeParams params,
             ArrayList<TBrokerFileStatus> fileStatuses)
@@ -612,6 +664,23 @@ public class BrokerScanNode extends ScanNode {
             return;
         }
 
+        List<TBrokerFileStatus> streamFiles = Lists.newArrayList();
+        List<TBrokerFileStatus> textFiles = Lists.newArrayList();
+        for (TBrokerFileStatus fileStatus : fileStatuses) {
+            if (BrokerFileGroup.isStreamPath(fileStatus.path)) {
+                streamFiles.add(fileStatus);
+            } else {
+                textFiles.add(fileStatus);
+            }
+        }
+        if (!streamFiles.isEmpty()) {
+            processStreamFiles(params, streamFiles);
+        }
+        if (textFiles.isEmpty()) {
+            return;
+        }
+        fileStatuses = Lists.newArrayList(textFiles);
+
         TScanRangeLocations curLocations = newLocations(params, brokerDesc.getName());
         long curInstanceBytes = 0;
         long curFileOffset = 0;
@@ -26,19 +26,33 @@ import com.baidu.palo.analysis.Expr;
 import com.baidu.palo.analysis.InsertStmt;
 import com.baidu.palo.analysis.JoinOperator;
 import com.baidu.palo.analysis.QueryStmt;
+import com.baidu.palo.analysis.SlotDescriptor;
+import com.baidu.palo.analysis.SlotRef;
+import com.baidu.palo.analysis.TupleId;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.HashDistributionInfo;
+import com.baidu.palo.catalog.OlapTable;
 import com.baidu.palo.catalog.Table;
 import com.baidu.palo.common.AnalysisException;
 import com.baidu.palo.common.InternalException;
 import com.baidu.palo.common.Pair;
+import com.baidu.palo.qe.ConnectContext;
 import com.baidu.palo.thrift.TPartitionType;
+import com.baidu.palo.thrift.TRuntimeFilterType;
+import com.baidu.palo.thrift.TScanRangeLocation;
+import com.baidu.palo.thrift.TScanRangeLocations;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The distributed planner is responsible for creating an executable, distributed plan
@@ -90,9 +104,180 @@ public class DistributedPlanner {
             LOG.debug("memlimit=" + Long.toString(perNodeMemLimit));
         }
         createPlanFragments(singleNodePlan, isPartitioned, perNodeMemLimit, fragments);
+        assignRuntimeFilters(fragments);
         return fragments;
     }
 
+    /**
+     * Returns false if the decisions made when creating 'fragments' don't hold any more after the
+     * scan ranges of the olap scan nodes are selected again, which is done when the plan of a
+     * prepared query is reused with other parameter values. The stats of the plan nodes are
+     * computed again, and then
+     * - replicas of the same bucket scanned by a colocate join should still share a backend,
+     * - a broadcast or partitioned join should still be chosen by the cost,
+     * - and the runtime filters should still be of the same type.
+     */
+    public boolean isPlanValid(List<PlanFragment> fragments) {
+        for (PlanFragment fragment : fragments) {
+            if (fragment.getDestFragment() == null) {
+                computeStats(fragment.getPlanRoot());
+            }
+        }
+
+        ConnectContext context = ctx_.getRootAnalyzer().getContext();
+        long perNodeMemLimit = ctx_.getQueryOptions().mem_limit;
+        List<HashJoinNode> joinNodes = Lists.newArrayList();
+        for (PlanFragment fragment : fragments) {
+            collectHashJoinNodes(fragment.getPlanRoot(), fragment, joinNodes);
+        }
+        for (HashJoinNode joinNode : joinNodes) {
+            PlanFragment fragment = joinNode.getFragment();
+            boolean isValid;
+            switch (joinNode.getDistributionMode()) {
+                case COLOCATE: {
+                    List<OlapScanNode> scanNodes = Lists.newArrayList();
+                    collectOlapScanNodes(joinNode, fragment, scanNodes);
+                    OlapTable rhsTable = ((OlapScanNode) joinNode.getChild(1)).getOlapTable();
+                    isValid = isBucketsOnSameBackend(scanNodes, rhsTable.getColocateGroup());
+                    break;
+                }
+                case BROADCAST: {
+                    // the fragment executing the lhs tree also executes the join
+                    PlanNode lhsTree = joinNode.getChild(0);
+                    int lhsNumNodes = fragment.getDataPartition() == DataPartition.UNPARTITIONED
+                            ? 1 : lhsTree.getNumNodes();
+                    isValid = shouldBroadcast(joinNode, lhsTree, joinNode.getChild(1).getChild(0),
+                                              lhsNumNodes, perNodeMemLimit);
+                    break;
+                }
+                case PARTITIONED: {
+                    PlanNode lhsTree = joinNode.getChild(0).getChild(0);
+                    isValid = !shouldBroadcast(joinNode, lhsTree, joinNode.getChild(1).getChild(0),
+                                               lhsTree.getFragment().getNumNodes(), perNodeMemLimit);
+                    break;
+                }
+                default:
+                    isValid = true;
+                    break;
+            }
+            if (!isValid) {
+                LOG.debug("distribution mode {} of join node {} is not valid with the new scan ranges",
+                          joinNode.getDistributionMode(), joinNode.getId());
+                return false;
+            }
+
+            if (context != null && !joinNode.getRuntimeFilters().isEmpty()) {
+                TRuntimeFilterType type = getRuntimeFilterType(
+                        joinNode, context.getSessionVariable().getRuntimeFilterMaxInNum());
+                for (RuntimeFilter filter : joinNode.getRuntimeFilters()) {
+                    if (filter.getType() != type) {
+                        LOG.debug("type of runtime filter {} is not valid with the new scan ranges",
+                                  filter.getId());
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // Compute the stats of 'node' and the nodes below it again. Olap scan nodes compute their
+    // stats when their scan ranges are selected again.
+    private void computeStats(PlanNode node) {
+        for (PlanNode child : node.getChildren()) {
+            computeStats(child);
+        }
+        if (node instanceof OlapScanNode) {
+            return;
+        }
+        node.computeStats(ctx_.getRootAnalyzer());
+        if (node instanceof ExchangeNode) {
+            ((ExchangeNode) node).computeCardinality();
+        }
+    }
+
+    /**
+     * Plan runtime filters of hash join nodes. A filter is generated from the build side of an
+     * eq join conjunct whose probe side is a column of an olap scan node in the same fragment.
+     * Scan nodes in other fragments are not targeted, since their instances may run on other
+     * backends and start scanning before the hash table is constructed.
+     */
+    private void assignRuntimeFilters(List<PlanFragment> fragments) {
+        ConnectContext context = ctx_.getRootAnalyzer().getContext();
+        if (context == null || !context.getSessionVariable().isEnableRuntimeFilter()) {
+            return;
+        }
+        long maxInNum = context.getSessionVariable().getRuntimeFilterMaxInNum();
+
+        List<HashJoinNode> joinNodes = Lists.newArrayList();
+        for (PlanFragment fragment : fragments) {
+            collectHashJoinNodes(fragment.getPlanRoot(), fragment, joinNodes);
+        }
+        int nextFilterId = 0;
+        for (HashJoinNode joinNode : joinNodes) {
+            // probe rows which don't match any build row should be discarded by the join
+            JoinOperator joinOp = joinNode.getJoinOp();
+            if (joinOp != JoinOperator.INNER_JOIN && joinOp != JoinOperator.LEFT_SEMI_JOIN
+                    && joinOp != JoinOperator.RIGHT_OUTER_JOIN && joinOp != JoinOperator.RIGHT_SEMI_JOIN) {
+                continue;
+            }
+            TRuntimeFilterType type = getRuntimeFilterType(joinNode, maxInNum);
+
+            List<Pair<Expr, Expr>> eqJoinConjuncts = joinNode.getEqJoinConjuncts();
+            for (int i = 0; i < eqJoinConjuncts.size(); i++) {
+                Expr probeExpr = eqJoinConjuncts.get(i).first;
+                if (!(probeExpr instanceof SlotRef)) {
+                    continue;
+                }
+                TupleId tupleId = ((SlotRef) probeExpr).getDesc().getParent().getId();
+                OlapScanNode target = findOlapScanNode(joinNode.getChild(0), joinNode.getFragment(), tupleId);
+                if (target == null) {
+                    continue;
+                }
+                RuntimeFilter filter = new RuntimeFilter(nextFilterId++, i, type,
+                        eqJoinConjuncts.get(i).second, probeExpr, target);
+                joinNode.addRuntimeFilter(filter);
+                target.addRuntimeFilter(filter);
+            }
+            joinNode.setRuntimeFilterMaxInNum(maxInNum);
+        }
+    }
+
+    private TRuntimeFilterType getRuntimeFilterType(HashJoinNode joinNode, long maxInNum) {
+        long buildCardinality = joinNode.getChild(1).getCardinality();
+        return (buildCardinality != -1 && buildCardinality <= maxInNum)
+                ? TRuntimeFilterType.IN : TRuntimeFilterType.MIN_MAX;
+    }
+
+    private void collectHashJoinNodes(PlanNode node, PlanFragment fragment, List<HashJoinNode> joinNodes) {
+        if (node.getFragment() != fragment) {
+            return;
+        }
+        if (node instanceof HashJoinNode) {
+            joinNodes.add((HashJoinNode) node);
+        }
+        for (PlanNode child : node.getChildren()) {
+            collectHashJoinNodes(child, fragment, joinNodes);
+        }
+    }
+
+    // return the olap scan node of 'tupleId' in the subtree of 'node' in 'fragment'
+    private OlapScanNode findOlapScanNode(PlanNode node, PlanFragment fragment, TupleId tupleId) {
+        if (node.getFragment() != fragment) {
+            return null;
+        }
+        if (node instanceof OlapScanNode && node.getTupleIds().contains(tupleId)) {
+            return (OlapScanNode) node;
+        }
+        for (PlanNode child : node.getChildren()) {
+            OlapScanNode scanNode = findOlapScanNode(child, fragment, tupleId);
+            if (scanNode != null) {
+                return scanNode;
+            }
+        }
+        return null;
+    }
+
     private boolean isFragmentPartitioned(PlanFragment fragment) {
         return fragment.isPartitioned() && fragment.getPlanRoot().getNumInstances() > 1;
     }
@@ -187,7 +372,7 @@ public class DistributedPlanner {
         } else if (root instanceof HashJoinNode) {
             Preconditions.checkState(childFragments.size() == 2);
             result = createHashJoinFragment((HashJoinNode) root, childFragments.get(1),
-                    childFragments.get(0), perNodeMemLimit);
+                    childFragments.get(0), perNodeMemLimit, fragments);
         } else if (root instanceof CrossJoinNode) {
             result = createCrossJoinFragment((CrossJoinNode) root, childFragments.get(1),
                     childFragments.get(0));
@@ -272,64 +457,31 @@ public class DistributedPlanner {
      * don't create a broadcast join if we already anticipate that this will exceed the query's memory budget.
      */
     private PlanFragment createHashJoinFragment(HashJoinNode node, PlanFragment rightChildFragment,
-                                                PlanFragment leftChildFragment, long perNodeMemLimit)
+                                                PlanFragment leftChildFragment, long perNodeMemLimit,
+                                                ArrayList<PlanFragment> fragments)
             throws InternalException {
-        // broadcast: send the rightChildFragment's output to each node executing
-        // the leftChildFragment; the cost across all nodes is proportional to the
-        // total amount of data sent
-        PlanNode rhsTree = rightChildFragment.getPlanRoot();
-        long rhsDataSize = 0;
-        long broadcastCost = 0;
-        if (rhsTree.getCardinality() != -1 && leftChildFragment.getNumNodes() != -1) {
-            rhsDataSize = Math.round((double) rhsTree.getCardinality() * rhsTree.getAvgRowSize());
-            broadcastCost = rhsDataSize * leftChildFragment.getNumNodes();
-        }
-        LOG.info("broadcast: cost=" + Long.toString(broadcastCost));
-        LOG.info("card=" + Long.toString(rhsTree.getCardinality())
-                + " row_size=" + Float.toString(rhsTree.getAvgRowSize())
-                + " #nodes=" + Integer.toString(leftChildFragment.getNumNodes()));
-
-        // repartition: both left- and rightChildFragment are partitioned on the
-        // join exprs
-        // TODO: take existing partition of input fragments into account to avoid
-        // unnecessary repartitioning
-        PlanNode lhsTree = leftChildFragment.getPlanRoot();
-        long partitionCost = 0;
-        if (lhsTree.getCardinality() != -1 && rhsTree.getCardinality() != -1) {
-            partitionCost = Math.round(
-                    (double) lhsTree.getCardinality() * lhsTree.getAvgRowSize() + (double) rhsTree
-                            .getCardinality() * rhsTree.getAvgRowSize());
-        }
-        LOG.info("partition: cost=" + Long.toString(partitionCost));
-        LOG.info(
-                "lhs card=" + Long.toString(lhsTree.getCardinality()) + " row_size=" + Float.toString(
-                        lhsTree.getAvgRowSize()));
-        LOG.info(
-                "rhs card=" + Long.toString(rhsTree.getCardinality()) + " row_size=" + Float.toString(
-                        rhsTree.getAvgRowSize()));
-        LOG.info(rhsTree.getExplainString());
+        if (canColocateJoin(node, leftChildFragment, rightChildFragment)) {
+            node.setDistributionMode(HashJoinNode.DistributionMode.COLOCATE);
+            // Doesn't create a new fragment, and doesn't exchange data. The rhs scan is moved
+            // into leftChildFragment, and the same buckets of both sides are assigned to the
+            // same instance by coordinator.
+            node.setChild(0, leftChildFragment.getPlanRoot());
+            node.setChild(1, rightChildFragment.getPlanRoot());
+            leftChildFragment.setPlanRoot(node);
+            leftChildFragment.setColocate(true);
+            fragments.remove(rightChildFragment);
 
-        boolean doBroadcast;
-        // we do a broadcast join if
-        // - we're explicitly told to do so
-        // - or if it's cheaper and we weren't explicitly told to do a partitioned join
-        // - and we're not doing a full or right outer join (those require the left-hand
-        //   side to be partitioned for correctness)
-        // - and the expected size of the hash tbl doesn't exceed perNodeMemLimit
-        // we do a "<=" comparison of the costs so that we default to broadcast joins if
-        // we're unable to estimate the cost
-        if (node.getJoinOp() != JoinOperator.RIGHT_OUTER_JOIN
-                && node.getJoinOp() != JoinOperator.FULL_OUTER_JOIN
-                && (perNodeMemLimit == 0 || Math.round(
-                (double) rhsDataSize * PlannerContext.HASH_TBL_SPACE_OVERHEAD) <= perNodeMemLimit)
-                && (node.getInnerRef().isBroadcastJoin() || (!node.getInnerRef().isPartitionJoin()
-                && broadcastCost <= partitionCost))) {
-            doBroadcast = true;
-        } else {
-            doBroadcast = false;
+            if (!node.getJoinOp().isOuterJoin() && !node.getJoinOp().isSemiAntiJoin()) {
+                node.setIsPushDown(true);
+            }
+            if (node.getJoinOp().isLeftSemiJoin()) {
+                node.setIsPushDown(true);
+            }
+            return leftChildFragment;
         }
 
-        if (doBroadcast) {
+        if (shouldBroadcast(node, leftChildFragment.getPlanRoot(), rightChildFragment.getPlanRoot(),
+                            leftChildFragment.getNumNodes(), perNodeMemLimit)) {
             node.setDistributionMode(HashJoinNode.DistributionMode.BROADCAST);
             // Doesn't create a new fragment, but modifies leftChildFragment to execute
             // the join; the build input is provided by an ExchangeNode, which is the
@@ -393,10 +545,197 @@ public class DistributedPlanner {
         }
     }
 
+    /**
+     * Returns true if the hash join of 'lhsTree' executed by 'lhsNumNodes' nodes and 'rhsTree'
+     * should be a broadcast join rather than a partitioned join, see createHashJoinFragment().
+     */
+    private boolean shouldBroadcast(HashJoinNode node, PlanNode lhsTree, PlanNode rhsTree, int lhsNumNodes,
+                                    long perNodeMemLimit) {
+        // broadcast: send the rightChildFragment's output to each node executing
+        // the leftChildFragment; the cost across all nodes is proportional to the
+        // total amount of data sent
+        long rhsDataSize = 0;
+        long broadcastCost = 0;
+        if (rhsTree.getCardinality() != -1 && lhsNumNodes != -1) {
+            rhsDataSize = Math.round((double) rhsTree.getCardinality() * rhsTree.getAvgRowSize());
+            broadcastCost = rhsDataSize * lhsNumNodes;
+        }
+        LOG.info("broadcast: cost=" + Long.toString(broadcastCost));
+        LOG.info("card=" + Long.toString(rhsTree.getCardinality())
+                + " row_size=" + Float.toString(rhsTree.getAvgRowSize())
+                + " #nodes=" + Integer.toString(lhsNumNodes));
+
+        // repartition: both left- and rightChildFragment are partitioned on the
+        // join exprs
+        // TODO: take existing partition of input fragments into account to avoid
+        // unnecessary repartitioning
+        long partitionCost = 0;
+        if (lhsTree.getCardinality() != -1 && rhsTree.getCardinality() != -1) {
+            partitionCost = Math.round(
+                    (double) lhsTree.getCardinality() * lhsTree.getAvgRowSize() + (double) rhsTree
+                            .getCardinality() * rhsTree.getAvgRowSize());
+        }
+        LOG.info("partition: cost=" + Long.toString(partitionCost));
+        LOG.info(
+                "lhs card=" + Long.toString(lhsTree.getCardinality()) + " row_size=" + Float.toString(
+                        lhsTree.getAvgRowSize()));
+        LOG.info(
+                "rhs card=" + Long.toString(rhsTree.getCardinality()) + " row_size=" + Float.toString(
+                        rhsTree.getAvgRowSize()));
+        LOG.info(rhsTree.getExplainString());
+
+        // we do a broadcast join if
+        // - we're explicitly told to do so
+        // - or if it's cheaper and we weren't explicitly told to do a partitioned join
+        // - and we're not doing a full or right outer join (those require the left-hand
+        //   side to be partitioned for correctness)
+        // - and the expected size of the hash tbl doesn't exceed perNodeMemLimit
+        // we do a "<=" comparison of the costs so that we default to broadcast joins if
+        // we're unable to estimate the cost
+        if (node.getJoinOp() == JoinOperator.NULL_AWARE_LEFT_ANTI_JOIN) {
+            // every instance must see all the build rows, to know whether any of them is null.
+            // Partitioning on the eq join exprs would also separate build rows whose NOT IN
+            // value is null from the probe rows they exclude.
+            return true;
+        } else if (node.getJoinOp() != JoinOperator.RIGHT_OUTER_JOIN
+                && node.getJoinOp() != JoinOperator.FULL_OUTER_JOIN
+                && (perNodeMemLimit == 0 || Math.round(
+                (double) rhsDataSize * PlannerContext.HASH_TBL_SPACE_OVERHEAD) <= perNodeMemLimit)
+                && (node.getInnerRef().isBroadcastJoin() || (!node.getInnerRef().isPartitionJoin()
+                && broadcastCost <= partitionCost))) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
     /**
      * Modifies the leftChildFragment to execute a cross join. The right child input is provided by an ExchangeNode,
      * which is the destination of the rightChildFragment's output.
      */
+    /**
+     * Returns true if the hash join can be executed without exchanging data, that is
+     * - the rhs fragment only scans an olap table,
+     * - the leftmost node of the lhs fragment is an olap scan node,
+     * - both tables are in the same colocate group of the same database,
+     * - the eq join conjuncts contain all distribution columns of both tables,
+     * - and replicas of the same bucket of the scanned tables share at least one backend.
+     */
+    private boolean canColocateJoin(HashJoinNode node, PlanFragment leftChildFragment,
+                                    PlanFragment rightChildFragment) {
+        ConnectContext context = ctx_.getRootAnalyzer().getContext();
+        if (context != null && context.getSessionVariable().isDisableColocateJoin()) {
+            return false;
+        }
+
+        if (node.getJoinOp() == JoinOperator.NULL_AWARE_LEFT_ANTI_JOIN) {
+            return false;
+        }
+        if (!(rightChildFragment.getPlanRoot() instanceof OlapScanNode)) {
+            return false;
+        }
+        OlapScanNode rhsScan = (OlapScanNode) rightChildFragment.getPlanRoot();
+        PlanNode lhsNode = leftChildFragment.getPlanRoot();
+        while (!(lhsNode instanceof ExchangeNode) && !lhsNode.getChildren().isEmpty()) {
+            lhsNode = lhsNode.getChild(0);
+        }
+        if (!(lhsNode instanceof OlapScanNode) || lhsNode.getFragment() != leftChildFragment) {
+            return false;
+        }
+        OlapScanNode lhsScan = (OlapScanNode) lhsNode;
+
+        OlapTable lhsTable = lhsScan.getOlapTable();
+        OlapTable rhsTable = rhsScan.getOlapTable();
+        String colocateGroup = lhsTable.getColocateGroup();
+        if (colocateGroup == null || !colocateGroup.equals(rhsTable.getColocateGroup())) {
+            return false;
+        }
+        if (lhsScan.desc.getRef() == null || rhsScan.desc.getRef() == null
+                || !lhsScan.desc.getRef().getName().getDb().equals(rhsScan.desc.getRef().getName().getDb())) {
+            return false;
+        }
+
+        // every pair of distribution columns should be joined by an eq join conjunct
+        List<Column> lhsColumns =
+                ((HashDistributionInfo) lhsTable.getDefaultDistributionInfo()).getDistributionColumns();
+        List<Column> rhsColumns =
+                ((HashDistributionInfo) rhsTable.getDefaultDistributionInfo()).getDistributionColumns();
+        if (lhsColumns.size() != rhsColumns.size()) {
+            return false;
+        }
+        for (int i = 0; i < lhsColumns.size(); i++) {
+            boolean found = false;
+            for (Pair<Expr, Expr> pair : node.getEqJoinConjuncts()) {
+                if (isScanColumn(pair.first, lhsScan, lhsColumns.get(i))
+                        && isScanColumn(pair.second, rhsScan, rhsColumns.get(i))) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+
+        // check the backends of buckets of all scans executed in the fragment
+        List<OlapScanNode> scanNodes = Lists.newArrayList(rhsScan);
+        collectOlapScanNodes(leftChildFragment.getPlanRoot(), leftChildFragment, scanNodes);
+        return isBucketsOnSameBackend(scanNodes, colocateGroup);
+    }
+
+    /**
+     * Returns true if replicas of the same bucket of 'scanNodes' share at least one backend.
+     */
+    private boolean isBucketsOnSameBackend(List<OlapScanNode> scanNodes, String colocateGroup) {
+        Map<Integer, Set<Long>> bucketSeqToBackends = Maps.newHashMap();
+        for (OlapScanNode scanNode : scanNodes) {
+            for (TScanRangeLocations locations : scanNode.getScanRangeLocations(0)) {
+                int bucketSeq = scanNode.getBucketSeq(locations.getScan_range().getPalo_scan_range().getTablet_id());
+                if (bucketSeq < 0) {
+                    return false;
+                }
+                Set<Long> backendIds = Sets.newHashSet();
+                for (TScanRangeLocation location : locations.getLocations()) {
+                    backendIds.add(location.getBackend_id());
+                }
+                Set<Long> bucketBackendIds = bucketSeqToBackends.get(bucketSeq);
+                if (bucketBackendIds == null) {
+                    bucketSeqToBackends.put(bucketSeq, backendIds);
+                } else {
+                    bucketBackendIds.retainAll(backendIds);
+                    if (bucketBackendIds.isEmpty()) {
+                        LOG.info("replicas of bucket {} of colocate group {} are not on the same backend",
+                                 bucketSeq, colocateGroup);
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isScanColumn(Expr expr, OlapScanNode scanNode, Column column) {
+        if (!(expr instanceof SlotRef)) {
+            return false;
+        }
+        SlotDescriptor slotDesc = ((SlotRef) expr).getDesc();
+        return scanNode.getTupleIds().contains(slotDesc.getParent().getId())
+                && slotDesc.getColumn() != null
+                && slotDesc.getColumn().getName().equalsIgnoreCase(column.getName());
+    }
+
+    private void collectOlapScanNodes(PlanNode node, PlanFragment fragment, List<OlapScanNode> scanNodes) {
+        if (node.getFragment() != fragment) {
+            return;
+        }
+        if (node instanceof OlapScanNode) {
+            scanNodes.add((OlapScanNode) node);
+        }
+        for (PlanNode child : node.getChildren()) {
+            collectOlapScanNodes(child, fragment, scanNodes);
+        }
+    }
+
     private PlanFragment createCrossJoinFragment(
             CrossJoinNode node, PlanFragment rightChildFragment, PlanFragment leftChildFragment)
             throws InternalException {
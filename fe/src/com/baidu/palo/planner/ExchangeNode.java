@@ -74,16 +74,22 @@ public class ExchangeNode extends PlanNode {
         if (!copyConjuncts) {
             this.conjuncts = Lists.newArrayList();
         }
-        if (hasLimit()) {
-            cardinality = Math.min(limit, inputNode.cardinality);
-        } else {
-            cardinality = inputNode.cardinality;
-        }
+        computeCardinality();
         // Only apply the limit at the receiver if there are multiple senders.
         if (inputNode.getFragment().isPartitioned()) limit = inputNode.limit;
         computeTupleIds();
     }
 
+    // Set the cardinality to the one of the input node, called again when the stats of the
+    // input node change.
+    void computeCardinality() {
+        if (hasLimit()) {
+            cardinality = Math.min(limit, getChild(0).cardinality);
+        } else {
+            cardinality = getChild(0).cardinality;
+        }
+    }
+
     @Override
     public void computeTupleIds() {
         clearTupleIds();
@@ -36,13 +36,16 @@ public class ExportSink extends DataSink {
     private final String exportPath;
     private final String columnSeparator;
     private final String lineDelimiter;
+    // 0 means no limit
+    private final long maxFileSize;
     private BrokerDesc brokerDesc;
 
     public ExportSink(String exportPath, String columnSeparator,
-                      String lineDelimiter, BrokerDesc brokerDesc) {
+                      String lineDelimiter, long maxFileSize, BrokerDesc brokerDesc) {
         this.exportPath = exportPath;
         this.columnSeparator = columnSeparator;
         this.lineDelimiter = lineDelimiter;
+        this.maxFileSize = maxFileSize;
         this.brokerDesc = brokerDesc;
     }
 
@@ -55,6 +58,9 @@ public class ExportSink extends DataSink {
                 + StringEscapeUtils.escapeJava(columnSeparator) + "\n");
         sb.append(prefix + "  lineDelimiter="
                 + StringEscapeUtils.escapeJava(lineDelimiter) + "\n");
+        if (maxFileSize > 0) {
+            sb.append(prefix + "  maxFileSize=" + maxFileSize + "\n");
+        }
         sb.append(prefix + "  broker_name=" + brokerDesc.getName() + " property("
                 + new PrintableMap<String, String>(
                         brokerDesc.getProperties(), "=", true, false)
@@ -73,6 +79,9 @@ public class ExportSink extends DataSink {
             tExportSink.addToBroker_addresses(new TNetworkAddress(brokerAddress.ip, brokerAddress.port));
         }
         tExportSink.setProperties(brokerDesc.getProperties());
+        if (maxFileSize > 0) {
+            tExportSink.setMax_file_size(maxFileSize);
+        }
 
         result.setExport_sink(tExportSink);
         return result;
@@ -29,6 +29,8 @@ import com.baidu.palo.analysis.SlotId;
 import com.baidu.palo.analysis.SlotRef;
 import com.baidu.palo.analysis.TableRef;
 import com.baidu.palo.catalog.ColumnStats;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Table;
 import com.baidu.palo.common.Pair;
 import com.baidu.palo.common.InternalException;
 
@@ -60,6 +62,9 @@ public class HashJoinNode extends PlanNode {
     // join conjuncts from the JOIN clause that aren't equi-join predicates
     private  List<Expr> otherJoinConjuncts;
     private boolean isPushDown;
+    // filters generated by this node, which are applied by scan nodes on the probe side
+    private List<RuntimeFilter> runtimeFilters = Lists.newArrayList();
+    private long runtimeFilterMaxInNum;
     private DistributionMode distrMode;
 
     public HashJoinNode(PlanNodeId id, PlanNode outer, PlanNode inner, TableRef innerRef,
@@ -114,6 +119,18 @@ public class HashJoinNode extends PlanNode {
         this.distrMode = distrMode;
     }
 
+    public List<RuntimeFilter> getRuntimeFilters() {
+        return runtimeFilters;
+    }
+
+    public void addRuntimeFilter(RuntimeFilter filter) {
+        runtimeFilters.add(filter);
+    }
+
+    public void setRuntimeFilterMaxInNum(long runtimeFilterMaxInNum) {
+        this.runtimeFilterMaxInNum = runtimeFilterMaxInNum;
+    }
+
     @Override
     public void init(Analyzer analyzer) throws InternalException {
         assignConjuncts(analyzer);
@@ -182,21 +199,21 @@ public class HashJoinNode extends PlanNode {
                 continue;
             }
             long numDistinct = stats.getNumDistinctValues();
-            // TODO rownum
-            //Table rhsTbl = slotDesc.getParent().getTableFamilyGroup().getBaseTable();
-            // if (rhsTbl != null && rhsTbl.getNumRows() != -1) {
+            Table rhsTbl = slotDesc.getParent().getTable();
+            if (rhsTbl instanceof OlapTable) {
                 // we can't have more distinct values than rows in the table, even though
-                // the metastore stats may think so
-                // LOG.info(
-                //   "#distinct=" + numDistinct + " #rows=" + Long.toString(rhsTbl.getNumRows()));
-                // numDistinct = Math.min(numDistinct, rhsTbl.getNumRows());
-            // }
+                // the collected stats may think so, because ndv is approximate
+                long rhsRowCount = ((OlapTable) rhsTbl).getEstimatedRowCount();
+                if (rhsRowCount > 0) {
+                    numDistinct = Math.min(numDistinct, rhsRowCount);
+                }
+            }
             maxNumDistinct = Math.max(maxNumDistinct, numDistinct);
             LOG.info(
               "min slotref=" + rhsSlotRef.toSql() + " #distinct=" + Long.toString(numDistinct));
         }
 
-        if (maxNumDistinct == 0) {
+        if (maxNumDistinct == 0 || getChild(0).cardinality == -1 || getChild(1).cardinality == -1) {
             // if we didn't find any suitable join predicates or don't have stats
             // on the relevant columns, we very optimistically assume we're doing an
             // FK/PK join (which doesn't alter the cardinality of the left-hand side)
@@ -258,6 +275,12 @@ public class HashJoinNode extends PlanNode {
             msg.hash_join_node.addToOther_join_conjuncts(e.treeToThrift());
         }
         msg.hash_join_node.setIs_push_down(isPushDown);
+        if (!runtimeFilters.isEmpty()) {
+            for (RuntimeFilter filter : runtimeFilters) {
+                msg.hash_join_node.addToRuntime_filters(filter.toThrift());
+            }
+            msg.hash_join_node.setRuntime_filter_max_in_num(runtimeFilterMaxInNum);
+        }
     }
 
     @Override
@@ -280,6 +303,12 @@ public class HashJoinNode extends PlanNode {
             output.append(detailPrefix + "other predicates: ").append(
               getExplainString(conjuncts) + "\n");
         }
+        if (!runtimeFilters.isEmpty()) {
+            output.append(detailPrefix + "runtime filters:\n");
+            for (RuntimeFilter filter : runtimeFilters) {
+                output.append(detailPrefix + "  " + filter.getSrcExplainString() + "\n");
+            }
+        }
         return output.toString();
     }
 
@@ -291,7 +320,8 @@ public class HashJoinNode extends PlanNode {
     enum DistributionMode {
         NONE("NONE"),
         BROADCAST("BROADCAST"),
-        PARTITIONED("PARTITIONED");
+        PARTITIONED("PARTITIONED"),
+        COLOCATE("COLOCATE");
 
         private final String description;
 
@@ -25,6 +25,7 @@ import com.baidu.palo.analysis.Expr;
 import com.baidu.palo.analysis.InPredicate;
 import com.baidu.palo.analysis.SlotDescriptor;
 import com.baidu.palo.analysis.TupleDescriptor;
+import com.baidu.palo.catalog.AggregateType;
 import com.baidu.palo.catalog.Catalog;
 import com.baidu.palo.catalog.Column;
 import com.baidu.palo.catalog.DistributionInfo;
@@ -39,9 +40,11 @@ import com.baidu.palo.catalog.RangePartitionInfo;
 import com.baidu.palo.catalog.Replica;
 import com.baidu.palo.catalog.Tablet;
 import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.ErrorCode;
 import com.baidu.palo.common.ErrorReport;
 import com.baidu.palo.common.InternalException;
+import com.baidu.palo.common.Pair;
 import com.baidu.palo.system.Backend;
 import com.baidu.palo.thrift.TExplainLevel;
 import com.baidu.palo.thrift.TNetworkAddress;
@@ -60,6 +63,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -71,6 +75,7 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Full scan of an Olap table.
@@ -90,6 +95,24 @@ public class OlapScanNode extends ScanNode {
     private long totalTabletsNum = 0;
     private long selectedIndexId = -1;
     private int selectedPartitionNum = 0;
+    // estimated row count of the selected tablets, set after finalize
+    private long selectedRowCount = 0;
+    // partition id -> (committed version, committed version hash) of selected partitions
+    private Map<Long, Pair<Long, Long>> selectedPartitionVersions = Maps.newLinkedHashMap();
+    // sorted ids of all partitions of the table when planning, set after finalize
+    private List<Long> tablePartitionIds = Lists.newArrayList();
+    // tablet id -> bucket seq of selected tablets, only set if table is in a colocate group
+    private Map<Long, Integer> tabletIdToBucketSeq = Maps.newHashMap();
+    // runtime filters applied by this node, which are generated by hash join nodes
+    private List<RuntimeFilter> runtimeFilters = Lists.newArrayList();
+    // tablet id -> estimated bytes to scan of selected tablets, based on data sizes reported by backends
+    private Map<Long, Long> tabletIdToDataSize = Maps.newHashMap();
+    // estimated bytes to scan of selected tablets
+    private long selectedDataSize = 0;
+    // index id -> why the index is not selected, shown in explain
+    private Map<Long, String> rollupRejectReasons = Maps.newLinkedHashMap();
+    // conjuncts used to build column filters, only set if they have parameters of prepared statement
+    private List<Expr> paramConjuncts = null;
 
     boolean isFinalized = false;
 
@@ -118,6 +141,48 @@ public class OlapScanNode extends ScanNode {
         this.canTurnOnPreAggr = canChangePreAggr;
     }
 
+    public OlapTable getOlapTable() {
+        return olapTable;
+    }
+
+    public long getSelectedIndexId() {
+        return selectedIndexId;
+    }
+
+    public void setParamConjuncts(List<Expr> paramConjuncts) {
+        this.paramConjuncts = paramConjuncts;
+    }
+
+    public void addRuntimeFilter(RuntimeFilter filter) {
+        runtimeFilters.add(filter);
+    }
+
+    // return bucket seq of selected tablet, or -1 if table is not in a colocate group
+    public int getBucketSeq(long tabletId) {
+        Integer bucketSeq = tabletIdToBucketSeq.get(tabletId);
+        return bucketSeq == null ? -1 : bucketSeq;
+    }
+
+    // estimated bytes to scan of selected tablet, or 0 if it is unknown
+    public long getTabletDataSize(long tabletId) {
+        Long dataSize = tabletIdToDataSize.get(tabletId);
+        return dataSize == null ? 0 : dataSize;
+    }
+
+    public long getSelectedDataSize() {
+        return selectedDataSize;
+    }
+
+    // versions of partitions read by this node, set after finalize
+    public Map<Long, Pair<Long, Long>> getSelectedPartitionVersions() {
+        return selectedPartitionVersions;
+    }
+
+    // Partitions of the table, including the pruned ones. Set after finalize
+    public List<Long> getTablePartitionIds() {
+        return tablePartitionIds;
+    }
+
     @Override
     protected String debugString() {
         ToStringHelper helper = Objects.toStringHelper(this);
@@ -140,6 +205,78 @@ public class OlapScanNode extends ScanNode {
         }
 
         isFinalized = true;
+        computeStats(analyzer);
+    }
+
+    /**
+     * Select partitions, tablets and replicas again when the plan of a prepared statement is
+     * executed again, because the values of parameters may prune other partitions and tablets,
+     * and the versions and replicas of tablets may have changed.
+     */
+    public void refreshScanRanges(Analyzer analyzer) throws InternalException {
+        Preconditions.checkState(isFinalized);
+        if (paramConjuncts != null) {
+            Map<String, PartitionColumnFilter> filters = Maps.newHashMap();
+            for (SlotDescriptor slot : desc.getSlots()) {
+                if (slot.getColumn() == null) {
+                    continue;
+                }
+                PartitionColumnFilter filter = SingleNodePlanner.createPartitionFilter(slot, paramConjuncts);
+                if (filter != null) {
+                    filters.put(slot.getColumn().getName(), filter);
+                }
+            }
+            columnFilters = filters;
+        }
+
+        result.clear();
+        tupleColumns.clear();
+        predicateColumns.clear();
+        inPredicateColumns.clear();
+        eqJoinColumns.clear();
+        selectedPartitionVersions.clear();
+        tabletIdToBucketSeq.clear();
+        tabletIdToDataSize.clear();
+        rollupRejectReasons.clear();
+        selectedTabletsNum = 0;
+        totalTabletsNum = 0;
+        selectedRowCount = 0;
+        selectedDataSize = 0;
+        try {
+            getScanRangeLocations(analyzer);
+        } catch (AnalysisException e) {
+            throw new InternalException(e.getMessage());
+        }
+        computeStats(analyzer);
+    }
+
+    @Override
+    protected void computeStats(Analyzer analyzer) {
+        super.computeStats(analyzer);
+
+        // before finalize, partitions and tablets are not pruned yet
+        long rowCount = isFinalized ? selectedRowCount : olapTable.getEstimatedRowCount();
+        if (isFinalized && rowCount == 0 && !result.isEmpty()) {
+            // row count is not reported by backends yet
+            long analyzedRowCount = olapTable.getAnalyzedRowCount();
+            if (analyzedRowCount > 0 && totalTabletsNum > 0) {
+                rowCount = analyzedRowCount * selectedTabletsNum / totalTabletsNum;
+            }
+        }
+        cardinality = rowCount < 0 ? -1 : Math.round(rowCount * computeSelectivity());
+
+        if (isFinalized) {
+            Set<Long> backendIds = Sets.newHashSet();
+            for (TScanRangeLocations locations : result) {
+                for (TScanRangeLocation location : locations.getLocations()) {
+                    backendIds.add(location.getBackend_id());
+                }
+            }
+            numNodes = Math.max(1, backendIds.size());
+        } else {
+            numNodes = Math.max(1, Catalog.getCurrentSystemInfo().getBackendIds(true).size());
+        }
+        LOG.debug("stats OlapScan: cardinality={}, numNodes={}", cardinality, numNodes);
     }
 
     // private void analyzeVectorizedConjuncts(Analyzer analyzer) throws InternalException {
@@ -181,17 +318,48 @@ public class OlapScanNode extends ScanNode {
                 indexColumns.add(col.getName());
             }
 
-            if (indexColumns.containsAll(tupleColumns)) {
-                // If preAggregation is off, so that we only can use base table
-                // or those rollup tables whose key columns is the same with base table
-                // (often in different order)
-                if (isPreAggregation) {
-                    containTupleIndices.add(index);
-                } else if (olapTable.getKeyColumnsByIndexId(index.getId()).size() == baseIndexKeyColumns.size()) {
+            if (!indexColumns.containsAll(tupleColumns)) {
+                List<String> missingColumns = Lists.newArrayList();
+                for (String column : tupleColumns) {
+                    if (!indexColumns.contains(column)) {
+                        missingColumns.add(column);
+                    }
+                }
+                rejectRollup(index.getId(), "missing columns " + missingColumns);
+                continue;
+            }
+
+            boolean hasSameKeys =
+                    olapTable.getKeyColumnsByIndexId(index.getId()).size() == baseIndexKeyColumns.size();
+            // If preAggregation is off, so that we only can use base table
+            // or those rollup tables whose key columns is the same with base table
+            // (often in different order)
+            if (!isPreAggregation) {
+                if (hasSameKeys) {
                     LOG.debug("preAggregation is off, but index id (" + index.getId()
                             + ") have same key columns with base index.");
                     containTupleIndices.add(index);
+                } else {
+                    rejectRollup(index.getId(), "pre-aggregation is off and key columns differ from base index");
                 }
+                continue;
+            }
+
+            // Rows merged by fewer keys keep an arbitrary value of REPLACE columns,
+            // which is not the one of the latest load.
+            String replaceColumn = null;
+            if (!hasSameKeys) {
+                for (Column col : olapTable.getSchemaByIndexId(index.getId())) {
+                    if (col.getAggregationType() == AggregateType.REPLACE && tupleColumns.contains(col.getName())) {
+                        replaceColumn = col.getName();
+                        break;
+                    }
+                }
+            }
+            if (replaceColumn != null) {
+                rejectRollup(index.getId(), "REPLACE column " + replaceColumn + " is aggregated by fewer keys");
+            } else {
+                containTupleIndices.add(index);
             }
         }
 
@@ -200,12 +368,11 @@ public class OlapScanNode extends ScanNode {
         }
 
         // 4.2 find table match index
-        ArrayList<MaterializedIndex> predicateIndexMatchIndices = new ArrayList<MaterializedIndex>();
-        int maxIndexMatchCount = 0;
-        int indexMatchCount = 0;
+        Map<Long, Integer> predicateMatchCounts = Maps.newHashMap();
+        int maxPredicateMatchCount = 0;
         for (MaterializedIndex index : containTupleIndices) {
             LOG.debug("containTupleIndex: " + index.getId());
-            indexMatchCount = 0;
+            int indexMatchCount = 0;
             for (Column col : olapTable.getSchemaByIndexId(index.getId())) {
                 if (sortColumn != null) {
                     if (inPredicateColumns.contains(col.getName())) {
@@ -222,20 +389,24 @@ public class OlapScanNode extends ScanNode {
                     }
                 }
             }
-            if (indexMatchCount == maxIndexMatchCount) {
-                predicateIndexMatchIndices.add(index);
-            } else if (indexMatchCount > maxIndexMatchCount) {
-                maxIndexMatchCount = indexMatchCount;
-                predicateIndexMatchIndices.clear();
+            predicateMatchCounts.put(index.getId(), indexMatchCount);
+            maxPredicateMatchCount = Math.max(maxPredicateMatchCount, indexMatchCount);
+        }
+        ArrayList<MaterializedIndex> predicateIndexMatchIndices = new ArrayList<MaterializedIndex>();
+        for (MaterializedIndex index : containTupleIndices) {
+            int indexMatchCount = predicateMatchCounts.get(index.getId());
+            if (indexMatchCount == maxPredicateMatchCount) {
                 predicateIndexMatchIndices.add(index);
+            } else {
+                rejectRollup(index.getId(), String.format("key prefix matches %d sort columns, another matches %d",
+                                                          indexMatchCount, maxPredicateMatchCount));
             }
         }
 
-        ArrayList<MaterializedIndex> eqJoinIndexMatchIndices = new ArrayList<MaterializedIndex>();
-        maxIndexMatchCount = 0;
-        indexMatchCount = 0;
-        for (MaterializedIndex index : containTupleIndices) {
-            indexMatchCount = 0;
+        Map<Long, Integer> eqJoinMatchCounts = Maps.newHashMap();
+        int maxEqJoinMatchCount = 0;
+        for (MaterializedIndex index : predicateIndexMatchIndices) {
+            int indexMatchCount = 0;
             for (Column col : olapTable.getSchemaByIndexId(index.getId())) {
                 if (eqJoinColumns.contains(col.getName()) || predicateColumns.contains(col.getName())) {
                     indexMatchCount++;
@@ -243,44 +414,57 @@ public class OlapScanNode extends ScanNode {
                     break;
                 }
             }
-            if (indexMatchCount == maxIndexMatchCount) {
-                eqJoinIndexMatchIndices.add(index);
-            } else if (indexMatchCount > maxIndexMatchCount) {
-                maxIndexMatchCount = indexMatchCount;
-                eqJoinIndexMatchIndices.clear();
-                eqJoinIndexMatchIndices.add(index);
-            }
+            eqJoinMatchCounts.put(index.getId(), indexMatchCount);
+            maxEqJoinMatchCount = Math.max(maxEqJoinMatchCount, indexMatchCount);
         }
-
         ArrayList<MaterializedIndex> indexMatchIndices = new ArrayList<MaterializedIndex>();
         for (MaterializedIndex index : predicateIndexMatchIndices) {
             LOG.debug("predicateIndexMatchIndex: " + index.getId());
-            for (MaterializedIndex oneIndex : eqJoinIndexMatchIndices) {
-                if (oneIndex.getId() == index.getId()) {
-                    indexMatchIndices.add(index);
-                    LOG.debug("Add indexMatchId: " + index.getId());
-                }
+            int indexMatchCount = eqJoinMatchCounts.get(index.getId());
+            if (indexMatchCount == maxEqJoinMatchCount) {
+                indexMatchIndices.add(index);
+                LOG.debug("Add indexMatchId: " + index.getId());
+            } else {
+                rejectRollup(index.getId(), String.format(
+                        "key prefix matches %d predicate and join columns, another matches %d",
+                        indexMatchCount, maxEqJoinMatchCount));
             }
         }
 
-        if (indexMatchIndices.isEmpty()) {
-            indexMatchIndices = predicateIndexMatchIndices;
-        }
-
         // 4.3 return all the candidate index
-        List<MaterializedIndex> selectedIndex = new ArrayList<MaterializedIndex>();
-        for (MaterializedIndex table : indexMatchIndices) {
-            selectedIndex.add(table);
-        }
-
-        Collections.sort(selectedIndex, new Comparator<MaterializedIndex>() {
+        Collections.sort(indexMatchIndices, new Comparator<MaterializedIndex>() {
             @Override
             public int compare(MaterializedIndex index1, MaterializedIndex index2)
             {
-                return (int) (index1.getId() - index2.getId());
+                return Long.compare(index1.getId(), index2.getId());
             }
         });
-        return selectedIndex;
+        return indexMatchIndices;
+    }
+
+    private void rejectRollup(long indexId, String reason) {
+        LOG.debug("reject index {}: {}", indexId, reason);
+        if (!rollupRejectReasons.containsKey(indexId)) {
+            rollupRejectReasons.put(indexId, reason);
+        }
+    }
+
+    /**
+     * Estimated bytes read from 'dataSize' bytes of the index, assuming that the size of
+     * every column is proportional to its index size.
+     */
+    private long estimateScanBytes(long indexId, long dataSize) {
+        long tupleWidth = 0;
+        long indexWidth = 0;
+        for (Column col : olapTable.getSchemaByIndexId(indexId)) {
+            int width = Math.max(1, col.getOlapColumnIndexSize());
+            indexWidth += width;
+            // key columns are read for merging rows if pre-aggregation is off
+            if (tupleColumns.contains(col.getName()) || (!isPreAggregation && col.isKey())) {
+                tupleWidth += width;
+            }
+        }
+        return (long) ((double) dataSize * Math.max(1, tupleWidth) / Math.max(1, indexWidth));
     }
 
     private void normalizePredicate(Analyzer analyzer) throws InternalException {
@@ -331,9 +515,8 @@ public class OlapScanNode extends ScanNode {
             case RANGE: {
                 BaseTableRef ref = (BaseTableRef) desc.getRef();
                 RangePartitionInfo rangePartitionInfo = (RangePartitionInfo) partitionInfo;
-                Map<Long, Range<PartitionKey>> keyRangeById = null;
                 if (ref.getPartitions() != null) {
-                    keyRangeById = Maps.newHashMap();
+                    Map<Long, Range<PartitionKey>> keyRangeById = Maps.newHashMap();
                     for (String partName : ref.getPartitions()) {
                         Partition part = olapTable.getPartition(partName);
                         if (part == null) {
@@ -341,12 +524,15 @@ public class OlapScanNode extends ScanNode {
                         }
                         keyRangeById.put(part.getId(), rangePartitionInfo.getRange(part.getId()));
                     }
+                    partitionPruner = new RangePartitionPruner(keyRangeById,
+                                                               rangePartitionInfo.getPartitionColumns(),
+                                                               columnFilters);
                 } else {
-                    keyRangeById = rangePartitionInfo.getIdToRange();
+                    // use the range index kept by partition info, instead of building it for every query
+                    partitionPruner = new RangePartitionPruner(rangePartitionInfo.getRangeIndex(),
+                                                               rangePartitionInfo.getPartitionColumns(),
+                                                               columnFilters);
                 }
-                partitionPruner = new RangePartitionPruner(keyRangeById,
-                                                           rangePartitionInfo.getPartitionColumns(),
-                                                           columnFilters);
                 return partitionPruner.prune();
             }
             case UNPARTITIONED: {
@@ -385,62 +571,100 @@ public class OlapScanNode extends ScanNode {
                                        List<Tablet> tablets)
             throws InternalException, AnalysisException {
         int logNum = 0;
-        String schemaHashStr = String.valueOf(olapTable.getSchemaHashByIndexId(index.getId()));
+        int schemaHash = olapTable.getSchemaHashByIndexId(index.getId());
         long committedVersion = partition.getCommittedVersion();
         long committedVersionHash = partition.getCommittedVersionHash();
-        String committedVersionStr = String.valueOf(committedVersion);
-        String committedVersionHashStr = String.valueOf(partition.getCommittedVersionHash());
+        selectedPartitionVersions.put(partition.getId(), Pair.create(committedVersion, committedVersionHash));
+        OlapScanRangeCache.IndexLocations cachedLocations = null;
+        if (Config.scan_range_cache_size > 0) {
+            cachedLocations = OlapScanRangeCache.getInstance().get(partition, index, schemaHash);
+        }
+        boolean isColocate = olapTable.getColocateGroup() != null;
         for (Tablet tablet : tablets) {
             long tabletId = tablet.getId();
             LOG.debug("{} tabletId={}", (logNum++), tabletId);
-            TScanRangeLocations scanRangeLocations = new TScanRangeLocations();
-
-            TPaloScanRange paloRange = new TPaloScanRange();
-            paloRange.setDb_name("");
-            paloRange.setSchema_hash(schemaHashStr);
-            paloRange.setVersion(committedVersionStr);
-            paloRange.setVersion_hash(committedVersionHashStr);
-            paloRange.setTablet_id(tabletId);
-
-            // random shuffle List && only collect one copy
-            List<Replica> replicas =
-                    Lists.newArrayList(tablet.getQueryableReplicas(committedVersion, committedVersionHash));
-            if (replicas.isEmpty()) {
-                LOG.error("no queryable replica found in tablet[{}]. committed version[{}], committed version hash[{}]",
-                         tabletId, committedVersion, committedVersionHash);
-                throw new InternalException("Failed to get scan range, no replica!");
-            }
-
-            Collections.shuffle(replicas);
-            boolean tabletIsNull = true;
-            for (Replica replica : replicas) {
-                Backend backend = Catalog.getCurrentSystemInfo().getBackend(replica.getBackendId());
-                if (backend == null) {
-                    LOG.debug("replica {} not exists", replica.getBackendId());
-                    continue;
-                }
-                String ip = backend.getHost();
-                int port = backend.getBePort();
-                TScanRangeLocation scanRangeLocation = new TScanRangeLocation(new TNetworkAddress(ip, port));
-                scanRangeLocation.setBackend_id(replica.getBackendId());
-                scanRangeLocations.addToLocations(scanRangeLocation);
-                paloRange.addToHosts(new TNetworkAddress(ip, port));
-                tabletIsNull = false;
+            if (isColocate) {
+                tabletIdToBucketSeq.put(tabletId, index.getTabletBucketSeq(tabletId));
             }
-            if (tabletIsNull) {
-                throw new InternalException(tabletId + "have no alive replicas");
+            long dataSize = estimateScanBytes(index.getId(), tablet.getDataSize());
+            tabletIdToDataSize.put(tabletId, dataSize);
+            selectedDataSize += dataSize;
+            if (cachedLocations != null) {
+                result.add(cachedLocations.getLocations(tablet));
+            } else {
+                result.add(createScanRangeLocations(tablet, schemaHash, committedVersion, committedVersionHash,
+                                                    Catalog.getCurrentSystemInfo().getIdToBackend()));
             }
-            TScanRange scanRange = new TScanRange();
-            scanRange.setPalo_scan_range(paloRange);
-            scanRangeLocations.setScan_range(scanRange);
-            result.add(scanRangeLocations);
         }
     }
 
+    /**
+     * Create scan range locations of the queryable replicas of 'tablet'.
+     * Locations are ordered by backend id and rotated by tablet id, instead of shuffled, so that the
+     * result can be cached, and coordinator, which assigns a tablet to the first least loaded
+     * location, still spreads tablets with the same replica backends among these backends.
+     */
+    static TScanRangeLocations createScanRangeLocations(Tablet tablet, int schemaHash,
+                                                        long committedVersion, long committedVersionHash,
+                                                        Map<Long, Backend> idToBackend)
+            throws InternalException {
+        long tabletId = tablet.getId();
+        TPaloScanRange paloRange = new TPaloScanRange();
+        paloRange.setDb_name("");
+        paloRange.setSchema_hash(String.valueOf(schemaHash));
+        paloRange.setVersion(String.valueOf(committedVersion));
+        paloRange.setVersion_hash(String.valueOf(committedVersionHash));
+        paloRange.setTablet_id(tabletId);
+
+        List<Replica> replicas =
+                Lists.newArrayList(tablet.getQueryableReplicas(committedVersion, committedVersionHash));
+        if (replicas.isEmpty()) {
+            LOG.error("no queryable replica found in tablet[{}]. committed version[{}], committed version hash[{}]",
+                     tabletId, committedVersion, committedVersionHash);
+            throw new InternalException("Failed to get scan range, no replica!");
+        }
+        Collections.sort(replicas, new Comparator<Replica>() {
+            @Override
+            public int compare(Replica replica1, Replica replica2) {
+                return Long.compare(replica1.getBackendId(), replica2.getBackendId());
+            }
+        });
+        Collections.rotate(replicas, (int) (tabletId % replicas.size()));
+
+        TScanRangeLocations scanRangeLocations = new TScanRangeLocations();
+        boolean tabletIsNull = true;
+        for (Replica replica : replicas) {
+            Backend backend = idToBackend.get(replica.getBackendId());
+            if (backend == null) {
+                LOG.debug("replica {} not exists", replica.getBackendId());
+                continue;
+            }
+            String ip = backend.getHost();
+            int port = backend.getBePort();
+            TScanRangeLocation scanRangeLocation = new TScanRangeLocation(new TNetworkAddress(ip, port));
+            scanRangeLocation.setBackend_id(replica.getBackendId());
+            scanRangeLocations.addToLocations(scanRangeLocation);
+            paloRange.addToHosts(new TNetworkAddress(ip, port));
+            tabletIsNull = false;
+        }
+        if (tabletIsNull) {
+            throw new InternalException(tabletId + "have no alive replicas");
+        }
+        TScanRange scanRange = new TScanRange();
+        scanRange.setPalo_scan_range(paloRange);
+        scanRangeLocations.setScan_range(scanRange);
+        return scanRangeLocations;
+    }
+
     private void getScanRangeLocations(Analyzer analyzer) throws InternalException, AnalysisException {
         normalizePredicate(analyzer);
 
         long start = System.currentTimeMillis();
+        tablePartitionIds = Lists.newArrayList();
+        for (Partition partition : olapTable.getPartitions()) {
+            tablePartitionIds.add(partition.getId());
+        }
+        Collections.sort(tablePartitionIds);
         Collection<Long> partitionIds = partitionPrune(olapTable.getPartitionInfo());
 
         if (partitionIds == null) {
@@ -472,12 +696,14 @@ public class OlapScanNode extends ScanNode {
             tables.add(candidateTables);
         }
 
-        // chose one rollup from candidate rollups
-        long minRowCount = Long.MAX_VALUE;
-        int partitionPos = -1;
+        // chose one rollup from candidate rollups, which has the lowest cost.
+        // The cost is the estimated bytes to scan if data sizes of all candidates have been reported,
+        // otherwise it is the row count.
+        long[] rowCounts = new long[candidateTableSize];
+        long[] dataSizes = new long[candidateTableSize];
+        boolean useDataSize = true;
         for (int i = 0; i < candidateTableSize; i++) {
             MaterializedIndex candidateIndex = null;
-            long rowCount = 0;
             for (List<MaterializedIndex> candidateTables : tables) {
                 if (candidateIndex == null) {
                     candidateIndex = candidateTables.get(i);
@@ -488,14 +714,26 @@ public class OlapScanNode extends ScanNode {
                         throw new AnalysisException(errMsg);
                     }
                 }
-                rowCount += candidateTables.get(i).getRowCount();
+                rowCounts[i] += candidateTables.get(i).getRowCount();
+                dataSizes[i] += candidateTables.get(i).getDataSize();
+            }
+            LOG.debug("rowCount={} dataSize={} for table={}", rowCounts[i], dataSizes[i], candidateIndex.getId());
+            if (dataSizes[i] <= 0) {
+                useDataSize = false;
             }
-            LOG.debug("rowCount={} for table={}", rowCount, candidateIndex.getId());
-            if (rowCount < minRowCount) {
-                minRowCount = rowCount;
-                selectedIndexId = tables.get(0).get(i).getId();
+        }
+
+        long[] costs = new long[candidateTableSize];
+        long minCost = Long.MAX_VALUE;
+        int partitionPos = -1;
+        for (int i = 0; i < candidateTableSize; i++) {
+            long indexId = tables.get(0).get(i).getId();
+            costs[i] = useDataSize ? estimateScanBytes(indexId, dataSizes[i]) : rowCounts[i];
+            if (costs[i] < minCost) {
+                minCost = costs[i];
+                selectedIndexId = indexId;
                 partitionPos = i;
-            } else if (rowCount == minRowCount) {
+            } else if (costs[i] == minCost) {
                 // check column number, select one mimumum column number
                 int selectedColumnSize = olapTable.getIndexIdToSchema().get(selectedIndexId).size();
                 int currColumnSize = olapTable.getIndexIdToSchema().get(tables.get(0).get(i).getId()).size();
@@ -505,6 +743,12 @@ public class OlapScanNode extends ScanNode {
                 }
             }
         }
+        for (int i = 0; i < candidateTableSize; i++) {
+            if (i != partitionPos) {
+                rejectRollup(tables.get(0).get(i).getId(), String.format("%s %d, selected index has %d",
+                        useDataSize ? "estimated scan bytes" : "row count", costs[i], minCost));
+            }
+        }
 
         MaterializedIndex selectedTable = null;
         int j = 0;
@@ -524,6 +768,9 @@ public class OlapScanNode extends ScanNode {
             }
             totalTabletsNum += selectedTable.getTablets().size();
             selectedTabletsNum += tablets.size();
+            if (!selectedTable.getTablets().isEmpty()) {
+                selectedRowCount += selectedTable.getRowCount() * tablets.size() / selectedTable.getTablets().size();
+            }
             addScanRangeLocations(partition, selectedTable, tablets);
         }
         LOG.debug("distribution prune cost: {} ms", (System.currentTimeMillis() - start));
@@ -558,6 +805,9 @@ public class OlapScanNode extends ScanNode {
             output.append(prefix).append("PREDICATES: ").append(
                     getExplainString(conjuncts)).append("\n");
         }
+        for (RuntimeFilter filter : runtimeFilters) {
+            output.append(prefix).append("RUNTIME FILTER: ").append(filter.getTargetExplainString()).append("\n");
+        }
 
         output.append(prefix).append(String.format(
                     "partitions=%s/%s",
@@ -566,6 +816,12 @@ public class OlapScanNode extends ScanNode {
 
         String indexName = olapTable.getIndexNameById(selectedIndexId);
         output.append("\n").append(prefix).append(String.format("rollup: %s", indexName));
+        if (detailLevel.equals(TExplainLevel.VERBOSE)) {
+            for (Map.Entry<Long, String> entry : rollupRejectReasons.entrySet()) {
+                output.append("\n").append(prefix).append(String.format("rejected rollup: %s, %s",
+                        olapTable.getIndexNameById(entry.getKey()), entry.getValue()));
+            }
+        }
 
 
         output.append("\n");
@@ -573,6 +829,8 @@ public class OlapScanNode extends ScanNode {
         output.append(prefix).append(String.format(
                     "buckets=%s/%s", selectedTabletsNum, totalTabletsNum));
         output.append("\n");
+        output.append(prefix).append(String.format("estimatedScanBytes=%s", selectedDataSize));
+        output.append("\n");
 
         return output.toString();
     }
@@ -0,0 +1,179 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package com.baidu.palo.planner;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.Replica.ReplicaState;
+import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.InternalException;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.common.util.Metrics;
+import com.baidu.palo.system.Backend;
+import com.baidu.palo.thrift.TScanRangeLocations;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import io.dropwizard.metrics.Counter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * LRU cache of scan range locations of tablets, keyed by (partition id, index id).
+ * Locations of an index are dropped when the committed version of the partition, the schema hash of the index
+ * or the set of backends changes. Locations of a tablet are rebuilt when its replicas change, which is checked
+ * without creating any object.
+ * Cached locations are shared by queries, so they must not be modified.
+ */
+public class OlapScanRangeCache {
+    private static final String HIT_COUNTER_NAME = "scan_range_cache.hit_count";
+    private static final String MISS_COUNTER_NAME = "scan_range_cache.miss_count";
+
+    private static final OlapScanRangeCache INSTANCE = new OlapScanRangeCache();
+
+    private LinkedHashMap<Pair<Long, Long>, IndexLocations> indexLocations;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    public static OlapScanRangeCache getInstance() {
+        return INSTANCE;
+    }
+
+    private OlapScanRangeCache() {
+        indexLocations = new LinkedHashMap<Pair<Long, Long>, IndexLocations>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Pair<Long, Long>, IndexLocations> eldest) {
+                return size() > Config.scan_range_cache_size;
+            }
+        };
+        hitCounter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER, HIT_COUNTER_NAME);
+        missCounter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER, MISS_COUNTER_NAME);
+    }
+
+    // Return the cached locations of 'index' in 'partition'. Caller should hold the db read lock.
+    public IndexLocations get(Partition partition, MaterializedIndex index, int schemaHash) {
+        Pair<Long, Long> key = Pair.create(partition.getId(), index.getId());
+        ImmutableMap<Long, Backend> idToBackend = Catalog.getCurrentSystemInfo().getIdToBackend();
+        synchronized (this) {
+            IndexLocations locations = indexLocations.get(key);
+            if (locations == null || !locations.isValid(partition, schemaHash, idToBackend)) {
+                locations = new IndexLocations(partition.getCommittedVersion(), partition.getCommittedVersionHash(),
+                                               schemaHash, idToBackend);
+                indexLocations.put(key, locations);
+            }
+            return locations;
+        }
+    }
+
+    public synchronized int size() {
+        return indexLocations.size();
+    }
+
+    public synchronized void clear() {
+        indexLocations.clear();
+    }
+
+    public class IndexLocations {
+        private final long committedVersion;
+        private final long committedVersionHash;
+        private final int schemaHash;
+        private final ImmutableMap<Long, Backend> idToBackend;
+        private final ConcurrentMap<Long, TabletLocations> tabletLocations = Maps.newConcurrentMap();
+
+        private IndexLocations(long committedVersion, long committedVersionHash, int schemaHash,
+                               ImmutableMap<Long, Backend> idToBackend) {
+            this.committedVersion = committedVersion;
+            this.committedVersionHash = committedVersionHash;
+            this.schemaHash = schemaHash;
+            this.idToBackend = idToBackend;
+        }
+
+        private boolean isValid(Partition partition, int schemaHash, ImmutableMap<Long, Backend> idToBackend) {
+            return committedVersion == partition.getCommittedVersion()
+                    && committedVersionHash == partition.getCommittedVersionHash()
+                    && this.schemaHash == schemaHash
+                    && this.idToBackend == idToBackend;
+        }
+
+        // Return the locations of 'tablet', which must not be modified.
+        public TScanRangeLocations getLocations(Tablet tablet) throws InternalException {
+            TabletLocations locations = tabletLocations.get(tablet.getId());
+            if (locations != null && locations.isValid(tablet)) {
+                hitCounter.inc();
+                return locations.locations;
+            }
+            missCounter.inc();
+            locations = new TabletLocations(tablet, OlapScanNode.createScanRangeLocations(
+                    tablet, schemaHash, committedVersion, committedVersionHash, idToBackend));
+            tabletLocations.put(tablet.getId(), locations);
+            return locations.locations;
+        }
+    }
+
+    // locations of a tablet, and the replicas of the tablet when the locations are created
+    private static class TabletLocations {
+        private final Replica[] replicas;
+        private final long[] versions;
+        private final long[] versionHashes;
+        private final ReplicaState[] states;
+        private final TScanRangeLocations locations;
+
+        private TabletLocations(Tablet tablet, TScanRangeLocations locations) {
+            List<Replica> tabletReplicas = tablet.getReplicas();
+            int replicaNum = tabletReplicas.size();
+            this.replicas = new Replica[replicaNum];
+            this.versions = new long[replicaNum];
+            this.versionHashes = new long[replicaNum];
+            this.states = new ReplicaState[replicaNum];
+            for (int i = 0; i < replicaNum; i++) {
+                Replica replica = tabletReplicas.get(i);
+                replicas[i] = replica;
+                versions[i] = replica.getVersion();
+                versionHashes[i] = replica.getVersionHash();
+                states[i] = replica.getState();
+            }
+            this.locations = locations;
+        }
+
+        private boolean isValid(Tablet tablet) {
+            List<Replica> tabletReplicas = tablet.getReplicas();
+            if (tabletReplicas.size() != replicas.length) {
+                return false;
+            }
+            for (int i = 0; i < replicas.length; i++) {
+                Replica replica = tabletReplicas.get(i);
+                if (replica != replicas[i] || replica.getVersion() != versions[i]
+                        || replica.getVersionHash() != versionHashes[i] || replica.getState() != states[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -101,6 +101,10 @@ public class PlanFragment extends TreeNode<PlanFragment> {
     // if the output is UNPARTITIONED, it is being broadcast
     private DataPartition outputPartition;
 
+    // true if this fragment executes colocate join, whose scan ranges of the same bucket
+    // must be assigned to the same instance
+    private boolean colocate = false;
+
     // TODO: SubstitutionMap outputSmap;
     // substitution map to remap exprs onto the output of this fragment, to be applied
     // at destination fragment
@@ -235,6 +239,14 @@ public class PlanFragment extends TreeNode<PlanFragment> {
         this.outputPartition = outputPartition;
     }
 
+    public boolean isColocate() {
+        return colocate;
+    }
+
+    public void setColocate(boolean colocate) {
+        this.colocate = colocate;
+    }
+
     public PlanNode getPlanRoot() {
         return planRoot;
     }
@@ -426,10 +426,14 @@ abstract public class PlanNode extends TreeNode<PlanNode> {
 
     /**
      * Compute the product of the selectivies of all conjuncts.
+     * Conjuncts with unknown selectivity are ignored.
      */
     protected double computeSelectivity() {
         double prod = 1.0;
         for (Expr e : conjuncts) {
+            if (e.getSelectivity() < 0) {
+                continue;
+            }
             prod *= e.getSelectivity();
         }
         return prod;
@@ -76,6 +76,12 @@ public class Planner {
         return singleNodePlanner.getScanNodes();
     }
 
+    // Return false if the plan should be created again after the scan ranges of the scan nodes are
+    // selected again, see DistributedPlanner.isPlanValid().
+    public boolean isPlanValid() {
+        return distributedPlanner == null || distributedPlanner.isPlanValid(fragments);
+    }
+
     public void plan(StatementBase queryStmt, Analyzer analyzer, TQueryOptions queryOptions)
             throws NotImplementedException, InternalException, AnalysisException {
         createPlanFragments(queryStmt, analyzer, queryOptions);
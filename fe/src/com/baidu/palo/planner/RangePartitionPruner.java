@@ -45,13 +45,26 @@ import java.util.Set;
 public class RangePartitionPruner implements PartitionPruner {
     private static final Logger LOG = LogManager.getLogger(RangePartitionPruner.class);
 
-    private Map<Long, Range<PartitionKey>> partitionRangeMap;
+    // partition range -> partition id
+    private RangeMap<PartitionKey, Long> partitionRangeMap;
     private List<Column> partitionColumns;
     private Map<String, PartitionColumnFilter> partitionColumnFilters;
 
     public RangePartitionPruner(Map<Long, Range<PartitionKey>> rangeMap,
                                 List<Column> columns,
                                 Map<String, PartitionColumnFilter> filters) {
+        partitionRangeMap = TreeRangeMap.create();
+        for (Map.Entry<Long, Range<PartitionKey>> entry : rangeMap.entrySet()) {
+            partitionRangeMap.put(entry.getValue(), entry.getKey());
+        }
+        partitionColumns = columns;
+        partitionColumnFilters = filters;
+    }
+
+    // rangeMap is the range index of all partitions, which is not copied.
+    public RangePartitionPruner(RangeMap<PartitionKey, Long> rangeMap,
+                                List<Column> columns,
+                                Map<String, PartitionColumnFilter> filters) {
         partitionRangeMap = rangeMap;
         partitionColumns = columns;
         partitionColumnFilters = filters;
@@ -182,11 +195,6 @@ public class RangePartitionPruner implements PartitionPruner {
     public Collection<Long> prune() throws AnalysisException {
         PartitionKey minKey = new PartitionKey();
         PartitionKey maxKey = new PartitionKey();
-        // Map to RangeMapTree
-        RangeMap<PartitionKey, Long> rangeMap = TreeRangeMap.create();
-        for (Map.Entry<Long, Range<PartitionKey>> entry : partitionRangeMap.entrySet()) {
-            rangeMap.put(entry.getValue(), entry.getKey());
-        }
-        return prune(rangeMap, 0, minKey, maxKey, 1);
+        return prune(partitionRangeMap, 0, minKey, maxKey, 1);
     }
 }
@@ -0,0 +1,77 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package com.baidu.palo.planner;
+
+import com.baidu.palo.analysis.Expr;
+import com.baidu.palo.thrift.TRuntimeFilterDesc;
+import com.baidu.palo.thrift.TRuntimeFilterType;
+
+/**
+ * Filter generated by a hash join node from the values of the build side of an eq join
+ * conjunct, after the hash table is constructed. It is applied by a scan node on the probe
+ * side in the same fragment, before the scan node is opened, so that storage can skip
+ * the rows which can not be joined.
+ */
+public class RuntimeFilter {
+    private final int id;
+    // index of the eq join conjunct of the join node
+    private final int exprOrder;
+    private final TRuntimeFilterType type;
+    private final Expr srcExpr;
+    private final Expr targetExpr;
+    private final OlapScanNode target;
+
+    public RuntimeFilter(int id, int exprOrder, TRuntimeFilterType type, Expr srcExpr,
+                         Expr targetExpr, OlapScanNode target) {
+        this.id = id;
+        this.exprOrder = exprOrder;
+        this.type = type;
+        this.srcExpr = srcExpr;
+        this.targetExpr = targetExpr;
+        this.target = target;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public TRuntimeFilterType getType() {
+        return type;
+    }
+
+    public OlapScanNode getTarget() {
+        return target;
+    }
+
+    public TRuntimeFilterDesc toThrift() {
+        return new TRuntimeFilterDesc(id, exprOrder, type, target.getId().asInt());
+    }
+
+    // RF000[IN] <- `k1`
+    public String getSrcExplainString() {
+        return String.format("RF%03d[%s] <- %s", id, type.name(), srcExpr.toSql());
+    }
+
+    // RF000[IN] -> `k1`
+    public String getTargetExplainString() {
+        return String.format("RF%03d[%s] -> %s", id, type.name(), targetExpr.toSql());
+    }
+}
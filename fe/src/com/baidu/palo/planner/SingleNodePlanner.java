@@ -34,8 +34,10 @@ import com.baidu.palo.analysis.FunctionCallExpr;
 import com.baidu.palo.analysis.InPredicate;
 import com.baidu.palo.analysis.InlineViewRef;
 import com.baidu.palo.analysis.IsNullPredicate;
+import com.baidu.palo.analysis.JoinOperator;
 import com.baidu.palo.analysis.LiteralExpr;
 import com.baidu.palo.analysis.NullLiteral;
+import com.baidu.palo.analysis.PlaceHolderExpr;
 import com.baidu.palo.analysis.QueryStmt;
 import com.baidu.palo.analysis.SelectStmt;
 import com.baidu.palo.analysis.SlotDescriptor;
@@ -49,12 +51,14 @@ import com.baidu.palo.analysis.UnionStmt;
 import com.baidu.palo.catalog.AggregateType;
 import com.baidu.palo.catalog.Column;
 import com.baidu.palo.catalog.MysqlTable;
+import com.baidu.palo.catalog.OlapTable;
 import com.baidu.palo.catalog.Table;
 import com.baidu.palo.common.AnalysisException;
 import com.baidu.palo.common.InternalException;
 import com.baidu.palo.common.NotImplementedException;
 import com.baidu.palo.common.Pair;
 import com.baidu.palo.common.Reference;
+import com.baidu.palo.common.TreeNode;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
@@ -311,7 +315,25 @@ public class SingleNodePlanner {
         return selectNode;
     }
 
-    private void turnOffPreAgg(AggregateInfo aggInfo, SelectStmt selectStmt, Analyzer analyzer, PlanNode root) {
+    /**
+     * Returns true if 'expr' refers to some columns and all of them are key columns of olap tables.
+     */
+    private boolean isBoundByKeyColumns(Expr expr, Analyzer analyzer) {
+        List<SlotId> slotIds = Lists.newArrayList();
+        expr.getIds(null, slotIds);
+        if (slotIds.isEmpty()) {
+            return false;
+        }
+        for (SlotId slotId : slotIds) {
+            Column col = analyzer.getDescTbl().getSlotDesc(slotId).getColumn();
+            if (col == null || !col.isKey()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void turnOffPreAgg(AggregateInfo aggInfo, List<TableRef> tableRefs, Analyzer analyzer, PlanNode root) {
         do {
             String logStr = "turn off preAggregate because: ";
             if (null == aggInfo) {
@@ -327,10 +349,10 @@ public class SingleNodePlanner {
             ArrayList<FunctionCallExpr> aggExprs = aggInfo.getAggregateExprs();
             // multi table join
             boolean aggTableValidate = true;
-            if (selectStmt.getTableRefs().size() > 1) {
-                for (int i = 1; i < selectStmt.getTableRefs().size(); ++i) {
-                    if (selectStmt.getTableRefs().get(i).getJoinOp().isOuterJoin()) {
-                        LOG.info(logStr + selectStmt.getTableRefs().get(i) + " joinOp is outer-join");
+            if (tableRefs.size() > 1) {
+                for (int i = 1; i < tableRefs.size(); ++i) {
+                    if (tableRefs.get(i).getJoinOp().isOuterJoin()) {
+                        LOG.info(logStr + tableRefs.get(i) + " joinOp is outer-join");
                         aggTableValidate = false;
                         break;
                     }
@@ -339,7 +361,7 @@ public class SingleNodePlanner {
                     break;
                 }
                 for (FunctionCallExpr aggExpr : aggExprs) {
-                    TableRef olapTableRef = selectStmt.getTableRefs().get(0);
+                    TableRef olapTableRef = tableRefs.get(0);
                     if (Expr.isBound(Lists.newArrayList(aggExpr), Lists.newArrayList(olapTableRef.getId()))) {
                         // do nothing
                         LOG.debug("All agg exprs is bound to olapTable: {}" + olapTableRef.getTable().getName());
@@ -362,7 +384,7 @@ public class SingleNodePlanner {
                                     LOG.info("{} agg expr [{}] is not bound [{}]",
                                             logStr,
                                             aggExpr.debugString(),
-                                            selectStmt.getTableRefs().get(0).toSql());
+                                            tableRefs.get(0).toSql());
                                     aggTableValidate = false;
                                 } else {
                                     LOG.debug("The table which agg expr [{}] is bound to, is not OLAP table [{}]",
@@ -383,13 +405,13 @@ public class SingleNodePlanner {
 
             boolean valueColumnValidate = true;
             List<Expr> allConjuncts =
-                    analyzer.getAllConjunt(selectStmt.getTableRefs().get(0).getId());
+                    analyzer.getAllConjunt(tableRefs.get(0).getId());
             List<SlotId> conjunctSlotIds = Lists.newArrayList();
             if (allConjuncts != null) {
                 for (Expr conjunct : allConjuncts) {
                     conjunct.getIds(null, conjunctSlotIds);
                 }
-                for (SlotDescriptor slot : selectStmt.getTableRefs().get(0).getDesc().getSlots()) {
+                for (SlotDescriptor slot : tableRefs.get(0).getDesc().getSlots()) {
                     if (!slot.getColumn().isKey()) {
                         if (conjunctSlotIds.contains(slot.getId())) {
                             LOG.info(logStr + "conjunct on " + slot.getColumn().getName() + "which is "
@@ -459,6 +481,14 @@ public class SingleNodePlanner {
                             break;
                         }
 
+                    } else if (isBoundByKeyColumns(child, analyzer)) {
+                        // Rows merged by pre-aggregation have the same key columns, so exprs of key columns
+                        // are valid for those aggregate functions valid for key columns, such as max(k1 + k2).
+                        List<SlotId> childSlotIds = Lists.newArrayList();
+                        child.getIds(null, childSlotIds);
+                        for (SlotId childSlotId : childSlotIds) {
+                            returnColumns.add(analyzer.getDescTbl().getSlotDesc(childSlotId).getColumn());
+                        }
                     } else {
                         LOG.info("{} aggExpr.getChild(0)[{}] is not SlotRef or CastExpr|CaseExpr",
                                 logStr,
@@ -564,7 +594,7 @@ public class SingleNodePlanner {
                 List<SlotId> groupSlotIds = Lists.newArrayList();
                 groupExpr.getIds(null, groupSlotIds);
 
-                for (SlotDescriptor slot : selectStmt.getTableRefs().get(0).getDesc().getSlots()) {
+                for (SlotDescriptor slot : tableRefs.get(0).getDesc().getSlots()) {
                     if (!slot.getColumn().isKey()) {
                         if (groupSlotIds.contains(slot.getId())) {
                             LOG.info(logStr + "groupExpr contains OlapEngine's Value");
@@ -624,8 +654,14 @@ public class SingleNodePlanner {
             rowTuples.addAll(tblRef.getMaterializedTupleIds());
         }
 
+        List<TableRef> tableRefs = selectStmt.getTableRefs();
+        if (tableRefs.size() > 1 && analyzer.getContext() != null
+                && analyzer.getContext().getSessionVariable().isEnableJoinReorder()) {
+            tableRefs = reorderJoins(analyzer, tableRefs);
+        }
+
         // create left-deep sequence of binary hash joins; assign node ids as we go along
-        TableRef tblRef = selectStmt.getTableRefs().get(0);
+        TableRef tblRef = tableRefs.get(0);
         PlanNode root = createTableRefNode(analyzer, tblRef);
         // to change the inner contains analytic function
         // selectStmt.seondSubstituteInlineViewExprs(analyzer.getChangeResSmap());
@@ -672,7 +708,7 @@ public class SingleNodePlanner {
         }
         */
 
-        turnOffPreAgg(aggInfo, selectStmt, analyzer, root);
+        turnOffPreAgg(aggInfo, tableRefs, analyzer, root);
 
         if (root instanceof OlapScanNode) {
             OlapScanNode olapNode = (OlapScanNode) root;
@@ -683,9 +719,9 @@ public class SingleNodePlanner {
             }
         }
 
-        for (int i = 1; i < selectStmt.getTableRefs().size(); ++i) {
-            TableRef outerRef = selectStmt.getTableRefs().get(i - 1);
-            TableRef innerRef = selectStmt.getTableRefs().get(i);
+        for (int i = 1; i < tableRefs.size(); ++i) {
+            TableRef outerRef = tableRefs.get(i - 1);
+            TableRef innerRef = tableRefs.get(i);
             root = createJoinNode(analyzer, root, outerRef, innerRef);
             // Have the build side of a join copy data to a compact representation
             // in the tuple buffer.
@@ -715,6 +751,86 @@ public class SingleNodePlanner {
         return root;
     }
 
+    /**
+     * Reorder inner joins of olap tables by estimated row count, using statistics reported by
+     * backends or collected by ANALYZE TABLE. The largest table is the left-most one, which is
+     * probed by the others. Then the smallest table connected to joined tables by equal join
+     * conjuncts is joined next, so that hash tables and intermediate results are small.
+     * Return the origin order if any table ref can not be reordered, or any table has no statistics.
+     */
+    private List<TableRef> reorderJoins(Analyzer analyzer, List<TableRef> tableRefs) {
+        final Map<TableRef, Double> estimatedRows = Maps.newHashMap();
+        for (TableRef ref : tableRefs) {
+            if (!(ref instanceof BaseTableRef) || !(ref.getTable() instanceof OlapTable)) {
+                return tableRefs;
+            }
+            if (ref.getJoinOp() != JoinOperator.INNER_JOIN || ref.isBroadcastJoin() || ref.isPartitionJoin()) {
+                return tableRefs;
+            }
+            long rowCount = ((OlapTable) ref.getTable()).getEstimatedRowCount();
+            if (rowCount < 0) {
+                return tableRefs;
+            }
+            double rows = rowCount;
+            List<Expr> conjuncts = analyzer.getAllConjunt(ref.getId());
+            if (conjuncts != null) {
+                for (Expr conjunct : conjuncts) {
+                    if (conjunct.isBoundByTupleIds(ref.getId().asList()) && conjunct.getSelectivity() >= 0) {
+                        rows *= conjunct.getSelectivity();
+                    }
+                }
+            }
+            estimatedRows.put(ref, rows);
+        }
+
+        List<TableRef> remaining = Lists.newArrayList(tableRefs);
+        List<TableRef> result = Lists.newArrayList();
+        List<TupleId> joinedIds = Lists.newArrayList();
+        TableRef largest = null;
+        for (TableRef ref : remaining) {
+            if (largest == null || estimatedRows.get(ref) > estimatedRows.get(largest)) {
+                largest = ref;
+            }
+        }
+        remaining.remove(largest);
+        result.add(largest);
+        joinedIds.add(largest.getId());
+
+        while (!remaining.isEmpty()) {
+            TableRef next = null;
+            boolean nextConnected = false;
+            for (TableRef ref : remaining) {
+                boolean connected = isConnected(analyzer, ref, joinedIds);
+                if (next == null || (connected && !nextConnected)
+                        || (connected == nextConnected && estimatedRows.get(ref) < estimatedRows.get(next))) {
+                    next = ref;
+                    nextConnected = connected;
+                }
+            }
+            remaining.remove(next);
+            result.add(next);
+            joinedIds.add(next.getId());
+        }
+        LOG.debug("reorder joins from {} to {}", tableRefs, result);
+        return result;
+    }
+
+    // Return true if there are equal join conjuncts between 'ref' and the tuples of 'joinedIds'.
+    private boolean isConnected(Analyzer analyzer, TableRef ref, List<TupleId> joinedIds) {
+        List<Expr> eqJoinConjuncts = analyzer.getEqJoinConjuncts(ref.getId(), null);
+        if (eqJoinConjuncts == null) {
+            return false;
+        }
+        List<TupleId> ids = Lists.newArrayList(joinedIds);
+        ids.add(ref.getId());
+        for (Expr conjunct : eqJoinConjuncts) {
+            if (conjunct.isBoundByTupleIds(ids)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns a new AggregationNode that materializes the aggregation of the given stmt.
      * Assigns conjuncts from the Having clause to the returned node.
@@ -847,7 +963,7 @@ public class SingleNodePlanner {
     }
 
     // no need to remove?
-    private PartitionColumnFilter createPartitionFilter(SlotDescriptor desc, List<Expr> conjuncts) {
+    static PartitionColumnFilter createPartitionFilter(SlotDescriptor desc, List<Expr> conjuncts) {
         PartitionColumnFilter partitionColumnFilter = null;
         for (Expr expr : conjuncts) {
             if (!expr.isBound(desc.getId())) {
@@ -859,15 +975,23 @@ public class SingleNodePlanner {
                 if (slotBinding == null || !slotBinding.isConstant()) {
                     continue;
                 }
-                if (binPredicate.getOp() == BinaryPredicate.Operator.NE
-                        || !(slotBinding instanceof LiteralExpr)) {
+                if (binPredicate.getOp() == BinaryPredicate.Operator.NE) {
+                    continue;
+                }
+                LiteralExpr literal = null;
+                if (slotBinding instanceof LiteralExpr) {
+                    literal = (LiteralExpr) slotBinding;
+                } else if (slotBinding instanceof PlaceHolderExpr) {
+                    // current value of parameter of prepared statement
+                    literal = ((PlaceHolderExpr) slotBinding).getLiteral();
+                }
+                if (literal == null) {
                     continue;
                 }
 
                 if (null == partitionColumnFilter) {
                     partitionColumnFilter = new PartitionColumnFilter();
                 }
-                LiteralExpr literal = (LiteralExpr) slotBinding;
                 BinaryPredicate.Operator op = binPredicate.getOp();
                 if (!binPredicate.slotIsLeft()) {
                     op = op.commutative();
@@ -1156,6 +1280,9 @@ public class SingleNodePlanner {
             }
             scanNode.setColumnFilters(columnFilters);
             scanNode.setSortColumn(tblRef.getSortColumn());
+            if (TreeNode.contains(conjuncts, PlaceHolderExpr.class)) {
+                ((OlapScanNode) scanNode).setParamConjuncts(conjuncts);
+            }
         }
         // assignConjuncts(scanNode, analyzer);
         scanNode.init(analyzer);
@@ -1292,6 +1419,18 @@ public class SingleNodePlanner {
         }
         analyzer.markConjunctsAssigned(eqJoinPredicates);
 
+        if (innerRef.getJoinOp() == JoinOperator.NULL_AWARE_LEFT_ANTI_JOIN) {
+            // backend takes the last eq join conjunct of null aware anti join as the one of NOT IN
+            for (int i = 0; i < eqJoinPredicates.size(); ++i) {
+                Expr predicate = eqJoinPredicates.get(i);
+                if (predicate instanceof BinaryPredicate && ((BinaryPredicate) predicate).isNullAware()) {
+                    eqJoinPredicates.add(eqJoinPredicates.remove(i));
+                    eqJoinConjuncts.add(eqJoinConjuncts.remove(i));
+                    break;
+                }
+            }
+        }
+
         List<Expr> ojConjuncts = Lists.newArrayList();
         if (innerRef.getJoinOp().isOuterJoin()) {
             // Also assign conjuncts from On clause. All remaining unassigned conjuncts
@@ -21,8 +21,10 @@ package com.baidu.palo.qe;
 
 import java.nio.channels.SocketChannel;
 import java.util.List;
+import java.util.Map;
 
 import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.mysql.MysqlCapability;
 import com.baidu.palo.mysql.MysqlChannel;
 import com.baidu.palo.mysql.MysqlCommand;
@@ -31,6 +33,7 @@ import com.baidu.palo.thrift.TResourceInfo;
 import com.baidu.palo.thrift.TUniqueId;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -85,6 +88,15 @@ public class ConnectContext {
 
     private AuditBuilder auditBuilder;
 
+    // prepared statements of this session, stmt id -> statement
+    private Map<Integer, PreparedStmtContext> preparedStmts = Maps.newHashMap();
+    private int nextStmtId = 1;
+
+    // Max journal id of master returned by statements forwarded to master.
+    // Non-master frontend replays journal to this id before executing the next statement,
+    // so that this session always sees its own writes.
+    private volatile long lastJournalId = 0;
+
     public static ConnectContext get() {
         return threadLocalInfo.get();
     }
@@ -117,6 +129,24 @@ public class ConnectContext {
         return auditBuilder;
     }
 
+    // Return null if the number of prepared statements exceeds limit.
+    public PreparedStmtContext addPreparedStmt(PreparedStmt stmt) {
+        if (preparedStmts.size() >= Config.max_prepared_stmt_num_per_session) {
+            return null;
+        }
+        PreparedStmtContext stmtCtx = new PreparedStmtContext(nextStmtId++, stmt);
+        preparedStmts.put(stmtCtx.getStmtId(), stmtCtx);
+        return stmtCtx;
+    }
+
+    public PreparedStmtContext getPreparedStmt(int stmtId) {
+        return preparedStmts.get(stmtId);
+    }
+
+    public void removePreparedStmt(int stmtId) {
+        preparedStmts.remove(stmtId);
+    }
+
     public void setThreadLocalInfo() {
         threadLocalInfo.set(this);
     }
@@ -178,6 +208,16 @@ public class ConnectContext {
         return returnRows;
     }
 
+    public void updateLastJournalId(long journalId) {
+        if (journalId > lastJournalId) {
+            lastJournalId = journalId;
+        }
+    }
+
+    public long getLastJournalId() {
+        return lastJournalId;
+    }
+
     public MysqlSerializer getSerializer() {
         return serializer;
     }
@@ -19,17 +19,22 @@
 
 package com.baidu.palo.qe;
 
+import com.baidu.palo.analysis.LiteralExpr;
+import com.baidu.palo.analysis.NullLiteral;
 import com.baidu.palo.catalog.Catalog;
 import com.baidu.palo.catalog.Column;
 import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.PrimitiveType;
 import com.baidu.palo.catalog.Table;
 import com.baidu.palo.cluster.ClusterNamespace;
+import com.baidu.palo.common.AnalysisException;
 import com.baidu.palo.common.AuditLog;
 import com.baidu.palo.common.Config;
 import com.baidu.palo.common.DdlException;
 import com.baidu.palo.common.ErrorCode;
 import com.baidu.palo.common.ErrorReport;
 import com.baidu.palo.common.util.Metrics;
+import com.baidu.palo.mysql.MysqlBinaryProtocol;
 import com.baidu.palo.mysql.MysqlChannel;
 import com.baidu.palo.mysql.MysqlCommand;
 import com.baidu.palo.mysql.MysqlPacket;
@@ -39,12 +44,14 @@ import com.baidu.palo.thrift.TMasterOpRequest;
 import com.baidu.palo.thrift.TMasterOpResult;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import io.dropwizard.metrics.Counter;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousCloseException;
 import java.util.List;
@@ -156,6 +163,12 @@ public class ConnectProcessor {
             ctx.getState().setError("Unsupported character set(UTF-8)");
             return;
         }
+        executeQuery(stmt, null, null);
+    }
+
+    // Execute one statement. If 'stmtCtx' is not null, 'stmt' is the prepared statement bound with
+    // 'paramValues', and rows of query are sent in binary protocol.
+    private void executeQuery(String stmt, PreparedStmtContext stmtCtx, List<LiteralExpr> paramValues) {
         ctx.getAuditBuilder().reset();
         // replace '\n' to '\\\n' to make string in one line
         ctx.getAuditBuilder().put("client", ctx.getMysqlChannel().getRemote());
@@ -166,6 +179,10 @@ public class ConnectProcessor {
         // execute this query.
         try {
             executor = new StmtExecutor(ctx, stmt);
+            if (stmtCtx != null) {
+                executor.setBinaryProtocol(true);
+                executor.setPreparedStmt(stmtCtx, paramValues);
+            }
             executor.execute();
             // needForward = executor.isForwardtoMaster();
             // outputPacket = executor.getOutputPacket();
@@ -187,6 +204,155 @@ public class ConnectProcessor {
         auditAfterExec();
     }
 
+    // COM_STMT_PREPARE: prepare one statement, send statement id and definitions of parameters.
+    // Definitions of result columns are sent when executing, because they may change with parameters.
+    private void handleStmtPrepare() throws IOException {
+        String stmt = new String(MysqlProto.readEofString(packetBuf), "UTF-8");
+        PreparedStmt preparedStmt = null;
+        try {
+            preparedStmt = PreparedStmtCache.getInstance().getOrCreate(stmt);
+        } catch (AnalysisException e) {
+            ctx.getState().setError(e.getMessage());
+            return;
+        }
+        PreparedStmtContext stmtCtx = ctx.addPreparedStmt(preparedStmt);
+        if (stmtCtx == null) {
+            ErrorCode errorCode = ErrorCode.ERR_MAX_PREPARED_STMT_COUNT_REACHED;
+            ctx.getState().setError(errorCode, errorCode.formatErrorMsg(Config.max_prepared_stmt_num_per_session));
+            return;
+        }
+
+        MysqlSerializer serializer = ctx.getSerializer();
+        MysqlChannel channel = ctx.getMysqlChannel();
+        int numParams = preparedStmt.getNumParams();
+        serializer.reset();
+        // status: OK
+        serializer.writeInt1(0);
+        serializer.writeInt4(stmtCtx.getStmtId());
+        // number of columns
+        serializer.writeInt2(0);
+        serializer.writeInt2(numParams);
+        // filler
+        serializer.writeInt1(0);
+        // warning count
+        serializer.writeInt2(0);
+        channel.sendOnePacket(serializer.toByteBuffer());
+        if (numParams == 0) {
+            channel.flush();
+            ctx.getState().setNoop();
+            return;
+        }
+        // types of parameters are decided by client, so send them as string
+        for (int i = 0; i < numParams; ++i) {
+            serializer.reset();
+            serializer.writeField("?", PrimitiveType.VARCHAR);
+            channel.sendOnePacket(serializer.toByteBuffer());
+        }
+        ctx.getState().setEof();
+    }
+
+    // COM_STMT_EXECUTE: bind parameters to the prepared statement and execute it.
+    // Only executing without cursor is supported.
+    private void handleStmtExecute() {
+        int stmtId = MysqlProto.readInt4(packetBuf);
+        PreparedStmtContext stmtCtx = ctx.getPreparedStmt(stmtId);
+        if (stmtCtx == null) {
+            ErrorCode errorCode = ErrorCode.ERR_UNKNOWN_STMT_HANDLER;
+            ctx.getState().setError(errorCode, errorCode.formatErrorMsg(stmtId, "mysqld_stmt_execute"));
+            return;
+        }
+        String stmt = null;
+        List<LiteralExpr> paramValues = null;
+        try {
+            // skip flags and iteration count
+            MysqlProto.readInt1(packetBuf);
+            MysqlProto.readInt4(packetBuf);
+            paramValues = readParams(stmtCtx);
+            List<String> literals = Lists.newArrayList();
+            for (LiteralExpr value : paramValues) {
+                literals.add(MysqlBinaryProtocol.toSqlLiteral(value));
+            }
+            stmt = stmtCtx.getStmt().bind(literals);
+        } catch (AnalysisException e) {
+            ctx.getState().setError(e.getMessage());
+            return;
+        } catch (BufferUnderflowException e) {
+            LOG.warn("Malformed COM_STMT_EXECUTE packet. remote: {}", ctx.getMysqlChannel().getRemote());
+            ctx.getState().setError("Malformed packet");
+            return;
+        } finally {
+            stmtCtx.resetLongData();
+        }
+        executeQuery(stmt, stmtCtx, paramValues);
+    }
+
+    // Read values of parameters from COM_STMT_EXECUTE packet.
+    private List<LiteralExpr> readParams(PreparedStmtContext stmtCtx) throws AnalysisException {
+        int numParams = stmtCtx.getStmt().getNumParams();
+        List<LiteralExpr> values = Lists.newArrayList();
+        if (numParams == 0) {
+            return values;
+        }
+        byte[] nullBitmap = MysqlProto.readFixedString(packetBuf, (numParams + 7) / 8);
+        // types are sent when first executing or when they are changed
+        boolean newParamsBound = MysqlProto.readInt1(packetBuf) == 1;
+        if (newParamsBound) {
+            int[] paramTypes = new int[numParams];
+            for (int i = 0; i < numParams; ++i) {
+                paramTypes[i] = MysqlProto.readInt2(packetBuf);
+            }
+            stmtCtx.setParamTypes(paramTypes);
+        }
+        int[] paramTypes = stmtCtx.getParamTypes();
+        if (paramTypes == null) {
+            throw new AnalysisException("Types of parameters are not sent");
+        }
+        for (int i = 0; i < numParams; ++i) {
+            byte[] longData = stmtCtx.getLongData(i);
+            if (longData != null) {
+                values.add(MysqlBinaryProtocol.toLongDataParam(longData));
+            } else if ((nullBitmap[i / 8] & (1 << (i % 8))) != 0) {
+                values.add(new NullLiteral());
+            } else {
+                values.add(MysqlBinaryProtocol.readParam(packetBuf, paramTypes[i]));
+            }
+        }
+        return values;
+    }
+
+    // COM_STMT_SEND_LONG_DATA: append data to one parameter, no response is sent.
+    private void handleStmtSendLongData() {
+        ctx.getState().setNoop();
+        int stmtId = MysqlProto.readInt4(packetBuf);
+        int paramId = MysqlProto.readInt2(packetBuf);
+        PreparedStmtContext stmtCtx = ctx.getPreparedStmt(stmtId);
+        if (stmtCtx == null || paramId >= stmtCtx.getStmt().getNumParams()) {
+            // error is reported when executing
+            LOG.warn("Unknown statement({}) or parameter({}) of long data", stmtId, paramId);
+            return;
+        }
+        stmtCtx.appendLongData(paramId, MysqlProto.readEofString(packetBuf));
+    }
+
+    // COM_STMT_CLOSE: deallocate one prepared statement, no response is sent.
+    private void handleStmtClose() {
+        ctx.getState().setNoop();
+        ctx.removePreparedStmt(MysqlProto.readInt4(packetBuf));
+    }
+
+    // COM_STMT_RESET: clear data sent by COM_STMT_SEND_LONG_DATA.
+    private void handleStmtReset() {
+        int stmtId = MysqlProto.readInt4(packetBuf);
+        PreparedStmtContext stmtCtx = ctx.getPreparedStmt(stmtId);
+        if (stmtCtx == null) {
+            ErrorCode errorCode = ErrorCode.ERR_UNKNOWN_STMT_HANDLER;
+            ctx.getState().setError(errorCode, errorCode.formatErrorMsg(stmtId, "mysqld_stmt_reset"));
+            return;
+        }
+        stmtCtx.resetLongData();
+        ctx.getState().setOk();
+    }
+
     // Get the column definitions of a table
     private void handleFieldList() throws IOException {
         // Already get command code.
@@ -264,6 +430,22 @@ public class ConnectProcessor {
             case COM_PING:
                 handlePing();
                 break;
+            case COM_STMT_PREPARE:
+                handleStmtPrepare();
+                break;
+            case COM_STMT_EXECUTE:
+                handleStmtExecute();
+                ctx.setStartTime();
+                break;
+            case COM_STMT_SEND_LONG_DATA:
+                handleStmtSendLongData();
+                break;
+            case COM_STMT_CLOSE:
+                handleStmtClose();
+                break;
+            case COM_STMT_RESET:
+                handleStmtReset();
+                break;
             default:
                 ctx.getState().setError("Unsupported command(" + command + ")");
                 LOG.warn("Unsupported command(" + command + ")");
@@ -375,6 +557,19 @@ public class ConnectProcessor {
             return;
         }
 
+        processPacket();
+    }
+
+    // Process one request whose packet has already been received.
+    // Used in non-block mode, where packets are received by the IO threads of ConnectScheduler.
+    public void processOnce(ByteBuffer packet) throws IOException {
+        ctx.getState().reset();
+        executor = null;
+        packetBuf = packet;
+        processPacket();
+    }
+
+    private void processPacket() throws IOException {
         // dispatch
         dispatch();
         // finalize
@@ -0,0 +1,245 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.mysql.MysqlChannel;
+
+import com.google.common.collect.Sets;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+// One IO thread which multiplexes many connections by a selector in non-block mode.
+// Packets are received by this thread, and one connection is handed to the task threads
+// only when one whole command has been received. The connection is not selected while
+// its command is processing, and is armed again after the response has been sent.
+public class ConnectReactor implements Runnable {
+    private static final Logger LOG = LogManager.getLogger(ConnectReactor.class);
+    private static final long SELECT_TIMEOUT_MS = 1000;
+
+    private final String name;
+    private final ConnectScheduler scheduler;
+    private final ExecutorService taskService;
+    private final Selector selector;
+    // connections to be registered or armed again, filled by other threads.
+    private final ConcurrentLinkedQueue<Connection> pendingQueue = new ConcurrentLinkedQueue<Connection>();
+    // all connections of this reactor, only accessed by IO thread.
+    private final Set<Connection> connections = Sets.newHashSet();
+    private volatile boolean running;
+    private Thread thread;
+    private long lastCheckTime = 0;
+
+    public ConnectReactor(String name, ConnectScheduler scheduler, ExecutorService taskService) throws IOException {
+        this.name = name;
+        this.scheduler = scheduler;
+        this.taskService = taskService;
+        this.selector = Selector.open();
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOG.warn("close selector failed.", e);
+        }
+    }
+
+    // Hand one negotiated connection to this reactor. Its channel must be in non-block mode.
+    public void register(ConnectContext ctx, ConnectProcessor processor) {
+        arm(new Connection(ctx, processor));
+    }
+
+    private void arm(Connection conn) {
+        pendingQueue.add(conn);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT_MS);
+                processPending();
+
+                Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+                while (iter.hasNext()) {
+                    SelectionKey key = iter.next();
+                    iter.remove();
+                    Connection conn = (Connection) key.attachment();
+                    if (!key.isValid()) {
+                        close(conn);
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        handleRead(conn);
+                    }
+                }
+
+                checkClosed();
+            } catch (Throwable e) {
+                if (!running) {
+                    break;
+                }
+                LOG.warn("{} got exception in loop.", name, e);
+            }
+        }
+        LOG.info("{} exit.", name);
+    }
+
+    private void processPending() {
+        Connection conn;
+        while ((conn = pendingQueue.poll()) != null) {
+            conn.processing = false;
+            ConnectContext ctx = conn.ctx;
+            if (ctx.isKilled()) {
+                close(conn);
+                continue;
+            }
+            try {
+                MysqlChannel channel = ctx.getMysqlChannel();
+                // one new command starts with sequence id 0.
+                channel.setSequenceId(0);
+                channel.releaseSendBuffer();
+                if (conn.key == null) {
+                    conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+                    connections.add(conn);
+                } else {
+                    conn.key.interestOps(SelectionKey.OP_READ);
+                }
+            } catch (IOException | CancelledKeyException e) {
+                LOG.info("arm connection failed, remote: {}", ctx.getMysqlChannel().getRemote());
+                close(conn);
+            }
+        }
+    }
+
+    private void handleRead(Connection conn) {
+        ByteBuffer packet;
+        try {
+            packet = conn.ctx.getMysqlChannel().fetchOnePacketNonBlocking();
+        } catch (IOException e) {
+            LOG.info("receive packet failed, remote: {}, because: {}",
+                     conn.ctx.getMysqlChannel().getRemote(), e.getMessage());
+            close(conn);
+            return;
+        }
+        if (packet == null) {
+            // wait for the rest of the packet
+            return;
+        }
+
+        conn.key.interestOps(0);
+        conn.processing = true;
+        try {
+            taskService.submit(new CommandTask(conn, packet));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("submit command task failed, remote: {}", conn.ctx.getMysqlChannel().getRemote());
+            close(conn);
+        }
+    }
+
+    // Channel of idle connection may be closed by other threads, e.g. when wait timeout or
+    // killed, and no event will be selected then. So check them periodically.
+    private void checkClosed() {
+        long now = System.currentTimeMillis();
+        if (now - lastCheckTime < SELECT_TIMEOUT_MS) {
+            return;
+        }
+        lastCheckTime = now;
+        Iterator<Connection> iter = connections.iterator();
+        while (iter.hasNext()) {
+            Connection conn = iter.next();
+            if (!conn.processing && !conn.ctx.getMysqlChannel().isOpen()) {
+                iter.remove();
+                release(conn);
+            }
+        }
+    }
+
+    private void close(Connection conn) {
+        connections.remove(conn);
+        release(conn);
+    }
+
+    private void release(Connection conn) {
+        if (conn.key != null) {
+            conn.key.cancel();
+        }
+        scheduler.unregisterConnection(conn.ctx);
+        conn.ctx.cleanup();
+    }
+
+    private static class Connection {
+        final ConnectContext ctx;
+        final ConnectProcessor processor;
+        SelectionKey key;
+        // true if one command of this connection is processing by task threads
+        boolean processing;
+
+        Connection(ConnectContext ctx, ConnectProcessor processor) {
+            this.ctx = ctx;
+            this.processor = processor;
+        }
+    }
+
+    private class CommandTask implements Runnable {
+        private final Connection conn;
+        private final ByteBuffer packet;
+
+        CommandTask(Connection conn, ByteBuffer packet) {
+            this.conn = conn;
+            this.packet = packet;
+        }
+
+        @Override
+        public void run() {
+            ConnectContext ctx = conn.ctx;
+            ctx.setThreadLocalInfo();
+            try {
+                conn.processor.processOnce(packet);
+            } catch (Throwable e) {
+                LOG.warn("Exception happened in one session(" + ctx + ").", e);
+                ctx.setKilled();
+            } finally {
+                ConnectContext.remove();
+            }
+            // killed connection is closed by IO thread too.
+            arm(conn);
+        }
+    }
+}
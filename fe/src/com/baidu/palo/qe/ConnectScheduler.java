@@ -19,23 +19,30 @@
 
 package com.baidu.palo.qe;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.collect.Lists;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import com.baidu.palo.common.Config;
 import com.baidu.palo.mysql.MysqlProto;
 import com.google.common.collect.Maps;
 
 // 查询请求的调度器
-// 当前的策略比较简单，有请求过来，就为其单独申请一个线程进行服务。
+// 默认策略比较简单，有请求过来，就为其单独申请一个线程进行服务。
+// 当开启 mysql_service_nio_enabled 时，连接在握手完成后交给少量 IO 线程（ConnectReactor）管理，
+// 只有完整接收到的命令才会交给有界的任务线程池处理。
 // TODO(zhaochun): 应当后面考虑本地文件的连接是否可以超过最大连接数
 public class ConnectScheduler {
     private static final Logger LOG = LogManager.getLogger(ConnectScheduler.class);
@@ -44,7 +51,16 @@ public class ConnectScheduler {
     private AtomicInteger nextConnectionId;
     private Map<Long, ConnectContext> connectionMap = Maps.newHashMap();
     private Map<String, AtomicInteger> connByUser = Maps.newHashMap();
+    // connections in handshake to the time handshake started, guarded by this
+    private Map<ConnectContext, Long> negotiatingContexts = Maps.newHashMap();
+    // Runs connections in block mode, and negotiation of all connections, so that slow clients
+    // in handshake never hold threads of taskService.
     private ExecutorService executor = Executors.newCachedThreadPool();
+    // Used in non-block mode. taskService processes commands, and
+    // reactors receive packets of idle connections.
+    private ExecutorService taskService;
+    private ConnectReactor[] reactors;
+    private AtomicInteger nextReactorIdx = new AtomicInteger(0);
 
     // Use a thread to check whether connection is timeout. Because
     // 1. If use a scheduler, the task maybe a huge number when query is messy.
@@ -58,6 +74,42 @@ public class ConnectScheduler {
         nextConnectionId = new AtomicInteger(0);
         checkTimer = new Timer("ConnectScheduler Check Timer", true);
         checkTimer.scheduleAtFixedRate(new TimeoutChecker(), 0, 1000);
+        if (Config.mysql_service_nio_enabled) {
+            startReactors();
+        }
+    }
+
+    private void startReactors() {
+        // Every connection has at most one command in processing, so number of queued tasks
+        // is bounded by the number of connections.
+        int taskThreadNum = Math.max(1, Config.max_mysql_service_task_threads_num);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(taskThreadNum, taskThreadNum, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        pool.allowCoreThreadTimeOut(true);
+
+        int ioThreadNum = Math.max(1, Config.mysql_service_io_threads_num);
+        ConnectReactor[] newReactors = new ConnectReactor[ioThreadNum];
+        try {
+            for (int i = 0; i < ioThreadNum; ++i) {
+                newReactors[i] = new ConnectReactor("mysql-nio-io-" + i, this, pool);
+            }
+        } catch (IOException e) {
+            LOG.warn("open selector failed, use one thread per connection instead.", e);
+            for (ConnectReactor reactor : newReactors) {
+                if (reactor != null) {
+                    reactor.stop();
+                }
+            }
+            pool.shutdown();
+            return;
+        }
+        for (ConnectReactor reactor : newReactors) {
+            reactor.start();
+        }
+        taskService = pool;
+        reactors = newReactors;
+        LOG.info("mysql service runs in non-block mode, io threads: {}, task threads: {}",
+                 ioThreadNum, taskThreadNum);
     }
 
     private class TimeoutChecker extends TimerTask {
@@ -68,6 +120,14 @@ public class ConnectScheduler {
                 for (ConnectContext connectContext : connectionMap.values()) {
                     connectContext.checkTimeout(now);
                 }
+                for (Map.Entry<ConnectContext, Long> entry : negotiatingContexts.entrySet()) {
+                    if (now - entry.getValue() > Config.mysql_handshake_timeout_second * 1000L) {
+                        // closing channel breaks the blocking read of handshake
+                        LOG.warn("close handshake timeout connection, remote: {}",
+                                 entry.getKey().getMysqlChannel().getRemote());
+                        entry.getKey().getMysqlChannel().close();
+                    }
+                }
             }
         }
     }
@@ -80,6 +140,11 @@ public class ConnectScheduler {
             return false;
         }
         context.setConnectionId(nextConnectionId.getAndAdd(1));
+        if (reactors != null) {
+            ConnectReactor reactor = reactors[(nextReactorIdx.getAndIncrement() & Integer.MAX_VALUE) % reactors.length];
+            executor.submit(new NegotiateHandler(context, reactor));
+            return true;
+        }
         if (executor.submit(new LoopHandler(context)) == null) {
             LOG.warn("Submit one thread failed.");
             return false;
@@ -87,6 +152,21 @@ public class ConnectScheduler {
         return true;
     }
 
+    // Negotiate with client of a non-block connection, which is closed by TimeoutChecker
+    // if the handshake does not finish in time.
+    private boolean negotiate(ConnectContext ctx) throws IOException {
+        synchronized (this) {
+            negotiatingContexts.put(ctx, System.currentTimeMillis());
+        }
+        try {
+            return MysqlProto.negotiate(ctx);
+        } finally {
+            synchronized (this) {
+                negotiatingContexts.remove(ctx);
+            }
+        }
+    }
+
     // Register one connection with its connection id.
     public synchronized boolean registerConnection(ConnectContext ctx) {
         if (numberConnection >= maxConnections) {
@@ -170,4 +250,48 @@ public class ConnectScheduler {
             }
         }
     }
+
+    // Negotiate with client in block mode, then hand the connection to one reactor.
+    private class NegotiateHandler implements Runnable {
+        ConnectContext context;
+        ConnectReactor reactor;
+
+        NegotiateHandler(ConnectContext context, ConnectReactor reactor) {
+            this.context = context;
+            this.reactor = reactor;
+        }
+
+        @Override
+        public void run() {
+            boolean handOver = false;
+            try {
+                context.setThreadLocalInfo();
+                context.setConnectScheduler(ConnectScheduler.this);
+                if (!negotiate(context)) {
+                    return;
+                }
+
+                if (registerConnection(context)) {
+                    MysqlProto.sendResponsePacket(context);
+                } else {
+                    context.getState().setError("Reach limit of connections");
+                    MysqlProto.sendResponsePacket(context);
+                    return;
+                }
+
+                context.setStartTime();
+                context.getMysqlChannel().startNonBlocking();
+                reactor.register(context, new ConnectProcessor(context));
+                handOver = true;
+            } catch (Exception e) {
+                LOG.warn("negotiate exception because ", e);
+            } finally {
+                ConnectContext.remove();
+                if (!handOver) {
+                    unregisterConnection(context);
+                    context.cleanup();
+                }
+            }
+        }
+    }
 }
@@ -31,6 +31,7 @@ import com.baidu.palo.common.util.DebugUtil;
 import com.baidu.palo.common.util.RuntimeProfile;
 import com.baidu.palo.planner.DataPartition;
 import com.baidu.palo.planner.DataSink;
+import com.baidu.palo.planner.OlapScanNode;
 import com.baidu.palo.planner.PlanFragment;
 import com.baidu.palo.planner.PlanFragmentId;
 import com.baidu.palo.planner.PlanNode;
@@ -63,6 +64,7 @@ import com.baidu.palo.thrift.TScanRangeLocations;
 import com.baidu.palo.thrift.TScanRangeParams;
 import com.baidu.palo.thrift.TStatusCode;
 import com.baidu.palo.thrift.TUniqueId;
+import com.baidu.palo.thrift.TUnit;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
@@ -72,7 +74,6 @@ import com.google.common.collect.Maps;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.thrift.TException;
 import org.apache.thrift.transport.TTransportException;
 
 import java.net.InetAddress;
@@ -80,9 +81,12 @@ import java.net.UnknownHostException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
@@ -99,6 +103,8 @@ public class Coordinator {
 
     private static String localIP;
 
+    private static final ExecutorService RPC_EXECUTOR = Executors.newCachedThreadPool();
+
     static {
         try {
             localIP = InetAddress.getLocalHost().getHostAddress().toString();
@@ -148,6 +154,9 @@ public class Coordinator {
     // populated in computeScanRangeAssignment()
     private Map<PlanFragmentId, FragmentScanRangeAssignment> scanRangeAssignment =
             Maps.newHashMap();
+    // bucket seq -> exec host of colocate fragments, populated in computeScanRangeAssignment()
+    private Map<PlanFragmentId, Map<Integer, TNetworkAddress>> colocateBucketSeqToAddress =
+            Maps.newHashMap();
     // backend execute state
     private List<BackendExecState> backendExecStates = Lists.newArrayList();
     private ResultReceiver receiver;
@@ -178,6 +187,14 @@ public class Coordinator {
     private TResourceInfo tResourceInfo;
     private boolean needReport;
 
+    // max number of instances of a scan fragment on one host, 0 means only limited by
+    // Config.max_scan_instance_num_per_backend
+    private int maxInstanceNumPerHost = 1;
+    // number of scan fragment instances assigned to each host
+    private Map<TNetworkAddress, Integer> hostToScanInstanceNum = Maps.newHashMap();
+    // olap scan nodes indexed by plan node id, built on first use
+    private Map<Integer, OlapScanNode> idToOlapScanNode;
+
 
     // Used for query
     public Coordinator(ConnectContext context, Analyzer analyzer, Planner planner) {
@@ -192,6 +209,7 @@ public class Coordinator {
         this.tResourceInfo = new TResourceInfo(context.getUser(),
                 context.getSessionVariable().getResourceGroup());
         this.needReport = context.getSessionVariable().isReportSucc();
+        this.maxInstanceNumPerHost = context.getSessionVariable().getParallelFragmentExecInstanceNum();
     }
 
     // Used for pull load task coordinator
@@ -216,6 +234,11 @@ public class Coordinator {
         this.queryOptions.setQuery_type(type);
     }
 
+    // If true, result rows are returned as mysql packets in TResultBatch.packed_rows.
+    public void setReturnPackedRows(boolean returnPackedRows) {
+        this.queryOptions.setReturn_packed_rows(returnPackedRows);
+    }
+
     public Status getExecStatus() {
         return queryStatus;
     }
@@ -266,6 +289,24 @@ public class Coordinator {
         }
     }
 
+    // Shows the estimated bytes to scan and the chosen number of instances of every fragment.
+    private void addParallelismToProfile() {
+        for (int i = 0; i < fragments.size(); ++i) {
+            PlanFragmentId fragmentId = fragments.get(i).getFragmentId();
+            long scanBytes = 0;
+            for (ScanNode scanNode : scanNodes) {
+                if (scanNode.getFragmentId().equals(fragmentId) && scanNode instanceof OlapScanNode) {
+                    scanBytes += ((OlapScanNode) scanNode).getSelectedDataSize();
+                }
+            }
+            if (scanBytes > 0) {
+                fragmentProfile.get(i).addInfoString("EstimatedScanBytes", String.valueOf(scanBytes));
+            }
+            fragmentProfile.get(i).addInfoString("InstanceNum",
+                    String.valueOf(fragmentExecParams.get(fragmentId).instanceIds.size()));
+        }
+    }
+
     private void lock() {
         lock.lock();
     }
@@ -339,6 +380,7 @@ public class Coordinator {
         computeFragmentExecParams();
 
         traceInstance();
+        addParallelismToProfile();
 
         // create result receiver
         PlanFragmentId topId = fragments.get(0).getFragmentId();
@@ -362,16 +404,18 @@ public class Coordinator {
         profileDoneSignal = new CountDownLatch(numBackends);
         lock();
         try {
-            // execute all instances from up to bottom
+            long dispatchStartNs = System.nanoTime();
+            FragmentDispatcher dispatcher = new FragmentDispatcher();
+            // set up exec states of all instances
             int backendId = 0;
             int profileFragmentId = 0;
             for (PlanFragment fragment : fragments) {
                 FragmentExecParams params = fragmentExecParams.get(fragment.getFragmentId());
 
-                // set up exec states
                 int numHosts = params.hosts.size();
                 Preconditions.checkState(numHosts > 0);
                 List<TExecPlanFragmentParams> tParams = params.toThrift(backendId);
+                List<BackendExecState> execStates = Lists.newArrayList();
                 int instanceId = 0;
                 for (TExecPlanFragmentParams tParam : tParams) {
                     // TODO: pool of pre-formatted BackendExecStates?
@@ -380,27 +424,34 @@ public class Coordinator {
                                     profileFragmentId, tParam, this.addressToBackendID);
                     backendExecStates.add(execState);
                     backendExecStateMap.put(tParam.params.getFragment_instance_id(), execState);
+                    execStates.add(execState);
                     backendId++;
                 }
-                // Issue all rpcs in parallel
-                ExecStatus status = new ExecStatus();
-                ParallelExecutor.exec(backendExecStates, backendId - numHosts, numHosts, status);
-                if (status.getErrCode() != TStatusCode.OK) {
-                    String errMsg = "exec rpc error";
-                    queryStatus.setStatus(errMsg);
-                    LOG.warn("ParallelExecutor exec rpc error, fragmentId={} errBackend={}",
-                            fragment.getFragmentId(), status.getErrAddress());
-                    cancelInternal(); // err msg: rpc exec error
-                    if (status.getErrCode() == TStatusCode.TIMEOUT) {
-                        throw new InternalException(errMsg + " TIMEOUT");
-                    } else if (status.getErrCode() == TStatusCode.THRIFT_RPC_ERROR) {
-                        throw new TTransportException(errMsg + " THRIFT_RPC_ERROR");
-                    } else {
-                        throw new InternalException(errMsg + "UNKONWN");
-                    }
-                }
+                dispatcher.addFragment(fragment, fragmentProfile.get(profileFragmentId), execStates);
                 profileFragmentId += 1;
             }
+            long buildParamsNs = System.nanoTime() - dispatchStartNs;
+
+            // Issue all rpcs, a fragment is started as soon as its destination fragment is started
+            ExecStatus status = dispatcher.exec();
+            queryProfile.addCounter("FragmentDispatchTime", TUnit.TIME_NS, "")
+                    .setValue(System.nanoTime() - dispatchStartNs);
+            queryProfile.addCounter("BuildExecParamsTime", TUnit.TIME_NS, "FragmentDispatchTime")
+                    .setValue(buildParamsNs);
+            if (status.getErrCode() != TStatusCode.OK) {
+                String errMsg = "exec rpc error";
+                queryStatus.setStatus(errMsg);
+                LOG.warn("FragmentDispatcher exec rpc error, errCode={} errBackend={}",
+                        status.getErrCode(), status.getErrAddress());
+                cancelInternal(); // err msg: rpc exec error
+                if (status.getErrCode() == TStatusCode.TIMEOUT) {
+                    throw new InternalException(errMsg + " TIMEOUT");
+                } else if (status.getErrCode() == TStatusCode.THRIFT_RPC_ERROR) {
+                    throw new TTransportException(errMsg + " THRIFT_RPC_ERROR");
+                } else {
+                    throw new InternalException(errMsg + "UNKONWN");
+                }
+            }
         } finally {
             unlock();
         }
@@ -538,7 +589,7 @@ public class Coordinator {
                 cancelInternal();
             }
         } else {
-            numReceivedRows += resultBatch.getRowsSize();
+            numReceivedRows += resultBatch.getRowsSize() + resultBatch.getNum_packed_rows();
         }
 
         return resultBatch;
@@ -752,11 +803,13 @@ public class Coordinator {
                 continue;
             }
 
-            Iterator iter = scanRangeAssignment.get(fragment.getFragmentId()).entrySet().iterator();
-            while (iter.hasNext()) {
-                Map.Entry entry = (Map.Entry) iter.next();
-                TNetworkAddress key = (TNetworkAddress) entry.getKey();
-                params.hosts.add(key);
+            for (Map.Entry<TNetworkAddress, Map<Integer, List<TScanRangeParams>>> entry
+                    : scanRangeAssignment.get(fragment.getFragmentId()).entrySet()) {
+                for (Map<Integer, List<TScanRangeParams>> scanRanges
+                        : splitScanRanges(fragment, entry.getKey(), entry.getValue())) {
+                    params.hosts.add(entry.getKey());
+                    params.instanceScanRanges.add(scanRanges);
+                }
             }
             if (params.hosts.isEmpty()) {
                 Reference<Long> backendIdRef = new Reference<Long>();
@@ -800,8 +853,106 @@ public class Coordinator {
         return value;
     }
 
-    private long getScanRangeLength(final TScanRange scanRange) {
-        return 1;
+    // Returns the olap scan node whose id is 'nodeId', or null if it is not an olap scan node.
+    private OlapScanNode getOlapScanNode(int nodeId) {
+        if (idToOlapScanNode == null) {
+            idToOlapScanNode = Maps.newHashMap();
+            for (ScanNode scanNode : scanNodes) {
+                if (scanNode instanceof OlapScanNode) {
+                    idToOlapScanNode.put(scanNode.getId().asInt(), (OlapScanNode) scanNode);
+                }
+            }
+        }
+        return idToOlapScanNode.get(nodeId);
+    }
+
+    // Returns the estimated bytes to scan of a scan range of 'scanNode', or 1 if it is unknown.
+    private long getScanRangeLength(final OlapScanNode scanNode, final TScanRange scanRange) {
+        if (scanNode == null || !scanRange.isSetPalo_scan_range()) {
+            return 1;
+        }
+        long tabletId = scanRange.getPalo_scan_range().getTablet_id();
+        return Math.max(1L, scanNode.getTabletDataSize(tabletId));
+    }
+
+    // Splits scan ranges of a fragment on 'host' into instances. The number of instances is
+    // decided by the estimated bytes to scan, so that every instance scans at least
+    // Config.min_bytes_per_fragment_instance bytes. It is limited by the instance slots left on the host,
+    // which are Config.max_scan_instance_num_per_backend minus instances of other scan fragments
+    // of this query on the host, and by maxInstanceNumPerHost if it is positive.
+    private List<Map<Integer, List<TScanRangeParams>>> splitScanRanges(
+            PlanFragment fragment, TNetworkAddress host, Map<Integer, List<TScanRangeParams>> scanRanges) {
+        Integer usedInstanceNum = hostToScanInstanceNum.get(host);
+        if (usedInstanceNum == null) {
+            usedInstanceNum = 0;
+        }
+        int maxInstanceNum = Config.max_scan_instance_num_per_backend - usedInstanceNum;
+        if (maxInstanceNumPerHost > 0) {
+            maxInstanceNum = Math.min(maxInstanceNum, maxInstanceNumPerHost);
+        }
+
+        List<Map<Integer, List<TScanRangeParams>>> result;
+        // scan ranges of the same bucket of colocate tables must be scanned by the same instance
+        if (scanRanges == null || maxInstanceNum <= 1 || fragment.isColocate()) {
+            result = Lists.newArrayList();
+            result.add(scanRanges);
+        } else {
+            result = splitScanRanges(scanRanges, maxInstanceNum);
+        }
+        hostToScanInstanceNum.put(host, usedInstanceNum + result.size());
+        return result;
+    }
+
+    // Splits scan ranges into at most 'maxInstanceNum' instances by estimated bytes to scan.
+    // Scan ranges are assigned to the instance with the fewest bytes from the largest one,
+    // so that instances scan similar bytes.
+    private List<Map<Integer, List<TScanRangeParams>>> splitScanRanges(
+            Map<Integer, List<TScanRangeParams>> scanRanges, int maxInstanceNum) {
+        List<Map<Integer, List<TScanRangeParams>>> result = Lists.newArrayList();
+
+        final Map<TScanRangeParams, Long> scanRangeBytes = Maps.newIdentityHashMap();
+        final Map<TScanRangeParams, Integer> scanRangeNodeIds = Maps.newIdentityHashMap();
+        List<TScanRangeParams> allScanRanges = Lists.newArrayList();
+        long totalBytes = 0;
+        for (Map.Entry<Integer, List<TScanRangeParams>> entry : scanRanges.entrySet()) {
+            OlapScanNode scanNode = getOlapScanNode(entry.getKey());
+            for (TScanRangeParams scanRange : entry.getValue()) {
+                long bytes = getScanRangeLength(scanNode, scanRange.scan_range);
+                scanRangeBytes.put(scanRange, bytes);
+                scanRangeNodeIds.put(scanRange, entry.getKey());
+                allScanRanges.add(scanRange);
+                totalBytes += bytes;
+            }
+        }
+        long numInstances = Math.min(totalBytes / Math.max(1L, Config.min_bytes_per_fragment_instance),
+                                     Math.min(maxInstanceNum, allScanRanges.size()));
+        if (numInstances <= 1) {
+            result.add(scanRanges);
+            return result;
+        }
+
+        Collections.sort(allScanRanges, new Comparator<TScanRangeParams>() {
+            @Override
+            public int compare(TScanRangeParams scanRange1, TScanRangeParams scanRange2) {
+                return Long.compare(scanRangeBytes.get(scanRange2), scanRangeBytes.get(scanRange1));
+            }
+        });
+        long[] assignedBytes = new long[(int) numInstances];
+        for (int i = 0; i < numInstances; ++i) {
+            result.add(new HashMap<Integer, List<TScanRangeParams>>());
+        }
+        for (TScanRangeParams scanRange : allScanRanges) {
+            int minIndex = 0;
+            for (int i = 1; i < numInstances; ++i) {
+                if (assignedBytes[i] < assignedBytes[minIndex]) {
+                    minIndex = i;
+                }
+            }
+            assignedBytes[minIndex] += scanRangeBytes.get(scanRange);
+            findOrInsert(result.get(minIndex), scanRangeNodeIds.get(scanRange), new ArrayList<TScanRangeParams>())
+                    .add(scanRange);
+        }
+        return result;
     }
 
     // Populates scan_range_assignment_.
@@ -818,8 +969,109 @@ public class Coordinator {
 
             FragmentScanRangeAssignment assignment =
                     scanRangeAssignment.get(scanNode.getFragmentId());
-            computeScanRangeAssignment(scanNode.getId(), locations, assignment);
+            PlanFragment fragment = fragmentExecParams.get(scanNode.getFragmentId()).fragment;
+            if (fragment.isColocate() && scanNode instanceof OlapScanNode) {
+                computeColocateScanRangeAssignment(fragment.getFragmentId(), (OlapScanNode) scanNode,
+                                                   locations, assignment);
+            } else {
+                computeScanRangeAssignment(scanNode.getId(), locations, assignment);
+            }
+        }
+    }
+
+    // Assign scan ranges of the same bucket of all olap scan nodes in a colocate fragment
+    // to the same host, which is chosen from the common backends of these scan ranges.
+    private void computeColocateScanRangeAssignment(
+            final PlanFragmentId fragmentId,
+            final OlapScanNode scanNode,
+            final List<TScanRangeLocations> locations,
+            FragmentScanRangeAssignment assignment) throws Exception {
+        Map<Integer, TNetworkAddress> bucketSeqToAddress = colocateBucketSeqToAddress.get(fragmentId);
+        if (bucketSeqToAddress == null) {
+            bucketSeqToAddress = computeColocateBucketSeqToAddress(fragmentId);
+            colocateBucketSeqToAddress.put(fragmentId, bucketSeqToAddress);
+        }
+
+        for (TScanRangeLocations scanRangeLocations : locations) {
+            int bucketSeq = scanNode.getBucketSeq(scanRangeLocations.scan_range.palo_scan_range.tablet_id);
+            TNetworkAddress execHostPort = bucketSeqToAddress.get(bucketSeq);
+            if (execHostPort == null) {
+                throw new InternalException("no backend for bucket " + bucketSeq + " of colocate scan");
+            }
+
+            Map<Integer, List<TScanRangeParams>> scanRanges = findOrInsert(assignment, execHostPort,
+                new HashMap<Integer, List<TScanRangeParams>>());
+            List<TScanRangeParams> scanRangeParamsList =
+                findOrInsert(scanRanges, scanNode.getId().asInt(), new ArrayList<TScanRangeParams>());
+            TScanRangeParams scanRangeParams = new TScanRangeParams();
+            scanRangeParams.scan_range = scanRangeLocations.scan_range;
+            scanRangeParamsList.add(scanRangeParams);
+        }
+    }
+
+    // Choose host of each bucket for all olap scan nodes in a colocate fragment.
+    // Buckets are spread among hosts as evenly as possible.
+    private Map<Integer, TNetworkAddress> computeColocateBucketSeqToAddress(PlanFragmentId fragmentId)
+            throws Exception {
+        // bucket seq -> locations of the bucket whose backends are shared by all scan ranges of the bucket
+        Map<Integer, List<TScanRangeLocation>> bucketSeqToLocations = Maps.newTreeMap();
+        for (ScanNode scanNode : scanNodes) {
+            if (!scanNode.getFragmentId().equals(fragmentId) || !(scanNode instanceof OlapScanNode)) {
+                continue;
+            }
+            OlapScanNode olapScanNode = (OlapScanNode) scanNode;
+            for (TScanRangeLocations scanRangeLocations : olapScanNode.getScanRangeLocations(0)) {
+                int bucketSeq = olapScanNode.getBucketSeq(scanRangeLocations.scan_range.palo_scan_range.tablet_id);
+                List<TScanRangeLocation> bucketLocations = bucketSeqToLocations.get(bucketSeq);
+                if (bucketLocations == null) {
+                    bucketSeqToLocations.put(bucketSeq, Lists.newArrayList(scanRangeLocations.getLocations()));
+                    continue;
+                }
+                Iterator<TScanRangeLocation> iter = bucketLocations.iterator();
+                while (iter.hasNext()) {
+                    long backendId = iter.next().backend_id;
+                    boolean found = false;
+                    for (TScanRangeLocation location : scanRangeLocations.getLocations()) {
+                        if (location.backend_id == backendId) {
+                            found = true;
+                            break;
+                        }
+                    }
+                    if (!found) {
+                        iter.remove();
+                    }
+                }
+            }
         }
+
+        Map<Integer, TNetworkAddress> bucketSeqToAddress = Maps.newHashMap();
+        HashMap<TNetworkAddress, Long> assignedBucketsPerHost = Maps.newHashMap();
+        for (Map.Entry<Integer, List<TScanRangeLocation>> entry : bucketSeqToLocations.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                throw new InternalException("replicas of bucket " + entry.getKey()
+                        + " of colocate tables are not on the same backend");
+            }
+            Long minAssignedBuckets = Long.MAX_VALUE;
+            TScanRangeLocation minLocation = null;
+            for (final TScanRangeLocation location : entry.getValue()) {
+                Long assignedBuckets = findOrInsert(assignedBucketsPerHost, location.server, 0L);
+                if (assignedBuckets < minAssignedBuckets) {
+                    minAssignedBuckets = assignedBuckets;
+                    minLocation = location;
+                }
+            }
+
+            Reference<Long> backendIdRef = new Reference<Long>();
+            TNetworkAddress execHostPort = SimpleScheduler.getHost(minLocation.backend_id,
+                    entry.getValue(), this.idToBackend, backendIdRef);
+            if (execHostPort == null) {
+                throw new InternalException("there is no scanNode Backend");
+            }
+            this.addressToBackendID.put(execHostPort, backendIdRef.getRef());
+            assignedBucketsPerHost.put(execHostPort, findOrInsert(assignedBucketsPerHost, execHostPort, 0L) + 1);
+            bucketSeqToAddress.put(entry.getKey(), execHostPort);
+        }
+        return bucketSeqToAddress;
     }
 
     // Does a scan range assignment (returned in 'assignment') based on a list
@@ -830,6 +1082,7 @@ public class Coordinator {
             final List<TScanRangeLocations> locations,
             FragmentScanRangeAssignment assignment) throws Exception {
         HashMap<TNetworkAddress, Long> assignedBytesPerHost = Maps.newHashMap();
+        OlapScanNode scanNode = getOlapScanNode(nodeId.asInt());
         for (TScanRangeLocations scanRangeLocations : locations) {
             // assign this scan range to the host w/ the fewest assigned bytes
             Long minAssignedBytes = Long.MAX_VALUE;
@@ -841,7 +1094,7 @@ public class Coordinator {
                     minLocation = location;
                 }
             }
-            Long scanRangeLength = getScanRangeLength(scanRangeLocations.scan_range);
+            Long scanRangeLength = getScanRangeLength(scanNode, scanRangeLocations.scan_range);
             assignedBytesPerHost.put(minLocation.server,
                     assignedBytesPerHost.get(minLocation.server) + scanRangeLength);
 
@@ -1117,11 +1370,21 @@ public class Coordinator {
         public List<TUniqueId>                instanceIds       = Lists.newArrayList();
         public List<TPlanFragmentDestination> destinations      = Lists.newArrayList();
         public Map<Integer, Integer>          perExchNumSenders = Maps.newHashMap();
+        // scan ranges of every instance, empty if the fragment has no scan node
+        public List<Map<Integer, List<TScanRangeParams>>> instanceScanRanges = Lists.newArrayList();
 
         public FragmentExecParams(PlanFragment fragment) {
             this.fragment = fragment;
         }
 
+        // Returns scan ranges of the i-th instance, or null if it has no scan range.
+        Map<Integer, List<TScanRangeParams>> getInstanceScanRanges(int i) {
+            if (i < instanceScanRanges.size()) {
+                return instanceScanRanges.get(i);
+            }
+            return scanRangeAssignment.get(fragment.getFragmentId()).get(hosts.get(i));
+        }
+
         List<TExecPlanFragmentParams> toThrift(int backendNum) {
             List<TExecPlanFragmentParams> paramsList = Lists.newArrayList();
 
@@ -1134,10 +1397,7 @@ public class Coordinator {
                 params.setResource_info(tResourceInfo);
                 params.params.setQuery_id(queryId);
                 params.params.setFragment_instance_id(instanceIds.get(i));
-                TNetworkAddress address = fragmentExecParams.get(fragment.getFragmentId()).hosts.get(i);
-
-                Map<Integer, List<TScanRangeParams>> scanRanges =
-                        scanRangeAssignment.get(fragment.getFragmentId()).get(address);
+                Map<Integer, List<TScanRangeParams>> scanRanges = getInstanceScanRanges(i);
                 if (scanRanges == null) {
                     scanRanges = Maps.newHashMap();
                 }
@@ -1183,9 +1443,7 @@ public class Coordinator {
                 if (i != 0) {
                     sb.append(",");
                 }
-                TNetworkAddress address = fragmentExecParams.get(fragment.getFragmentId()).hosts.get(i);
-                Map<Integer, List<TScanRangeParams>> scanRanges =
-                        scanRangeAssignment.get(fragment.getFragmentId()).get(address);
+                Map<Integer, List<TScanRangeParams>> scanRanges = getInstanceScanRanges(i);
                 sb.append("{");
                 sb.append("id=").append(DebugUtil.printId(instanceIds.get(i)));
                 sb.append(",host=").append(hosts.get(i).getHostname());
@@ -1210,60 +1468,170 @@ public class Coordinator {
         }
     }
 
-    private static class ParallelExecutor {
-        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
-
-        public static void exec(List<Coordinator.BackendExecState> args,
-                int beginPos,
-                int numArgs,
-                ExecStatus status)
-                throws InterruptedException, TException {
-            CountDownLatch latch = new CountDownLatch(numArgs);
-            for (int i = 0; i < numArgs; ++i) {
-                Runnable r = new RpcThread(args.get(beginPos + i), latch, status);
-                EXECUTOR.submit(r);
+    // Dispatch exec rpcs of all fragment instances without waiting fragment by fragment.
+    // Instances of a fragment are started as soon as all instances of its destination fragment
+    // are started, so that data stream receivers are ready before any data is sent to them.
+    // Fragments sending data to the same destination are started together.
+    // Number of running rpcs to one backend is limited by Config.max_running_exec_rpc_num_per_backend.
+    private class FragmentDispatcher {
+        // no rpc finished in this time is treated as timeout.
+        // thrift rpc default timeout is 5 secs, we wait 10 secs(> 5 sec) to avoid false timeout
+        private static final long DISPATCH_TIMEOUT_MS = 10 * 1000L;
+
+        private ExecStatus status = new ExecStatus();
+        private boolean failed = false;
+
+        private List<PlanFragmentId> rootFragments = Lists.newArrayList();
+        private Map<PlanFragmentId, List<BackendExecState>> fragmentInstances = Maps.newHashMap();
+        private Map<PlanFragmentId, RuntimeProfile> fragmentProfiles = Maps.newHashMap();
+        // destination fragment id -> fragments sending data to it
+        private Map<PlanFragmentId, List<PlanFragmentId>> childFragments = Maps.newHashMap();
+        // fragment id -> number of instances not started
+        private Map<PlanFragmentId, Integer> unstartedNums = Maps.newHashMap();
+        private Map<PlanFragmentId, Long> dispatchStartNs = Maps.newHashMap();
+        private int unstartedNum = 0;
+
+        // backend -> number of running rpcs
+        private Map<TNetworkAddress, Integer> runningRpcNums = Maps.newHashMap();
+        // backend -> instances waiting for rpc
+        private Map<TNetworkAddress, LinkedList<BackendExecState>> waitingInstances = Maps.newHashMap();
+        private int runningRpcNum = 0;
+
+        private long startNs;
+        private long lastProgressMs;
+
+        public void addFragment(PlanFragment fragment, RuntimeProfile profile, List<BackendExecState> instances) {
+            PlanFragmentId fragmentId = fragment.getFragmentId();
+            fragmentInstances.put(fragmentId, instances);
+            fragmentProfiles.put(fragmentId, profile);
+            unstartedNums.put(fragmentId, instances.size());
+            unstartedNum += instances.size();
+
+            PlanFragment destFragment = fragment.getDestFragment();
+            if (destFragment == null) {
+                rootFragments.add(fragmentId);
+            } else {
+                List<PlanFragmentId> children = childFragments.get(destFragment.getFragmentId());
+                if (children == null) {
+                    children = Lists.newArrayList();
+                    childFragments.put(destFragment.getFragmentId(), children);
+                }
+                children.add(fragmentId);
+            }
+        }
+
+        // Return after all instances are started, or any rpc failed.
+        // If failed, wait for running rpcs to finish so that all started instances can be canceled.
+        public synchronized ExecStatus exec() throws InterruptedException {
+            startNs = System.nanoTime();
+            lastProgressMs = System.currentTimeMillis();
+            for (PlanFragmentId fragmentId : rootFragments) {
+                dispatchFragment(fragmentId);
             }
-            // timeOut cancel, no need to lock
-            // for after do exec, we can cancel and update
-            // thrift rpc default timeout is 5 secs.
-            // we make latch wait 10 secs(> 5 sec) to avoid false timeout
-            if (!latch.await(10, TimeUnit.SECONDS)) {
-                status.setErrCode(TStatusCode.TIMEOUT);
+
+            while (failed ? runningRpcNum > 0 : unstartedNum > 0) {
+                long waitMs = lastProgressMs + DISPATCH_TIMEOUT_MS - System.currentTimeMillis();
+                if (waitMs <= 0) {
+                    if (!failed) {
+                        failed = true;
+                        status.setErrCode(TStatusCode.TIMEOUT);
+                    }
+                    break;
+                }
+                wait(waitMs);
             }
+            return status;
         }
 
-        private static class RpcThread implements Runnable {
-            private Coordinator.BackendExecState parameter;
-            private CountDownLatch               latch;
-            private ExecStatus status;
+        private void dispatchFragment(PlanFragmentId fragmentId) {
+            long nowNs = System.nanoTime();
+            dispatchStartNs.put(fragmentId, nowNs);
+            fragmentProfiles.get(fragmentId).addCounter("DispatchWaitTime", TUnit.TIME_NS, "")
+                    .setValue(nowNs - startNs);
+            for (BackendExecState instance : fragmentInstances.get(fragmentId)) {
+                TNetworkAddress address = instance.getBackendAddress();
+                Integer runningNum = runningRpcNums.get(address);
+                if (runningNum != null && runningNum >= Config.max_running_exec_rpc_num_per_backend) {
+                    LinkedList<BackendExecState> waitingList = waitingInstances.get(address);
+                    if (waitingList == null) {
+                        waitingList = new LinkedList<BackendExecState>();
+                        waitingInstances.put(address, waitingList);
+                    }
+                    waitingList.add(instance);
+                } else {
+                    startRpc(instance);
+                }
+            }
+        }
 
-            public RpcThread(Coordinator.BackendExecState parameter, CountDownLatch latch,
-                    ExecStatus status) {
-                // store parameter for later user
-                this.parameter = parameter;
-                this.latch = latch;
-                // there is no need to lock needCanceled, because we only set needCanceled true
-                this.status = status;
+        private void startRpc(final BackendExecState instance) {
+            TNetworkAddress address = instance.getBackendAddress();
+            Integer runningNum = runningRpcNums.get(address);
+            runningRpcNums.put(address, runningNum == null ? 1 : runningNum + 1);
+            runningRpcNum++;
+
+            RPC_EXECUTOR.submit(new Runnable() {
+                @Override
+                public void run() {
+                    TStatusCode errCode = TStatusCode.OK;
+                    try {
+                        instance.execRemoteFragment();
+                    } catch (TTransportException e) {
+                        if (e.getType() == TTransportException.TIMED_OUT) {
+                            errCode = TStatusCode.TIMEOUT;
+                        } else {
+                            errCode = TStatusCode.THRIFT_RPC_ERROR;
+                        }
+                        LOG.warn("FragmentDispatcher get exception: {}", instance.getBackendAddress(), e);
+                    } catch (Exception e) {
+                        errCode = TStatusCode.INTERNAL_ERROR;
+                        LOG.warn("FragmentDispatcher get exception: {}", instance.getBackendAddress(), e);
+                    }
+                    onRpcFinished(instance, errCode);
+                }
+            });
+        }
+
+        private synchronized void onRpcFinished(BackendExecState instance, TStatusCode errCode) {
+            TNetworkAddress address = instance.getBackendAddress();
+            runningRpcNums.put(address, runningRpcNums.get(address) - 1);
+            runningRpcNum--;
+            lastProgressMs = System.currentTimeMillis();
+            notifyAll();
+
+            if (errCode != TStatusCode.OK) {
+                if (!failed) {
+                    // fail fast, no more rpcs will be sent
+                    failed = true;
+                    status.setErrCode(errCode);
+                    status.setErrAddress(address);
+                    waitingInstances.clear();
+                }
+                return;
+            }
+            if (failed) {
+                return;
             }
 
-            public void run() {
-                try {
-                    parameter.execRemoteFragment();
-                } catch (TTransportException e) {
-                    if (e.getType() == TTransportException.TIMED_OUT) {
-                        status.setErrCode(TStatusCode.TIMEOUT);
-                        status.setErrAddress(parameter.getBackendAddress());
-                    } else {
-                        status.setErrCode(TStatusCode.THRIFT_RPC_ERROR);
-                        status.setErrAddress(parameter.getBackendAddress());
+            unstartedNum--;
+            PlanFragmentId fragmentId = instance.fragmentId;
+            int fragmentUnstartedNum = unstartedNums.get(fragmentId) - 1;
+            unstartedNums.put(fragmentId, fragmentUnstartedNum);
+
+            LinkedList<BackendExecState> waitingList = waitingInstances.get(address);
+            if (waitingList != null && !waitingList.isEmpty()) {
+                startRpc(waitingList.poll());
+            }
+
+            if (fragmentUnstartedNum == 0) {
+                fragmentProfiles.get(fragmentId).addCounter("DispatchTime", TUnit.TIME_NS, "")
+                        .setValue(System.nanoTime() - dispatchStartNs.get(fragmentId));
+                List<PlanFragmentId> children = childFragments.get(fragmentId);
+                if (children != null) {
+                    for (PlanFragmentId child : children) {
+                        dispatchFragment(child);
                     }
-                    LOG.warn("ParallelExecutor get exception: {}", parameter.getBackendAddress(), e);
-                } catch (Exception e) {
-                    status.setErrCode(TStatusCode.INTERNAL_ERROR);
-                    status.setErrAddress(parameter.getBackendAddress());
-                    LOG.warn("ParallelExecutor get exception: {}", parameter.getBackendAddress(), e);
                 }
-                latch.countDown();
             }
         }
     }
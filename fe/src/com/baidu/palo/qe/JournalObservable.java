@@ -63,6 +63,10 @@ public class JournalObservable {
             JournalObserver observer = new JournalObserver(journalVersion);
             addObserver(observer);
             try {
+                // journal may be replayed before the observer is added, and the observer won't be notified.
+                if (Catalog.getInstance().getReplayedJournalId() >= journalVersion) {
+                    return;
+                }
                 boolean ok = observer.getLatch().await(timeoutMs, TimeUnit.MILLISECONDS);
                 if (!ok) {
                     throw new DdlException("Execute timeout, the command may be succeed, you'd better retry");
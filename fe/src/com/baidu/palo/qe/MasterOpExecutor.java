@@ -26,6 +26,7 @@ import org.apache.logging.log4j.Logger;
 import org.apache.thrift.transport.TTransportException;
 
 import com.baidu.palo.common.ClientPool;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.analysis.RedirectStatus;
 import com.baidu.palo.thrift.FrontendService;
 import com.baidu.palo.thrift.TMasterOpRequest;
@@ -46,7 +47,7 @@ public class MasterOpExecutor {
     public MasterOpExecutor(String originStmt, ConnectContext ctx, RedirectStatus status) {
         this.originStmt = originStmt;
         this.ctx = ctx;
-        if (status.isNeedToWaitJournalSync()) {
+        if (status.isNeedToWaitJournalSync() && !Config.follower_read_your_writes) {
             this.waitTimeoutMs = ctx.getSessionVariable().getQueryTimeoutS() * 1000;
         } else {
             this.waitTimeoutMs = 0;
@@ -57,6 +58,8 @@ public class MasterOpExecutor {
     public void execute() throws Exception {
         forward();
         LOG.info("forwarding to master get result max journal id: {}", result.maxJournalId);
+        // if journal is not waited here, the next statement of this session waits for it.
+        ctx.updateLastJournalId(result.maxJournalId);
         ctx.getCatalog().getJournalObservable().waitOn(result.maxJournalId, waitTimeoutMs);
     }
     
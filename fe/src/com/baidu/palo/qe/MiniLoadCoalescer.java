@@ -0,0 +1,260 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.analysis.LabelName;
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.DdlException;
+import com.baidu.palo.load.BrokerFileGroup;
+import com.baidu.palo.load.Load;
+import com.baidu.palo.thrift.TMiniLoadRequest;
+import com.baidu.palo.thrift.TNetworkAddress;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+
+// Coalesce mini loads into one load job, so that they are loaded as one version of the table,
+// and share the journals of one load job.
+// Mini loads are coalesced only if they load same table from same backend with same properties,
+// because all files of one table in a mini load job are read by one etl task in one backend.
+// The first request of a batch waits for Config.mini_load_coalesce_window_ms or until the batch
+// is full, and then adds the load job of the batch. Other requests wait for it and get the same result.
+// Each request keeps its own label, which can be used to check the state of the load job.
+public class MiniLoadCoalescer {
+    private static final Logger LOG = LogManager.getLogger(MiniLoadCoalescer.class);
+
+    // batches which can still be joined
+    private Map<BatchKey, Batch> keyToBatch = Maps.newHashMap();
+    // labels of requests whose batch has not finished
+    private Map<LabelName, Batch> labelToBatch = Maps.newHashMap();
+
+    public static boolean canCoalesce(TMiniLoadRequest request) {
+        if (Config.mini_load_coalesce_window_ms <= 0) {
+            return false;
+        }
+        // multi load and stream load are not coalesced
+        if (request.isSetSubLabel()) {
+            return false;
+        }
+        return request.getFiles().size() == 1 && !BrokerFileGroup.isStreamPath(request.getFiles().get(0));
+    }
+
+    // Same as Load.addLoadJob(TMiniLoadRequest), return false if the label has already been
+    // loaded by a request with same timestamp.
+    public boolean load(TMiniLoadRequest request) throws DdlException {
+        LabelName labelName = new LabelName(request.getDb(), request.getLabel());
+        long timestamp = request.isSetTimestamp() ? request.getTimestamp() : 0;
+
+        // retried request waits for the batch of its first attempt
+        Batch retriedBatch = null;
+        synchronized (this) {
+            retriedBatch = labelToBatch.get(labelName);
+        }
+        if (retriedBatch != null && retriedBatch.hasRequest(request.getLabel(), timestamp)) {
+            retriedBatch.waitFinished();
+            return false;
+        }
+
+        Load load = Catalog.getInstance().getLoadInstance();
+        if (!load.registerMiniLabel(request.getDb(), request.getLabel(), timestamp)) {
+            return false;
+        }
+
+        BatchKey key = new BatchKey(request);
+        Batch batch = null;
+        boolean isLeader = false;
+        synchronized (this) {
+            batch = keyToBatch.get(key);
+            if (batch == null) {
+                batch = new Batch(System.currentTimeMillis() + Config.mini_load_coalesce_window_ms);
+                keyToBatch.put(key, batch);
+                isLeader = true;
+            }
+            batch.addRequest(request);
+            labelToBatch.put(labelName, batch);
+            if (batch.isFull()) {
+                // no more requests can join this batch
+                keyToBatch.remove(key);
+            }
+        }
+
+        if (isLeader) {
+            batch.waitFullOrTimeout();
+            synchronized (this) {
+                if (keyToBatch.get(key) == batch) {
+                    keyToBatch.remove(key);
+                }
+            }
+            addLoadJob(load, batch);
+        } else {
+            batch.waitFinished();
+        }
+        return true;
+    }
+
+    // Errors are also thrown to the first request, other requests get them in waitFinished().
+    private void addLoadJob(Load load, Batch batch) throws DdlException {
+        List<TMiniLoadRequest> requests = batch.getRequests();
+        DdlException error = new DdlException("Failed to add coalesced mini load job");
+        try {
+            load.addCoalescedLoadJob(requests);
+            error = null;
+            LOG.info("add coalesced mini load job of {} requests, label: {}",
+                     requests.size(), requests.get(0).getLabel());
+        } catch (DdlException e) {
+            LOG.warn("failed to add coalesced mini load job, label: {}", requests.get(0).getLabel(), e);
+            error = e;
+            throw e;
+        } finally {
+            synchronized (this) {
+                for (TMiniLoadRequest request : requests) {
+                    labelToBatch.remove(new LabelName(request.getDb(), request.getLabel()));
+                }
+            }
+            for (TMiniLoadRequest request : requests) {
+                try {
+                    load.deregisterMiniLabel(request.getDb(), request.getLabel());
+                } catch (DdlException e) {
+                    LOG.warn("failed to deregister mini label: {}", request.getLabel(), e);
+                }
+            }
+            batch.finish(error);
+        }
+    }
+
+    private static class BatchKey {
+        private String db;
+        private String tbl;
+        private String user;
+        private TNetworkAddress backend;
+        private Map<String, String> properties;
+
+        public BatchKey(TMiniLoadRequest request) {
+            this.db = request.getDb();
+            this.tbl = request.getTbl();
+            this.user = request.getUser();
+            this.backend = request.getBackend();
+            this.properties = request.getProperties();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey other = (BatchKey) obj;
+            return Objects.equal(db, other.db) && Objects.equal(tbl, other.tbl)
+                    && Objects.equal(user, other.user) && Objects.equal(backend, other.backend)
+                    && Objects.equal(properties, other.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(db, tbl, user, backend, properties);
+        }
+    }
+
+    private static class Batch {
+        private final long deadlineMs;
+        private List<TMiniLoadRequest> requests = Lists.newArrayList();
+        private long bytes = 0;
+        private boolean isFinished = false;
+        private DdlException error = null;
+
+        public Batch(long deadlineMs) {
+            this.deadlineMs = deadlineMs;
+        }
+
+        public synchronized void addRequest(TMiniLoadRequest request) {
+            requests.add(request);
+            if (request.isSetFile_size()) {
+                bytes += request.getFile_size();
+            }
+            if (isFull()) {
+                notifyAll();
+            }
+        }
+
+        public synchronized boolean isFull() {
+            return requests.size() >= Config.mini_load_coalesce_max_num
+                    || bytes >= Config.mini_load_coalesce_max_bytes;
+        }
+
+        public synchronized boolean hasRequest(String label, long timestamp) {
+            for (TMiniLoadRequest request : requests) {
+                long requestTimestamp = request.isSetTimestamp() ? request.getTimestamp() : 0;
+                if (request.getLabel().equals(label) && requestTimestamp == timestamp) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public synchronized List<TMiniLoadRequest> getRequests() {
+            return Lists.newArrayList(requests);
+        }
+
+        // Only used by the first request of this batch, so other requests would not wait forever
+        // if it is interrupted.
+        public synchronized void waitFullOrTimeout() {
+            long leftMs = deadlineMs - System.currentTimeMillis();
+            while (!isFull() && leftMs > 0) {
+                try {
+                    wait(leftMs);
+                } catch (InterruptedException e) {
+                    LOG.warn("interrupted when waiting coalesced mini loads", e);
+                    break;
+                }
+                leftMs = deadlineMs - System.currentTimeMillis();
+            }
+        }
+
+        public synchronized void waitFinished() throws DdlException {
+            while (!isFinished) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new DdlException("Interrupted when waiting coalesced mini load job to be added");
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        public synchronized void finish(DdlException error) {
+            this.error = error;
+            this.isFinished = true;
+            notifyAll();
+        }
+    }
+}
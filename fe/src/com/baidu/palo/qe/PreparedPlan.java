@@ -0,0 +1,150 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.analysis.Analyzer;
+import com.baidu.palo.analysis.LiteralExpr;
+import com.baidu.palo.analysis.PreparedParams;
+import com.baidu.palo.analysis.QueryStmt;
+import com.baidu.palo.analysis.SetType;
+import com.baidu.palo.backup.BackupVersion;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Table;
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.InternalException;
+import com.baidu.palo.planner.OlapScanNode;
+import com.baidu.palo.planner.Planner;
+import com.baidu.palo.planner.ScanNode;
+
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Analyzed and planned query of a prepared statement, cached in the session, so the statement
+ * can be executed again with other parameter values without being analyzed and planned again.
+ *
+ * The plan is reused only if the values have the same types as when planning, the default db and
+ * session variables are not changed, and the tables read by the query are not dropped or changed,
+ * which is checked by the signatures of the tables(schema hashes of indexes and partition columns).
+ * The partitions, tablets and replicas to scan are selected again for every execution, because they
+ * depend on the parameter values and on the versions of the partitions. The plan is created again
+ * if the join distribution modes and runtime filter types of it don't fit the new tablets.
+ */
+public class PreparedPlan {
+    private final String key;
+    private final QueryStmt stmt;
+    private final Analyzer analyzer;
+    private final Planner planner;
+    // tables read by the query -> signatures of the tables when planning
+    private final Map<OlapTable, Integer> tableSignatures;
+    // tables read by the query -> dbs of the tables
+    private final Map<OlapTable, Database> tableDbs;
+
+    private PreparedPlan(String key, QueryStmt stmt, Analyzer analyzer, Planner planner,
+                         Map<OlapTable, Integer> tableSignatures, Map<OlapTable, Database> tableDbs) {
+        this.key = key;
+        this.stmt = stmt;
+        this.analyzer = analyzer;
+        this.planner = planner;
+        this.tableSignatures = tableSignatures;
+        this.tableDbs = tableDbs;
+    }
+
+    // Create the plan of 'stmt' analyzed with parameters by 'analyzer'.
+    // Return null if the plan can't be reused, which reads views or tables other than olap tables.
+    public static PreparedPlan create(String key, QueryStmt stmt, Analyzer analyzer, Planner planner) {
+        Map<OlapTable, Integer> tableSignatures = Maps.newHashMap();
+        Map<OlapTable, Database> tableDbs = Maps.newHashMap();
+        for (Map.Entry<Table, Database> entry : analyzer.getReferencedTables().entrySet()) {
+            if (!(entry.getKey() instanceof OlapTable)) {
+                return null;
+            }
+            OlapTable table = (OlapTable) entry.getKey();
+            tableSignatures.put(table, table.getSignature(BackupVersion.VERSION_1));
+            tableDbs.put(table, entry.getValue());
+        }
+        for (ScanNode scanNode : planner.getScanNodes()) {
+            if (!(scanNode instanceof OlapScanNode)) {
+                return null;
+            }
+        }
+        return new PreparedPlan(key, stmt, analyzer, planner, tableSignatures, tableDbs);
+    }
+
+    // Return the key of plans which can be reused when executing with 'values' in 'context'.
+    public static String getKey(ConnectContext context, List<LiteralExpr> values) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(context.getUser()).append('|').append(context.getDatabase()).append('|');
+        for (LiteralExpr value : values) {
+            sb.append(value.getType()).append(',');
+        }
+        sb.append('|').append(VariableMgr.dump(SetType.SESSION, context.getSessionVariable(), null));
+        return sb.toString();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public QueryStmt getStmt() {
+        return stmt;
+    }
+
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    public Planner getPlanner() {
+        return planner;
+    }
+
+    // Return false if any table read by the query is dropped or changed.
+    // Should be called with the dbs of the tables locked.
+    public boolean isValid() {
+        for (Map.Entry<OlapTable, Integer> entry : tableSignatures.entrySet()) {
+            OlapTable table = entry.getKey();
+            Database db = tableDbs.get(table);
+            if (analyzer.getCatalog().getDb(db.getId()) != db || db.getTable(table.getId()) != table) {
+                return false;
+            }
+            if (table.getSignature(BackupVersion.VERSION_1) != entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Bind 'values' to the parameters, and select the tablets to scan with them.
+    // Return false if the plan can't be executed with the selected tablets, because the join
+    // distribution modes or runtime filters chosen by the first values don't fit them, e.g.
+    // replicas of the buckets of a colocate join are not on the same backend any more.
+    // Should be called with the dbs of the tables locked.
+    public boolean bind(List<LiteralExpr> values) throws AnalysisException, InternalException {
+        PreparedParams params = analyzer.getPreparedParams();
+        params.bind(values);
+        for (ScanNode scanNode : planner.getScanNodes()) {
+            ((OlapScanNode) scanNode).refreshScanRanges(analyzer);
+        }
+        return planner.isPlanValid();
+    }
+}
@@ -0,0 +1,194 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.analysis.QueryStmt;
+import com.baidu.palo.analysis.ShowStmt;
+import com.baidu.palo.analysis.SqlParser;
+import com.baidu.palo.analysis.SqlScanner;
+import com.baidu.palo.analysis.StatementBase;
+import com.baidu.palo.common.AnalysisException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.StringReader;
+import java.util.List;
+
+/*
+ * Template of a prepared statement, which is immutable and shared by all sessions
+ * preparing the same sql.
+ *
+ * A query is parsed once with the parameter markers('?') as PlaceHolderExprs, and the parsed
+ * stmt is cloned for every execution, whose markers are bound to the values by the analyzer.
+ *
+ * The sql is also split into segments by the markers. The markers in string literals, quoted
+ * identifiers and comments are not parameters. The parameter values are bound as sql literals
+ * between the segments, which is executed as a text query if the stmt is not a query, or if the
+ * markers are not allowed at their positions by the parser, e.g. 'LIMIT ?'.
+ */
+public class PreparedStmt {
+    private static final Logger LOG = LogManager.getLogger(PreparedStmt.class);
+
+    private final String originStmt;
+    // size is number of parameters + 1
+    private final ImmutableList<String> segments;
+    // query parsed with parameter markers, never analyzed, null if the sql is executed as text
+    private final QueryStmt parsedStmt;
+
+    private PreparedStmt(String originStmt, List<String> segments, QueryStmt parsedStmt) {
+        this.originStmt = originStmt;
+        this.segments = ImmutableList.copyOf(segments);
+        this.parsedStmt = parsedStmt;
+    }
+
+    // Create the template of 'stmt', and check the syntax of it.
+    public static PreparedStmt create(String stmt) throws AnalysisException {
+        List<String> segments = split(stmt);
+        PreparedStmt preparedStmt = new PreparedStmt(stmt, segments, parseQuery(stmt, segments.size() - 1));
+
+        // parse with all parameters bound to NULL, only to check syntax and kind of statement
+        List<String> nulls = Lists.newArrayList();
+        for (int i = 0; i < preparedStmt.getNumParams(); ++i) {
+            nulls.add("NULL");
+        }
+        String sql = preparedStmt.bind(nulls);
+        SqlParser parser = new SqlParser(new SqlScanner(new StringReader(sql)));
+        StatementBase parsedStmt = null;
+        try {
+            parsedStmt = (StatementBase) parser.parse().value;
+        } catch (Error e) {
+            LOG.warn("error happens when parsing prepared sql: {}", e);
+            throw new AnalysisException("sql parsing error, please check your sql");
+        } catch (AnalysisException e) {
+            String errorMessage = parser.getErrorMsg(sql);
+            if (errorMessage == null) {
+                throw e;
+            } else {
+                throw new AnalysisException(errorMessage, e);
+            }
+        } catch (Exception e) {
+            LOG.warn("parse prepared sql failed because " + parser.getErrorMsg(sql), e);
+            throw new AnalysisException("Internal Error, maybe this is a bug, please contact with Palo RD.");
+        }
+
+        // result of these statements are only sent in text protocol
+        if (parsedStmt instanceof ShowStmt
+                || (parsedStmt instanceof QueryStmt && ((QueryStmt) parsedStmt).isExplain())) {
+            throw new AnalysisException("This command is not supported in the prepared statement protocol yet");
+        }
+        return preparedStmt;
+    }
+
+    // Parse 'stmt' with parameter markers, return null if it is not a query which can be parsed.
+    private static QueryStmt parseQuery(String stmt, int numParams) {
+        SqlParser parser = new SqlParser(new SqlScanner(new StringReader(stmt)));
+        StatementBase parsedStmt = null;
+        try {
+            parsedStmt = (StatementBase) parser.parse().value;
+        } catch (Throwable e) {
+            // error is reported when parsing the bound sql
+            LOG.debug("failed to parse prepared sql with parameter markers: {}", stmt, e);
+            return null;
+        }
+        if (!(parsedStmt instanceof QueryStmt) || ((QueryStmt) parsedStmt).isExplain()
+                || parser.placeHolderCount != numParams) {
+            return null;
+        }
+        return (QueryStmt) parsedStmt;
+    }
+
+    public String getOriginStmt() {
+        return originStmt;
+    }
+
+    // Return a copy of the query parsed with parameter markers, which can be analyzed by the caller.
+    // Return null if the sql is executed as text.
+    public QueryStmt getParsedStmt() {
+        return parsedStmt == null ? null : parsedStmt.clone();
+    }
+
+    public int getNumParams() {
+        return segments.size() - 1;
+    }
+
+    // Return the sql with parameters replaced by 'literals'.
+    public String bind(List<String> literals) {
+        Preconditions.checkArgument(literals.size() == getNumParams());
+        StringBuilder sb = new StringBuilder(originStmt.length() + 16 * literals.size());
+        sb.append(segments.get(0));
+        for (int i = 0; i < literals.size(); ++i) {
+            sb.append(literals.get(i)).append(segments.get(i + 1));
+        }
+        return sb.toString();
+    }
+
+    // Split the sql by parameter markers.
+    public static List<String> split(String stmt) {
+        List<String> segments = Lists.newArrayList();
+        int segmentStart = 0;
+        int i = 0;
+        int length = stmt.length();
+        while (i < length) {
+            char c = stmt.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = skipQuoted(stmt, i, c);
+            } else if (c == '-' && stmt.startsWith("--", i)) {
+                int end = stmt.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && stmt.startsWith("/*", i)) {
+                int end = stmt.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '?') {
+                segments.add(stmt.substring(segmentStart, i));
+                segmentStart = ++i;
+            } else {
+                ++i;
+            }
+        }
+        segments.add(stmt.substring(segmentStart));
+        return segments;
+    }
+
+    // Return position after the closing quote of quoted string starting at 'start'.
+    private static int skipQuoted(String stmt, int start, char quote) {
+        int i = start + 1;
+        while (i < stmt.length()) {
+            char c = stmt.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+            } else if (c == quote) {
+                // two quotes is an escaped quote
+                if (i + 1 < stmt.length() && stmt.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                ++i;
+            }
+        }
+        return stmt.length();
+    }
+}
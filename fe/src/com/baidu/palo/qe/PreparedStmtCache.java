@@ -0,0 +1,87 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.util.Metrics;
+
+import io.dropwizard.metrics.Counter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * LRU cache of prepared statement templates, keyed by the sql to prepare.
+ * Sessions preparing the same sql share one template, so the sql is only split and parsed once.
+ * The templates don't refer to any catalog object, so they never become stale.
+ */
+public class PreparedStmtCache {
+    private static final String HIT_COUNTER_NAME = "prepared_stmt_cache.hit_count";
+    private static final String MISS_COUNTER_NAME = "prepared_stmt_cache.miss_count";
+
+    private static final PreparedStmtCache INSTANCE = new PreparedStmtCache();
+
+    private LinkedHashMap<String, PreparedStmt> stmts;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    public static PreparedStmtCache getInstance() {
+        return INSTANCE;
+    }
+
+    private PreparedStmtCache() {
+        stmts = new LinkedHashMap<String, PreparedStmt>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStmt> eldest) {
+                return size() > Config.prepared_stmt_cache_num;
+            }
+        };
+        hitCounter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER, HIT_COUNTER_NAME);
+        missCounter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER, MISS_COUNTER_NAME);
+    }
+
+    // Return the template of 'stmt', create it if not cached.
+    public PreparedStmt getOrCreate(String stmt) throws AnalysisException {
+        synchronized (this) {
+            PreparedStmt preparedStmt = stmts.get(stmt);
+            if (preparedStmt != null) {
+                hitCounter.inc();
+                return preparedStmt;
+            }
+        }
+        missCounter.inc();
+        // parse out of lock
+        PreparedStmt preparedStmt = PreparedStmt.create(stmt);
+        synchronized (this) {
+            stmts.put(stmt, preparedStmt);
+        }
+        return preparedStmt;
+    }
+
+    public synchronized int size() {
+        return stmts.size();
+    }
+
+    public synchronized void clear() {
+        stmts.clear();
+    }
+}
@@ -0,0 +1,84 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import java.io.ByteArrayOutputStream;
+
+// A prepared statement of one session.
+public class PreparedStmtContext {
+    private final int stmtId;
+    private final PreparedStmt stmt;
+    // types of parameters sent by the last COM_STMT_EXECUTE, null if never sent
+    private int[] paramTypes;
+    // data of parameters sent by COM_STMT_SEND_LONG_DATA, cleared after every execution
+    private ByteArrayOutputStream[] longData;
+    // plan of the last execution, null if it can't be reused
+    private PreparedPlan plan;
+
+    public PreparedStmtContext(int stmtId, PreparedStmt stmt) {
+        this.stmtId = stmtId;
+        this.stmt = stmt;
+        this.paramTypes = null;
+        this.longData = new ByteArrayOutputStream[stmt.getNumParams()];
+        this.plan = null;
+    }
+
+    public int getStmtId() {
+        return stmtId;
+    }
+
+    public PreparedStmt getStmt() {
+        return stmt;
+    }
+
+    public int[] getParamTypes() {
+        return paramTypes;
+    }
+
+    public void setParamTypes(int[] paramTypes) {
+        this.paramTypes = paramTypes;
+    }
+
+    public PreparedPlan getPlan() {
+        return plan;
+    }
+
+    public void setPlan(PreparedPlan plan) {
+        this.plan = plan;
+    }
+
+    public void appendLongData(int paramId, byte[] data) {
+        if (longData[paramId] == null) {
+            longData[paramId] = new ByteArrayOutputStream();
+        }
+        longData[paramId].write(data, 0, data.length);
+    }
+
+    // Return null if no long data is sent for this parameter.
+    public byte[] getLongData(int paramId) {
+        return longData[paramId] == null ? null : longData[paramId].toByteArray();
+    }
+
+    public void resetLongData() {
+        for (int i = 0; i < longData.length; ++i) {
+            longData[i] = null;
+        }
+    }
+}
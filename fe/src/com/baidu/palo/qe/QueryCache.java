@@ -0,0 +1,248 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.analysis.QueryStmt;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.common.util.Metrics;
+import com.baidu.palo.planner.OlapScanNode;
+import com.baidu.palo.planner.ScanNode;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.dropwizard.metrics.Counter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/*
+ * Cache of query results in frontend.
+ *
+ * The key is the sql of analyzed query stmt, plus (partition id, version, version hash) of all
+ * partitions read by the query, and ids of all partitions of the tables. So a cached result will never
+ * be returned after data is changed, or after partitions are added or dropped, which may change the
+ * partitions selected by the query. The entry is only removed from cache to release memory when
+ * the partition version is updated.
+ * Only queries reading olap tables without non-deterministic functions are cached.
+ *
+ * The value is the serialized mysql rows. Entries are evicted in LRU order if total size of
+ * cache exceeds Config.query_cache_size_mb.
+ */
+public class QueryCache {
+    private static final Logger LOG = LogManager.getLogger(QueryCache.class);
+
+    private static final String HIT_COUNTER_NAME = "query_cache.hit_count";
+    private static final String MISS_COUNTER_NAME = "query_cache.miss_count";
+    private static final String EVICTION_COUNTER_NAME = "query_cache.eviction_count";
+    private static final String SIZE_COUNTER_NAME = "query_cache.size_bytes";
+
+    // result of these functions changes with time or is random
+    private static final Pattern NON_DETERMINISTIC_FUNCTION = Pattern.compile(
+            "\\b(now|curdate|curtime|current_date|current_time|current_timestamp|localtime|localtimestamp"
+                    + "|unix_timestamp|utc_timestamp|sysdate|rand|random|uuid|sleep|connection_id)\\s*\\(",
+            Pattern.CASE_INSENSITIVE);
+
+    // estimated memory of one entry besides key and rows
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private static final QueryCache INSTANCE = new QueryCache();
+
+    private static class CacheEntry {
+        private final List<Long> partitionIds;
+        private final List<byte[]> rows;
+        private final long size;
+
+        public CacheEntry(String key, List<Long> partitionIds, List<byte[]> rows, long rowBytes) {
+            this.partitionIds = partitionIds;
+            this.rows = rows;
+            this.size = 2L * key.length() + 8L * partitionIds.size() + 16L * rows.size() + rowBytes
+                    + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+
+    // key -> entry, in access order
+    private LinkedHashMap<String, CacheEntry> entries;
+    // partition id -> keys of entries reading this partition
+    private Map<Long, Set<String>> partitionToKeys;
+    private long totalSize;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter evictionCounter;
+    private Counter sizeCounter;
+
+    public static QueryCache getInstance() {
+        return INSTANCE;
+    }
+
+    private QueryCache() {
+        entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+        partitionToKeys = Maps.newHashMap();
+        totalSize = 0;
+        hitCounter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER, HIT_COUNTER_NAME);
+        missCounter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER, MISS_COUNTER_NAME);
+        evictionCounter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER, EVICTION_COUNTER_NAME);
+        sizeCounter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER, SIZE_COUNTER_NAME);
+    }
+
+    public static long getMaxResultBytes() {
+        return Config.query_cache_max_result_kb * 1024L;
+    }
+
+    /*
+     * Return the cache key of the query, or null if the query can not be cached.
+     * Should be called after the query is planned.
+     */
+    public static String getCacheKey(ConnectContext context, QueryStmt queryStmt, List<ScanNode> scanNodes,
+                                     List<Long> partitionIds) {
+        if (!Config.query_cache_enabled || scanNodes.isEmpty()) {
+            return null;
+        }
+        String sql = queryStmt.toSql();
+        if (NON_DETERMINISTIC_FUNCTION.matcher(sql).find()) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(context.getUser()).append('|').append(context.getDatabase()).append('|').append(sql);
+        for (ScanNode scanNode : scanNodes) {
+            if (!(scanNode instanceof OlapScanNode)) {
+                return null;
+            }
+            OlapScanNode olapScanNode = (OlapScanNode) scanNode;
+            long indexId = olapScanNode.getSelectedIndexId();
+            sb.append('|').append(olapScanNode.getOlapTable().getId())
+                    .append(':').append(indexId)
+                    .append(':').append(olapScanNode.getOlapTable().getSchemaHashByIndexId(indexId));
+            // partitions added or dropped may be selected by a query with same sql
+            sb.append('|').append(Joiner.on(',').join(olapScanNode.getTablePartitionIds())).append('|');
+            for (Map.Entry<Long, Pair<Long, Long>> entry : olapScanNode.getSelectedPartitionVersions().entrySet()) {
+                sb.append(',').append(entry.getKey())
+                        .append(':').append(entry.getValue().first)
+                        .append(':').append(entry.getValue().second);
+                partitionIds.add(entry.getKey());
+            }
+        }
+        return sb.toString();
+    }
+
+    // Return cached rows, or null if not found.
+    public synchronized List<byte[]> get(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            missCounter.inc();
+            return null;
+        }
+        hitCounter.inc();
+        return entry.rows;
+    }
+
+    public synchronized void put(String key, List<Long> partitionIds, List<byte[]> rows, long rowBytes) {
+        CacheEntry entry = new CacheEntry(key, Lists.newArrayList(Sets.newHashSet(partitionIds)), rows, rowBytes);
+        long maxSize = Config.query_cache_size_mb * 1024L * 1024L;
+        if (entry.size > maxSize) {
+            return;
+        }
+        remove(key);
+
+        entries.put(key, entry);
+        for (Long partitionId : entry.partitionIds) {
+            Set<String> keys = partitionToKeys.get(partitionId);
+            if (keys == null) {
+                keys = Sets.newHashSet();
+                partitionToKeys.put(partitionId, keys);
+            }
+            keys.add(key);
+        }
+        updateSize(entry.size);
+
+        // evict least recently used entries
+        Iterator<Map.Entry<String, CacheEntry>> iter = entries.entrySet().iterator();
+        while (totalSize > maxSize && iter.hasNext()) {
+            Map.Entry<String, CacheEntry> eldest = iter.next();
+            iter.remove();
+            unlinkPartitions(eldest.getKey(), eldest.getValue());
+            updateSize(-eldest.getValue().size);
+            evictionCounter.inc();
+        }
+    }
+
+    // Called when version of the partition is updated. Entries reading it will never be hit again.
+    public synchronized void invalidatePartition(long partitionId) {
+        Set<String> keys = partitionToKeys.remove(partitionId);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            remove(key);
+        }
+        LOG.debug("invalidate {} query cache entries of partition {}", keys.size(), partitionId);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        partitionToKeys.clear();
+        updateSize(-totalSize);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    private void remove(String key) {
+        CacheEntry entry = entries.remove(key);
+        if (entry != null) {
+            unlinkPartitions(key, entry);
+            updateSize(-entry.size);
+        }
+    }
+
+    private void unlinkPartitions(String key, CacheEntry entry) {
+        for (Long partitionId : entry.partitionIds) {
+            Set<String> keys = partitionToKeys.get(partitionId);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    partitionToKeys.remove(partitionId);
+                }
+            }
+        }
+    }
+
+    private void updateSize(long delta) {
+        totalSize += delta;
+        sizeCounter.inc(delta);
+    }
+}
@@ -73,7 +73,8 @@ public class ResultReceiver {
     
                 packetIdx++;
                 isDone = thriftResult.eos;
-                if (thriftResult.result_batch.rows.size() > 0) {
+                if (thriftResult.result_batch.rows.size() > 0
+                        || thriftResult.result_batch.num_packed_rows > 0) {
                     return thriftResult.result_batch;
                 }
             }
@@ -60,6 +60,12 @@ public class SessionVariable implements Serializable, Writable {
     public static final String SQL_SAFE_UPDATES = "sql_safe_updates";
     public static final String NET_BUFFER_LENGTH = "net_buffer_length";
     public static final String CODEGEN_LEVEL = "codegen_level";
+    public static final String ENABLE_JOIN_REORDER = "enable_join_reorder";
+    public static final String DISABLE_COLOCATE_JOIN = "disable_colocate_join";
+    public static final String ENABLE_RUNTIME_FILTER = "enable_runtime_filter";
+    public static final String RUNTIME_FILTER_MAX_IN_NUM = "runtime_filter_max_in_num";
+    public static final String ENABLE_EXPR_REWRITE = "enable_expr_rewrite";
+    public static final String PARALLEL_FRAGMENT_EXEC_INSTANCE_NUM = "parallel_fragment_exec_instance_num";
     
     // max memory used on every backend.
     @VariableMgr.VarAttr(name = EXEC_MEM_LIMIT)
@@ -154,6 +160,32 @@ public class SessionVariable implements Serializable, Writable {
     @VariableMgr.VarAttr(name = CODEGEN_LEVEL)
     private int codegenLevel = 0;    
 
+    // if true, inner joins of olap tables are reordered by estimated row count of tables.
+    @VariableMgr.VarAttr(name = ENABLE_JOIN_REORDER)
+    private boolean enableJoinReorder = false;
+
+    // if true, joins of tables in the same colocate group are not executed locally on each backend.
+    @VariableMgr.VarAttr(name = DISABLE_COLOCATE_JOIN)
+    private boolean disableColocateJoin = false;
+
+    // if true, hash joins generate filters from build side, which are applied by olap scans of probe side.
+    @VariableMgr.VarAttr(name = ENABLE_RUNTIME_FILTER)
+    private boolean enableRuntimeFilter = true;
+
+    // if the build side has more values than this, a min max filter is generated instead of in filter.
+    @VariableMgr.VarAttr(name = RUNTIME_FILTER_MAX_IN_NUM)
+    private long runtimeFilterMaxInNum = 1024;
+
+    // if true, constant exprs are folded and predicates are simplified in frontend.
+    @VariableMgr.VarAttr(name = ENABLE_EXPR_REWRITE)
+    private boolean enableExprRewrite = true;
+
+    // max number of instances of a scan fragment on one backend. The number of instances is decided
+    // by estimated bytes to scan and is limited by Config.max_scan_instance_num_per_backend.
+    // 0 means only limited by the config, and 1 means one instance on every backend.
+    @VariableMgr.VarAttr(name = PARALLEL_FRAGMENT_EXEC_INSTANCE_NUM)
+    private int parallelFragmentExecInstanceNum = 0;
+
     public long getMaxExecMemByte() {
         return maxExecMemByte;
     }
@@ -166,6 +198,30 @@ public class SessionVariable implements Serializable, Writable {
         return isReportSucc;
     }
 
+    public boolean isEnableJoinReorder() {
+        return enableJoinReorder;
+    }
+
+    public boolean isDisableColocateJoin() {
+        return disableColocateJoin;
+    }
+
+    public boolean isEnableRuntimeFilter() {
+        return enableRuntimeFilter;
+    }
+
+    public long getRuntimeFilterMaxInNum() {
+        return runtimeFilterMaxInNum;
+    }
+
+    public boolean isEnableExprRewrite() {
+        return enableExprRewrite;
+    }
+
+    public int getParallelFragmentExecInstanceNum() {
+        return parallelFragmentExecInstanceNum;
+    }
+
     public int getWaitTimeoutS() {
         return waitTimeout;
     }
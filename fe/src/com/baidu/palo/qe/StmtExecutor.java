@@ -19,6 +19,7 @@
 
 package com.baidu.palo.qe;
 
+import com.baidu.palo.analysis.AnalyzeStmt;
 import com.baidu.palo.analysis.Analyzer;
 import com.baidu.palo.analysis.CreateTableAsSelectStmt;
 import com.baidu.palo.analysis.DdlStmt;
@@ -27,6 +28,9 @@ import com.baidu.palo.analysis.ExportStmt;
 import com.baidu.palo.analysis.Expr;
 import com.baidu.palo.analysis.InsertStmt;
 import com.baidu.palo.analysis.KillStmt;
+import com.baidu.palo.analysis.LiteralExpr;
+import com.baidu.palo.analysis.NullLiteral;
+import com.baidu.palo.analysis.PreparedParams;
 import com.baidu.palo.analysis.QueryStmt;
 import com.baidu.palo.analysis.RedirectStatus;
 import com.baidu.palo.analysis.SelectStmt;
@@ -40,21 +44,26 @@ import com.baidu.palo.analysis.UnsupportedStmt;
 import com.baidu.palo.analysis.UseStmt;
 import com.baidu.palo.catalog.Catalog;
 import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.ColumnStats;
 import com.baidu.palo.catalog.ColumnType;
 import com.baidu.palo.catalog.Database;
 import com.baidu.palo.catalog.Table.TableType;
 import com.baidu.palo.catalog.Type;
 import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.common.DdlException;
 import com.baidu.palo.common.ErrorCode;
 import com.baidu.palo.common.ErrorReport;
 import com.baidu.palo.common.InternalException;
 import com.baidu.palo.common.util.DebugUtil;
+import com.baidu.palo.common.util.Metrics;
 import com.baidu.palo.common.util.ProfileManager;
 import com.baidu.palo.common.util.RuntimeProfile;
 import com.baidu.palo.common.util.TimeUtils;
-import com.baidu.palo.mysql.MysqlChannel;
+import com.baidu.palo.mysql.MysqlBinaryProtocol;
+import com.baidu.palo.mysql.MysqlColType;
 import com.baidu.palo.mysql.MysqlEofPacket;
+import com.baidu.palo.mysql.MysqlProto;
 import com.baidu.palo.mysql.MysqlSerializer;
 import com.baidu.palo.planner.Planner;
 import com.baidu.palo.rewrite.ExprRewriter;
@@ -68,6 +77,8 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
+import io.dropwizard.metrics.Counter;
+import io.dropwizard.metrics.Histogram;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.thrift.transport.TTransportException;
@@ -75,6 +86,8 @@ import org.apache.thrift.transport.TTransportException;
 import java.io.IOException;
 import java.io.StringReader;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -84,6 +97,8 @@ import java.util.UUID;
 // second: Do handle function for statement.
 public class StmtExecutor {
     private static final Logger LOG = LogManager.getLogger(StmtExecutor.class);
+    private static final String JOURNAL_WAIT_HISTOGRAM_NAME = "journal.read_your_writes_wait_ms";
+    private static final String JOURNAL_WAIT_TIMEOUT_COUNTER_NAME = "journal.read_your_writes_timeout";
 
     private ConnectContext context;
     private MysqlSerializer serializer;
@@ -99,6 +114,13 @@ public class StmtExecutor {
     private Planner planner;
     private boolean isProxy;
     private ShowResultSet proxyResultSet = null;
+    // if true, rows of query are sent in binary protocol, which is used by prepared statements
+    private boolean isBinaryProtocol = false;
+    // set if this is an execution of a prepared statement
+    private PreparedStmtContext preparedStmtCtx = null;
+    private List<LiteralExpr> paramValues = null;
+    // values bound to the parameter markers of parsedStmt, null if parsedStmt is parsed from text
+    private PreparedParams preparedParams = null;
 
     public StmtExecutor(ConnectContext context, String stmt, boolean isProxy) {
         this.context = context;
@@ -111,6 +133,17 @@ public class StmtExecutor {
         this(context, stmt, false);
     }
 
+    public void setBinaryProtocol(boolean isBinaryProtocol) {
+        this.isBinaryProtocol = isBinaryProtocol;
+    }
+
+    // Execute 'stmtCtx' with 'values' of parameters, 'originStmt' is the sql bound with the values,
+    // which is executed if the prepared stmt can't be executed with parameter markers.
+    public void setPreparedStmt(PreparedStmtContext stmtCtx, List<LiteralExpr> values) {
+        this.preparedStmtCtx = stmtCtx;
+        this.paramValues = values;
+    }
+
     // At the end of query execution, we begin to add up profile
     public void initProfile(long beginTimeInNanoSecond) {
         profile = new RuntimeProfile("Query");
@@ -150,6 +183,35 @@ public class StmtExecutor {
         }
     }
 
+    // Wait for this frontend to replay the journals of the statements forwarded to master by this session,
+    // so that this statement is analyzed with the writes of this session.
+    private void waitSessionJournalReplayed() throws DdlException {
+        Catalog catalog = Catalog.getInstance();
+        long journalId = context.getLastJournalId();
+        if (!Config.follower_read_your_writes || catalog.isMaster()
+                || catalog.getReplayedJournalId() >= journalId) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            catalog.getJournalObservable().waitOn(journalId,
+                    context.getSessionVariable().getQueryTimeoutS() * 1000);
+        } catch (DdlException e) {
+            Counter timeoutCounter = (Counter) Metrics.getMetric(Metrics.MetricType.COUNTER,
+                    JOURNAL_WAIT_TIMEOUT_COUNTER_NAME);
+            timeoutCounter.inc();
+            LOG.warn("failed to wait journal {} replayed, replayed journal id: {}",
+                    journalId, catalog.getReplayedJournalId());
+            throw new DdlException("Timeout waiting for the previous writes of this session to be synced"
+                    + " to this frontend, you'd better retry");
+        } finally {
+            Histogram waitHistogram = (Histogram) Metrics.getMetric(Metrics.MetricType.HISTOGRAM,
+                    JOURNAL_WAIT_HISTOGRAM_NAME);
+            waitHistogram.update(System.currentTimeMillis() - startTime);
+        }
+    }
+
     public ByteBuffer getOutputPacket() {
         if (masterOpExecutor == null) {
             return null;
@@ -176,6 +238,8 @@ public class StmtExecutor {
     public void execute() throws Exception {
         long beginTimeInNanoSecond = TimeUtils.getStartTime();
         try {
+            waitSessionJournalReplayed();
+
             // analyze this query
             analyze();
 
@@ -228,6 +292,8 @@ public class StmtExecutor {
                 if (context.getSessionVariable().isReportSucc()) {
                     writeProfile(beginTimeInNanoSecond);
                 }
+            } else if (parsedStmt instanceof AnalyzeStmt) { // Must ahead of DdlStmt because AnalyzeStmt is its subclass
+                handleAnalyzeStmt();
             } else if (parsedStmt instanceof DdlStmt) {
                 handleDdlStmt();
             } else if (parsedStmt instanceof ShowStmt) {
@@ -304,6 +370,10 @@ public class StmtExecutor {
     // Analyze one statement to structure in memory.
     private void analyze() throws AnalysisException {
         LOG.info("the originStmt is ={}", originStmt);
+        if (preparedStmtCtx != null && analyzePreparedQuery()) {
+            return;
+        }
+
         // Parse statement with parser generated by CUP&FLEX
         SqlScanner input = new SqlScanner(new StringReader(originStmt));
         SqlParser parser = new SqlParser(input);
@@ -357,55 +427,7 @@ public class StmtExecutor {
 
             lock(dbs);
             try {
-                parsedStmt.analyze(analyzer);
-                if (parsedStmt instanceof QueryStmt) {
-                    QueryStmt queryStmt1 = (QueryStmt)parsedStmt;
-                    boolean isExplain = ((QueryStmt) parsedStmt).isExplain();
-                    // Apply expr and subquery rewrites.
-                    boolean reAnalyze = false;
-
-                    ExprRewriter rewriter = analyzer.getExprRewriter();
-                    rewriter.reset();
-                    queryStmt1.rewriteExprs(rewriter);
-                    reAnalyze = rewriter.changed();
-                    if (analyzer.containSubquery()) {
-                        StmtRewriter.rewrite(analyzer, parsedStmt);
-                        reAnalyze = true;
-                    }
-
-                    if (reAnalyze) {
-                        // The rewrites should have no user-visible effect. Remember the original result
-                        // types and column labels to restore them after the rewritten stmt has been
-                        // reset() and re-analyzed.
-                        List<Type> origResultTypes = Lists.newArrayList();
-                        for (Expr e: queryStmt1.getResultExprs()) {
-                            origResultTypes.add(e.getType());
-                        }
-                        List<String> origColLabels =
-                                Lists.newArrayList(queryStmt1.getColLabels());
-
-                        // Re-analyze the stmt with a new analyzer.
-                        analyzer = new Analyzer(context.getCatalog(), context);
-                        parsedStmt.reset();
-                        parsedStmt.analyze(analyzer);
-
-                        // Restore the original result types and column labels.
-                        queryStmt1.castResultExprs(origResultTypes);
-                        queryStmt1.setColLabels(origColLabels);
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("rewrittenStmt: " + parsedStmt.toSql());
-                        }
-                        if (isExplain) parsedStmt.setIsExplain(isExplain);
-                    }
-                }
-                // create plan
-                planner = new Planner();
-                if (parsedStmt instanceof QueryStmt || parsedStmt instanceof InsertStmt) {
-                    planner.plan(parsedStmt, analyzer, new TQueryOptions());
-                } else {
-                    planner.plan(((CreateTableAsSelectStmt) parsedStmt).getInsertStmt(),
-                            analyzer, new TQueryOptions());
-                }
+                analyzeAndPlan();
                 // TODO(zc):
                 // Preconditions.checkState(!analyzer.hasUnassignedConjuncts());
             } catch (AnalysisException e) {
@@ -430,6 +452,111 @@ public class StmtExecutor {
         }
     }
 
+    // Analyze parsedStmt which is a query or an insert, and plan it.
+    // Should be called with the dbs of the stmt locked.
+    private void analyzeAndPlan() throws Exception {
+        parsedStmt.analyze(analyzer);
+        if (parsedStmt instanceof QueryStmt) {
+            QueryStmt queryStmt1 = (QueryStmt)parsedStmt;
+            boolean isExplain = ((QueryStmt) parsedStmt).isExplain();
+            // Apply expr and subquery rewrites.
+            boolean reAnalyze = false;
+
+            ExprRewriter rewriter = analyzer.getExprRewriter();
+            rewriter.reset();
+            queryStmt1.rewriteExprs(rewriter);
+            reAnalyze = rewriter.changed();
+            if (analyzer.containSubquery()) {
+                StmtRewriter.rewrite(analyzer, parsedStmt);
+                reAnalyze = true;
+            }
+
+            if (reAnalyze) {
+                // The rewrites should have no user-visible effect. Remember the original result
+                // types and column labels to restore them after the rewritten stmt has been
+                // reset() and re-analyzed.
+                List<Type> origResultTypes = Lists.newArrayList();
+                for (Expr e: queryStmt1.getResultExprs()) {
+                    origResultTypes.add(e.getType());
+                }
+                List<String> origColLabels =
+                        Lists.newArrayList(queryStmt1.getColLabels());
+
+                // Re-analyze the stmt with a new analyzer.
+                analyzer = new Analyzer(context.getCatalog(), context);
+                analyzer.setPreparedParams(preparedParams);
+                parsedStmt.reset();
+                parsedStmt.analyze(analyzer);
+
+                // Restore the original result types and column labels.
+                queryStmt1.castResultExprs(origResultTypes);
+                queryStmt1.setColLabels(origColLabels);
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("rewrittenStmt: " + parsedStmt.toSql());
+                }
+                if (isExplain) parsedStmt.setIsExplain(isExplain);
+            }
+        }
+        // create plan
+        planner = new Planner();
+        if (parsedStmt instanceof QueryStmt || parsedStmt instanceof InsertStmt) {
+            planner.plan(parsedStmt, analyzer, new TQueryOptions());
+        } else {
+            planner.plan(((CreateTableAsSelectStmt) parsedStmt).getInsertStmt(),
+                    analyzer, new TQueryOptions());
+        }
+    }
+
+    // Analyze and plan the prepared query parsed with parameter markers, or reuse the plan of the last
+    // execution. Return false if the query should be parsed from the bound sql.
+    private boolean analyzePreparedQuery() throws AnalysisException {
+        QueryStmt queryStmt = preparedStmtCtx.getStmt().getParsedStmt();
+        if (queryStmt == null) {
+            return false;
+        }
+        for (LiteralExpr value : paramValues) {
+            // type of NULL is decided by where it is used, so it is bound as a sql literal
+            if (value instanceof NullLiteral) {
+                return false;
+            }
+        }
+
+        parsedStmt = queryStmt;
+        redicrtStatus = parsedStmt.getRedirectStatus();
+        analyzer = new Analyzer(context.getCatalog(), context);
+        // check access to the dbs with the unanalyzed copy, even if the plan is reused
+        Map<String, Database> dbs = Maps.newTreeMap();
+        queryStmt.getDbs(analyzer, dbs);
+
+        String planKey = PreparedPlan.getKey(context, paramValues);
+        PreparedPlan plan = preparedStmtCtx.getPlan();
+        preparedStmtCtx.setPlan(null);
+        lock(dbs);
+        try {
+            if (plan != null && plan.getKey().equals(planKey) && plan.isValid() && plan.bind(paramValues)) {
+                parsedStmt = plan.getStmt();
+                analyzer = plan.getAnalyzer();
+                planner = plan.getPlanner();
+                preparedStmtCtx.setPlan(plan);
+                LOG.debug("reuse plan of prepared stmt {}", preparedStmtCtx.getStmtId());
+                return true;
+            }
+
+            preparedParams = new PreparedParams(paramValues);
+            analyzer.setPreparedParams(preparedParams);
+            analyzeAndPlan();
+            preparedStmtCtx.setPlan(PreparedPlan.create(planKey, (QueryStmt) parsedStmt, analyzer, planner));
+            return true;
+        } catch (Exception e) {
+            // errors are reported by analyzing the bound sql
+            LOG.debug("failed to execute prepared stmt with parameter markers: {}", originStmt, e);
+            preparedParams = null;
+            return false;
+        } finally {
+            unLock(dbs);
+        }
+    }
+
     // Because this is called by other thread
     public void cancel() {
         Coordinator coordRef = coord;
@@ -489,7 +616,34 @@ public class StmtExecutor {
             handleExplainStmt(explainString);
             return;
         }
+        // column types to convert rows to binary format, null if rows are sent in text format
+        List<MysqlColType> binaryRowTypes = null;
+        if (isBinaryProtocol) {
+            binaryRowTypes = Lists.newArrayList();
+            for (Expr expr : queryStmt.getResultExprs()) {
+                binaryRowTypes.add(expr.getType().getPrimitiveType().toMysqlType());
+            }
+        }
+
+        // check query cache before executing
+        List<Long> cachePartitionIds = Lists.newArrayList();
+        String cacheKey = QueryCache.getCacheKey(context, queryStmt, planner.getScanNodes(), cachePartitionIds);
+        if (cacheKey != null) {
+            List<byte[]> cachedRows = QueryCache.getInstance().get(cacheKey);
+            if (cachedRows != null) {
+                sendFields(queryStmt.getColLabels(), queryStmt.getResultExprs());
+                for (byte[] row : cachedRows) {
+                    sendRow(ByteBuffer.wrap(row), binaryRowTypes);
+                }
+                context.updateReturnRows(cachedRows.size());
+                context.getState().setEof();
+                return;
+            }
+        }
+
         coord = new Coordinator(context, analyzer, planner);
+        // rows are converted one by one in binary protocol
+        coord.setReturnPackedRows(Config.return_packed_query_result && !isBinaryProtocol);
 
         QeProcessor.registerQuery(context.queryId(), coord);
         isRegisterQuery = true;
@@ -500,16 +654,41 @@ public class StmtExecutor {
 
         // send result
         TResultBatch batch;
-        MysqlChannel channel = context.getMysqlChannel();
         boolean isSendFields = false;
+        // rows to put into query cache, null if result is too large
+        List<byte[]> cacheRows = cacheKey == null ? null : new ArrayList<byte[]>();
+        long cacheRowBytes = 0;
         while ((batch = coord.getNext()) != null) {
             if (!isSendFields) {
                 sendFields(queryStmt.getColLabels(), queryStmt.getResultExprs());
             }
             isSendFields = true;
 
+            if (batch.isSetPacked_rows()) {
+                ByteBuffer packets = batch.packed_rows;
+                if (cacheRows != null) {
+                    cacheRowBytes += packets.remaining();
+                    if (cacheRowBytes > QueryCache.getMaxResultBytes() || !unpackRows(packets, cacheRows)) {
+                        cacheRows = null;
+                    }
+                }
+                context.getMysqlChannel().sendPackets(packets);
+                context.updateReturnRows(batch.getNum_packed_rows());
+                continue;
+            }
+
             for (ByteBuffer row : batch.getRows()) {
-                channel.sendOnePacket(row);
+                if (cacheRows != null) {
+                    cacheRowBytes += row.remaining();
+                    if (cacheRowBytes > QueryCache.getMaxResultBytes()) {
+                        cacheRows = null;
+                    } else {
+                        byte[] bytes = new byte[row.remaining()];
+                        row.duplicate().get(bytes);
+                        cacheRows.add(bytes);
+                    }
+                }
+                sendRow(row, binaryRowTypes);
             }
             context.updateReturnRows(batch.getRows().size());
         }
@@ -517,9 +696,38 @@ public class StmtExecutor {
         if (!isSendFields) {
             sendFields(queryStmt.getColLabels(), queryStmt.getResultExprs());
         }
+        if (cacheRows != null) {
+            QueryCache.getInstance().put(cacheKey, cachePartitionIds, cacheRows, cacheRowBytes);
+        }
         context.getState().setEof();
     }
 
+    // Append payloads of packed rows to 'rows'.
+    // Return false if any row is split to several packets, which is too large to be cached.
+    private static boolean unpackRows(ByteBuffer packets, List<byte[]> rows) {
+        ByteBuffer buffer = packets.duplicate();
+        while (buffer.remaining() >= 4) {
+            int length = MysqlProto.readInt3(buffer);
+            // skip sequence id
+            buffer.get();
+            if (length == 0xFFFFFF) {
+                return false;
+            }
+            byte[] row = new byte[length];
+            buffer.get(row);
+            rows.add(row);
+        }
+        return true;
+    }
+
+    // Rows from backends are in text format, convert them if 'binaryRowTypes' is not null.
+    private void sendRow(ByteBuffer row, List<MysqlColType> binaryRowTypes) throws IOException, AnalysisException {
+        if (binaryRowTypes != null) {
+            row = MysqlBinaryProtocol.textRowToBinary(row, binaryRowTypes);
+        }
+        context.getMysqlChannel().sendOnePacket(row);
+    }
+
     // Process a select statement.
     private void handleInsertStmt() throws Exception {
         // Every time set no send flag and clean all data in buffer
@@ -703,6 +911,70 @@ public class StmtExecutor {
         }
     }
 
+    // Collect statistics by executing a query on the table, and save them to catalog.
+    private void handleAnalyzeStmt() throws Exception {
+        AnalyzeStmt analyzeStmt = (AnalyzeStmt) parsedStmt;
+        String statsQuery = analyzeStmt.getStatsQuery();
+        LOG.info("analyze table {} by query: {}", analyzeStmt.getOlapTable().getName(), statsQuery);
+
+        SqlParser parser = new SqlParser(new SqlScanner(new StringReader(statsQuery)));
+        QueryStmt queryStmt = (QueryStmt) parser.parse().value;
+        Analyzer statsAnalyzer = new Analyzer(context.getCatalog(), context);
+        Planner statsPlanner = new Planner();
+        Database db = analyzeStmt.getDb();
+        db.readLock();
+        try {
+            queryStmt.analyze(statsAnalyzer);
+            statsPlanner.plan(queryStmt, statsAnalyzer, new TQueryOptions());
+        } finally {
+            db.readUnlock();
+        }
+
+        UUID uuid = UUID.randomUUID();
+        context.setQueryId(new TUniqueId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+        coord = new Coordinator(context, statsAnalyzer, statsPlanner);
+        QeProcessor.registerQuery(context.queryId(), coord);
+        isRegisterQuery = true;
+        coord.exec();
+
+        ByteBuffer row = null;
+        TResultBatch batch;
+        while ((batch = coord.getNext()) != null) {
+            if (row == null && !batch.getRows().isEmpty()) {
+                row = batch.getRows().get(0);
+            }
+        }
+        if (row == null) {
+            throw new DdlException("Failed to collect statistics of table " + analyzeStmt.getOlapTable().getName());
+        }
+
+        long rowCount = Long.parseLong(readTextValue(row));
+        Map<String, ColumnStats> columnStats = Maps.newHashMap();
+        for (String columnName : analyzeStmt.getColumnNames()) {
+            ColumnStats stats = new ColumnStats();
+            stats.setNumNulls(Long.parseLong(readTextValue(row)));
+            stats.setNumDistinctValues(Long.parseLong(readTextValue(row)));
+            String minValue = readTextValue(row);
+            String maxValue = readTextValue(row);
+            if (minValue != null && maxValue != null) {
+                stats.setMinMaxValue(minValue, maxValue);
+            }
+            columnStats.put(columnName, stats);
+        }
+
+        context.getCatalog().setTableStats(db, analyzeStmt.getOlapTable(), rowCount, columnStats);
+        context.getState().setOk();
+    }
+
+    // Read next value of a row in text format, return null if value is NULL.
+    private static String readTextValue(ByteBuffer row) {
+        if ((row.get(row.position()) & 0xff) == MysqlBinaryProtocol.TEXT_NULL_VALUE) {
+            row.get();
+            return null;
+        }
+        return new String(MysqlProto.readLenEncodedString(row), StandardCharsets.UTF_8);
+    }
+
     // process enter cluster
     private void handleEnterStmt() {
         final EnterStmt enterStmt = (EnterStmt) parsedStmt;
@@ -0,0 +1,211 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.rewrite;
+
+import com.baidu.palo.analysis.Analyzer;
+import com.baidu.palo.analysis.ArithmeticExpr;
+import com.baidu.palo.analysis.BinaryPredicate;
+import com.baidu.palo.analysis.BoolLiteral;
+import com.baidu.palo.analysis.CastExpr;
+import com.baidu.palo.analysis.DateLiteral;
+import com.baidu.palo.analysis.Expr;
+import com.baidu.palo.analysis.FunctionCallExpr;
+import com.baidu.palo.analysis.IntLiteral;
+import com.baidu.palo.analysis.LiteralExpr;
+import com.baidu.palo.analysis.StringLiteral;
+import com.baidu.palo.analysis.TimestampArithmeticExpr;
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.catalog.Type;
+import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.thrift.TFunctionBinaryType;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Folds constant exprs which can be evaluated in frontend into literals, so that they
+ * can be used by partition and distribution pruning, and are not evaluated for every row
+ * by backends.
+ * Only the following exprs are folded, whose results in frontend are the same as in backends:
+ * - casts of literals to date types
+ * - date arithmetic of day, week, hour, minute and second on date literals
+ * - to_date() and datediff() of date literals
+ * - comparisons of two int, bool or date literals
+ * An expr which fails to be evaluated, e.g. a result out of date range, is not folded.
+ * Examples:
+ * cast('2018-01-01' as date) ==> '2018-01-01'
+ * date_sub('2018-01-10 00:00:00', 7) ==> '2018-01-03 00:00:00'
+ * 1 = 1 ==> TRUE
+ */
+public class FoldConstantsRule implements ExprRewriteRule {
+    private static final Logger LOG = LogManager.getLogger(FoldConstantsRule.class);
+    public static ExprRewriteRule INSTANCE = new FoldConstantsRule();
+
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Override
+    public Expr apply(Expr expr, Analyzer analyzer) throws AnalysisException {
+        Expr result = null;
+        try {
+            if (expr instanceof CastExpr) {
+                result = foldCast((CastExpr) expr);
+            } else if (expr instanceof TimestampArithmeticExpr) {
+                result = foldTimestampArithmetic((TimestampArithmeticExpr) expr);
+            } else if (expr instanceof FunctionCallExpr) {
+                result = foldFunctionCall((FunctionCallExpr) expr);
+            } else if (expr instanceof BinaryPredicate) {
+                result = foldBinaryPredicate((BinaryPredicate) expr);
+            }
+        } catch (AnalysisException e) {
+            LOG.debug("failed to fold constant expr {}: {}", expr.toSql(), e.getMessage());
+            result = null;
+        }
+        return result == null ? expr : result;
+    }
+
+    private Expr foldCast(CastExpr cast) throws AnalysisException {
+        Expr child = cast.getChild(0);
+        Type targetType = cast.getType();
+        if (!targetType.isDateType()) {
+            return null;
+        }
+        if (child instanceof DateLiteral) {
+            return createDateLiteral(toLocalDateTime((DateLiteral) child), targetType);
+        }
+        if (child instanceof StringLiteral) {
+            // string literals of formats which are not supported by frontend are still cast in backends
+            Expr result = child.castTo(targetType);
+            return result instanceof DateLiteral ? result : null;
+        }
+        return null;
+    }
+
+    private Expr foldTimestampArithmetic(TimestampArithmeticExpr expr) throws AnalysisException {
+        if (!(expr.getChild(0) instanceof DateLiteral) || !(expr.getChild(1) instanceof IntLiteral)) {
+            return null;
+        }
+        LocalDateTime dateTime = toLocalDateTime((DateLiteral) expr.getChild(0));
+        long amount = ((IntLiteral) expr.getChild(1)).getLongValue();
+        if (expr.getOp() == ArithmeticExpr.Operator.SUBTRACT) {
+            amount = -amount;
+        }
+        // results of adding years and months to the end of a month depend on backend implementation
+        switch (expr.getTimeUnit()) {
+            case WEEK:
+                return createDateLiteral(dateTime.plusWeeks(amount), expr.getType());
+            case DAY:
+                return createDateLiteral(dateTime.plusDays(amount), expr.getType());
+            case HOUR:
+                return createDateLiteral(dateTime.plusHours(amount), expr.getType());
+            case MINUTE:
+                return createDateLiteral(dateTime.plusMinutes(amount), expr.getType());
+            case SECOND:
+                return createDateLiteral(dateTime.plusSeconds(amount), expr.getType());
+            default:
+                return null;
+        }
+    }
+
+    private Expr foldFunctionCall(FunctionCallExpr expr) throws AnalysisException {
+        if (expr.getFn() == null || expr.getFn().getBinaryType() != TFunctionBinaryType.BUILTIN) {
+            return null;
+        }
+        for (Expr child : expr.getChildren()) {
+            if (!(child instanceof LiteralExpr)) {
+                return null;
+            }
+        }
+        String fnName = expr.getFnName().getFunction().toLowerCase();
+        if (fnName.equals("days_add") || fnName.equals("date_add") || fnName.equals("adddate")
+                || fnName.equals("days_sub") || fnName.equals("date_sub") || fnName.equals("subdate")) {
+            if (!(expr.getChild(0) instanceof DateLiteral) || !(expr.getChild(1) instanceof IntLiteral)) {
+                return null;
+            }
+            long days = ((IntLiteral) expr.getChild(1)).getLongValue();
+            if (fnName.endsWith("sub")) {
+                days = -days;
+            }
+            return createDateLiteral(toLocalDateTime((DateLiteral) expr.getChild(0)).plusDays(days), expr.getType());
+        } else if (fnName.equals("to_date") || fnName.equals("date")) {
+            if (!(expr.getChild(0) instanceof DateLiteral)) {
+                return null;
+            }
+            return createDateLiteral(toLocalDateTime((DateLiteral) expr.getChild(0)), expr.getType());
+        } else if (fnName.equals("datediff")) {
+            if (!(expr.getChild(0) instanceof DateLiteral) || !(expr.getChild(1) instanceof DateLiteral)) {
+                return null;
+            }
+            long days = ChronoUnit.DAYS.between(toLocalDateTime((DateLiteral) expr.getChild(1)).toLocalDate(),
+                                                toLocalDateTime((DateLiteral) expr.getChild(0)).toLocalDate());
+            return new IntLiteral(days, expr.getType());
+        }
+        return null;
+    }
+
+    private Expr foldBinaryPredicate(BinaryPredicate predicate) {
+        Expr left = predicate.getChild(0);
+        Expr right = predicate.getChild(1);
+        if (left.getClass() != right.getClass() || !left.getType().equals(right.getType())) {
+            return null;
+        }
+        if (!(left instanceof IntLiteral) && !(left instanceof DateLiteral) && !(left instanceof BoolLiteral)) {
+            return null;
+        }
+        int cmp = ((LiteralExpr) left).compareLiteral((LiteralExpr) right);
+        switch (predicate.getOp()) {
+            case EQ:
+                return new BoolLiteral(cmp == 0);
+            case NE:
+                return new BoolLiteral(cmp != 0);
+            case LE:
+                return new BoolLiteral(cmp <= 0);
+            case GE:
+                return new BoolLiteral(cmp >= 0);
+            case LT:
+                return new BoolLiteral(cmp < 0);
+            case GT:
+                return new BoolLiteral(cmp > 0);
+            default:
+                return null;
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(DateLiteral literal) {
+        if (literal.getType().isScalarType(PrimitiveType.DATE)) {
+            return LocalDate.parse(literal.getStringValue()).atStartOfDay();
+        }
+        return LocalDateTime.parse(literal.getStringValue(), DATETIME_FORMATTER);
+    }
+
+    // throws AnalysisException if the date is out of range of 'type'
+    private static DateLiteral createDateLiteral(LocalDateTime dateTime, Type type) throws AnalysisException {
+        if (type.isScalarType(PrimitiveType.DATE)) {
+            return new DateLiteral(dateTime.toLocalDate().format(DateTimeFormatter.ISO_LOCAL_DATE), type);
+        }
+        return new DateLiteral(dateTime.format(DATETIME_FORMATTER), type);
+    }
+
+    private FoldConstantsRule() {}
+}
@@ -0,0 +1,96 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.rewrite;
+
+import com.baidu.palo.analysis.Analyzer;
+import com.baidu.palo.analysis.BinaryPredicate;
+import com.baidu.palo.analysis.CompoundPredicate;
+import com.baidu.palo.analysis.Expr;
+import com.baidu.palo.analysis.FunctionCallExpr;
+import com.baidu.palo.analysis.InPredicate;
+import com.baidu.palo.analysis.LiteralExpr;
+import com.baidu.palo.analysis.NullLiteral;
+import com.baidu.palo.common.AnalysisException;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * Rewrites disjunctions of equality predicates and IN predicates with literals on the same expr
+ * into one InPredicate, which can be used by partition and distribution pruning.
+ * Examples:
+ * a = 1 OR a = 2 ==> a IN (1, 2)
+ * a IN (1, 2) OR a = 3 ==> a IN (1, 2, 3)
+ */
+public class OrToInPredicateRule implements ExprRewriteRule {
+    public static ExprRewriteRule INSTANCE = new OrToInPredicateRule();
+
+    @Override
+    public Expr apply(Expr expr, Analyzer analyzer) throws AnalysisException {
+        if (!(expr instanceof CompoundPredicate)) return expr;
+        if (((CompoundPredicate) expr).getOp() != CompoundPredicate.Operator.OR) return expr;
+
+        Expr compareExpr = getCompareExpr(expr.getChild(0));
+        Expr otherCompareExpr = getCompareExpr(expr.getChild(1));
+        if (compareExpr == null || !compareExpr.equals(otherCompareExpr)
+                || !compareExpr.getType().equals(otherCompareExpr.getType())) {
+            return expr;
+        }
+        // function calls may be nondeterministic, so they are not evaluated only once
+        if (compareExpr.contains(FunctionCallExpr.class)) {
+            return expr;
+        }
+
+        List<Expr> inList = Lists.newArrayList();
+        for (Expr child : expr.getChildren()) {
+            for (Expr value : child.getChildren().subList(1, child.getChildren().size())) {
+                if (!inList.isEmpty() && !inList.get(0).getType().equals(value.getType())) {
+                    return expr;
+                }
+                if (!inList.contains(value)) {
+                    inList.add(value);
+                }
+            }
+        }
+        return new InPredicate(compareExpr, inList, false);
+    }
+
+    /**
+     * Returns the first child of 'expr' if it is an equality predicate or IN predicate
+     * whose other children are all non-null literals, otherwise returns null.
+     */
+    private Expr getCompareExpr(Expr expr) {
+        if (expr instanceof BinaryPredicate) {
+            if (((BinaryPredicate) expr).getOp() != BinaryPredicate.Operator.EQ) return null;
+        } else if (expr instanceof InPredicate) {
+            if (((InPredicate) expr).isNotIn()) return null;
+        } else {
+            return null;
+        }
+        for (int i = 1; i < expr.getChildren().size(); ++i) {
+            Expr child = expr.getChild(i);
+            if (!(child instanceof LiteralExpr) || child instanceof NullLiteral) return null;
+        }
+        return expr.getChild(0);
+    }
+
+    private OrToInPredicateRule() {}
+}
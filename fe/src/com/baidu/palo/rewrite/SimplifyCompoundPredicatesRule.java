@@ -0,0 +1,78 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.rewrite;
+
+import com.baidu.palo.analysis.Analyzer;
+import com.baidu.palo.analysis.BoolLiteral;
+import com.baidu.palo.analysis.CompoundPredicate;
+import com.baidu.palo.analysis.Expr;
+import com.baidu.palo.analysis.FunctionCallExpr;
+import com.baidu.palo.common.AnalysisException;
+
+/**
+ * Simplifies CompoundPredicates with a bool literal child or two equal children.
+ * Results are the same as original predicates even if the other child is NULL.
+ * Examples:
+ * TRUE AND x ==> x
+ * FALSE AND x ==> FALSE
+ * TRUE OR x ==> TRUE
+ * FALSE OR x ==> x
+ * x AND x ==> x
+ * NOT TRUE ==> FALSE
+ */
+public class SimplifyCompoundPredicatesRule implements ExprRewriteRule {
+    public static ExprRewriteRule INSTANCE = new SimplifyCompoundPredicatesRule();
+
+    @Override
+    public Expr apply(Expr expr, Analyzer analyzer) throws AnalysisException {
+        if (!(expr instanceof CompoundPredicate)) return expr;
+        CompoundPredicate predicate = (CompoundPredicate) expr;
+        if (predicate.getOp() == CompoundPredicate.Operator.NOT) {
+            if (predicate.getChild(0) instanceof BoolLiteral) {
+                return new BoolLiteral(!((BoolLiteral) predicate.getChild(0)).getValue());
+            }
+            return expr;
+        }
+
+        boolean isAnd = predicate.getOp() == CompoundPredicate.Operator.AND;
+        for (int i = 0; i < 2; ++i) {
+            if (!(predicate.getChild(i) instanceof BoolLiteral)) {
+                continue;
+            }
+            boolean value = ((BoolLiteral) predicate.getChild(i)).getValue();
+            if (value == isAnd) {
+                // TRUE AND x, FALSE OR x
+                return predicate.getChild(1 - i);
+            } else {
+                // FALSE AND x, TRUE OR x
+                return predicate.getChild(i);
+            }
+        }
+        if (predicate.getChild(0).equals(predicate.getChild(1))) {
+            // function calls may be nondeterministic, e.g. rand() < 0.5 AND rand() < 0.5
+            if (!predicate.getChild(0).contains(FunctionCallExpr.class)) {
+                return predicate.getChild(0);
+            }
+        }
+        return expr;
+    }
+
+    private SimplifyCompoundPredicatesRule() {}
+}
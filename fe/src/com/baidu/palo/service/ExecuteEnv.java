@@ -22,16 +22,19 @@ package com.baidu.palo.service;
 
 import com.baidu.palo.common.Config;
 import com.baidu.palo.qe.ConnectScheduler;
+import com.baidu.palo.qe.MiniLoadCoalescer;
 import com.baidu.palo.qe.MultiLoadMgr;
 
 // Execute environment, used to save other module, need to singleton
 public class ExecuteEnv {
     private static ExecuteEnv INSTANCE;
     private MultiLoadMgr multiLoadMgr;
+    private MiniLoadCoalescer miniLoadCoalescer;
     private ConnectScheduler scheduler;
 
     public ExecuteEnv() {
         multiLoadMgr = new MultiLoadMgr();
+        miniLoadCoalescer = new MiniLoadCoalescer();
     }
 
     public static ExecuteEnv getInstance() {
@@ -53,4 +56,8 @@ public class ExecuteEnv {
     public MultiLoadMgr getMultiLoadMgr() {
         return multiLoadMgr;
     }
+
+    public MiniLoadCoalescer getMiniLoadCoalescer() {
+        return miniLoadCoalescer;
+    }
 }
@@ -41,6 +41,7 @@ import com.baidu.palo.mysql.MysqlPassword;
 import com.baidu.palo.qe.AuditBuilder;
 import com.baidu.palo.qe.ConnectContext;
 import com.baidu.palo.qe.ConnectProcessor;
+import com.baidu.palo.qe.MiniLoadCoalescer;
 import com.baidu.palo.qe.QeProcessor;
 import com.baidu.palo.qe.VariableMgr;
 import com.baidu.palo.system.SystemInfoService;
@@ -291,7 +292,13 @@ public class FrontendServiceImpl implements FrontendService.Iface {
             if (request.isSetSubLabel()) {
                 ExecuteEnv.getInstance().getMultiLoadMgr().load(request);
             } else {
-                if (!Catalog.getInstance().getLoadInstance().addLoadJob(request)) {
+                boolean added = false;
+                if (MiniLoadCoalescer.canCoalesce(request)) {
+                    added = ExecuteEnv.getInstance().getMiniLoadCoalescer().load(request);
+                } else {
+                    added = Catalog.getInstance().getLoadInstance().addLoadJob(request);
+                }
+                if (!added) {
                     return result;
                 }
 
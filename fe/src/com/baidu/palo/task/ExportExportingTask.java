@@ -54,6 +54,7 @@ import org.apache.thrift.TException;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -96,17 +97,33 @@ public class ExportExportingTask extends MasterTask {
             return;
         }
 
-        // if one instance finished, we send request to BE to exec next instance
+        // keep at most export_running_coord_num_per_job instances running,
+        // and if one instance finished, we send request to BE to exec next instance.
+        // each instance writes its own files, so they do not need to finish in order.
         // TODO(lingbin): add retry sending logic if send fail
         List<Coordinator> coords = job.getCoordList();
         int coordSize = coords.size();
-        for (int i = 0; i < coordSize; i++) {
-            if (isCancelled) {
+        int parallelNum = Math.max(1, Config.export_running_coord_num_per_job);
+        LinkedList<Coordinator> runningCoords = Lists.newLinkedList();
+        int nextIdx = 0;
+        int finishedNum = 0;
+        while (!isCancelled && finishedNum < coordSize) {
+            while (!isCancelled && nextIdx < coordSize && runningCoords.size() < parallelNum) {
+                Coordinator coord = coords.get(nextIdx++);
+                if (startOneCoord(coord)) {
+                    runningCoords.add(coord);
+                } else {
+                    finishedNum++;
+                }
+            }
+            if (runningCoords.isEmpty()) {
                 break;
             }
-            Coordinator coord = coords.get(i);
-            execOneCoord(coord);
-            int progress = (int) (i + 1) * 100 / coordSize;
+
+            Coordinator coord = runningCoords.removeFirst();
+            waitOneCoord(coord);
+            finishedNum++;
+            int progress = finishedNum * 100 / coordSize;
             if (progress >= 100) {
                 progress = 99;
             }
@@ -117,6 +134,12 @@ public class ExportExportingTask extends MasterTask {
             fragmentProfiles.add(coord.getQueryProfile());
         }
 
+        // job failed, cancel the instances which are still running
+        for (Coordinator coord : runningCoords) {
+            coord.cancel();
+            QeProcessor.unregisterQuery(coord.getQueryId());
+        }
+
         if (isCancelled) {
             String failMsg = "export exporting job fail. ";
             failMsg += failStatus.getErrorMsg();
@@ -158,29 +181,19 @@ public class ExportExportingTask extends MasterTask {
         }
     }
 
-    private Status execOneCoord(Coordinator coord) {
+    // register and send the instance to BE, return false if it is not started.
+    private boolean startOneCoord(Coordinator coord) {
+        if (Config.export_task_default_timeout_second <= 0) {
+            onTimeout();
+            return false;
+        }
+
         TUniqueId queryId = coord.getQueryId();
-        boolean needUnregister = false;
         try {
             QeProcessor.registerQuery(queryId, coord);
-            needUnregister = true;
-            actualExecCoord(queryId, coord);
         } catch (InternalException e) {
             onFailed(new Status(TStatusCode.INTERNAL_ERROR, e.getMessage()));
-        } finally {
-            if (needUnregister) {
-                QeProcessor.unregisterQuery(queryId);
-            }
-        }
-
-        return Status.OK;
-    }
-
-    private void actualExecCoord(TUniqueId queryId, Coordinator coord) {
-        int waitSecond = Config.export_task_default_timeout_second;
-        if (waitSecond <= 0) {
-            onTimeout();
-            return;
+            return false;
         }
 
         try {
@@ -188,7 +201,20 @@ public class ExportExportingTask extends MasterTask {
         } catch (Exception e) {
             onFailed(new Status(TStatusCode.INTERNAL_ERROR, "export Coordinator execute failed."));
         }
+        return true;
+    }
 
+    // wait the started instance to finish and unregister it
+    private void waitOneCoord(Coordinator coord) {
+        try {
+            actualWaitCoord(coord);
+        } finally {
+            QeProcessor.unregisterQuery(coord.getQueryId());
+        }
+    }
+
+    private void actualWaitCoord(Coordinator coord) {
+        int waitSecond = Config.export_task_default_timeout_second;
         if (coord.join(waitSecond)) {
             Status status = coord.getExecStatus();
             if (status.ok()) {
@@ -148,7 +148,8 @@ public class PullLoadJobMgr {
                 if (task.isFinished()) {
                     return;
                 } else {
-                    boolean needRetry = isFailureCanRetry(task.getExecuteStatus());
+                    // stream has been consumed by the failed execution, can not read it again
+                    boolean needRetry = !task.isStreamLoad() && isFailureCanRetry(task.getExecuteStatus());
                     if (!needRetry) {
                         break;
                     }
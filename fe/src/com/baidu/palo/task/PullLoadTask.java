@@ -97,6 +97,16 @@ public class PullLoadTask {
         return fileMap;
     }
 
+    // Data of stream load can only be read once
+    public boolean isStreamLoad() {
+        for (BrokerFileGroup fileGroup : fileGroups) {
+            if (fileGroup.isStream()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public String getTrackingUrl() {
         return trackingUrl;
     }
@@ -0,0 +1,49 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.analysis;
+
+import com.baidu.palo.catalog.Type;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PreparedParamsTest {
+
+    @Test
+    public void testBind() throws Exception {
+        PreparedParams params = new PreparedParams(Lists.<LiteralExpr>newArrayList(new IntLiteral(1)));
+        Assert.assertEquals(Type.TINYINT, params.getValue(0).getType());
+        params.registerCast(0, Type.BIGINT);
+        Expr value = params.getValue(0, Type.BIGINT);
+        Assert.assertEquals(Type.BIGINT, value.getType());
+        Assert.assertEquals(1, ((IntLiteral) value).getLongValue());
+        // the bound value is not changed by cast
+        Assert.assertEquals(Type.TINYINT, params.getValue(0).getType());
+
+        // casts are done again with new values
+        params.bind(Lists.<LiteralExpr>newArrayList(new IntLiteral(2)));
+        value = params.getValue(0, Type.BIGINT);
+        Assert.assertEquals(Type.BIGINT, value.getType());
+        Assert.assertEquals(2, ((IntLiteral) value).getLongValue());
+        Assert.assertSame(params.getValue(0), params.getValue(0, Type.TINYINT));
+    }
+}
@@ -20,8 +20,17 @@
 
 package com.baidu.palo.catalog;
 
+import com.baidu.palo.common.FeConstants;
+
+import org.easymock.EasyMock;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -29,7 +38,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest(Catalog.class)
 public class ColumnStatsTest {
+
+    @Before
+    public void setUp() {
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getCurrentCatalogJournalVersion()).andReturn(FeConstants.meta_version).anyTimes();
+        PowerMock.replay(Catalog.class);
+    }
     
     @Test
     public void testSerialization() throws Exception {
@@ -53,6 +72,7 @@ public class ColumnStatsTest {
         stats3.setNumDistinctValues(200L);
         stats3.setMaxSize(2000L);
         stats3.setNumNulls(20000L);
+        stats3.setMinMaxValue("-10", "2017-01-01");
         stats3.write(dos);
         
         ColumnStats stats4 = new ColumnStats(stats3);
@@ -73,6 +93,9 @@ public class ColumnStatsTest {
         
         ColumnStats rStats3 = ColumnStats.read(dis);
         Assert.assertTrue(rStats3.equals(stats3));
+        Assert.assertEquals("-10", rStats3.getMinValue());
+        Assert.assertEquals("2017-01-01", rStats3.getMaxValue());
+        Assert.assertFalse(rStats2.hasMinMaxValue());
         
         ColumnStats rStats4 = ColumnStats.read(dis);
         Assert.assertTrue(rStats4.equals(stats4));
@@ -0,0 +1,116 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.catalog;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FunctionSetTest {
+    private FunctionSet functionSet;
+    private Function addInt;
+    private Function addDouble;
+    private Function addDecimal;
+
+    @Before
+    public void setUp() {
+        functionSet = new FunctionSet();
+        addInt = ScalarFunction.createBuiltinOperator("my_add", "my_add_int",
+                Lists.<Type>newArrayList(Type.INT, Type.INT), Type.INT);
+        addDouble = ScalarFunction.createBuiltinOperator("my_add", "my_add_double",
+                Lists.<Type>newArrayList(Type.DOUBLE, Type.DOUBLE), Type.DOUBLE);
+        addDecimal = ScalarFunction.createBuiltinOperator("my_add", "my_add_decimal",
+                Lists.<Type>newArrayList(Type.DECIMAL, Type.DECIMAL), Type.DECIMAL);
+        Assert.assertTrue(functionSet.addFunction(addInt));
+        Assert.assertTrue(functionSet.addFunction(addDouble));
+        Assert.assertTrue(functionSet.addFunction(addDecimal));
+    }
+
+    private void checkGetFunction() {
+        Function desc = ScalarFunction.createBuiltinSearchDesc(
+                "my_add", new Type[] {Type.INT, Type.INT}, false);
+        for (Function.CompareMode mode : Function.CompareMode.values()) {
+            Assert.assertSame(addInt, functionSet.getFunction(desc, mode));
+        }
+
+        desc = ScalarFunction.createBuiltinSearchDesc("my_add", new Type[] {Type.TINYINT, Type.TINYINT}, false);
+        Assert.assertNull(functionSet.getFunction(desc, Function.CompareMode.IS_IDENTICAL));
+        Assert.assertNull(functionSet.getFunction(desc, Function.CompareMode.IS_INDISTINGUISHABLE));
+        Assert.assertSame(addInt, functionSet.getFunction(desc, Function.CompareMode.IS_SUPERTYPE_OF));
+        Assert.assertSame(addInt, functionSet.getFunction(desc, Function.CompareMode.IS_NONSTRICT_SUPERTYPE_OF));
+
+        desc = ScalarFunction.createBuiltinSearchDesc("my_add", new Type[] {Type.INT}, false);
+        Assert.assertNull(functionSet.getFunction(desc, Function.CompareMode.IS_NONSTRICT_SUPERTYPE_OF));
+
+        // types with length or precision are not resolved in advance
+        Type decimalType = ScalarType.createDecimalType(10, 2);
+        desc = ScalarFunction.createBuiltinSearchDesc("my_add", new Type[] {decimalType, decimalType}, false);
+        Assert.assertSame(addDecimal, functionSet.getFunction(desc, Function.CompareMode.IS_IDENTICAL));
+
+        desc = ScalarFunction.createBuiltinSearchDesc("my_sub", new Type[] {Type.INT, Type.INT}, false);
+        Assert.assertNull(functionSet.getFunction(desc, Function.CompareMode.IS_NONSTRICT_SUPERTYPE_OF));
+    }
+
+    @Test
+    public void testGetFunction() {
+        checkGetFunction();
+    }
+
+    @Test
+    public void testGetFunctionAfterInit() {
+        functionSet.init();
+        // the functions added in setUp() are resolved the same way by the index
+        checkGetFunction();
+    }
+
+    @Test
+    public void testAddFunctionAfterInit() {
+        functionSet.init();
+        Function desc = ScalarFunction.createBuiltinSearchDesc(
+                "my_mul", new Type[] {Type.TINYINT, Type.TINYINT}, false);
+        Assert.assertNull(functionSet.getFunction(desc, Function.CompareMode.IS_NONSTRICT_SUPERTYPE_OF));
+
+        Function myMulInt = ScalarFunction.createBuiltinOperator("my_mul", "my_mul_int",
+                Lists.<Type>newArrayList(Type.INT, Type.INT), Type.INT);
+        Assert.assertTrue(functionSet.addFunction(myMulInt));
+        Assert.assertSame(myMulInt, functionSet.getFunction(desc, Function.CompareMode.IS_NONSTRICT_SUPERTYPE_OF));
+
+        // the new function is a better match
+        Function myMulTinyInt = ScalarFunction.createBuiltinOperator("my_mul", "my_mul_tinyint",
+                Lists.<Type>newArrayList(Type.TINYINT, Type.TINYINT), Type.TINYINT);
+        Assert.assertTrue(functionSet.addFunction(myMulTinyInt));
+        Assert.assertSame(myMulTinyInt,
+                functionSet.getFunction(desc, Function.CompareMode.IS_NONSTRICT_SUPERTYPE_OF));
+        Assert.assertSame(myMulTinyInt, functionSet.getFunction(myMulTinyInt.signatureString()));
+
+        // same signature can not be added twice
+        Assert.assertFalse(functionSet.addFunction(ScalarFunction.createBuiltinOperator("my_mul", "my_mul_int2",
+                Lists.<Type>newArrayList(Type.INT, Type.INT), Type.INT)));
+    }
+
+    @Test
+    public void testGetFunctionBySignature() {
+        Assert.assertSame(addInt, functionSet.getFunction(addInt.signatureString()));
+        Assert.assertSame(addDouble, functionSet.getFunction(addDouble.signatureString()));
+        Assert.assertNull(functionSet.getFunction("my_add(INT)"));
+    }
+}
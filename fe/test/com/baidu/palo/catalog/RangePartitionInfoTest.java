@@ -26,7 +26,9 @@ import com.baidu.palo.common.AnalysisException;
 import com.baidu.palo.common.DdlException;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.RangeMap;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -140,4 +142,41 @@ public class RangePartitionInfoTest {
         }
     }
 
+    @Test
+    public void testRangeIndex() throws DdlException, AnalysisException {
+        Column k1 = new Column("k1", new ColumnType(PrimitiveType.BIGINT), true, null, "", "");
+        partitionColumns.add(k1);
+
+        singleRangePartitionDescs.add(new SingleRangePartitionDesc(false, "p1", new PartitionKeyDesc(Lists
+                .newArrayList("10")), null));
+        singleRangePartitionDescs.add(new SingleRangePartitionDesc(false, "p2", new PartitionKeyDesc(Lists
+                .newArrayList("20")), null));
+        singleRangePartitionDescs.add(new SingleRangePartitionDesc(false, "p3", new PartitionKeyDesc(Lists
+                .newArrayList("30")), null));
+
+        partitionInfo = new RangePartitionInfo(partitionColumns);
+        long partitionId = 20000L;
+        for (SingleRangePartitionDesc singleRangePartitionDesc : singleRangePartitionDescs) {
+            singleRangePartitionDesc.analyze(1, null);
+            partitionInfo.handleNewSinglePartitionDesc(singleRangePartitionDesc, partitionId++);
+        }
+
+        RangeMap<PartitionKey, Long> rangeIndex = partitionInfo.getRangeIndex();
+        Assert.assertEquals(3, rangeIndex.asMapOfRanges().size());
+        Assert.assertEquals(Long.valueOf(20000L),
+                            rangeIndex.get(PartitionKey.createPartitionKey(Lists.newArrayList("5"), partitionColumns)));
+        Assert.assertEquals(Long.valueOf(20001L),
+                            rangeIndex.get(PartitionKey.createPartitionKey(Lists.newArrayList("10"), partitionColumns)));
+        Assert.assertNull(rangeIndex.get(PartitionKey.createPartitionKey(Lists.newArrayList("30"), partitionColumns)));
+
+        // index is replaced, not modified
+        partitionInfo.dropPartition(20001L);
+        Assert.assertEquals(3, rangeIndex.asMapOfRanges().size());
+        rangeIndex = partitionInfo.getRangeIndex();
+        Assert.assertEquals(2, rangeIndex.asMapOfRanges().size());
+        Assert.assertNull(rangeIndex.get(PartitionKey.createPartitionKey(Lists.newArrayList("15"), partitionColumns)));
+        Assert.assertEquals(Long.valueOf(20002L),
+                            rangeIndex.get(PartitionKey.createPartitionKey(Lists.newArrayList("25"), partitionColumns)));
+    }
+
 }
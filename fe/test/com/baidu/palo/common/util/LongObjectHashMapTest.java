@@ -0,0 +1,101 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.common.util;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class LongObjectHashMapTest {
+
+    @Test
+    public void testMap() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<String>();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.put(0L, "zero"));
+        Assert.assertNull(map.put(-1L, "minus"));
+        Assert.assertNull(map.put(10001L, "a"));
+        Assert.assertEquals("a", map.put(10001L, "b"));
+        Assert.assertEquals(3, map.size());
+        Assert.assertEquals("zero", map.get(0L));
+        Assert.assertEquals("b", map.get(10001L));
+        Assert.assertNull(map.get(10002L));
+        Assert.assertEquals("zero", map.remove(0L));
+        Assert.assertFalse(map.containsKey(0L));
+        Assert.assertNull(map.remove(0L));
+        Assert.assertEquals(2, map.size());
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(-1L));
+    }
+
+    @Test
+    public void testMapRandom() {
+        Random random = new Random(1);
+        LongObjectHashMap<Long> map = new LongObjectHashMap<Long>();
+        Map<Long, Long> expected = Maps.newHashMap();
+        for (int i = 0; i < 200000; i++) {
+            // small key range to produce many collisions and removals
+            long key = random.nextInt(5000) - 100;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                Assert.assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+
+        int count = 0;
+        for (int i = map.nextIndex(-1); i >= 0; i = map.nextIndex(i)) {
+            Assert.assertEquals(expected.get(map.keyAt(i)), map.valueAt(i));
+            count++;
+        }
+        Assert.assertEquals(expected.size(), count);
+    }
+
+    @Test
+    public void testSetRandom() {
+        Random random = new Random(2);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = Sets.newHashSet();
+        for (int i = 0; i < 200000; i++) {
+            long value = random.nextInt(5000) - 100;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                Assert.assertEquals(expected.add(value), set.add(value));
+            }
+            Assert.assertEquals(expected.size(), set.size());
+            Assert.assertEquals(expected.contains(value), set.contains(value));
+        }
+
+        Set<Long> values = Sets.newHashSet();
+        for (int i = set.nextIndex(-1); i >= 0; i = set.nextIndex(i)) {
+            values.add(set.valueAt(i));
+        }
+        Assert.assertEquals(expected, values);
+    }
+}
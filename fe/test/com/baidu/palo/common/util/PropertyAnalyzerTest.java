@@ -0,0 +1,53 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package com.baidu.palo.common.util;
+
+import com.baidu.palo.common.AnalysisException;
+
+import com.google.common.collect.Maps;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class PropertyAnalyzerTest {
+
+    @Test
+    public void testColocate() throws AnalysisException {
+        Map<String, String> properties = Maps.newHashMap();
+        Assert.assertNull(PropertyAnalyzer.analyzeColocate(properties));
+        Assert.assertNull(PropertyAnalyzer.analyzeColocate(null));
+
+        properties.put(PropertyAnalyzer.PROPERTIES_COLOCATE_WITH, " group1 ");
+        properties.put("replication_num", "3");
+        Assert.assertEquals("group1", PropertyAnalyzer.analyzeColocate(properties));
+        Assert.assertFalse(properties.containsKey(PropertyAnalyzer.PROPERTIES_COLOCATE_WITH));
+        Assert.assertEquals(1, properties.size());
+    }
+
+    @Test(expected = AnalysisException.class)
+    public void testEmptyColocateGroup() throws AnalysisException {
+        Map<String, String> properties = Maps.newHashMap();
+        properties.put(PropertyAnalyzer.PROPERTIES_COLOCATE_WITH, " ");
+        PropertyAnalyzer.analyzeColocate(properties);
+    }
+}
@@ -156,6 +156,10 @@ public class LoadJobTest {
         loadJob1.setState(JobState.FINISHED);
         loadJob1.setProgress(100);
         loadJob1.setHadoopEtlJobId("etl-job-id");
+        loadJob1.setTimestamp(1L);
+        Map<String, Long> coalescedLabels = new HashMap<String, Long>();
+        coalescedLabels.put("datalabel-coalesced", 2L);
+        loadJob1.setCoalescedLabels(coalescedLabels);
         loadJob1.write(dos);
         
         LoadJob loadJob3 = getLoadJob();
@@ -176,6 +180,9 @@ public class LoadJobTest {
 
         Assert.assertTrue(loadJob0.equals(rLoadJob0));
         Assert.assertTrue(loadJob1.equals(rLoadJob1));
+        Assert.assertEquals(2, rLoadJob1.getAllLabels().size());
+        Assert.assertEquals(1L, rLoadJob1.getTimestamp("datalabel-2014-12-5"));
+        Assert.assertEquals(2L, rLoadJob1.getTimestamp("datalabel-coalesced"));
         Assert.assertTrue(loadJob3.equals(rLoadJob3));
         
         Assert.assertFalse(loadJob0.equals(rLoadJob1));
@@ -0,0 +1,103 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.master;
+
+import com.baidu.palo.common.Config;
+import com.baidu.palo.thrift.TTablet;
+import com.baidu.palo.thrift.TTabletInfo;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class TabletReportDigestTest {
+    private static final long BACKEND_ID = 10001L;
+    private static final int BUCKET_NUM = 8;
+
+    private static TTablet createTablet(long tabletId, long version) {
+        TTabletInfo tabletInfo = new TTabletInfo(tabletId, 1234, version, 0L, 100L, 1000L);
+        return new TTablet(Lists.newArrayList(tabletInfo));
+    }
+
+    private static List<Long> toList(long[] digests) {
+        List<Long> list = Lists.newArrayList();
+        for (long digest : digests) {
+            list.add(digest);
+        }
+        return list;
+    }
+
+    @Test
+    public void testDeltaReport() {
+        Map<Long, TTablet> tablets = Maps.newHashMap();
+        for (long tabletId = 100; tabletId < 200; tabletId++) {
+            tablets.put(tabletId, createTablet(tabletId, 2L));
+        }
+        TabletReportDigest reportDigest = new TabletReportDigest();
+        List<Long> digests = toList(TabletReportDigest.computeDigests(tablets, BUCKET_NUM));
+
+        // no full report before
+        Map<Long, TTablet> emptyTablets = Maps.newHashMap();
+        Assert.assertNull(reportDigest.getChangedBuckets(BACKEND_ID, digests, emptyTablets));
+
+        reportDigest.updateByFullReport(BACKEND_ID, digests, tablets);
+
+        // nothing changed
+        boolean[] changedBuckets = reportDigest.getChangedBuckets(BACKEND_ID, digests, emptyTablets);
+        Assert.assertNotNull(changedBuckets);
+        for (boolean changed : changedBuckets) {
+            Assert.assertFalse(changed);
+        }
+
+        // version of one tablet changed, and all tablets of its bucket are sent
+        tablets.put(150L, createTablet(150L, 3L));
+        digests = toList(TabletReportDigest.computeDigests(tablets, BUCKET_NUM));
+        int bucket = TabletReportDigest.getBucket(150L, BUCKET_NUM);
+        Map<Long, TTablet> deltaTablets = Maps.newHashMap();
+        for (Map.Entry<Long, TTablet> entry : tablets.entrySet()) {
+            if (TabletReportDigest.getBucket(entry.getKey(), BUCKET_NUM) == bucket) {
+                deltaTablets.put(entry.getKey(), entry.getValue());
+            }
+        }
+        changedBuckets = reportDigest.getChangedBuckets(BACKEND_ID, digests, deltaTablets);
+        Assert.assertNotNull(changedBuckets);
+        for (int i = 0; i < BUCKET_NUM; i++) {
+            Assert.assertEquals(i == bucket, changedBuckets[i]);
+        }
+
+        // bucket changed but tablets are not sent
+        Assert.assertNull(reportDigest.getChangedBuckets(BACKEND_ID, digests, emptyTablets));
+
+        // bucket num changed
+        List<Long> otherDigests = toList(TabletReportDigest.computeDigests(tablets, BUCKET_NUM * 2));
+        Assert.assertNull(reportDigest.getChangedBuckets(BACKEND_ID, otherDigests, tablets));
+
+        // ask for full report after too many delta reports
+        for (int i = 1; i < Config.max_delta_tablet_report_num; i++) {
+            Assert.assertFalse(reportDigest.updateByDeltaReport(BACKEND_ID, digests));
+        }
+        Assert.assertTrue(reportDigest.updateByDeltaReport(BACKEND_ID, digests));
+    }
+}
@@ -0,0 +1,174 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.mysql;
+
+import com.baidu.palo.analysis.FloatLiteral;
+import com.baidu.palo.analysis.IntLiteral;
+import com.baidu.palo.analysis.LargeIntLiteral;
+import com.baidu.palo.analysis.LiteralExpr;
+import com.baidu.palo.analysis.StringLiteral;
+import com.baidu.palo.catalog.Type;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class MysqlBinaryProtocolTest {
+
+    @Test
+    public void testReadParamLiteral() throws Exception {
+        MysqlSerializer serializer = MysqlSerializer.newInstance();
+        serializer.writeInt1(0xff);
+        serializer.writeInt1(0xff);
+        serializer.writeInt4(-2);
+        serializer.writeInt8(123456789012L);
+        serializer.writeInt8(Double.doubleToLongBits(1.5));
+        // date
+        serializer.writeInt1(4);
+        serializer.writeInt2(2017);
+        serializer.writeInt1(9);
+        serializer.writeInt1(1);
+        // datetime
+        serializer.writeInt1(7);
+        serializer.writeInt2(2017);
+        serializer.writeInt1(9);
+        serializer.writeInt1(1);
+        serializer.writeInt1(10);
+        serializer.writeInt1(20);
+        serializer.writeInt1(30);
+        serializer.writeLenEncodedString("it's");
+        serializer.writeLenEncodedString("1.25");
+        ByteBuffer buffer = serializer.toByteBuffer();
+
+        Assert.assertEquals("-1", MysqlBinaryProtocol.readParamLiteral(buffer, 1));
+        // unsigned tiny
+        Assert.assertEquals("255", MysqlBinaryProtocol.readParamLiteral(buffer, 0x8001));
+        Assert.assertEquals("-2", MysqlBinaryProtocol.readParamLiteral(buffer, 3));
+        Assert.assertEquals("123456789012", MysqlBinaryProtocol.readParamLiteral(buffer, 8));
+        Assert.assertEquals("1.5", MysqlBinaryProtocol.readParamLiteral(buffer, 5));
+        Assert.assertEquals("'2017-09-01'", MysqlBinaryProtocol.readParamLiteral(buffer, 10));
+        Assert.assertEquals("'2017-09-01 10:20:30'", MysqlBinaryProtocol.readParamLiteral(buffer, 12));
+        Assert.assertEquals("'it\\'s'", MysqlBinaryProtocol.readParamLiteral(buffer, 253));
+        Assert.assertEquals("1.25", MysqlBinaryProtocol.readParamLiteral(buffer, 246));
+        Assert.assertEquals("NULL", MysqlBinaryProtocol.readParamLiteral(buffer, 6));
+        Assert.assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void testReadParam() throws Exception {
+        MysqlSerializer serializer = MysqlSerializer.newInstance();
+        serializer.writeInt2(300);
+        serializer.writeInt8(-1L);
+        serializer.writeInt4(Float.floatToIntBits(1.5f));
+        // date
+        serializer.writeInt1(4);
+        serializer.writeInt2(2017);
+        serializer.writeInt1(9);
+        serializer.writeInt1(1);
+        ByteBuffer buffer = serializer.toByteBuffer();
+
+        // integers are of the smallest type
+        LiteralExpr value = MysqlBinaryProtocol.readParam(buffer, 2);
+        Assert.assertTrue(value instanceof IntLiteral);
+        Assert.assertEquals(Type.SMALLINT, value.getType());
+        // unsigned bigint out of range of bigint
+        value = MysqlBinaryProtocol.readParam(buffer, 0x8008);
+        Assert.assertTrue(value instanceof LargeIntLiteral);
+        Assert.assertEquals("18446744073709551615", value.getStringValue());
+        // floats are always double
+        value = MysqlBinaryProtocol.readParam(buffer, 4);
+        Assert.assertTrue(value instanceof FloatLiteral);
+        Assert.assertEquals(Type.DOUBLE, value.getType());
+        // dates are strings
+        value = MysqlBinaryProtocol.readParam(buffer, 10);
+        Assert.assertTrue(value instanceof StringLiteral);
+        Assert.assertEquals("2017-09-01", value.getStringValue());
+        Assert.assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void testToStringLiteral() {
+        Assert.assertEquals("'abc'", MysqlBinaryProtocol.toStringLiteral("abc".getBytes()));
+        Assert.assertEquals("'a\\\\b\\'c\\n'", MysqlBinaryProtocol.toStringLiteral("a\\b'c\n".getBytes()));
+    }
+
+    @Test
+    public void testTextRowToBinary() throws Exception {
+        MysqlSerializer serializer = MysqlSerializer.newInstance();
+        serializer.writeLenEncodedString("10");
+        // NULL
+        serializer.writeInt1(0xfb);
+        serializer.writeLenEncodedString("2017-09-01");
+        serializer.writeLenEncodedString("2017-09-01 10:20:30");
+        serializer.writeLenEncodedString("abc");
+        serializer.writeLenEncodedString("-25:00:01");
+        List<MysqlColType> types = Lists.newArrayList(MysqlColType.MYSQL_TYPE_LONG,
+                MysqlColType.MYSQL_TYPE_LONGLONG, MysqlColType.MYSQL_TYPE_DATE,
+                MysqlColType.MYSQL_TYPE_DATETIME, MysqlColType.MYSQL_TYPE_STRING,
+                MysqlColType.MYSQL_TYPE_TIME);
+
+        ByteBuffer row = MysqlBinaryProtocol.textRowToBinary(serializer.toByteBuffer(), types);
+        // header
+        Assert.assertEquals(0, MysqlProto.readInt1(row));
+        // null bitmap: (6 + 2 + 7) / 8 bytes, second column is null
+        Assert.assertEquals(1 << 3, MysqlProto.readInt1(row));
+        Assert.assertEquals(10, MysqlProto.readInt4(row));
+        // date
+        Assert.assertEquals(4, MysqlProto.readInt1(row));
+        Assert.assertEquals(2017, MysqlProto.readInt2(row));
+        Assert.assertEquals(9, MysqlProto.readInt1(row));
+        Assert.assertEquals(1, MysqlProto.readInt1(row));
+        // datetime
+        Assert.assertEquals(7, MysqlProto.readInt1(row));
+        Assert.assertEquals(2017, MysqlProto.readInt2(row));
+        Assert.assertEquals(9, MysqlProto.readInt1(row));
+        Assert.assertEquals(1, MysqlProto.readInt1(row));
+        Assert.assertEquals(10, MysqlProto.readInt1(row));
+        Assert.assertEquals(20, MysqlProto.readInt1(row));
+        Assert.assertEquals(30, MysqlProto.readInt1(row));
+        // string
+        Assert.assertEquals("abc", new String(MysqlProto.readLenEncodedString(row)));
+        // time
+        Assert.assertEquals(8, MysqlProto.readInt1(row));
+        Assert.assertEquals(1, MysqlProto.readInt1(row));
+        Assert.assertEquals(1, MysqlProto.readInt4(row));
+        Assert.assertEquals(1, MysqlProto.readInt1(row));
+        Assert.assertEquals(0, MysqlProto.readInt1(row));
+        Assert.assertEquals(1, MysqlProto.readInt1(row));
+        Assert.assertEquals(0, row.remaining());
+    }
+
+    @Test
+    public void testInvalidValue() throws Exception {
+        List<MysqlColType> types = Lists.newArrayList(MysqlColType.MYSQL_TYPE_LONG);
+        MysqlSerializer serializer = MysqlSerializer.newInstance();
+        serializer.writeLenEncodedString("abc");
+        try {
+            MysqlBinaryProtocol.textRowToBinary(serializer.toByteBuffer(), types);
+            Assert.fail("No exception throws.");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+}
@@ -24,10 +24,12 @@ import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 
 public class MysqlChannelTest {
@@ -262,4 +264,117 @@ public class MysqlChannelTest {
         Assert.fail("No Exception throws.");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSendPackets() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WrapperSocketChannel delegate = new WrapperSocketChannel() {
+            @Override
+            public int write(ByteBuffer buffer) {
+                int writeLen = buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer.get());
+                }
+                return writeLen;
+            }
+
+            @Override
+            public long write(ByteBuffer[] buffers, int offset, int length) {
+                long writeLen = 0;
+                for (int i = offset; i < offset + length; ++i) {
+                    writeLen += write(buffers[i]);
+                }
+                return writeLen;
+            }
+        };
+        EasyMock.expect(channel.write(EasyMock.anyObject(ByteBuffer.class))).andDelegateTo(delegate).anyTimes();
+        EasyMock.expect(channel.write(EasyMock.anyObject(ByteBuffer[].class), EasyMock.anyInt(), EasyMock.anyInt()))
+                .andDelegateTo(delegate).anyTimes();
+        EasyMock.replay(channel);
+
+        MysqlChannel channel1 = new MysqlChannel(channel);
+        channel1.sendOnePacket(ByteBuffer.allocate(10));
+        // small packets are buffered
+        channel1.sendPackets(packPayloads(20, 30));
+        Assert.assertEquals(0, out.size());
+        // large packets are sent at once
+        int largeLen = 3 * 1024 * 1024;
+        channel1.sendPackets(packPayloads(largeLen));
+        channel1.flush();
+
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        int[] lengths = {10, 20, 30, largeLen};
+        for (int i = 0; i < lengths.length; ++i) {
+            Assert.assertEquals(lengths[i], MysqlProto.readInt3(buffer));
+            // sequence ids are filled
+            Assert.assertEquals(i, MysqlProto.readInt1(buffer));
+            buffer.position(buffer.position() + lengths[i]);
+        }
+        Assert.assertEquals(0, buffer.remaining());
+    }
+
+    @Test(expected = IOException.class)
+    public void testSendMalformedPackets() throws IOException {
+        EasyMock.replay(channel);
+        MysqlChannel channel1 = new MysqlChannel(channel);
+        ByteBuffer packets = packPayloads(10);
+        packets.limit(packets.limit() - 1);
+        channel1.sendPackets(packets);
+    }
+
+    private static ByteBuffer packPayloads(int... lengths) {
+        MysqlSerializer serializer = MysqlSerializer.newInstance();
+        for (int length : lengths) {
+            serializer.writeInt3(length);
+            serializer.writeInt1(0);
+            serializer.writeBytes(new byte[length]);
+        }
+        return serializer.toByteBuffer();
+    }
+
+    @Test
+    public void testReceiveNonBlocking() throws IOException, InterruptedException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        SocketChannel client = SocketChannel.open(serverChannel.socket().getLocalSocketAddress());
+        SocketChannel server = serverChannel.accept();
+        try {
+            MysqlChannel channel1 = new MysqlChannel(server);
+            channel1.startNonBlocking();
+            Assert.assertNull(channel1.fetchOnePacketNonBlocking());
+
+            // send header and part of body
+            MysqlSerializer serializer = MysqlSerializer.newInstance();
+            serializer.writeInt3(10);
+            serializer.writeInt1(0);
+            serializer.writeBytes("abcd".getBytes());
+            client.write(serializer.toByteBuffer());
+            Thread.sleep(100);
+            Assert.assertNull(channel1.fetchOnePacketNonBlocking());
+
+            // send the rest
+            client.write(ByteBuffer.wrap("efghij".getBytes()));
+            Thread.sleep(100);
+            ByteBuffer buf = channel1.fetchOnePacketNonBlocking();
+            Assert.assertNotNull(buf);
+            Assert.assertEquals(10, buf.remaining());
+            for (int i = 0; i < 10; ++i) {
+                Assert.assertEquals('a' + i, buf.get());
+            }
+
+            // remote close
+            client.close();
+            Thread.sleep(100);
+            channel1.setSequenceId(0);
+            try {
+                channel1.fetchOnePacketNonBlocking();
+                Assert.fail("No Exception throws.");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            client.close();
+            server.close();
+            serverChannel.close();
+        }
+    }
+}
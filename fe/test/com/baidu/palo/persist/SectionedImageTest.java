@@ -0,0 +1,88 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.persist;
+
+import com.baidu.palo.common.io.DataOutputBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class SectionedImageTest {
+    @Test
+    public void testReadWrite() throws Exception {
+        // 1. Write sections to file
+        File file = new File("./sectionedImage");
+        SectionedImageWriter writer = new SectionedImageWriter(file);
+        DataOutputBuffer buffer = new DataOutputBuffer();
+        buffer.writeLong(100L);
+        writer.writeSection("header", buffer);
+        for (int i = 0; i < 3; i++) {
+            buffer.reset().writeInt(i);
+            writer.writeSection("db." + i, buffer);
+        }
+        writer.finish();
+        writer.close();
+
+        // 2. Read sections from file
+        Assert.assertTrue(SectionedImageReader.isSectionedImage(file));
+        SectionedImageReader reader = new SectionedImageReader(file);
+        Assert.assertTrue(reader.hasSection("header"));
+        Assert.assertFalse(reader.hasSection("footer"));
+        Assert.assertEquals(100L, reader.readSection("header").readLong());
+        Assert.assertEquals(3, reader.getSectionNames("db.").size());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("db." + i, reader.getSectionNames("db.").get(i));
+            Assert.assertEquals(i, reader.readSection("db." + i).readInt());
+        }
+        reader.close();
+
+        // 3. Corrupt one section
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(SectionedImageWriter.HEADER_LEN);
+        raf.write(1);
+        raf.close();
+        reader = new SectionedImageReader(file);
+        try {
+            reader.readSection("header");
+            Assert.fail("No exception throws.");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(1, reader.readSection("db.1").readInt());
+        reader.close();
+
+        file.delete();
+    }
+
+    @Test
+    public void testOldFormat() throws Exception {
+        File file = new File("./oldImage");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[64]);
+        out.close();
+        Assert.assertFalse(SectionedImageReader.isSectionedImage(file));
+        file.delete();
+    }
+}
@@ -0,0 +1,103 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package com.baidu.palo.planner;
+
+import com.baidu.palo.analysis.Expr;
+import com.baidu.palo.analysis.JoinOperator;
+import com.baidu.palo.analysis.SlotRef;
+import com.baidu.palo.catalog.AggregateType;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.ColumnType;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.KeysType;
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.qe.ConnectContext;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class DistributedPlannerTest {
+    private ConnectContext context;
+
+    @Before
+    public void setUp() {
+        Database db = PlannerTestUtil.createDb("distributed_planner_test");
+        for (String tableName : new String[] {"t1", "t2"}) {
+            List<Column> columns = Lists.newArrayList(
+                    new Column("k1", new ColumnType(PrimitiveType.INT), true, null, true, "", ""),
+                    new Column("k2", new ColumnType(PrimitiveType.INT), true, null, false, "", ""),
+                    new Column("v1", new ColumnType(PrimitiveType.INT), false, AggregateType.NONE, true, "", ""));
+            PlannerTestUtil.createTable(db, tableName, KeysType.DUP_KEYS, columns, 4, 1000L, 100000L);
+        }
+        context = PlannerTestUtil.createContext(db);
+    }
+
+    private HashJoinNode planJoin(String sql) throws Exception {
+        List<HashJoinNode> joins = PlannerTestUtil.getPlanNodes(PlannerTestUtil.plan(context, sql),
+                                                                 HashJoinNode.class);
+        Assert.assertEquals(1, joins.size());
+        return joins.get(0);
+    }
+
+    @Test
+    public void testNotInSubquery() throws Exception {
+        HashJoinNode join = planJoin("select k1 from t1 where k1 not in (select k1 from t2)");
+        Assert.assertEquals(JoinOperator.NULL_AWARE_LEFT_ANTI_JOIN, join.getJoinOp());
+        // whether the subquery returns null is only known if all its rows are in the build side
+        Assert.assertEquals(HashJoinNode.DistributionMode.BROADCAST, join.getDistributionMode());
+        Assert.assertTrue(join.getChild(0) instanceof OlapScanNode);
+        Assert.assertTrue(join.getChild(1) instanceof ExchangeNode);
+    }
+
+    @Test
+    public void testCorrelatedNotInSubquery() throws Exception {
+        HashJoinNode join = planJoin("select k1 from t1 where k1 not in (select k1 from t2 where t1.k2 = t2.k2)");
+        Assert.assertEquals(JoinOperator.NULL_AWARE_LEFT_ANTI_JOIN, join.getJoinOp());
+        Assert.assertEquals(HashJoinNode.DistributionMode.BROADCAST, join.getDistributionMode());
+        // the NOT IN predicate is the last eq join conjunct, after the correlated one
+        List<Pair<Expr, Expr>> eqJoinConjuncts = join.getEqJoinConjuncts();
+        Assert.assertEquals(2, eqJoinConjuncts.size());
+        Assert.assertEquals("k2", ((SlotRef) eqJoinConjuncts.get(0).first).getColumnName());
+        Assert.assertEquals("k1", ((SlotRef) eqJoinConjuncts.get(1).first).getColumnName());
+    }
+
+    @Test
+    public void testCorrelatedNotInSubqueryWithOtherJoinConjunct() throws Exception {
+        HashJoinNode join = planJoin("select k1 from t1 where k1 not in"
+                + " (select k1 from t2 where t1.k2 = t2.k2 and t2.v1 > t1.v1)");
+        Assert.assertEquals(JoinOperator.NULL_AWARE_LEFT_ANTI_JOIN, join.getJoinOp());
+        Assert.assertEquals(2, join.getEqJoinConjuncts().size());
+        Assert.assertEquals("k1", ((SlotRef) join.getEqJoinConjuncts().get(1).first).getColumnName());
+    }
+
+    @Test
+    public void testCorrelatedNotInSubqueryWithoutEqCorrelation() throws Exception {
+        // no eq join conjunct to look up the rows of the subquery besides the one of NOT IN
+        HashJoinNode join = planJoin("select k1 from t1 where k1 not in (select k1 from t2 where t2.k2 > t1.k2)");
+        Assert.assertEquals(JoinOperator.LEFT_ANTI_JOIN, join.getJoinOp());
+    }
+}
\ No newline at end of file
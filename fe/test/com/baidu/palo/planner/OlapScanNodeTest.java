@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 
 import com.baidu.palo.analysis.Expr;
@@ -33,14 +34,113 @@ import com.baidu.palo.analysis.InPredicate;
 import com.baidu.palo.analysis.IntLiteral;
 import com.baidu.palo.analysis.SlotRef;
 import com.baidu.palo.analysis.TableName;
+import com.baidu.palo.catalog.AggregateType;
 import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.ColumnType;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.KeysType;
+import com.baidu.palo.catalog.OlapTable;
 import com.baidu.palo.catalog.PartitionKey;
 import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.Replica.ReplicaState;
+import com.baidu.palo.catalog.Tablet;
 import com.baidu.palo.common.AnalysisException;
+import com.baidu.palo.common.InternalException;
+import com.baidu.palo.qe.ConnectContext;
+import com.baidu.palo.system.Backend;
+import com.baidu.palo.thrift.TExplainLevel;
+import com.baidu.palo.thrift.TScanRangeLocations;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 public class OlapScanNodeTest {    
+    private ConnectContext context;
+    private long aggBaseIndexId;
+    private long rollupK1;
+    private long rollupK2K1;
+    private long uniqBaseIndexId;
+
+    @Before
+    public void setUp() {
+        Database db = PlannerTestUtil.createDb("olap_scan_node_test");
+
+        Column k1 = new Column("k1", new ColumnType(PrimitiveType.INT), true, null, false, "", "");
+        Column k2 = new Column("k2", new ColumnType(PrimitiveType.INT), true, null, false, "", "");
+        Column k3 = new Column("k3", new ColumnType(PrimitiveType.INT), true, null, false, "", "");
+        Column v1 = new Column("v1", new ColumnType(PrimitiveType.INT), false, AggregateType.SUM, false, "0", "");
+        OlapTable agg = PlannerTestUtil.createTable(db, "agg", KeysType.AGG_KEYS,
+                                                    Lists.newArrayList(k1, k2, k3, v1), 4, 10000L, 400000L);
+        aggBaseIndexId = agg.getIndexIdByName("agg");
+        rollupK1 = PlannerTestUtil.addRollup(db, agg, "r_k1", Lists.newArrayList(k1, v1), 100L, 800L);
+        rollupK2K1 = PlannerTestUtil.addRollup(db, agg, "r_k2_k1", Lists.newArrayList(k2, k1, v1), 1000L, 12000L);
+        PlannerTestUtil.addRollup(db, agg, "r_k1_k3", Lists.newArrayList(k1, k3), 1000L, 8000L);
+
+        // all value columns of unique keys table are REPLACE columns
+        Column h1 = new Column("h1", ColumnType.createHll(), false, AggregateType.REPLACE, false, "", "");
+        OlapTable uniq = PlannerTestUtil.createTable(db, "uniq", KeysType.UNIQUE_KEYS,
+                                                     Lists.newArrayList(k1, k2, h1), 4, 10000L, 400000L);
+        uniqBaseIndexId = uniq.getIndexIdByName("uniq");
+        PlannerTestUtil.addRollup(db, uniq, "r_uniq_k1", Lists.newArrayList(k1, h1), 100L, 800L);
+
+        context = PlannerTestUtil.createContext(db);
+    }
+
+    // Plan 'sql' of one olap table, return the scan node and put the verbose explain string to 'explain'
+    private OlapScanNode planScan(String sql, StringBuilder explain) throws Exception {
+        Planner planner = PlannerTestUtil.plan(context, sql);
+        explain.append(planner.getExplainString(planner.getFragments(), TExplainLevel.VERBOSE));
+        List<OlapScanNode> scanNodes = PlannerTestUtil.getPlanNodes(planner, OlapScanNode.class);
+        Assert.assertEquals(1, scanNodes.size());
+        return scanNodes.get(0);
+    }
+
+    @Test
+    public void testSelectCheapestRollup() throws Exception {
+        StringBuilder explain = new StringBuilder();
+        OlapScanNode scanNode = planScan("select k1, sum(v1) from agg group by k1", explain);
+        Assert.assertTrue(scanNode.isPreAggregation());
+        Assert.assertEquals(rollupK1, scanNode.getSelectedIndexId());
+        Assert.assertTrue(explain.toString(),
+                explain.indexOf("rejected rollup: r_k1_k3, missing columns [v1]") != -1);
+        Assert.assertTrue(explain.toString(),
+                explain.indexOf("rejected rollup: r_k2_k1, estimated scan bytes 8000, selected index has 800") != -1);
+        Assert.assertTrue(explain.toString(),
+                explain.indexOf("rejected rollup: agg, estimated scan bytes 200000, selected index has 800") != -1);
+    }
+
+    @Test
+    public void testRejectRollupWithoutPreAggregation() throws Exception {
+        // rows of rollups with fewer keys are aggregated, only can be read with pre-aggregation
+        StringBuilder explain = new StringBuilder();
+        OlapScanNode scanNode = planScan("select k1, v1 from agg", explain);
+        Assert.assertFalse(scanNode.isPreAggregation());
+        Assert.assertEquals(aggBaseIndexId, scanNode.getSelectedIndexId());
+        Assert.assertTrue(explain.toString(), explain.indexOf(
+                "rejected rollup: r_k1, pre-aggregation is off and key columns differ from base index") != -1);
+        Assert.assertTrue(explain.toString(), explain.indexOf(
+                "rejected rollup: r_k2_k1, pre-aggregation is off and key columns differ from base index") != -1);
+    }
+
+    @Test
+    public void testRejectRollupOfReplaceColumn() throws Exception {
+        StringBuilder explain = new StringBuilder();
+        OlapScanNode scanNode = planScan("select k1, hll_union_agg(h1) from uniq group by k1", explain);
+        Assert.assertTrue(scanNode.isPreAggregation());
+        Assert.assertEquals(uniqBaseIndexId, scanNode.getSelectedIndexId());
+        Assert.assertTrue(explain.toString(), explain.indexOf(
+                "rejected rollup: r_uniq_k1, REPLACE column h1 is aggregated by fewer keys") != -1);
+    }
+
+    @Test
+    public void testRejectRollupOfShorterKeyPrefix() throws Exception {
+        StringBuilder explain = new StringBuilder();
+        OlapScanNode scanNode = planScan("select k2, sum(v1) from agg where k2 = 1 group by k2", explain);
+        Assert.assertEquals(rollupK2K1, scanNode.getSelectedIndexId());
+        Assert.assertTrue(explain.toString(), explain.indexOf(
+                "rejected rollup: agg, key prefix matches 0 predicate and join columns, another matches 1") != -1);
+    }
+
     // columnA in (1) hashmode=3
     @Test
     public void testHashDistributionOneUser() throws AnalysisException {
@@ -162,4 +262,28 @@ public class OlapScanNodeTest {
             Assert.assertEquals(mod, 2);
         } 
     }
+
+    @Test
+    public void testCreateScanRangeLocations() throws InternalException {
+        List<Replica> replicas = Lists.newArrayList();
+        replicas.add(new Replica(10, 3, ReplicaState.NORMAL, 2, 0));
+        replicas.add(new Replica(11, 1, ReplicaState.NORMAL, 2, 0));
+        replicas.add(new Replica(12, 4, ReplicaState.NORMAL, 1, 0));
+        replicas.add(new Replica(13, 2, ReplicaState.NORMAL, 2, 0));
+        Tablet tablet = new Tablet(7, replicas);
+
+        Map<Long, Backend> idToBackend = Maps.newHashMap();
+        for (long backendId = 1; backendId <= 4; backendId++) {
+            idToBackend.put(backendId, new Backend(backendId, "host" + backendId, 9050));
+        }
+
+        TScanRangeLocations locations = OlapScanNode.createScanRangeLocations(tablet, 1234, 2, 0, idToBackend);
+        Assert.assertEquals(7, locations.getScan_range().getPalo_scan_range().getTablet_id());
+        Assert.assertEquals("1234", locations.getScan_range().getPalo_scan_range().getSchema_hash());
+        // replica on backend 4 is not queryable. others are sorted by backend and rotated by 7 % 3
+        Assert.assertEquals(3, locations.getLocations().size());
+        Assert.assertEquals(3, locations.getLocations().get(0).getBackend_id());
+        Assert.assertEquals(1, locations.getLocations().get(1).getBackend_id());
+        Assert.assertEquals(2, locations.getLocations().get(2).getBackend_id());
+    }
 }
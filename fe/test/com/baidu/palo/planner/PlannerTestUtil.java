@@ -0,0 +1,236 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package com.baidu.palo.planner;
+
+import com.baidu.palo.analysis.Analyzer;
+import com.baidu.palo.analysis.LiteralExpr;
+import com.baidu.palo.analysis.PreparedParams;
+import com.baidu.palo.analysis.QueryStmt;
+import com.baidu.palo.analysis.SqlParser;
+import com.baidu.palo.analysis.SqlScanner;
+import com.baidu.palo.analysis.StatementBase;
+import com.baidu.palo.analysis.StmtRewriter;
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.DistributionInfo;
+import com.baidu.palo.catalog.HashDistributionInfo;
+import com.baidu.palo.catalog.KeysType;
+import com.baidu.palo.catalog.MaterializedIndex;
+import com.baidu.palo.catalog.MaterializedIndex.IndexState;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.Partition;
+import com.baidu.palo.catalog.RandomDistributionInfo;
+import com.baidu.palo.catalog.Replica;
+import com.baidu.palo.catalog.Replica.ReplicaState;
+import com.baidu.palo.catalog.SinglePartitionInfo;
+import com.baidu.palo.catalog.Tablet;
+import com.baidu.palo.catalog.TabletMeta;
+import com.baidu.palo.cluster.Cluster;
+import com.baidu.palo.cluster.ClusterNamespace;
+import com.baidu.palo.qe.ConnectContext;
+import com.baidu.palo.qe.PreparedPlan;
+import com.baidu.palo.rewrite.ExprRewriter;
+import com.baidu.palo.system.Backend;
+import com.baidu.palo.thrift.TQueryOptions;
+
+import com.google.common.collect.Lists;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// for unit test, plans queries against olap tables registered in the catalog singleton
+public class PlannerTestUtil {
+    public static final String CLUSTER_NAME = "testCluster";
+    public static final long BACKEND_ID = 10001L;
+    public static final int SCHEMA_HASH = 0;
+
+    // Catalog.getNextId() writes edit log, which is not available in unit test
+    private static final AtomicLong nextId = new AtomicLong(90000L);
+
+    public static void addBackend(long backendId) {
+        if (Catalog.getCurrentSystemInfo().getBackend(backendId) == null) {
+            Backend backend = new Backend(backendId, "127.0.0.1", 9050);
+            backend.setBePort(9060);
+            backend.setAlive(true);
+            Catalog.getCurrentSystemInfo().addBackend(backend);
+        }
+    }
+
+    public static Database createDb(String dbName) {
+        Catalog catalog = Catalog.getInstance();
+        if (catalog.getCluster(CLUSTER_NAME) == null) {
+            catalog.addCluster(new Cluster(CLUSTER_NAME, nextId.incrementAndGet()));
+        }
+        addBackend(BACKEND_ID);
+
+        String fullDbName = ClusterNamespace.getDbFullName(CLUSTER_NAME, dbName);
+        Database db = catalog.getDb(fullDbName);
+        if (db == null) {
+            db = new Database(nextId.incrementAndGet(), fullDbName);
+            db.setClusterName(CLUSTER_NAME);
+            catalog.unprotectCreateDb(db);
+        }
+        return db;
+    }
+
+    // Create (or replace) an unpartitioned table whose base index has 'bucketNum' tablets,
+    // each of one queryable replica on the test backend.
+    public static OlapTable createTable(Database db, String tableName, KeysType keysType, List<Column> columns,
+                                        int bucketNum, long rowCount, long dataSize) {
+        long[] bucketBackendIds = new long[bucketNum];
+        Arrays.fill(bucketBackendIds, BACKEND_ID);
+        return createTable(db, tableName, keysType, columns, new RandomDistributionInfo(bucketNum),
+                           bucketBackendIds, rowCount, dataSize);
+    }
+
+    // Create (or replace) an unpartitioned table of colocate group 'colocateGroup', which is hash
+    // distributed by the first column, and bucket i of which has one replica on bucketBackendIds[i].
+    public static OlapTable createColocateTable(Database db, String tableName, List<Column> columns,
+                                                String colocateGroup, long[] bucketBackendIds,
+                                                long rowCount, long dataSize) {
+        HashDistributionInfo distributionInfo =
+                new HashDistributionInfo(bucketBackendIds.length, Lists.newArrayList(columns.get(0)));
+        OlapTable table = createTable(db, tableName, KeysType.DUP_KEYS, columns, distributionInfo,
+                                      bucketBackendIds, rowCount, dataSize);
+        table.setColocateGroup(colocateGroup);
+        return table;
+    }
+
+    private static OlapTable createTable(Database db, String tableName, KeysType keysType, List<Column> columns,
+                                         DistributionInfo distributionInfo, long[] bucketBackendIds,
+                                         long rowCount, long dataSize) {
+        long tableId = nextId.incrementAndGet();
+        long partitionId = nextId.incrementAndGet();
+        long indexId = nextId.incrementAndGet();
+        MaterializedIndex baseIndex = createIndex(db.getId(), tableId, partitionId, indexId,
+                                                  bucketBackendIds, rowCount, dataSize);
+        Partition partition = new Partition(partitionId, tableName, baseIndex, distributionInfo);
+
+        OlapTable table = new OlapTable(tableId, tableName, columns, keysType,
+                                        new SinglePartitionInfo(), distributionInfo);
+        table.setIndexSchemaInfo(indexId, tableName, columns, 0, SCHEMA_HASH, (short) 1);
+        table.addPartition(partition);
+
+        db.dropTable(tableName);
+        db.createTable(table);
+        return table;
+    }
+
+    public static long addRollup(Database db, OlapTable table, String rollupName, List<Column> columns,
+                                 long rowCount, long dataSize) {
+        Partition partition = table.getPartitions().iterator().next();
+        long indexId = nextId.incrementAndGet();
+        long[] bucketBackendIds = new long[partition.getDistributionInfo().getBucketNum()];
+        Arrays.fill(bucketBackendIds, BACKEND_ID);
+        MaterializedIndex rollupIndex = createIndex(db.getId(), table.getId(), partition.getId(), indexId,
+                                                    bucketBackendIds, rowCount, dataSize);
+        partition.createRollupIndex(rollupIndex);
+        table.setIndexSchemaInfo(indexId, rollupName, columns, 0, SCHEMA_HASH, (short) 1);
+        return indexId;
+    }
+
+    private static MaterializedIndex createIndex(long dbId, long tableId, long partitionId, long indexId,
+                                                 long[] bucketBackendIds, long rowCount, long dataSize) {
+        int bucketNum = bucketBackendIds.length;
+        MaterializedIndex index = new MaterializedIndex(indexId, IndexState.NORMAL);
+        for (int i = 0; i < bucketNum; ++i) {
+            Tablet tablet = new Tablet(nextId.incrementAndGet());
+            index.addTablet(tablet, new TabletMeta(dbId, tableId, partitionId, indexId, SCHEMA_HASH));
+            // partition is created with version 1 and version hash 0
+            tablet.addReplica(new Replica(nextId.incrementAndGet(), bucketBackendIds[i], 1L, 0L,
+                                          dataSize / bucketNum, rowCount / bucketNum, ReplicaState.NORMAL));
+        }
+        index.setRowCount(rowCount);
+        return index;
+    }
+
+    public static ConnectContext createContext(Database db) {
+        ConnectContext context = new ConnectContext(null);
+        context.setCatalog(Catalog.getInstance());
+        context.setCluster(CLUSTER_NAME);
+        context.setDatabase(db.getName());
+        context.setUser("root");
+        context.setThreadLocalInfo();
+        return context;
+    }
+
+    // Analyze, rewrite and plan 'sql' the same way as StmtExecutor does.
+    public static Planner plan(ConnectContext context, String sql) throws Exception {
+        SqlParser parser = new SqlParser(new SqlScanner(new StringReader(sql)));
+        StatementBase stmt = (StatementBase) parser.parse().value;
+        Analyzer analyzer = analyze(context, stmt, null);
+        Planner planner = new Planner();
+        planner.plan(stmt, analyzer, new TQueryOptions());
+        return planner;
+    }
+
+    // Analyze, rewrite and plan the prepared query 'stmt' parsed with parameter markers, the same way
+    // as StmtExecutor does, with 'values' bound to the parameters.
+    public static PreparedPlan planPrepared(ConnectContext context, QueryStmt stmt, List<LiteralExpr> values)
+            throws Exception {
+        Analyzer analyzer = analyze(context, stmt, new PreparedParams(values));
+        Planner planner = new Planner();
+        planner.plan(stmt, analyzer, new TQueryOptions());
+        return PreparedPlan.create(PreparedPlan.getKey(context, values), stmt, analyzer, planner);
+    }
+
+    private static Analyzer analyze(ConnectContext context, StatementBase stmt, PreparedParams params)
+            throws Exception {
+        Analyzer analyzer = new Analyzer(context.getCatalog(), context);
+        analyzer.setPreparedParams(params);
+        stmt.analyze(analyzer);
+
+        ExprRewriter rewriter = analyzer.getExprRewriter();
+        rewriter.reset();
+        stmt.rewriteExprs(rewriter);
+        boolean reAnalyze = rewriter.changed();
+        if (analyzer.containSubquery()) {
+            StmtRewriter.rewrite(analyzer, stmt);
+            reAnalyze = true;
+        }
+        if (reAnalyze) {
+            analyzer = new Analyzer(context.getCatalog(), context);
+            analyzer.setPreparedParams(params);
+            stmt.reset();
+            stmt.analyze(analyzer);
+        }
+        return analyzer;
+    }
+
+    // All nodes of class 'clazz' in the plan, including the ones of child fragments.
+    public static <T extends PlanNode> List<T> getPlanNodes(Planner planner, Class<T> clazz) {
+        List<T> nodes = Lists.newArrayList();
+        collectPlanNodes(planner.getFragments().get(0).getPlanRoot(), clazz, nodes);
+        return nodes;
+    }
+
+    private static <T extends PlanNode> void collectPlanNodes(PlanNode node, Class<T> clazz, List<T> nodes) {
+        if (clazz.isInstance(node)) {
+            nodes.add(clazz.cast(node));
+        }
+        for (PlanNode child : node.getChildren()) {
+            collectPlanNodes(child, clazz, nodes);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package com.baidu.palo.planner;
+
+import com.baidu.palo.analysis.IntLiteral;
+import com.baidu.palo.analysis.JoinOperator;
+import com.baidu.palo.analysis.LiteralExpr;
+import com.baidu.palo.analysis.SetType;
+import com.baidu.palo.analysis.SetVar;
+import com.baidu.palo.analysis.SlotRef;
+import com.baidu.palo.analysis.StringLiteral;
+import com.baidu.palo.analysis.TableName;
+import com.baidu.palo.analysis.TupleDescriptor;
+import com.baidu.palo.analysis.TupleId;
+import com.baidu.palo.catalog.AggregateType;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.ColumnType;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.KeysType;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.qe.ConnectContext;
+import com.baidu.palo.qe.SessionVariable;
+import com.baidu.palo.qe.VariableMgr;
+import com.baidu.palo.thrift.TRuntimeFilterDesc;
+import com.baidu.palo.thrift.TRuntimeFilterType;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class RuntimeFilterTest {
+    private ConnectContext context;
+
+    @Before
+    public void setUp() {
+        Database db = PlannerTestUtil.createDb("runtime_filter_test");
+        // build sides of 100 and 10000 rows are below and above the default runtime_filter_max_in_num
+        createTable(db, "fact", 100000L);
+        createTable(db, "dim", 100L);
+        createTable(db, "big_dim", 10000L);
+        context = PlannerTestUtil.createContext(db);
+    }
+
+    private static void createTable(Database db, String tableName, long rowCount) {
+        List<Column> columns = Lists.newArrayList(
+                new Column("k1", new ColumnType(PrimitiveType.INT), true, null, false, "", ""),
+                new Column("v1", new ColumnType(PrimitiveType.INT), false, AggregateType.NONE, true, "", ""));
+        PlannerTestUtil.createTable(db, tableName, KeysType.DUP_KEYS, columns, 4, rowCount, rowCount * 10);
+    }
+
+    private void setVar(String name, LiteralExpr value) throws Exception {
+        VariableMgr.setVar(context.getSessionVariable(), new SetVar(SetType.SESSION, name, value));
+    }
+
+    private HashJoinNode planJoin(String sql) throws Exception {
+        List<HashJoinNode> joins = PlannerTestUtil.getPlanNodes(PlannerTestUtil.plan(context, sql),
+                                                                 HashJoinNode.class);
+        Assert.assertEquals(1, joins.size());
+        return joins.get(0);
+    }
+
+    @Test
+    public void testInnerJoin() throws Exception {
+        HashJoinNode join = planJoin("select * from fact join [broadcast] dim on fact.k1 = dim.k1");
+        Assert.assertEquals(1, join.getRuntimeFilters().size());
+        RuntimeFilter filter = join.getRuntimeFilters().get(0);
+        Assert.assertEquals(TRuntimeFilterType.IN, filter.getType());
+        // the probe side scan node in the same fragment of join
+        Assert.assertSame(join.getChild(0), filter.getTarget());
+        Assert.assertSame(join.getFragment(), filter.getTarget().getFragment());
+        Assert.assertEquals("fact", filter.getTarget().getOlapTable().getName());
+    }
+
+    @Test
+    public void testFilterType() throws Exception {
+        String sql = "select * from fact join [broadcast] big_dim on fact.k1 = big_dim.k1";
+        HashJoinNode join = planJoin(sql);
+        Assert.assertEquals(1, join.getRuntimeFilters().size());
+        Assert.assertEquals(TRuntimeFilterType.MIN_MAX, join.getRuntimeFilters().get(0).getType());
+
+        setVar(SessionVariable.RUNTIME_FILTER_MAX_IN_NUM, new IntLiteral(10000L));
+        join = planJoin(sql);
+        Assert.assertEquals(1, join.getRuntimeFilters().size());
+        Assert.assertEquals(TRuntimeFilterType.IN, join.getRuntimeFilters().get(0).getType());
+
+        setVar(SessionVariable.RUNTIME_FILTER_MAX_IN_NUM, new IntLiteral(99L));
+        join = planJoin("select * from fact join [broadcast] dim on fact.k1 = dim.k1");
+        Assert.assertEquals(1, join.getRuntimeFilters().size());
+        Assert.assertEquals(TRuntimeFilterType.MIN_MAX, join.getRuntimeFilters().get(0).getType());
+    }
+
+    @Test
+    public void testOuterAndAntiJoin() throws Exception {
+        // probe rows are returned even if no build row matches them
+        HashJoinNode join = planJoin("select * from fact left outer join [broadcast] dim on fact.k1 = dim.k1");
+        Assert.assertEquals(JoinOperator.LEFT_OUTER_JOIN, join.getJoinOp());
+        Assert.assertTrue(join.getRuntimeFilters().isEmpty());
+
+        join = planJoin("select fact.k1 from fact left anti join [broadcast] dim on fact.k1 = dim.k1");
+        Assert.assertEquals(JoinOperator.LEFT_ANTI_JOIN, join.getJoinOp());
+        Assert.assertTrue(join.getRuntimeFilters().isEmpty());
+    }
+
+    @Test
+    public void testAcrossExchange() throws Exception {
+        // both sides of a partitioned join are exchanged, the probe side scan node is in another fragment
+        HashJoinNode join = planJoin("select * from fact join [shuffle] dim on fact.k1 = dim.k1");
+        Assert.assertEquals(HashJoinNode.DistributionMode.PARTITIONED, join.getDistributionMode());
+        Assert.assertTrue(join.getChild(0) instanceof ExchangeNode);
+        Assert.assertTrue(join.getRuntimeFilters().isEmpty());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        setVar(SessionVariable.ENABLE_RUNTIME_FILTER, new StringLiteral("false"));
+        HashJoinNode join = planJoin("select * from fact join [broadcast] dim on fact.k1 = dim.k1");
+        Assert.assertTrue(join.getRuntimeFilters().isEmpty());
+    }
+
+    @Test
+    public void testToThrift() {
+        TupleDescriptor desc = new TupleDescriptor(new TupleId(0));
+        desc.setTable(new OlapTable());
+        OlapScanNode scanNode = new OlapScanNode(new PlanNodeId(3), desc, "OlapScanNode");
+
+        SlotRef probeExpr = new SlotRef(new TableName("db", "fact"), "k1");
+        SlotRef buildExpr = new SlotRef(new TableName("db", "dim"), "k1");
+        RuntimeFilter filter = new RuntimeFilter(2, 1, TRuntimeFilterType.MIN_MAX, buildExpr, probeExpr, scanNode);
+        scanNode.addRuntimeFilter(filter);
+
+        TRuntimeFilterDesc filterDesc = filter.toThrift();
+        Assert.assertEquals(2, filterDesc.getFilter_id());
+        Assert.assertEquals(1, filterDesc.getExpr_order());
+        Assert.assertEquals(TRuntimeFilterType.MIN_MAX, filterDesc.getType());
+        Assert.assertEquals(3, filterDesc.getTarget_node_id());
+
+        Assert.assertTrue(filter.getSrcExplainString().startsWith("RF002[MIN_MAX] <- "));
+        Assert.assertTrue(filter.getTargetExplainString().startsWith("RF002[MIN_MAX] -> "));
+        Assert.assertSame(scanNode, filter.getTarget());
+    }
+}
@@ -21,11 +21,13 @@
 package com.baidu.palo.qe;
 
 import com.baidu.palo.analysis.AccessTestUtil;
+import com.baidu.palo.common.Config;
 import com.baidu.palo.mysql.MysqlChannel;
 import com.baidu.palo.mysql.MysqlProto;
 
 import org.junit.Assert;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -39,6 +41,8 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.channels.SocketChannel;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 @RunWith(PowerMockRunner.class)
@@ -172,6 +176,53 @@ public class ConnectSchedulerTest {
         Assert.assertTrue(scheduler.submit(new ConnectContext(EasyMock.createMock(SocketChannel.class))));
     }
 
+    @Test
+    public void testNegotiateTimeout() throws Exception {
+        int oldTimeout = Config.mysql_handshake_timeout_second;
+        boolean oldNioEnabled = Config.mysql_service_nio_enabled;
+        Config.mysql_handshake_timeout_second = 1;
+        Config.mysql_service_nio_enabled = true;
+        try {
+            final CountDownLatch closed = new CountDownLatch(1);
+            final MysqlChannel channel = EasyMock.createMock(MysqlChannel.class);
+            EasyMock.expect(channel.getRemote()).andReturn("127.0.0.1:1234").anyTimes();
+            channel.close();
+            EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+                @Override
+                public Object answer() {
+                    closed.countDown();
+                    return null;
+                }
+            }).anyTimes();
+            EasyMock.replay(channel);
+
+            // client never sends its handshake response
+            PowerMock.mockStatic(MysqlProto.class);
+            EasyMock.expect(MysqlProto.negotiate(EasyMock.anyObject(ConnectContext.class))).andAnswer(
+                    new IAnswer<Boolean>() {
+                        @Override
+                        public Boolean answer() throws Throwable {
+                            closed.await(10, TimeUnit.SECONDS);
+                            return false;
+                        }
+                    }).anyTimes();
+            PowerMock.replay(MysqlProto.class);
+
+            ConnectScheduler scheduler = new ConnectScheduler(10);
+            ConnectContext context = new ConnectContext(EasyMock.createMock(SocketChannel.class)) {
+                @Override
+                public MysqlChannel getMysqlChannel() {
+                    return channel;
+                }
+            };
+            Assert.assertTrue(scheduler.submit(context));
+            Assert.assertTrue(closed.await(5, TimeUnit.SECONDS));
+        } finally {
+            Config.mysql_handshake_timeout_second = oldTimeout;
+            Config.mysql_service_nio_enabled = oldNioEnabled;
+        }
+    }
+
     @Test
     public void testNegotiateIOException() throws InterruptedException, IOException {
         ConnectScheduler scheduler = new ConnectScheduler(10);
@@ -20,15 +20,88 @@
 
 package com.baidu.palo.qe;
 
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.DdlException;
+
 import com.google.common.collect.Multiset;
 import com.google.common.collect.TreeMultiset;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Assert;
 import org.junit.Test;
-
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest(Catalog.class)
 public class JournalObservableTest {
+    private AtomicLong replayedJournalId = new AtomicLong(0L);
+
+    private void mockCatalog() {
+        Catalog catalog = EasyMock.createMock(Catalog.class);
+        EasyMock.expect(catalog.getReplayedJournalId()).andAnswer(new IAnswer<Long>() {
+            @Override
+            public Long answer() throws Throwable {
+                return replayedJournalId.get();
+            }
+        }).anyTimes();
+        EasyMock.replay(catalog);
+
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        PowerMock.replay(Catalog.class);
+    }
+
+    @Test
+    public void testWaitOn() throws Exception {
+        mockCatalog();
+        final JournalObservable observable = new JournalObservable();
+
+        // already replayed
+        replayedJournalId.set(5L);
+        observable.waitOn(3L, 1000);
+        observable.waitOn(5L, 1000);
+
+        // not replayed and no need to wait
+        observable.waitOn(10L, 0);
+
+        // replayed while waiting
+        Thread replayer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                for (long id = 6L; id <= 8L; id++) {
+                    replayedJournalId.set(id);
+                    observable.notifyObservers(id);
+                }
+            }
+        };
+        replayer.start();
+        observable.waitOn(7L, 10000);
+        Assert.assertTrue(replayedJournalId.get() >= 7L);
+        replayer.join();
+
+        // timeout
+        try {
+            observable.waitOn(100L, 100);
+            Assert.fail("No exception throws.");
+        } catch (DdlException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testUpperBound() {
         Multiset<JournalObserver> elements = TreeMultiset.create();
@@ -0,0 +1,189 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.catalog.Catalog;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.DdlException;
+import com.baidu.palo.load.Load;
+import com.baidu.palo.thrift.TMiniLoadRequest;
+import com.baidu.palo.thrift.TNetworkAddress;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.List;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("org.apache.log4j.*")
+@PrepareForTest(Catalog.class)
+public class MiniLoadCoalescerTest {
+    // requests of each added load job
+    private final List<List<TMiniLoadRequest>> addedJobs = Lists.newArrayList();
+    private volatile boolean failAddJob = false;
+
+    @Before
+    public void setUp() {
+        Config.mini_load_coalesce_window_ms = 200;
+
+        Load load = new Load() {
+            @Override
+            public boolean registerMiniLabel(String dbName, String label, long timestamp) {
+                return true;
+            }
+
+            @Override
+            public void deregisterMiniLabel(String dbName, String label) {
+            }
+
+            @Override
+            public void addCoalescedLoadJob(List<TMiniLoadRequest> requests) throws DdlException {
+                if (failAddJob) {
+                    throw new DdlException("add job failed");
+                }
+                synchronized (addedJobs) {
+                    addedJobs.add(requests);
+                }
+            }
+        };
+
+        Catalog catalog = EasyMock.createMock(Catalog.class);
+        EasyMock.expect(catalog.getLoadInstance()).andReturn(load).anyTimes();
+        EasyMock.replay(catalog);
+
+        PowerMock.mockStatic(Catalog.class);
+        EasyMock.expect(Catalog.getInstance()).andReturn(catalog).anyTimes();
+        PowerMock.replay(Catalog.class);
+    }
+
+    @After
+    public void tearDown() {
+        Config.mini_load_coalesce_window_ms = 0;
+        failAddJob = false;
+    }
+
+    private TMiniLoadRequest createRequest(String label, String file) {
+        TMiniLoadRequest request = new TMiniLoadRequest();
+        request.setDb("testDb");
+        request.setTbl("testTbl");
+        request.setLabel(label);
+        request.setBackend(new TNetworkAddress("127.0.0.1", 9060));
+        request.setFiles(Lists.newArrayList(file));
+        request.setProperties(Maps.<String, String>newHashMap());
+        request.setTimestamp(1L);
+        return request;
+    }
+
+    @Test
+    public void testCanCoalesce() {
+        Assert.assertTrue(MiniLoadCoalescer.canCoalesce(createRequest("1", "/path/1")));
+        Assert.assertFalse(MiniLoadCoalescer.canCoalesce(createRequest("1", "stream://127.0.0.1:9060/id")));
+
+        TMiniLoadRequest request = createRequest("1", "/path/1");
+        request.setSubLabel("sub");
+        Assert.assertFalse(MiniLoadCoalescer.canCoalesce(request));
+
+        Config.mini_load_coalesce_window_ms = 0;
+        Assert.assertFalse(MiniLoadCoalescer.canCoalesce(createRequest("1", "/path/1")));
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        final MiniLoadCoalescer coalescer = new MiniLoadCoalescer();
+        final List<Boolean> results = Lists.newArrayList();
+        List<Thread> threads = Lists.newArrayList();
+        for (int i = 0; i < 3; ++i) {
+            final TMiniLoadRequest request = createRequest(String.valueOf(i), "/path/" + i);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        boolean result = coalescer.load(request);
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                    } catch (DdlException e) {
+                        // result is not added
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(3, results.size());
+        Assert.assertFalse(results.contains(false));
+        // one load job for all requests
+        Assert.assertEquals(1, addedJobs.size());
+        Assert.assertEquals(3, addedJobs.get(0).size());
+    }
+
+    @Test
+    public void testCoalesceFailed() throws Exception {
+        failAddJob = true;
+        final MiniLoadCoalescer coalescer = new MiniLoadCoalescer();
+        final List<Boolean> results = Lists.newArrayList();
+        final List<DdlException> errors = Lists.newArrayList();
+        List<Thread> threads = Lists.newArrayList();
+        for (int i = 0; i < 3; ++i) {
+            final TMiniLoadRequest request = createRequest(String.valueOf(i), "/path/" + i);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        boolean result = coalescer.load(request);
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                    } catch (DdlException e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // the first request of the batch fails as well as the others
+        Assert.assertEquals(0, results.size());
+        Assert.assertEquals(3, errors.size());
+        Assert.assertEquals(0, addedJobs.size());
+    }
+}
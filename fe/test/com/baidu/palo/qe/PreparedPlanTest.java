@@ -0,0 +1,110 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.analysis.IntLiteral;
+import com.baidu.palo.analysis.LiteralExpr;
+import com.baidu.palo.catalog.AggregateType;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.ColumnType;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.catalog.Type;
+import com.baidu.palo.planner.HashJoinNode;
+import com.baidu.palo.planner.OlapScanNode;
+import com.baidu.palo.planner.PlannerTestUtil;
+import com.baidu.palo.thrift.TScanRangeLocations;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class PreparedPlanTest {
+    private static final long OTHER_BACKEND_ID = PlannerTestUtil.BACKEND_ID + 1;
+
+    private ConnectContext context;
+
+    @Before
+    public void setUp() {
+        Database db = PlannerTestUtil.createDb("prepared_plan_test");
+        PlannerTestUtil.addBackend(OTHER_BACKEND_ID);
+        // bucket 0 of both tables is on the same backend, but bucket 1 is not
+        long[][] bucketBackendIds = {
+                {PlannerTestUtil.BACKEND_ID, PlannerTestUtil.BACKEND_ID},
+                {PlannerTestUtil.BACKEND_ID, OTHER_BACKEND_ID}};
+        String[] tableNames = {"t1", "t2"};
+        for (int i = 0; i < tableNames.length; i++) {
+            List<Column> columns = Lists.newArrayList(
+                    new Column("k1", new ColumnType(PrimitiveType.INT), true, null, true, "", ""),
+                    new Column("v1", new ColumnType(PrimitiveType.INT), false, AggregateType.NONE, true, "", ""));
+            PlannerTestUtil.createColocateTable(db, tableNames[i], columns, "group1", bucketBackendIds[i],
+                                                1000L, 100000L);
+        }
+        context = PlannerTestUtil.createContext(db);
+    }
+
+    // bucket of t1 which 'value' of k1 is in
+    private int getBucketSeq(int value) throws Exception {
+        List<OlapScanNode> scanNodes = PlannerTestUtil.getPlanNodes(
+                PlannerTestUtil.plan(context, "select k1 from t1 where k1 = " + value), OlapScanNode.class);
+        List<TScanRangeLocations> locations = scanNodes.get(0).getScanRangeLocations(0);
+        Assert.assertEquals(1, locations.size());
+        return scanNodes.get(0).getBucketSeq(locations.get(0).getScan_range().getPalo_scan_range().getTablet_id());
+    }
+
+    private List<LiteralExpr> params(int value) throws Exception {
+        return Lists.<LiteralExpr>newArrayList(new IntLiteral(value, Type.INT), new IntLiteral(value, Type.INT));
+    }
+
+    @Test
+    public void testBindValuesOfOtherBuckets() throws Exception {
+        int[] bucketValues = {-1, -1};
+        for (int value = 0; bucketValues[0] < 0 || bucketValues[1] < 0; value++) {
+            int bucketSeq = getBucketSeq(value);
+            if (bucketValues[bucketSeq] < 0) {
+                bucketValues[bucketSeq] = value;
+            }
+        }
+
+        String sql = "select t1.v1, t2.v1 from t1 join t2 on t1.k1 = t2.k1 where t1.k1 = ? and t2.k1 = ?";
+        PreparedPlan plan = PlannerTestUtil.planPrepared(
+                context, PreparedStmt.create(sql).getParsedStmt(), params(bucketValues[0]));
+        Assert.assertNotNull(plan);
+        List<HashJoinNode> joins = PlannerTestUtil.getPlanNodes(plan.getPlanner(), HashJoinNode.class);
+        Assert.assertEquals(1, joins.size());
+        Assert.assertTrue(joins.get(0).getExplainString().contains("COLOCATE"));
+
+        // the tablets of bucket 0 can still be joined locally
+        Assert.assertTrue(plan.bind(params(bucketValues[0])));
+        // replicas of bucket 1 of the tables are not on the same backend, the query should be planned again
+        Assert.assertFalse(plan.bind(params(bucketValues[1])));
+
+        // and it is planned as a join exchanging data
+        plan = PlannerTestUtil.planPrepared(
+                context, PreparedStmt.create(sql).getParsedStmt(), params(bucketValues[1]));
+        joins = PlannerTestUtil.getPlanNodes(plan.getPlanner(), HashJoinNode.class);
+        Assert.assertFalse(joins.get(0).getExplainString().contains("COLOCATE"));
+        Assert.assertTrue(plan.bind(params(bucketValues[1])));
+    }
+}
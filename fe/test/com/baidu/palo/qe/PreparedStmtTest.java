@@ -0,0 +1,62 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.analysis.QueryStmt;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class PreparedStmtTest {
+
+    @Test
+    public void testSplit() {
+        List<String> segments = PreparedStmt.split("select * from t where k1 = ? and k2 in (?, ?)");
+        Assert.assertEquals(Lists.newArrayList("select * from t where k1 = ", " and k2 in (", ", ", ")"),
+                segments);
+
+        // markers in quotes and comments are not parameters
+        segments = PreparedStmt.split("select '?', \"a\\\"?\", `?` /* ? */ from t -- ?\n where k1 = ?");
+        Assert.assertEquals(2, segments.size());
+        Assert.assertEquals("", segments.get(1));
+
+        segments = PreparedStmt.split("select 'it''s ?' from t");
+        Assert.assertEquals(1, segments.size());
+    }
+
+    @Test
+    public void testParsedStmt() throws Exception {
+        PreparedStmt stmt = PreparedStmt.create("select k1 from t where k1 = ? and k2 in (?, '?')");
+        Assert.assertEquals(2, stmt.getNumParams());
+        QueryStmt parsedStmt = stmt.getParsedStmt();
+        Assert.assertNotNull(parsedStmt);
+        Assert.assertTrue(parsedStmt.toSql().contains("?"));
+        // every execution gets a copy
+        Assert.assertNotSame(parsedStmt, stmt.getParsedStmt());
+
+        // only queries are parsed with markers
+        stmt = PreparedStmt.create("insert into t values (?)");
+        Assert.assertNull(stmt.getParsedStmt());
+    }
+}
@@ -0,0 +1,174 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.analysis.QueryStmt;
+import com.baidu.palo.catalog.OlapTable;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.Pair;
+import com.baidu.palo.planner.OlapScanNode;
+import com.baidu.palo.planner.ScanNode;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class QueryCacheTest {
+    private int oldCacheSizeMb;
+    private boolean oldCacheEnabled;
+
+    @Before
+    public void setUp() {
+        oldCacheSizeMb = Config.query_cache_size_mb;
+        oldCacheEnabled = Config.query_cache_enabled;
+        Config.query_cache_size_mb = 1;
+        Config.query_cache_enabled = true;
+        QueryCache.getInstance().clear();
+    }
+
+    @After
+    public void tearDown() {
+        Config.query_cache_size_mb = oldCacheSizeMb;
+        Config.query_cache_enabled = oldCacheEnabled;
+        QueryCache.getInstance().clear();
+    }
+
+    private static String getCacheKey(Map<Long, Pair<Long, Long>> selectedVersions, List<Long> tablePartitionIds,
+                                      List<Long> partitionIds) {
+        OlapTable table = EasyMock.createMock(OlapTable.class);
+        EasyMock.expect(table.getId()).andReturn(10L).anyTimes();
+        EasyMock.expect(table.getSchemaHashByIndexId(EasyMock.anyLong())).andReturn(12345).anyTimes();
+        EasyMock.replay(table);
+
+        OlapScanNode scanNode = EasyMock.createMock(OlapScanNode.class);
+        EasyMock.expect(scanNode.getOlapTable()).andReturn(table).anyTimes();
+        EasyMock.expect(scanNode.getSelectedIndexId()).andReturn(10L).anyTimes();
+        EasyMock.expect(scanNode.getSelectedPartitionVersions()).andReturn(selectedVersions).anyTimes();
+        EasyMock.expect(scanNode.getTablePartitionIds()).andReturn(tablePartitionIds).anyTimes();
+        EasyMock.replay(scanNode);
+
+        QueryStmt stmt = EasyMock.createMock(QueryStmt.class);
+        EasyMock.expect(stmt.toSql()).andReturn("SELECT * FROM `t` WHERE `k1` > 10").anyTimes();
+        EasyMock.replay(stmt);
+
+        ConnectContext context = new ConnectContext(null);
+        context.setUser("root");
+        context.setDatabase("testDb");
+        return QueryCache.getCacheKey(context, stmt, Lists.<ScanNode>newArrayList(scanNode), partitionIds);
+    }
+
+    private static List<byte[]> createRows(int num, int rowSize) {
+        List<byte[]> rows = Lists.newArrayList();
+        for (int i = 0; i < num; i++) {
+            rows.add(new byte[rowSize]);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testPutAndGet() {
+        QueryCache cache = QueryCache.getInstance();
+        Assert.assertNull(cache.get("key1"));
+
+        List<byte[]> rows = createRows(10, 100);
+        cache.put("key1", Lists.newArrayList(1L, 2L), rows, 1000);
+        Assert.assertSame(rows, cache.get("key1"));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertTrue(cache.getTotalSize() > 1000);
+
+        // replace
+        List<byte[]> newRows = createRows(5, 100);
+        cache.put("key1", Lists.newArrayList(1L, 2L), newRows, 500);
+        Assert.assertSame(newRows, cache.get("key1"));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testInvalidate() {
+        QueryCache cache = QueryCache.getInstance();
+        cache.put("key1", Lists.newArrayList(1L, 2L), createRows(1, 10), 10);
+        cache.put("key2", Lists.newArrayList(2L, 3L), createRows(1, 10), 10);
+        cache.put("key3", Lists.newArrayList(4L), createRows(1, 10), 10);
+
+        cache.invalidatePartition(2L);
+        Assert.assertNull(cache.get("key1"));
+        Assert.assertNull(cache.get("key2"));
+        Assert.assertNotNull(cache.get("key3"));
+
+        cache.invalidatePartition(4L);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getTotalSize());
+    }
+
+    @Test
+    public void testCacheKeyWithPartitionChange() {
+        Map<Long, Pair<Long, Long>> versions = Maps.newHashMap();
+        versions.put(1L, Pair.create(2L, 0L));
+        List<Long> partitionIds = Lists.newArrayList();
+        String key = getCacheKey(versions, Lists.newArrayList(1L), partitionIds);
+        Assert.assertNotNull(key);
+        Assert.assertEquals(Lists.newArrayList(1L), partitionIds);
+        Assert.assertEquals(key, getCacheKey(versions, Lists.newArrayList(1L), Lists.<Long>newArrayList()));
+
+        // a partition is added, which may be selected by the query with same sql
+        Assert.assertFalse(key.equals(getCacheKey(versions, Lists.newArrayList(1L, 2L), Lists.<Long>newArrayList())));
+
+        // query pruned to no partition
+        Map<Long, Pair<Long, Long>> noVersions = Maps.newHashMap();
+        String emptyKey = getCacheKey(noVersions, Lists.newArrayList(1L), Lists.<Long>newArrayList());
+        Assert.assertFalse(emptyKey.equals(getCacheKey(noVersions, Lists.newArrayList(1L, 2L),
+                Lists.<Long>newArrayList())));
+        // a partition is dropped
+        Assert.assertFalse(emptyKey.equals(getCacheKey(noVersions, Lists.<Long>newArrayList(),
+                Lists.<Long>newArrayList())));
+    }
+
+    @Test
+    public void testEviction() {
+        QueryCache cache = QueryCache.getInstance();
+        // each entry is about 300KB, cache is 1MB
+        for (int i = 0; i < 3; i++) {
+            cache.put("key" + i, Lists.newArrayList((long) i), createRows(300, 1024), 300 * 1024);
+        }
+        Assert.assertEquals(3, cache.size());
+        // access key0, so key1 is the least recently used
+        Assert.assertNotNull(cache.get("key0"));
+
+        cache.put("key3", Lists.newArrayList(3L), createRows(300, 1024), 300 * 1024);
+        Assert.assertEquals(3, cache.size());
+        Assert.assertNotNull(cache.get("key0"));
+        Assert.assertNull(cache.get("key1"));
+        Assert.assertNotNull(cache.get("key2"));
+        Assert.assertNotNull(cache.get("key3"));
+        Assert.assertTrue(cache.getTotalSize() <= 1024 * 1024);
+
+        // larger than the whole cache
+        cache.put("key4", Lists.newArrayList(4L), createRows(2048, 1024), 2048 * 1024);
+        Assert.assertNull(cache.get("key4"));
+    }
+}
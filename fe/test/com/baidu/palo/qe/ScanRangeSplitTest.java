@@ -0,0 +1,197 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+
+package com.baidu.palo.qe;
+
+import com.baidu.palo.analysis.Analyzer;
+import com.baidu.palo.analysis.IntLiteral;
+import com.baidu.palo.analysis.SetType;
+import com.baidu.palo.analysis.SetVar;
+import com.baidu.palo.catalog.AggregateType;
+import com.baidu.palo.catalog.Column;
+import com.baidu.palo.catalog.ColumnType;
+import com.baidu.palo.catalog.Database;
+import com.baidu.palo.catalog.KeysType;
+import com.baidu.palo.catalog.PrimitiveType;
+import com.baidu.palo.common.Config;
+import com.baidu.palo.common.util.UnitTestUtil;
+import com.baidu.palo.planner.OlapScanNode;
+import com.baidu.palo.planner.PlanFragment;
+import com.baidu.palo.planner.Planner;
+import com.baidu.palo.planner.PlannerTestUtil;
+import com.baidu.palo.thrift.TNetworkAddress;
+import com.baidu.palo.thrift.TScanRangeLocations;
+import com.baidu.palo.thrift.TScanRangeParams;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+// Test Coordinator.splitScanRanges(), which splits scan ranges of a fragment on one host into instances
+public class ScanRangeSplitTest {
+    private static final TNetworkAddress HOST = new TNetworkAddress("127.0.0.1", 9060);
+
+    private long minBytesPerInstance;
+    private int maxInstanceNumPerBackend;
+    private Database db;
+    private ConnectContext context;
+
+    @Before
+    public void setUp() {
+        minBytesPerInstance = Config.min_bytes_per_fragment_instance;
+        maxInstanceNumPerBackend = Config.max_scan_instance_num_per_backend;
+        db = PlannerTestUtil.createDb("scan_range_split_test");
+        // 8 tablets of 1000 bytes
+        createTable("t8", 8);
+        // 1 tablet of 8000 bytes
+        createTable("t1", 1);
+        context = PlannerTestUtil.createContext(db);
+    }
+
+    @After
+    public void tearDown() {
+        Config.min_bytes_per_fragment_instance = minBytesPerInstance;
+        Config.max_scan_instance_num_per_backend = maxInstanceNumPerBackend;
+    }
+
+    private void createTable(String tableName, int bucketNum) {
+        List<Column> columns = Lists.newArrayList(
+                new Column("k1", new ColumnType(PrimitiveType.INT), true, null, false, "", ""),
+                new Column("v1", new ColumnType(PrimitiveType.INT), false, AggregateType.NONE, false, "", ""));
+        PlannerTestUtil.createTable(db, tableName, KeysType.DUP_KEYS, columns, bucketNum, 800L, 8000L);
+    }
+
+    private Planner plan(String tableName, int parallelInstanceNum) throws Exception {
+        VariableMgr.setVar(context.getSessionVariable(), new SetVar(SetType.SESSION,
+                SessionVariable.PARALLEL_FRAGMENT_EXEC_INSTANCE_NUM, new IntLiteral(parallelInstanceNum)));
+        return PlannerTestUtil.plan(context, "select * from " + tableName);
+    }
+
+    // Return the scan ranges of each instance
+    private List<Map<Integer, List<TScanRangeParams>>> split(String tableName, int parallelInstanceNum,
+                                                             boolean isColocate) throws Exception {
+        Planner planner = plan(tableName, parallelInstanceNum);
+        Coordinator coord = new Coordinator(context, new Analyzer(context.getCatalog(), context), planner);
+        return split(coord, planner, isColocate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<Integer, List<TScanRangeParams>>> split(Coordinator coord, Planner planner,
+                                                             boolean isColocate) throws Exception {
+        OlapScanNode scanNode = PlannerTestUtil.getPlanNodes(planner, OlapScanNode.class).get(0);
+        PlanFragment fragment = scanNode.getFragment();
+        fragment.setColocate(isColocate);
+
+        Map<Integer, List<TScanRangeParams>> scanRanges = Maps.newHashMap();
+        List<TScanRangeParams> params = Lists.newArrayList();
+        for (TScanRangeLocations locations : scanNode.getScanRangeLocations(0)) {
+            params.add(new TScanRangeParams(locations.getScan_range()));
+        }
+        scanRanges.put(scanNode.getId().asInt(), params);
+
+        Method method = UnitTestUtil.getPrivateMethod(Coordinator.class, "splitScanRanges",
+                new Class[] {PlanFragment.class, TNetworkAddress.class, Map.class});
+        return (List<Map<Integer, List<TScanRangeParams>>>) method.invoke(coord, fragment, HOST, scanRanges);
+    }
+
+    private static int numScanRanges(Map<Integer, List<TScanRangeParams>> instance) {
+        int num = 0;
+        for (List<TScanRangeParams> scanRanges : instance.values()) {
+            num += scanRanges.size();
+        }
+        return num;
+    }
+
+    @Test
+    public void testLimitedByParallelInstanceNum() throws Exception {
+        Config.min_bytes_per_fragment_instance = 1;
+        List<Map<Integer, List<TScanRangeParams>>> instances = split("t8", 4, false);
+        Assert.assertEquals(4, instances.size());
+        for (Map<Integer, List<TScanRangeParams>> instance : instances) {
+            Assert.assertEquals(2, numScanRanges(instance));
+        }
+
+        instances = split("t8", 1, false);
+        Assert.assertEquals(1, instances.size());
+        Assert.assertEquals(8, numScanRanges(instances.get(0)));
+    }
+
+    @Test
+    public void testLimitedByBackendInstanceNum() throws Exception {
+        Config.min_bytes_per_fragment_instance = 1;
+        Config.max_scan_instance_num_per_backend = 6;
+        List<Map<Integer, List<TScanRangeParams>>> instances = split("t8", 0, false);
+        Assert.assertEquals(6, instances.size());
+
+        // the session variable can not exceed the limit of backend
+        instances = split("t8", 8, false);
+        Assert.assertEquals(6, instances.size());
+
+        // instance slots of a backend are shared by all scan fragments of a query
+        Config.max_scan_instance_num_per_backend = 10;
+        Planner planner = plan("t8", 0);
+        Coordinator coord = new Coordinator(context, new Analyzer(context.getCatalog(), context), planner);
+        Assert.assertEquals(8, split(coord, planner, false).size());
+        instances = split(coord, planner, false);
+        Assert.assertEquals(2, instances.size());
+        Assert.assertEquals(4, numScanRanges(instances.get(0)));
+        Assert.assertEquals(4, numScanRanges(instances.get(1)));
+        Assert.assertEquals(1, split(coord, planner, false).size());
+    }
+
+    @Test
+    public void testMinBytesPerInstance() throws Exception {
+        Config.min_bytes_per_fragment_instance = 3000;
+        List<Map<Integer, List<TScanRangeParams>>> instances = split("t8", 4, false);
+        Assert.assertEquals(2, instances.size());
+        Assert.assertEquals(4, numScanRanges(instances.get(0)));
+        Assert.assertEquals(4, numScanRanges(instances.get(1)));
+
+        Config.min_bytes_per_fragment_instance = 10000;
+        instances = split("t8", 4, false);
+        Assert.assertEquals(1, instances.size());
+        Assert.assertEquals(8, numScanRanges(instances.get(0)));
+    }
+
+    @Test
+    public void testColocateFragment() throws Exception {
+        // tablets of the same bucket of colocate tables are joined by one instance
+        Config.min_bytes_per_fragment_instance = 1;
+        List<Map<Integer, List<TScanRangeParams>>> instances = split("t8", 4, true);
+        Assert.assertEquals(1, instances.size());
+        Assert.assertEquals(8, numScanRanges(instances.get(0)));
+    }
+
+    @Test
+    public void testSingleScanRange() throws Exception {
+        Config.min_bytes_per_fragment_instance = 1;
+        List<Map<Integer, List<TScanRangeParams>>> instances = split("t1", 4, false);
+        Assert.assertEquals(1, instances.size());
+        Assert.assertEquals(1, numScanRanges(instances.get(0)));
+    }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.rewrite;
+
+import com.baidu.palo.analysis.BinaryPredicate;
+import com.baidu.palo.analysis.BoolLiteral;
+import com.baidu.palo.analysis.CompoundPredicate;
+import com.baidu.palo.analysis.DateLiteral;
+import com.baidu.palo.analysis.Expr;
+import com.baidu.palo.analysis.InPredicate;
+import com.baidu.palo.analysis.IntLiteral;
+import com.baidu.palo.analysis.SlotRef;
+import com.baidu.palo.analysis.TableName;
+import com.baidu.palo.catalog.Type;
+import com.baidu.palo.common.AnalysisException;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExprRewriterTest {
+    private ExprRewriter rewriter;
+    private SlotRef slotA;
+    private SlotRef slotB;
+
+    @Before
+    public void setUp() {
+        rewriter = new ExprRewriter(Lists.newArrayList(FoldConstantsRule.INSTANCE,
+                                                       SimplifyCompoundPredicatesRule.INSTANCE,
+                                                       OrToInPredicateRule.INSTANCE));
+        slotA = new SlotRef(new TableName("db", "tbl"), "a");
+        slotB = new SlotRef(new TableName("db", "tbl"), "b");
+    }
+
+    private static Expr eq(Expr left, Expr right) {
+        return new BinaryPredicate(BinaryPredicate.Operator.EQ, left, right);
+    }
+
+    private static Expr and(Expr left, Expr right) {
+        return new CompoundPredicate(CompoundPredicate.Operator.AND, left, right);
+    }
+
+    private static Expr or(Expr left, Expr right) {
+        return new CompoundPredicate(CompoundPredicate.Operator.OR, left, right);
+    }
+
+    @Test
+    public void testFoldLiteralPredicates() throws AnalysisException {
+        // 1 = 1 AND a = 1 ==> a = 1
+        Expr predicate = eq(slotA, new IntLiteral(1));
+        Assert.assertSame(predicate, rewriter.rewrite(and(eq(new IntLiteral(1), new IntLiteral(1)), predicate), null));
+
+        // 1 = 2 AND a = 1 ==> FALSE
+        Expr result = rewriter.rewrite(and(eq(new IntLiteral(1), new IntLiteral(2)), eq(slotA, new IntLiteral(1))), null);
+        Assert.assertEquals(new BoolLiteral(false), result);
+
+        // '2018-01-02' > '2018-01-01' ==> TRUE
+        result = rewriter.rewrite(new BinaryPredicate(BinaryPredicate.Operator.GT,
+                                                      new DateLiteral("2018-01-02", Type.DATE),
+                                                      new DateLiteral("2018-01-01", Type.DATE)), null);
+        Assert.assertEquals(new BoolLiteral(true), result);
+    }
+
+    @Test
+    public void testSimplifyCompoundPredicates() throws AnalysisException {
+        Expr predicate = eq(slotA, new IntLiteral(1));
+        Assert.assertSame(predicate, rewriter.rewrite(or(new BoolLiteral(false), predicate), null));
+        Assert.assertEquals(new BoolLiteral(true), rewriter.rewrite(or(predicate, new BoolLiteral(true)), null));
+        Assert.assertEquals(new BoolLiteral(false),
+                rewriter.rewrite(new CompoundPredicate(CompoundPredicate.Operator.NOT, new BoolLiteral(true), null),
+                                 null));
+        Assert.assertSame(predicate, rewriter.rewrite(and(predicate, eq(slotA, new IntLiteral(1))), null));
+    }
+
+    @Test
+    public void testOrToInPredicate() throws AnalysisException {
+        // a = 1 OR a = 2 OR a = 1 ==> a IN (1, 2)
+        Expr result = rewriter.rewrite(or(or(eq(slotA, new IntLiteral(1)), eq(slotA, new IntLiteral(2))),
+                                          eq(slotA, new IntLiteral(1))), null);
+        Assert.assertTrue(result instanceof InPredicate);
+        Assert.assertFalse(((InPredicate) result).isNotIn());
+        Assert.assertEquals(3, result.getChildren().size());
+        Assert.assertEquals(slotA, result.getChild(0));
+
+        // a = 1 OR b = 2 is not changed
+        Expr predicate = or(eq(slotA, new IntLiteral(1)), eq(slotB, new IntLiteral(2)));
+        Assert.assertSame(predicate, rewriter.rewrite(predicate, null));
+    }
+}
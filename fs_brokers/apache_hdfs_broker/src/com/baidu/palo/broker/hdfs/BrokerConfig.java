@@ -30,6 +30,14 @@ public class BrokerConfig extends ConfigBase {
     @ConfField
     public static int hdfs_write_buffer_size_kb = 1024;
     
+    // number of blocks of hdfs_read_buffer_size_kb read ahead for each opened file. 0 disables read ahead.
+    @ConfField
+    public static int hdfs_read_ahead_block_num = 4;
+    
+    // number of threads reading ahead for all opened files
+    @ConfField
+    public static int hdfs_read_ahead_thread_num = 32;
+    
     @ConfField
     public static int client_expire_seconds = 300;
     
@@ -65,12 +65,12 @@ public class ClientContextManager {
     }
     
     public synchronized void putNewInputStream(String clientId, TBrokerFD fd, FSDataInputStream fsDataInputStream, 
-            BrokerFileSystem brokerFileSystem) {
+            ReadAheadReader readAheadReader, BrokerFileSystem brokerFileSystem) {
         if (!clientContexts.containsKey(clientId)) {
             clientContexts.putIfAbsent(clientId, new ClientResourceContext(clientId));
         }
         ClientResourceContext clientContext = clientContexts.get(clientId);
-        clientContext.putInputStream(fd, fsDataInputStream, brokerFileSystem);
+        clientContext.putInputStream(fd, fsDataInputStream, readAheadReader, brokerFileSystem);
         fdToClientMap.putIfAbsent(fd, clientId);
     }
     
@@ -85,6 +85,17 @@ public class ClientContextManager {
         return fsDataInputStream;
     }
     
+    // return null if read ahead is disabled
+    public synchronized ReadAheadReader getReadAheadReader(TBrokerFD fd) {
+        String clientId = fdToClientMap.get(fd);
+        if (clientId == null) {
+            throw new BrokerException(TBrokerOperationStatusCode.TARGET_STORAGE_SERVICE_ERROR, 
+                    "the fd is not owned by client {}", clientId);
+        }
+        ClientResourceContext clientContext = clientContexts.get(clientId);
+        return clientContext.getReadAheadReader(fd);
+    }
+    
     public synchronized FSDataOutputStream getFsDataOutputStream(TBrokerFD fd) {
         String clientId = fdToClientMap.get(fd);
         if (clientId == null) {
@@ -105,6 +116,9 @@ public class ClientContextManager {
         BrokerInputStream brokerInputStream = clientContext.inputStreams.remove(fd);
         try {
             if (brokerInputStream != null) {
+                if (brokerInputStream.readAheadReader != null) {
+                    brokerInputStream.readAheadReader.close();
+                }
                 brokerInputStream.inputStream.close();
             }
         } catch (Exception e) {
@@ -176,10 +190,13 @@ public class ClientContextManager {
     private static class BrokerInputStream {
         
         private final FSDataInputStream inputStream;
+        private final ReadAheadReader readAheadReader;
         private final BrokerFileSystem brokerFileSystem;
         
-        public BrokerInputStream(FSDataInputStream inputStream, BrokerFileSystem brokerFileSystem) {
+        public BrokerInputStream(FSDataInputStream inputStream, ReadAheadReader readAheadReader,
+                BrokerFileSystem brokerFileSystem) {
             this.inputStream = inputStream;
+            this.readAheadReader = readAheadReader;
             this.brokerFileSystem = brokerFileSystem;
             this.brokerFileSystem.updateLastUpdateAccessTime();
         }
@@ -189,6 +206,11 @@ public class ClientContextManager {
             return inputStream;
         }
         
+        public ReadAheadReader getReadAheadReader() {
+            this.brokerFileSystem.updateLastUpdateAccessTime();
+            return readAheadReader;
+        }
+        
         public void updateLastUpdateAccessTime() {
             this.brokerFileSystem.updateLastUpdateAccessTime();
         }
@@ -208,8 +230,9 @@ public class ClientContextManager {
             this.lastPingTimestamp = System.currentTimeMillis();
         }
         
-        public void putInputStream(TBrokerFD fd, FSDataInputStream inputStream, BrokerFileSystem fileSystem) {
-            inputStreams.putIfAbsent(fd, new BrokerInputStream(inputStream, fileSystem));
+        public void putInputStream(TBrokerFD fd, FSDataInputStream inputStream, ReadAheadReader readAheadReader,
+                BrokerFileSystem fileSystem) {
+            inputStreams.putIfAbsent(fd, new BrokerInputStream(inputStream, readAheadReader, fileSystem));
         }
         
         public void putOutputStream(TBrokerFD fd, FSDataOutputStream outputStream, BrokerFileSystem fileSystem) {
@@ -224,6 +247,14 @@ public class ClientContextManager {
             return null;
         }
         
+        public ReadAheadReader getReadAheadReader(TBrokerFD fd) {
+            BrokerInputStream brokerInputStream = inputStreams.get(fd);
+            if (brokerInputStream != null) {
+                return brokerInputStream.getReadAheadReader();
+            }
+            return null;
+        }
+        
         public FSDataOutputStream getOutputStream(TBrokerFD fd) {
             BrokerOutputStream brokerOutputStream = outputStreams.get(fd);
             if (brokerOutputStream != null) {
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -54,9 +55,12 @@ public class FileSystemManager {
     private static final String PASSWORD_KEY = "password";
     
     private ScheduledExecutorService handleManagementPool = Executors.newScheduledThreadPool(2);
+    // null if read ahead is disabled
+    private ExecutorService readAheadPool;
     
     private int readBufferSize = 128 << 10; // 128k
     private int writeBufferSize = 128 << 10; // 128k
+    private int readAheadBlockNum = 0;
     
     private ConcurrentHashMap<FileSystemIdentity, BrokerFileSystem> cachedFileSystem;
     private ClientContextManager clientContextManager;
@@ -66,6 +70,10 @@ public class FileSystemManager {
         clientContextManager = new ClientContextManager(handleManagementPool);
         readBufferSize = BrokerConfig.hdfs_read_buffer_size_kb << 10;
         writeBufferSize = BrokerConfig.hdfs_write_buffer_size_kb << 10;
+        readAheadBlockNum = BrokerConfig.hdfs_read_ahead_block_num;
+        if (readAheadBlockNum > 0) {
+            readAheadPool = Executors.newFixedThreadPool(BrokerConfig.hdfs_read_ahead_thread_num);
+        }
         handleManagementPool.schedule(new FileSystemExpirationChecker(), 0, TimeUnit.SECONDS);
     }
     
@@ -220,9 +228,14 @@ public class FileSystemManager {
         try {
             FSDataInputStream fsDataInputStream = fileSystem.getDFSFileSystem().open(inputFilePath, readBufferSize);
             fsDataInputStream.seek(startOffset);
+            ReadAheadReader readAheadReader = null;
+            if (readAheadPool != null) {
+                readAheadReader = new ReadAheadReader(fsDataInputStream, startOffset, readAheadPool,
+                        readBufferSize, readAheadBlockNum);
+            }
             UUID uuid = UUID.randomUUID();
             TBrokerFD fd = parseUUIDToFD(uuid);
-            clientContextManager.putNewInputStream(clientId, fd, fsDataInputStream, fileSystem);
+            clientContextManager.putNewInputStream(clientId, fd, fsDataInputStream, readAheadReader, fileSystem);
             return fd;
         } catch (IOException e) {
             logger.error("errors while open path", e);
@@ -233,6 +246,22 @@ public class FileSystemManager {
     }
     
     public ByteBuffer pread(TBrokerFD fd, long offset, long length) {
+        ReadAheadReader readAheadReader = clientContextManager.getReadAheadReader(fd);
+        if (readAheadReader != null) {
+            ByteBuffer readBuf;
+            try {
+                readBuf = readAheadReader.pread(offset, length);
+            } catch (IOException e) {
+                logger.error("errors while read data from stream", e);
+                throw new BrokerException(TBrokerOperationStatusCode.TARGET_STORAGE_SERVICE_ERROR, 
+                        e, "errors while read data from stream");
+            }
+            if (readBuf == null) {
+                throw new BrokerException(TBrokerOperationStatusCode.END_OF_FILE, 
+                        "end of file reached");
+            }
+            return readBuf;
+        }
         FSDataInputStream fsDataInputStream = clientContextManager.getFsDataInputStream(fd);
         long currentStreamOffset;
         try {
@@ -266,6 +295,14 @@ public class FileSystemManager {
                 throw new BrokerException(TBrokerOperationStatusCode.END_OF_FILE, 
                         "end of file reached");
             }
+            // read may return less bytes than requested before end of file
+            while (readLength < buf.length) {
+                int moreLength = fsDataInputStream.read(buf, readLength, buf.length - readLength);
+                if (moreLength < 0) {
+                    break;
+                }
+                readLength += moreLength;
+            }
             return ByteBuffer.wrap(buf, 0, readLength);
         } catch (IOException e) {
             logger.error("errors while read data from stream", e);
@@ -0,0 +1,191 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.broker.hdfs;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+
+/**
+ * Reads a file ahead of its client, which reads the file sequentially by pread.
+ * The blocks following the last read bytes are read by a shared io pool, at most blockNum blocks
+ * of blockSize bytes for each reader. pread returns the bytes of a read block without copy.
+ * 
+ * Blocks are not reused, because the returned bytes are still referred by the response
+ * after pread returns.
+ */
+public class ReadAheadReader {
+
+    private final FSDataInputStream inputStream;
+    private final ExecutorService ioPool;
+    private final int blockSize;
+    private final int blockNum;
+
+    // blocks being read or already read, in order of offset
+    private final LinkedList<Future<Block>> blocks;
+    // offset of the block following the last one of blocks
+    private long nextBlockOffset;
+    private boolean closed;
+
+    public ReadAheadReader(FSDataInputStream inputStream, long startOffset, ExecutorService ioPool,
+            int blockSize, int blockNum) {
+        this.inputStream = inputStream;
+        this.ioPool = ioPool;
+        this.blockSize = blockSize;
+        this.blockNum = blockNum;
+        this.blocks = new LinkedList<>();
+        this.nextBlockOffset = startOffset;
+        this.closed = false;
+        fillBlocks();
+    }
+
+    /**
+     * Returns at most length bytes from offset, and null if offset is at or after end of file.
+     * Less bytes than length may be returned even if the file has more.
+     */
+    public synchronized ByteBuffer pread(long offset, long length) throws IOException {
+        if (closed) {
+            throw new IOException("reader is closed");
+        }
+        Block block = getBlock(offset);
+        if (block == null) {
+            return null;
+        }
+        int start = (int) (offset - block.offset);
+        int readLength = (int) Math.min(length, block.length - start);
+        if (start + readLength == block.length) {
+            blocks.removeFirst();
+            fillBlocks();
+        }
+        return ByteBuffer.wrap(block.data, start, readLength).slice();
+    }
+
+    public synchronized void close() {
+        closed = true;
+        for (Future<Block> block : blocks) {
+            // do not interrupt the hdfs client
+            block.cancel(false);
+        }
+        blocks.clear();
+    }
+
+    // Returns the block which contains offset, and null if offset is at or after end of file.
+    private Block getBlock(long offset) throws IOException {
+        while (true) {
+            if (blocks.isEmpty()) {
+                nextBlockOffset = offset;
+                fillBlocks();
+            }
+            Block first = waitBlock(blocks.getFirst());
+            long end = first.offset + first.length;
+            if (offset >= first.offset && offset < end) {
+                return first;
+            }
+            if (offset >= end && first.length < blockSize) {
+                return null;
+            }
+            if (offset >= end && offset < nextBlockOffset) {
+                // client skipped some bytes, which may be in the following blocks
+                blocks.removeFirst();
+                fillBlocks();
+                continue;
+            }
+            // client seeked out of the read ahead range
+            for (Future<Block> block : blocks) {
+                block.cancel(false);
+            }
+            blocks.clear();
+        }
+    }
+
+    private Block waitBlock(Future<Block> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void fillBlocks() {
+        while (blocks.size() < blockNum) {
+            blocks.add(ioPool.submit(new ReadBlockTask(nextBlockOffset)));
+            nextBlockOffset += blockSize;
+        }
+    }
+
+    private static class Block {
+        private final long offset;
+        private final byte[] data;
+        // less than block size only if end of file is reached
+        private final int length;
+
+        public Block(long offset, byte[] data, int length) {
+            this.offset = offset;
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    private class ReadBlockTask implements Callable<Block> {
+
+        private final long offset;
+
+        public ReadBlockTask(long offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public Block call() throws IOException {
+            byte[] data = new byte[blockSize];
+            int length = 0;
+            // blocks are read in order in most cases, so the stream seldom seeks
+            synchronized (inputStream) {
+                if (inputStream.getPos() != offset) {
+                    try {
+                        inputStream.seek(offset);
+                    } catch (EOFException e) {
+                        return new Block(offset, data, 0);
+                    }
+                }
+                // read may return less bytes than requested before end of file
+                while (length < blockSize) {
+                    int readLength = inputStream.read(data, length, blockSize - length);
+                    if (readLength < 0) {
+                        break;
+                    }
+                    length += readLength;
+                }
+            }
+            return new Block(offset, data, length);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+// Copyright (c) 2017, Baidu.com, Inc. All Rights Reserved
+
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.baidu.palo.broker.hdfs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestReadAheadReader extends TestCase {
+
+    private static final int FILE_SIZE = 10000;
+    
+    private ExecutorService ioPool;
+    private File file;
+    private FSDataInputStream inputStream;
+    
+    protected void setUp() throws Exception {
+        ioPool = Executors.newFixedThreadPool(2);
+        file = File.createTempFile("read_ahead", ".dat");
+        byte[] data = new byte[FILE_SIZE];
+        for (int i = 0; i < FILE_SIZE; i++) {
+            data[i] = (byte) i;
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        inputStream = FileSystem.getLocal(new Configuration()).open(new Path(file.getAbsolutePath()));
+    }
+    
+    protected void tearDown() throws Exception {
+        inputStream.close();
+        ioPool.shutdown();
+        file.delete();
+    }
+    
+    private void checkData(ByteBuffer buf, long offset, int length) {
+        assertEquals(length, buf.remaining());
+        for (int i = 0; i < length; i++) {
+            assertEquals((byte) (offset + i), buf.get(buf.position() + i));
+        }
+    }
+    
+    @Test
+    public void testSequentialRead() throws IOException {
+        ReadAheadReader reader = new ReadAheadReader(inputStream, 0, ioPool, 1024, 3);
+        long offset = 0;
+        while (true) {
+            ByteBuffer buf = reader.pread(offset, 700);
+            if (buf == null) {
+                break;
+            }
+            assertTrue(buf.remaining() > 0);
+            checkData(buf, offset, buf.remaining());
+            offset += buf.remaining();
+        }
+        assertEquals(FILE_SIZE, offset);
+        reader.close();
+    }
+    
+    @Test
+    public void testSeek() throws IOException {
+        ReadAheadReader reader = new ReadAheadReader(inputStream, 100, ioPool, 1024, 2);
+        // skip in read ahead range
+        checkData(reader.pread(1500, 100), 1500, 100);
+        // seek backward
+        checkData(reader.pread(10, 100), 10, 100);
+        // seek out of read ahead range
+        checkData(reader.pread(9000, 2000), 9000, 1000);
+        assertNull(reader.pread(FILE_SIZE, 100));
+        assertNull(reader.pread(FILE_SIZE + 5000, 100));
+        reader.close();
+    }
+}
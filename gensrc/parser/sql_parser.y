@@ -52,6 +52,8 @@ parser code {:
     public boolean isVerbose = false;
     public String wild;
     public Expr where;
+    // number of parameter markers('?') parsed, used as index of the next marker
+    public int placeHolderCount = 0;
 
     // List of expected tokens ids from current parsing state for generating syntax error message
     private final List<Integer> expectedTokenIds = Lists.newArrayList();
@@ -193,7 +195,7 @@ parser code {:
 :};
 
 // Total keywords of palo
-terminal String KW_ADD, KW_AFTER, KW_AGGREGATE, KW_ALL, KW_ALTER, KW_AND, KW_ANTI, KW_AS, KW_ASC, KW_AUTHORS, 
+terminal String KW_ADD, KW_AFTER, KW_AGGREGATE, KW_ALL, KW_ALTER, KW_ANALYZE, KW_AND, KW_ANTI, KW_AS, KW_ASC, KW_AUTHORS, 
     KW_BACKEND, KW_BACKUP, KW_BETWEEN, KW_BEGIN, KW_BIGINT, KW_BOOLEAN, KW_BOTH, KW_BROKER, KW_BY,
     KW_CANCEL, KW_CASE, KW_CAST, KW_CHAIN, KW_CHAR, KW_CHARSET, KW_SYSTEM, KW_CLUSTER, KW_CLUSTERS, KW_LINK, KW_MIGRATE, KW_MIGRATIONS, KW_ENTER,
     KW_COLLATE, KW_COLLATION, KW_COLUMN, KW_COLUMNS, KW_COMMENT, KW_COMMIT, KW_COMMITTED,
@@ -230,7 +232,7 @@ terminal String KW_ADD, KW_AFTER, KW_AGGREGATE, KW_ALL, KW_ALTER, KW_AND, KW_ANT
     KW_WARNINGS, KW_WHEN, KW_WHITELIST, KW_WHERE, KW_WITH, KW_WORK, KW_WRITE;
 
 terminal COMMA, DOT, AT, STAR, LPAREN, RPAREN, SEMICOLON, LBRACKET, RBRACKET, DIVIDE, MOD, ADD, SUBTRACT;
-terminal BITAND, BITOR, BITXOR, BITNOT;
+terminal BITAND, BITOR, BITXOR, BITNOT, PLACEHOLDER;
 terminal EQUAL, NOT, LESSTHAN, GREATERTHAN, SET_VAR;
 terminal String IDENT;
 terminal String NUMERIC_OVERFLOW;
@@ -245,7 +247,7 @@ terminal String COMMENTED_PLAN_HINTS;
 // Statement that the result of this parser.
 nonterminal StatementBase query, stmt, show_stmt, show_param, help_stmt, load_stmt, describe_stmt, alter_stmt,
     use_stmt, kill_stmt, drop_stmt, recover_stmt, grant_stmt, revoke_stmt, create_stmt, set_stmt, sync_stmt, cancel_stmt, cancel_param, delete_stmt,
-    link_stmt, migrate_stmt, enter_stmt, unsupported_stmt, export_stmt;
+    link_stmt, migrate_stmt, enter_stmt, unsupported_stmt, export_stmt, analyze_stmt;
 
 // unsupported statement
 nonterminal opt_with_consistent_snapshot, opt_work, opt_chain, opt_release;
@@ -472,6 +474,8 @@ stmt ::=
     {: RESULT = stmt; :}
     | export_stmt : stmt
     {: RESULT = stmt; :}
+    | analyze_stmt : stmt
+    {: RESULT = stmt; :}
     | /* empty: query only has comments */
     {:
         RESULT = new EmptyStmt();
@@ -875,6 +879,14 @@ export_stmt ::=
     :}
     ;
 
+// Analyze statement, collect statistics of table
+analyze_stmt ::=
+    KW_ANALYZE KW_TABLE table_name:tbl
+    {:
+        RESULT = new AnalyzeStmt(tbl);
+    :}
+    ;
+
 // Load
 load_stmt ::=
     KW_LOAD KW_LABEL job_label:label
@@ -2907,6 +2919,8 @@ non_pred_expr ::=
   :}
   | literal:l
   {: RESULT = l; :}
+  | PLACEHOLDER
+  {: RESULT = new PlaceHolderExpr(parser.placeHolderCount++); :}
   | function_call_expr:e
   {: RESULT = e; :}
   | KW_DATE STRING_LITERAL:l
@@ -3398,6 +3412,8 @@ opt_release ::=
 keyword ::=
     KW_AFTER:id
     {: RESULT = id; :}
+    | KW_ANALYZE:id
+    {: RESULT = id; :}
     | KW_AGGREGATE:id
     {: RESULT = id; :}
     | KW_AUTHORS:id
@@ -73,5 +73,13 @@ struct TResultBatch {
 
   // packet seq used to check if there has packet lost
   3: required i64 packet_seq
+
+  // Rows encoded as mysql packets, i.e. 3 bytes payload length, 1 byte sequence id
+  // and payload. Sequence ids are filled by frontend. Set instead of rows if
+  // TQueryOptions.return_packed_rows is true.
+  4: optional binary packed_rows
+
+  // number of rows in packed_rows
+  5: optional i32 num_packed_rows
 }
 
@@ -85,6 +85,8 @@ struct TExportSink {
     // properties need to access broker.
     5: optional list<Types.TNetworkAddress> broker_addresses
     6: optional map<string, string> properties;
+    // if set, a new file is started once the current file has this many bytes
+    7: optional i64 max_file_size
 }
 
 struct TDataSink {
@@ -386,6 +386,7 @@ struct TMiniLoadRequest {
     9: optional string subLabel
     10: optional string cluster
     11: optional i64 timestamp
+    12: optional i64 file_size
 }
 
 struct TUpdateMiniEtlTaskStatusRequest {
@@ -66,11 +66,17 @@ struct TReportRequest {
     3: optional map<Types.TTaskType, set<i64>> tasks // string signature
     4: optional map<Types.TTabletId, TTablet> tablets
     5: optional map<string, TDisk> disks // string root_path
+    // digest of all tablets on backend, bucketed by tablet id % size of list
+    6: optional list<i64> tablet_bucket_digests
+    // if true, 'tablets' only contains tablets of buckets changed since last report
+    7: optional bool is_delta_tablet_report
 }
 
 struct TMasterResult {
     // required in V1
     1: required Status.TStatus status
+    // set when master can not apply a delta tablet report and needs all tablets in next report
+    2: optional bool need_full_tablet_report
 }
 
 // Now we only support CPU share.
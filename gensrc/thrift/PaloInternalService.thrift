@@ -88,6 +88,8 @@ struct TQueryOptions {
   // INT64::MAX
   17: optional i64 kudu_latest_observed_ts = 9223372036854775807
   18: optional TQueryType query_type = TQueryType.SELECT
+  // if true, result sink sends rows as mysql packets in TResultBatch.packed_rows
+  19: optional bool return_packed_rows = false
 }
 
 // A scan range plus the parameters needed to execute that scan.
@@ -249,10 +249,33 @@ enum TJoinOp {
   NULL_AWARE_LEFT_ANTI_JOIN
 }
 
+enum TRuntimeFilterType {
+  // IN predicate of all values of the build side
+  IN,
+  // range predicates of the min and max value of the build side
+  MIN_MAX
+}
+
+// Filter generated by a hash join node after constructing the build side, which is
+// applied by a scan node on the probe side in the same fragment.
+struct TRuntimeFilterDesc {
+  1: required i32 filter_id
+
+  // index of the eq join conjunct whose values generate the filter
+  2: required i32 expr_order
+
+  // if IN and the build side has more than max_in_num values, MIN_MAX is used instead
+  3: required TRuntimeFilterType type
+
+  // id of the scan node which applies the filter
+  4: required Types.TPlanNodeId target_node_id
+}
+
 struct THashJoinNode {
   1: required TJoinOp join_op
 
-  // anything from the ON, USING or WHERE clauses that's an equi-join predicate
+  // anything from the ON, USING or WHERE clauses that's an equi-join predicate.
+  // For NULL_AWARE_LEFT_ANTI_JOIN, the last one is the predicate of NOT IN.
   2: required list<TEqJoinCondition> eq_join_conjuncts
 
   // anything from the ON or USING clauses (but *not* the WHERE clause) that's not an
@@ -263,6 +286,11 @@ struct THashJoinNode {
   // If true, this join node can (but may choose not to) generate slot filters
   // after constructing the build side that can be applied to the probe side.
   5: optional bool add_probe_filters
+
+  // If set, only these filters are pushed down to the probe side, instead of
+  // IN predicates of all eq join conjuncts when is_push_down is true.
+  6: optional list<TRuntimeFilterDesc> runtime_filters
+  7: optional i64 runtime_filter_max_in_num
 }
 
 struct TMergeJoinNode {
@@ -334,6 +334,8 @@ enum TExportState {
 enum TFileType {
     FILE_LOCAL,
     FILE_BROKER,
+    // data sent by client of stream load, path of range is the id of stream load pipe
+    FILE_STREAM,
 }
 
 